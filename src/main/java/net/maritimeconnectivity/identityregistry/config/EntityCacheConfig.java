@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.spi.CachingProvider;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sets up the Hibernate second-level cache for the organizations, roles and agents that are read on almost every
+ * request but only change a few times a day. A single JCache manager holds one cache per region, and all regions
+ * share the size and TTL configured under net.maritimeconnectivity.idreg.entity-cache.
+ * <p/>
+ * Hibernate updates the cached entities when they are saved or deleted, while the TTL bounds how long other instances
+ * may use entities that have been changed elsewhere. The hit ratio of each region is exposed by the Hibernate metrics.
+ */
+@Configuration
+public class EntityCacheConfig {
+
+    // The regions named in the @Cache annotations of the entities
+    public static final List<String> REGIONS = Arrays.asList("organizations", "organizationIdentityProviderAttributes",
+            "identityProviderAttributes", "roles", "agents");
+
+    @Value("${net.maritimeconnectivity.idreg.entity-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${net.maritimeconnectivity.idreg.entity-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${net.maritimeconnectivity.idreg.entity-cache.ttl:300}")
+    private long ttl;
+
+    // A provider of its own keeps the regions apart from other application contexts in the same JVM, e.g. in tests
+    @Bean(destroyMethod = "close")
+    public CachingProvider entityCachingProvider() {
+        return new CaffeineCachingProvider();
+    }
+
+    // Closed together with the provider
+    @Bean(destroyMethod = "")
+    public CacheManager entityCacheManager(CachingProvider entityCachingProvider) {
+        CacheManager cacheManager = entityCachingProvider.getCacheManager();
+        for (String region : REGIONS) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttl)));
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+        return properties -> {
+            if (!enabled) {
+                // Hibernate would otherwise pick up the JCache region factory from the classpath by itself
+                properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+                return;
+            }
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+            // All regions are created above, so a missing one is a misspelled region name
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+/**
+ * Sets up the monitoring of the database access: a timer for every repository method, the number of statements,
+ * entity loads and collection fetches of every request, and the slow query log.
+ * <p/>
+ * The Hibernate statistics of the whole application are exposed by the hibernate.* metrics.
+ */
+@Configuration
+public class QueryMonitoringConfig {
+
+    private static final String REPOSITORY_PACKAGE = "net.maritimeconnectivity.identityregistry.repositories";
+
+    // Static so that the post processors do not cause the configuration to be created early
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                // The repository is created when the factory bean is initialized, so the interceptor has to be added before
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> {
+                                Class<?> repositoryInterface = repositoryInformation.getRepositoryInterface();
+                                if (repositoryInterface.getName().startsWith(REPOSITORY_PACKAGE)) {
+                                    proxyFactory.addAdvice(new RepositoryMetricsInterceptor(meterRegistry, repositoryInterface));
+                                }
+                            }));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor statementMonitoringPostProcessor(@Value("${net.maritimeconnectivity.idreg.slow-query-log.threshold:1000}") long slowQueryThreshold) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Only the data source that is used by JPA, which routes to the replicas when they are enabled
+                if ("dataSource".equals(beanName) && bean instanceof DataSource) {
+                    return new StatementMonitoringDataSource((DataSource) bean, slowQueryThreshold);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public RequestQueryStatisticsListener requestQueryStatisticsListener(EntityManagerFactory entityManagerFactory) {
+        RequestQueryStatisticsListener listener = new RequestQueryStatisticsListener();
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_LOAD, listener);
+        registry.appendListeners(EventType.INIT_COLLECTION, listener);
+        return listener;
+    }
+}
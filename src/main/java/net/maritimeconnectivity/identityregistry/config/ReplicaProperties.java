@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The read replicas that read-only transactions are sent to, see {@link ReplicaRoutingDataSource}
+ */
+@ConfigurationProperties(prefix = "net.maritimeconnectivity.idreg.replicas")
+@Getter
+@Setter
+public class ReplicaProperties {
+    private boolean enabled;
+    // unit: second
+    private long maxLag = 5;
+    // unit: second
+    private long stickyWindow = 5;
+    // unit: second
+    private long checkInterval = 5;
+    private String lagQuery = "";
+    private List<Replica> datasources = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends the connections of read-only transactions to one of the replicas and everything else to the primary.
+ * <p>
+ * The replicas are checked periodically, and a replica that cannot be reached or that lags more than the allowed
+ * number of seconds behind the primary is skipped until it has caught up. If no replica can be used the primary is.
+ * After a transaction that was not read-only commits, the read-only transactions of the same principal go to the
+ * primary for a short while so that it reads its own writes. This only holds on the instance that did the write.
+ * <p>
+ * Reads whose results are cached for longer than a replica is allowed to lag, such as the roles, claims and
+ * organization ids that the services keep in memory, must be wrapped in {@link #onPrimary(Supplier)}. Otherwise a
+ * read from a lagging replica right after a change would put the old data back into the cache until it expires.
+ * <p>
+ * The transaction has to be known when the connection is taken, so this must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    public static final String PRIMARY = "primary";
+
+    // Set while the reads of the current thread have to go to the primary
+    private static final ThreadLocal<Boolean> primaryOnly = new ThreadLocal<>();
+
+    // Names of the column holding the lag in the result of SHOW SLAVE STATUS and SHOW REPLICA STATUS
+    private static final String[] LAG_COLUMNS = {"Seconds_Behind_Master", "Seconds_Behind_Source"};
+
+    private final Map<String, DataSource> replicas;
+    private final long maxLag;
+    private final long checkInterval;
+    private final String lagQuery;
+    // Principals that have written recently, which expire when they may read from the replicas again
+    private final Cache<String, Boolean> recentWriters;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile List<String> usableReplicas = new ArrayList<>();
+    private ScheduledExecutorService checker;
+
+    /**
+     * @param maxLag        unit: second, replicas lagging more than this behind the primary are not used
+     * @param stickyWindow  unit: second, how long the reads of a principal go to the primary after it has written
+     * @param checkInterval unit: second, how often the replicas are checked, or 0 to only check them on startup
+     * @param lagQuery      a query whose first row holds the lag of a replica in seconds, either in a column named
+     *                      like the one returned by SHOW SLAVE STATUS or in the first column. If empty the replicas
+     *                      are only checked for being reachable.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long maxLag, long stickyWindow,
+                                    long checkInterval, String lagQuery) {
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+        this.lagQuery = lagQuery;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(stickyWindow, TimeUnit.SECONDS)
+                .build();
+        Map<Object, Object> targets = new HashMap<>(this.replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        checkReplicas();
+        if (checkInterval > 0) {
+            checker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "replica-checker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            checker.scheduleWithFixedDelay(this::checkReplicas, checkInterval, checkInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PRIMARY;
+        }
+        String principal = getPrincipal();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (principal != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recentWriters.put(principal, Boolean.TRUE);
+                    }
+                });
+            }
+            return PRIMARY;
+        }
+        if (primaryOnly.get() != null || (principal != null && recentWriters.getIfPresent(principal) != null)) {
+            return PRIMARY;
+        }
+        List<String> usable = usableReplicas;
+        if (usable.isEmpty()) {
+            return PRIMARY;
+        }
+        return usable.get(Math.floorMod(next.getAndIncrement(), usable.size()));
+    }
+
+    /**
+     * Runs the given reads against the primary, also when they are done in read-only transactions. Only connections
+     * that are taken while the reads run are affected, so the transactions should start inside of them.
+     *
+     * @param reads the reads to run
+     * @return the result of the reads
+     */
+    public static <T> T onPrimary(Supplier<T> reads) {
+        Boolean previous = primaryOnly.get();
+        primaryOnly.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            if (previous == null) {
+                primaryOnly.remove();
+            }
+        }
+    }
+
+    /**
+     * Checks which replicas can be used, which is otherwise done periodically
+     */
+    public void checkReplicas() {
+        List<String> usable = new ArrayList<>();
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            if (isUsable(replica.getKey(), replica.getValue())) {
+                usable.add(replica.getKey());
+            }
+        }
+        if (!usable.equals(usableReplicas)) {
+            log.info("Read-only transactions are now sent to the replicas {}", usable);
+        }
+        usableReplicas = usable;
+    }
+
+    public List<String> getUsableReplicas() {
+        return usableReplicas;
+    }
+
+    private boolean isUsable(String name, DataSource replica) {
+        try (Connection connection = replica.getConnection()) {
+            if (lagQuery == null || lagQuery.trim().isEmpty()) {
+                return connection.isValid(5);
+            }
+            try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(lagQuery)) {
+                if (!rs.next()) {
+                    log.warn("Replica {} did not return its lag, it is probably not replicating", name);
+                    return false;
+                }
+                Object lag = rs.getObject(getLagColumn(rs.getMetaData()));
+                if (!(lag instanceof Number) || ((Number) lag).longValue() > maxLag) {
+                    log.warn("Replica {} lags {} seconds behind the primary", name, lag);
+                    return false;
+                }
+                return true;
+            }
+        } catch (SQLException e) {
+            log.warn("Replica {} could not be checked", name, e);
+            return false;
+        }
+    }
+
+    private static int getLagColumn(ResultSetMetaData metaData) throws SQLException {
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            for (String lagColumn : LAG_COLUMNS) {
+                if (lagColumn.equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                    return i;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static String getPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+
+    /**
+     * Stops checking the replicas and closes their data sources, but not the one of the primary
+     */
+    @Override
+    public void close() {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            if (replica.getValue() instanceof Closeable) {
+                try {
+                    ((Closeable) replica.getValue()).close();
+                } catch (IOException e) {
+                    log.warn("Replica {} could not be closed", replica.getKey(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the invocations of the methods of a repository. Methods returning a stream are only timed until the stream
+ * is returned, not while it is being consumed.
+ */
+public class RepositoryMetricsInterceptor implements MethodInterceptor {
+
+    public static final String METRIC_NAME = "idreg.repository.invocations";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final String repository;
+
+    public RepositoryMetricsInterceptor(ObjectProvider<MeterRegistry> meterRegistry, Class<?> repositoryInterface) {
+        this.meterRegistry = meterRegistry;
+        this.repository = repositoryInterface.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return invocation.proceed();
+        }
+        String exception = "None";
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } catch (Throwable t) {
+            exception = t.getClass().getSimpleName();
+            throw t;
+        } finally {
+            Timer.builder(METRIC_NAME)
+                    .description("Invocations of the repository methods")
+                    .tag("repository", repository)
+                    .tag("method", invocation.getMethod().getName())
+                    .tag("exception", exception)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.maritimeconnectivity.identityregistry.utils.RequestQueryStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Records how many statements, entity loads and collection fetches each request causes, tagged with the method and
+ * the URI pattern of the request like the http.server.requests metrics. It runs before all other filters, so that
+ * the statements of the authentication are counted as well.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class RequestQueryStatisticsFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_METRIC_NAME = "idreg.request.statements";
+    public static final String ENTITY_LOADS_METRIC_NAME = "idreg.request.entity.loads";
+    public static final String COLLECTION_FETCHES_METRIC_NAME = "idreg.request.collection.fetches";
+
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        RequestQueryStatistics statistics = RequestQueryStatistics.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestQueryStatistics.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            log.debug("{} {} ran {} statements, loaded {} entities and fetched {} collections", request.getMethod(),
+                    request.getRequestURI(), statistics.getStatements(), statistics.getEntityLoads(), statistics.getCollectionFetches());
+            if (meterRegistry != null) {
+                record(STATEMENTS_METRIC_NAME, "SQL statements run by a request", request.getMethod(), uri, statistics.getStatements());
+                record(ENTITY_LOADS_METRIC_NAME, "Entities loaded by a request", request.getMethod(), uri, statistics.getEntityLoads());
+                record(COLLECTION_FETCHES_METRIC_NAME, "Collections fetched by a request", request.getMethod(), uri, statistics.getCollectionFetches());
+            }
+        }
+    }
+
+    private void record(String name, String description, String method, String uri, long amount) {
+        DistributionSummary.builder(name)
+                .description(description)
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(amount);
+    }
+}
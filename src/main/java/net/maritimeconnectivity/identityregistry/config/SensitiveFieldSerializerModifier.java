@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import net.maritimeconnectivity.identityregistry.model.SensitiveField;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Leaves out properties annotated with {@link SensitiveField} when the bean being serialized
+ * may not be seen in full by the current user.
+ */
+public class SensitiveFieldSerializerModifier extends BeanSerializerModifier {
+
+    private final Predicate<Object> canSeeSensitiveFields;
+
+    public SensitiveFieldSerializerModifier(Predicate<Object> canSeeSensitiveFields) {
+        this.canSeeSensitiveFields = canSeeSensitiveFields;
+    }
+
+    @Override
+    public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+        for (int i = 0; i < beanProperties.size(); i++) {
+            BeanPropertyWriter writer = beanProperties.get(i);
+            if (writer.getAnnotation(SensitiveField.class) != null) {
+                beanProperties.set(i, new SensitivePropertyWriter(writer, canSeeSensitiveFields));
+            }
+        }
+        return beanProperties;
+    }
+
+    private static class SensitivePropertyWriter extends BeanPropertyWriter {
+
+        private final transient Predicate<Object> canSeeSensitiveFields;
+
+        SensitivePropertyWriter(BeanPropertyWriter base, Predicate<Object> canSeeSensitiveFields) {
+            super(base);
+            this.canSeeSensitiveFields = canSeeSensitiveFields;
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+            if (canSeeSensitiveFields.test(bean)) {
+                super.serializeAsField(bean, gen, prov);
+            } else if (!gen.canOmitFields()) {
+                super.serializeAsOmittedField(bean, gen, prov);
+            }
+        }
+
+        @Override
+        public void serializeAsElement(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+            if (canSeeSensitiveFields.test(bean)) {
+                super.serializeAsElement(bean, gen, prov);
+            } else {
+                super.serializeAsPlaceholder(bean, gen, prov);
+            }
+        }
+    }
+}
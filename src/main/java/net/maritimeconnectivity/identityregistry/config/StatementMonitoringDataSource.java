@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.config;
+
+import lombok.extern.slf4j.Slf4j;
+import net.maritimeconnectivity.identityregistry.utils.RequestQueryStatistics;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the statements that are run through the data source for the per-request statistics, and logs the statements
+ * that take longer than the threshold.
+ * <p/>
+ * Only the SQL of a statement is logged. The values bound to its parameters are never logged, and string literals in
+ * the SQL are replaced with placeholders as well, as they may hold MRNs, email addresses or other personal data.
+ */
+@Slf4j
+public class StatementMonitoringDataSource extends DelegatingDataSource {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    private final long slowQueryThresholdNanos;
+
+    /**
+     * @param targetDataSource the data source to monitor
+     * @param slowQueryThreshold statements taking longer than this many milliseconds are logged, 0 or less disables the
+     *                           slow query log
+     */
+    public StatementMonitoringDataSource(DataSource targetDataSource, long slowQueryThreshold) {
+        super(targetDataSource);
+        this.slowQueryThresholdNanos = slowQueryThreshold > 0 ? TimeUnit.MILLISECONDS.toNanos(slowQueryThreshold) : Long.MAX_VALUE;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return monitor(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return monitor(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    /**
+     * Replaces string literals in the given SQL with placeholders
+     *
+     * @param sql the SQL
+     * @return the SQL without string literals
+     */
+    public static String redact(String sql) {
+        return sql == null ? null : STRING_LITERAL.matcher(sql).replaceAll("'?'");
+    }
+
+    private Connection monitor(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = StatementMonitoringDataSource.invoke(target, method, args);
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return monitor((Statement) result, PreparedStatement.class, (String) args[0], (Connection) proxy);
+                case "prepareCall":
+                    return monitor((Statement) result, CallableStatement.class, (String) args[0], (Connection) proxy);
+                case "createStatement":
+                    return monitor((Statement) result, Statement.class, null, (Connection) proxy);
+                default:
+                    return result;
+            }
+        }
+
+        private Object monitor(Statement statement, Class<? extends Statement> type, String sql, Connection connection) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler(statement, sql, connection));
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        // The SQL of a prepared statement, plain statements are given their SQL when they are executed
+        private final String sql;
+        private final Connection connection;
+
+        StatementHandler(Statement target, String sql, Connection connection) {
+            this.target = target;
+            this.sql = sql;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("getConnection".equals(name)) {
+                return connection;
+            }
+            if (!name.startsWith("execute")) {
+                return StatementMonitoringDataSource.invoke(target, method, args);
+            }
+            RequestQueryStatistics.statementExecuted();
+            long start = System.nanoTime();
+            try {
+                return StatementMonitoringDataSource.invoke(target, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                if (elapsed >= slowQueryThresholdNanos) {
+                    String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                    log.warn("Slow query took {} ms: {}", TimeUnit.NANOSECONDS.toMillis(elapsed),
+                            executed != null ? redact(executed) : "(batch)");
+                }
+            }
+        }
+    }
+}
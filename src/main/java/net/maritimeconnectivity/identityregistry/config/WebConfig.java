@@ -16,18 +16,36 @@
 
 package net.maritimeconnectivity.identityregistry.config;
 
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import net.maritimeconnectivity.identityregistry.utils.SensitiveFieldsUtil;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.PathMatchConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurationSupport;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.util.UrlPathHelper;
 
+import java.util.List;
+
 @Configuration
 @EnableWebMvc
 @EnableSpringDataWebSupport
 public class WebConfig extends WebMvcConfigurationSupport {
 
+    // Looked up lazily as the access checks depend on services that are not needed to set up MVC
+    @Autowired
+    private ObjectProvider<SensitiveFieldsUtil> sensitiveFieldsUtil;
+
     @Override
     public void configurePathMatch(PathMatchConfigurer configurer) {
         // Allow encoded "/" (%2F) in urls without actually interpreting it immediately as a path separator
@@ -35,4 +53,54 @@ public class WebConfig extends WebMvcConfigurationSupport {
         urlPathHelper.setUrlDecode(false);
         configurer.setUrlPathHelper(urlPathHelper);
     }
+
+    /**
+     * Adds the modules to the message converters. This has to be done from a WebMvcConfigurer, as the MVC setup
+     * imported by @EnableWebMvc only calls back into those and not into the overridden methods of this class.
+     */
+    @Bean
+    public WebMvcConfigurer jsonModulesConfigurer() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                Module sensitiveFieldsModule = sensitiveFieldsModule();
+                Module lazyAssociationModule = lazyAssociationModule();
+                for (HttpMessageConverter<?> converter : converters) {
+                    if (converter instanceof AbstractJackson2HttpMessageConverter) {
+                        ((AbstractJackson2HttpMessageConverter) converter).getObjectMapper().registerModule(sensitiveFieldsModule);
+                        ((AbstractJackson2HttpMessageConverter) converter).getObjectMapper().registerModule(lazyAssociationModule);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Writer for the JSON that is streamed directly to the response, configured in the same way as the message
+     * converters so that streamed entities look exactly like the ones returned by the other endpoints
+     */
+    @Bean
+    public ObjectWriter streamingJsonWriter() {
+        return Jackson2ObjectMapperBuilder.json()
+                .applicationContext(getApplicationContext())
+                .modulesToInstall(sensitiveFieldsModule(), lazyAssociationModule())
+                .build()
+                .writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    // Sensitive fields are left out when the response is written instead of being cleared on the entities
+    private Module sensitiveFieldsModule() {
+        SimpleModule sensitiveFieldsModule = new SimpleModule("SensitiveFields");
+        sensitiveFieldsModule.setSerializerModifier(new SensitiveFieldSerializerModifier(
+                entity -> sensitiveFieldsUtil.getObject().canSeeSensitiveFields(entity)));
+        return sensitiveFieldsModule;
+    }
+
+    // Lazy associations that were not loaded for the request are left out instead of being loaded one row at a time
+    private Module lazyAssociationModule() {
+        SimpleModule lazyAssociationModule = new SimpleModule("LazyAssociations");
+        lazyAssociationModule.setSerializerModifier(new LazyAssociationSerializerModifier());
+        return lazyAssociationModule;
+    }
 }
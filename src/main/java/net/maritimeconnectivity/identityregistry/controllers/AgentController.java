@@ -20,8 +20,10 @@ import lombok.extern.slf4j.Slf4j;
 import net.maritimeconnectivity.identityregistry.exception.McpBasicRestException;
 import net.maritimeconnectivity.identityregistry.model.database.Agent;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
+import net.maritimeconnectivity.identityregistry.services.AgentDelegationService;
 import net.maritimeconnectivity.identityregistry.services.AgentService;
 import net.maritimeconnectivity.identityregistry.services.OrganizationService;
+import net.maritimeconnectivity.identityregistry.services.UserClaimsService;
 import net.maritimeconnectivity.identityregistry.utils.MCPIdRegConstants;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -51,6 +53,12 @@ public class AgentController {
     @Autowired
     private AgentService agentService;
 
+    @Autowired
+    private AgentDelegationService agentDelegationService;
+
+    @Autowired
+    private UserClaimsService userClaimsService;
+
     /**
      * Returns all the agents for an organization
      *
@@ -142,6 +150,8 @@ public class AgentController {
         if (organization != null && actingOrg != null) {
             input.setIdOnBehalfOfOrganization(organization.getId());
             Agent agent = this.agentService.save(input);
+            this.agentDelegationService.refreshAgentsOnBehalfOf(organization.getId());
+            this.userClaimsService.evictAll();
             return new ResponseEntity<>(agent, HttpStatus.OK);
         } else {
             throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
@@ -173,6 +183,8 @@ public class AgentController {
             }
             agent = input.copyTo(agent);
             this.agentService.save(agent);
+            this.agentDelegationService.refreshAgentsOnBehalfOf(org.getId());
+            this.userClaimsService.evictAll();
 
             return new ResponseEntity<>(agent, HttpStatus.OK);
         } else {
@@ -201,6 +213,8 @@ public class AgentController {
             }
             if (org.getId().equals(agent.getIdOnBehalfOfOrganization())) {
                 this.agentService.delete(agentId);
+                this.agentDelegationService.refreshAgentsOnBehalfOf(org.getId());
+                this.userClaimsService.evictAll();
                 return new ResponseEntity<>(HttpStatus.OK);
             }
             throw new McpBasicRestException(HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS, request.getServletPath());
@@ -19,13 +19,19 @@ import lombok.extern.slf4j.Slf4j;
 import net.maritimeconnectivity.identityregistry.exception.McpBasicRestException;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateBundle;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateRevocation;
+import net.maritimeconnectivity.identityregistry.model.data.CertificateSerial;
+import net.maritimeconnectivity.identityregistry.model.data.KeysetCursor;
 import net.maritimeconnectivity.identityregistry.model.data.PemCertificate;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
 import net.maritimeconnectivity.identityregistry.model.database.CertificateModel;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
 import net.maritimeconnectivity.identityregistry.model.database.entities.EntityModel;
 import net.maritimeconnectivity.identityregistry.model.database.entities.NonHumanEntityModel;
+import net.maritimeconnectivity.identityregistry.security.BearerTokenAuthenticationCache;
+import net.maritimeconnectivity.identityregistry.security.x509.X509UserDetailsCache;
 import net.maritimeconnectivity.identityregistry.services.CertificateService;
+import net.maritimeconnectivity.identityregistry.services.RevocationService;
+import net.maritimeconnectivity.identityregistry.services.UserClaimsService;
 import net.maritimeconnectivity.identityregistry.utils.CertificateUtil;
 import net.maritimeconnectivity.identityregistry.utils.MCPIdRegConstants;
 import net.maritimeconnectivity.identityregistry.utils.MrnUtil;
@@ -41,7 +47,9 @@ import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
 import org.bouncycastle.pkcs.PKCSException;
 import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequest;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -59,10 +67,16 @@ import java.security.cert.X509Certificate;
 import java.security.interfaces.DSAPublicKey;
 import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 @Slf4j
 @RestController
@@ -78,8 +92,23 @@ public abstract class BaseControllerWithCertificate {
     @Autowired
     protected MrnUtil mrnUtil;
 
+    @Autowired
+    protected RevocationService revocationService;
+
+    @Autowired
+    protected X509UserDetailsCache userDetailsCache;
+
+    @Autowired
+    protected BearerTokenAuthenticationCache authenticationCache;
+
+    @Autowired
+    protected UserClaimsService userClaimsService;
+
     private final String[] insecureHashes = {"MD2", "MD4", "MD5", "SHA0", "SHA1"};
 
+    // How many times saving a certificate is tried when other certificates are logged by the same CA at the same time
+    private static final int ISSUANCE_LOG_ATTEMPTS = 3;
+
     /**
      * Function for generating key pair and certificate for an entity.
      *
@@ -94,6 +123,7 @@ public abstract class BaseControllerWithCertificate {
      */
     @Deprecated
     protected CertificateBundle issueCertificate(CertificateModel certOwner, Organization org, String type, HttpServletRequest request) throws McpBasicRestException {
+        this.checkCountry(org, request);
         AuthProvider authProvider = null;
         P11PKIConfiguration p11PKIConfiguration = null;
         if (certificateUtil.getPkiConfiguration() instanceof P11PKIConfiguration) {
@@ -117,21 +147,26 @@ public abstract class BaseControllerWithCertificate {
         if (uid == null || uid.trim().isEmpty()) {
             throw new McpBasicRestException(HttpStatus.BAD_REQUEST, MCPIdRegConstants.ENTITY_ORG_ID_MISSING, request.getServletPath());
         }
+        // the short-lived default of the type applies the same way as for certificates signed from a CSR
+        int shortLivedHours = certificateUtil.getShortLivedValidityPeriod(type);
         BigInteger serialNumber = certificateUtil.getCertificateBuilder().generateSerialNumber(authProvider);
         X509Certificate userCert;
         try {
-            if (authProvider != null) {
-                userCert = certificateUtil.getCertificateBuilder().generateCertForEntity(serialNumber, org.getCountry(), o, type, name, email, uid, validityPeriod, userKeyPair.getPublic(), attrs, org.getCertificateAuthority(), certificateUtil.getBaseCrlOcspCrlURI(), authProvider);
+            // the signature algorithm follows the key type of the CA of the organization
+            if (shortLivedHours > 0) {
+                userCert = certificateUtil.generateShortLivedCertForEntity(serialNumber, org.getCountry(), o, type, name, email, uid, shortLivedHours, userKeyPair.getPublic(), attrs, org.getCertificateAuthority(), authProvider);
             } else {
-                userCert = certificateUtil.getCertificateBuilder().generateCertForEntity(serialNumber, org.getCountry(), o, type, name, email, uid, validityPeriod, userKeyPair.getPublic(), attrs, org.getCertificateAuthority(), certificateUtil.getBaseCrlOcspCrlURI(), null);
+                userCert = certificateUtil.generateCertForEntity(serialNumber, org.getCountry(), o, type, name, email, uid, validityPeriod, userKeyPair.getPublic(), attrs, org.getCertificateAuthority(), authProvider);
             }
         } catch (Exception e) {
             log.error(MCPIdRegConstants.CERT_ISSUING_FAILED, e);
             throw new McpBasicRestException(HttpStatus.INTERNAL_SERVER_ERROR, MCPIdRegConstants.CERT_ISSUING_FAILED, request.getServletPath());
         }
         String pemCertificate;
+        byte[] encodedCertificate;
         try {
-            pemCertificate = CertificateHandler.getPemFromEncoded("CERTIFICATE", userCert.getEncoded()).replace("\n", "\\n");
+            encodedCertificate = userCert.getEncoded();
+            pemCertificate = CertificateHandler.getPemFromEncoded("CERTIFICATE", encodedCertificate).replace("\n", "\\n");
         } catch (CertificateEncodingException e) {
             log.error(MCPIdRegConstants.CERT_ISSUING_FAILED, e);
             throw new McpBasicRestException(HttpStatus.INTERNAL_SERVER_ERROR, MCPIdRegConstants.CERT_ISSUING_FAILED, request.getServletPath());
@@ -150,22 +185,26 @@ public abstract class BaseControllerWithCertificate {
         Base64.Encoder encoder = Base64.getEncoder();
         CertificateBundle certificateBundle = new CertificateBundle(ret, new String(encoder.encode(jksKeystore), StandardCharsets.UTF_8), new String(encoder.encode(pkcs12Keystore), StandardCharsets.UTF_8), keystorePassword);
 
-        // Create the certificate
-        Certificate newMCCert = new Certificate();
-        certOwner.assignToCert(newMCCert);
-        newMCCert.setCertificate(pemCertificate);
-        newMCCert.setSerialNumber(serialNumber);
-        newMCCert.setCertificateAuthority(org.getCertificateAuthority());
-        // The dates we extract from the cert is in localtime, so they are converted to UTC before saving into the DB
-        Calendar cal = Calendar.getInstance();
-        int offset = cal.get(Calendar.ZONE_OFFSET) + cal.get(Calendar.DST_OFFSET);
-        newMCCert.setStart(new Date(userCert.getNotBefore().getTime() - offset));
-        newMCCert.setEnd(new Date(userCert.getNotAfter().getTime() - offset));
-        this.certificateService.saveCertificate(newMCCert);
+        saveIssuedCertificate(certOwner, org, serialNumber, pemCertificate, userCert, encodedCertificate, request);
         return certificateBundle;
     }
 
     protected String signCertificate(JcaPKCS10CertificationRequest csr, CertificateModel certOwner, Organization org, String type, HttpServletRequest request) throws McpBasicRestException {
+        return signCertificate(csr, certOwner, org, type, null, request);
+    }
+
+    /**
+     * Signs the public key of a CSR and returns the PEM encoded certificate followed by the certificate of the CA.
+     *
+     * @param validityHours if not null a short-lived certificate valid for the given number of hours is issued,
+     *                      otherwise the configured short-lived validity of the type is used if any
+     */
+    protected String signCertificate(JcaPKCS10CertificationRequest csr, CertificateModel certOwner, Organization org, String type, Integer validityHours, HttpServletRequest request) throws McpBasicRestException {
+        if (validityHours != null && (!CertificateUtil.supportsShortLived(type) || validityHours < 1 || validityHours > certificateUtil.getMaxShortLivedValidityPeriod())) {
+            throw new McpBasicRestException(HttpStatus.BAD_REQUEST, MCPIdRegConstants.INVALID_SHORT_LIVED_VALIDITY, request.getServletPath());
+        }
+        int shortLivedHours = validityHours != null ? validityHours : certificateUtil.getShortLivedValidityPeriod(type);
+        this.checkCountry(org, request);
         PublicKey publicKey;
         try {
             publicKey = csr.getPublicKey();
@@ -210,11 +249,14 @@ public abstract class BaseControllerWithCertificate {
                 BigInteger serialNumber = certificateUtil.getCertificateBuilder().generateSerialNumber(authProvider);
                 X509Certificate userCert;
                 try {
+                    // the signature algorithm follows the key type of the CA of the organization
+                    if (shortLivedHours > 0) {
+                        userCert = certificateUtil.generateShortLivedCertForEntity(serialNumber, org.getCountry(), o, type, name, email, uid, shortLivedHours, publicKey, attrs, org.getCertificateAuthority(), authProvider);
+                    } else {
+                        userCert = certificateUtil.generateCertForEntity(serialNumber, org.getCountry(), o, type, name, email, uid, validityPeriod, publicKey, attrs, org.getCertificateAuthority(), authProvider);
+                    }
                     if (authProvider != null) {
-                        userCert = certificateUtil.getCertificateBuilder().generateCertForEntity(serialNumber, org.getCountry(), o, type, name, email, uid, validityPeriod, publicKey, attrs, org.getCertificateAuthority(), certificateUtil.getBaseCrlOcspCrlURI(), authProvider);
                         p11PKIConfiguration.providerLogout();
-                    } else {
-                        userCert = certificateUtil.getCertificateBuilder().generateCertForEntity(serialNumber, org.getCountry(), o, type, name, email, uid, validityPeriod, publicKey, attrs, org.getCertificateAuthority(), certificateUtil.getBaseCrlOcspCrlURI(), null);
                     }
                 } catch (Exception e) {
                     log.error(MCPIdRegConstants.CERT_ISSUING_FAILED, e);
@@ -222,20 +264,10 @@ public abstract class BaseControllerWithCertificate {
                 }
                 String pemCertificate;
                 try {
-                    pemCertificate = CertificateHandler.getPemFromEncoded("CERTIFICATE", userCert.getEncoded());
-
-                    // Create the certificate
-                    Certificate newMCCert = new Certificate();
-                    certOwner.assignToCert(newMCCert);
-                    newMCCert.setCertificate(pemCertificate);
-                    newMCCert.setSerialNumber(serialNumber);
-                    newMCCert.setCertificateAuthority(org.getCertificateAuthority());
-                    // The dates we extract from the cert is in localtime, so they are converted to UTC before saving into the DB
-                    Calendar cal = Calendar.getInstance();
-                    int offset = cal.get(Calendar.ZONE_OFFSET) + cal.get(Calendar.DST_OFFSET);
-                    newMCCert.setStart(new Date(userCert.getNotBefore().getTime() - offset));
-                    newMCCert.setEnd(new Date(userCert.getNotAfter().getTime() - offset));
-                    this.certificateService.saveCertificate(newMCCert);
+                    byte[] encodedCertificate = userCert.getEncoded();
+                    pemCertificate = CertificateHandler.getPemFromEncoded("CERTIFICATE", encodedCertificate);
+
+                    saveIssuedCertificate(certOwner, org, serialNumber, pemCertificate, userCert, encodedCertificate, request);
 
                     byte[] certCA = this.certificateUtil.getKeystoreHandler().getMCPCertificate(org.getCertificateAuthority()).getEncoded();
                     String certCAPem = CertificateHandler.getPemFromEncoded("CERTIFICATE", certCA);
@@ -252,6 +284,43 @@ public abstract class BaseControllerWithCertificate {
         throw new McpBasicRestException(HttpStatus.BAD_REQUEST, MCPIdRegConstants.CSR_SIGNATURE_INVALID, request.getServletPath());
     }
 
+    /**
+     * Saves a newly issued certificate together with its entry in the issuance log of the CA. Saving fails if another
+     * instance appended to the issuance log at the same time, in which case it is tried again.
+     */
+    private void saveIssuedCertificate(CertificateModel certOwner, Organization org, BigInteger serialNumber, String pemCertificate, X509Certificate userCert, byte[] encodedCertificate, HttpServletRequest request) throws McpBasicRestException {
+        for (int attempt = 1; ; attempt++) {
+            // Create the certificate, again for each attempt as a failed attempt may have given it an id
+            Certificate newMCCert = new Certificate();
+            certOwner.assignToCert(newMCCert);
+            newMCCert.setCertificate(pemCertificate);
+            newMCCert.setSerialNumber(serialNumber);
+            newMCCert.setCertificateAuthority(org.getCertificateAuthority());
+            // The dates we extract from the cert is in localtime, so they are converted to UTC before saving into the DB
+            Calendar cal = Calendar.getInstance();
+            int offset = cal.get(Calendar.ZONE_OFFSET) + cal.get(Calendar.DST_OFFSET);
+            newMCCert.setStart(new Date(userCert.getNotBefore().getTime() - offset));
+            newMCCert.setEnd(new Date(userCert.getNotAfter().getTime() - offset));
+            try {
+                this.certificateService.saveIssuedCertificate(newMCCert, encodedCertificate);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= ISSUANCE_LOG_ATTEMPTS) {
+                    log.error(MCPIdRegConstants.CERT_ISSUING_FAILED, e);
+                    throw new McpBasicRestException(HttpStatus.INTERNAL_SERVER_ERROR, MCPIdRegConstants.CERT_ISSUING_FAILED, request.getServletPath());
+                }
+                log.debug("Saving certificate {} failed, trying again", serialNumber, e);
+            }
+        }
+    }
+
+    // The C attribute of the subject only allows ISO 3166 codes, and certificates are not issued without it
+    private void checkCountry(Organization org, HttpServletRequest request) throws McpBasicRestException {
+        if (CertificateUtil.getCountryCode(org.getCountry()) == null) {
+            throw new McpBasicRestException(HttpStatus.BAD_REQUEST, MCPIdRegConstants.ORG_COUNTRY_UNKNOWN, request.getServletPath());
+        }
+    }
+
     private void checkSignatureAlgorithm(JcaPKCS10CertificationRequest csr, HttpServletRequest request) throws McpBasicRestException {
         DefaultAlgorithmNameFinder algorithmNameFinder = new DefaultAlgorithmNameFinder();
         String algoName = algorithmNameFinder.getAlgorithmName(csr.getSignatureAlgorithm());
@@ -290,16 +359,76 @@ public abstract class BaseControllerWithCertificate {
 
     protected void revokeCertificate(BigInteger certId, CertificateRevocation input, HttpServletRequest request) throws McpBasicRestException {
         Certificate cert = this.certificateService.getCertificateBySerialNumber(certId);
+        validateRevocation(input, request);
+        cert.setRevokedAt(input.getRevokedAt());
+        cert.setRevokeReason(input.getRevokationReason());
+        cert.setRevoked(true);
+        this.certificateService.saveCertificate(cert);
+        this.revocationService.refresh(cert.getCertificateAuthority());
+        this.userDetailsCache.evictBySerialNumbers(Collections.singleton(certId));
+    }
+
+    /**
+     * Revokes the given certificates using a single batched update, after which the revocation information
+     * of each affected CA is refreshed once.
+     *
+     * @param certs the certificates to revoke
+     * @param input the revocation date and reason
+     * @param request the HTTP request
+     * @return the serial numbers of the revoked certificates in decimal
+     * @throws McpBasicRestException
+     */
+    protected List<String> revokeCertificates(Collection<? extends CertificateSerial> certs, CertificateRevocation input, HttpServletRequest request) throws McpBasicRestException {
+        validateRevocation(input, request);
+        List<BigInteger> serialNumbers = new ArrayList<>(certs.size());
+        List<String> ret = new ArrayList<>(certs.size());
+        Set<String> caAliases = new LinkedHashSet<>();
+        for (CertificateSerial cert : certs) {
+            serialNumbers.add(cert.getSerialNumber());
+            ret.add(cert.getSerialNumber().toString());
+            caAliases.add(cert.getCertificateAuthority());
+        }
+        if (!serialNumbers.isEmpty()) {
+            this.certificateService.revokeCertificates(serialNumbers, input.getRevokedAt(), input.getRevokationReason());
+            caAliases.forEach(this.revocationService::refresh);
+            this.userDetailsCache.evictBySerialNumbers(serialNumbers);
+        }
+        return ret;
+    }
+
+    /**
+     * Loads the certificates of the given owner. They are only serialized once loaded, so this is used when
+     * a single organization or entity is requested, while lists leave them to the certificates sub-resources.
+     *
+     * @param certOwner the organization or entity
+     * @return the same organization or entity
+     */
+    protected <M extends CertificateModel> M withCertificates(M certOwner) {
+        Hibernate.initialize(certOwner.getCertificates());
+        return certOwner;
+    }
+
+    /**
+     * Returns the cursor to continue a keyset paginated list from, or the cursor for the first slice with the
+     * given ordering if no cursor was given
+     *
+     * @throws McpBasicRestException if the cursor or sort key is not valid
+     */
+    protected KeysetCursor getKeysetCursor(String cursor, String sort, HttpServletRequest request) throws McpBasicRestException {
+        try {
+            return cursor != null ? KeysetCursor.decode(cursor) : KeysetCursor.first(sort);
+        } catch (IllegalArgumentException e) {
+            throw new McpBasicRestException(HttpStatus.BAD_REQUEST, MCPIdRegConstants.INVALID_CURSOR, request.getServletPath());
+        }
+    }
+
+    private void validateRevocation(CertificateRevocation input, HttpServletRequest request) throws McpBasicRestException {
         if (!input.validateReason()) {
             throw new McpBasicRestException(HttpStatus.BAD_REQUEST, MCPIdRegConstants.INVALID_REVOCATION_REASON, request.getServletPath());
         }
         if (input.getRevokedAt() == null) {
             throw new McpBasicRestException(HttpStatus.BAD_REQUEST, MCPIdRegConstants.INVALID_REVOCATION_DATE, request.getServletPath());
         }
-        cert.setRevokedAt(input.getRevokedAt());
-        cert.setRevokeReason(input.getRevokationReason());
-        cert.setRevoked(true);
-        this.certificateService.saveCertificate(cert);
     }
 
     /* Override if the entity type of the controller isn't of type NonHumanEntityModel */
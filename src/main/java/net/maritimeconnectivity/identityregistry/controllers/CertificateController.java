@@ -16,20 +16,21 @@
 package net.maritimeconnectivity.identityregistry.controllers;
 
 import lombok.extern.slf4j.Slf4j;
-import net.maritimeconnectivity.identityregistry.model.database.Certificate;
+import net.maritimeconnectivity.identityregistry.model.data.CertificateRevocationStatus;
 import net.maritimeconnectivity.identityregistry.services.CertificateService;
+import net.maritimeconnectivity.identityregistry.services.RevocationService;
 import net.maritimeconnectivity.identityregistry.utils.CertificateUtil;
-import net.maritimeconnectivity.pki.CertificateHandler;
 import net.maritimeconnectivity.pki.Revocation;
-import net.maritimeconnectivity.pki.RevocationInfo;
 import net.maritimeconnectivity.pki.pkcs11.P11PKIConfiguration;
 import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
 import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPException;
 import org.bouncycastle.cert.ocsp.OCSPReq;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.bouncycastle.cert.ocsp.Req;
 import org.bouncycastle.cert.ocsp.RevokedStatus;
 import org.bouncycastle.cert.ocsp.UnknownStatus;
+import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.util.encoders.Base64;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -50,11 +51,12 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.AuthProvider;
-import java.security.cert.CRLException;
-import java.security.cert.X509CRL;
+import java.security.GeneralSecurityException;
 import java.security.cert.X509Certificate;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping(value={"oidc", "x509"})
@@ -69,11 +71,18 @@ public class CertificateController {
 
     private CertificateUtil certUtil;
 
+    private RevocationService revocationService;
+
     @Autowired
     public void setCertUtil(CertificateUtil certUtil) {
         this.certUtil = certUtil;
     }
 
+    @Autowired
+    public void setRevocationService(RevocationService revocationService) {
+        this.revocationService = revocationService;
+    }
+
     /**
      * Returns info about the device identified by the given ID
      * 
@@ -99,26 +108,10 @@ public class CertificateController {
         if (caCert == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        List<Certificate> revokedCerts = this.certificateService.listRevokedCertificate(caAlias);
-        List<RevocationInfo> revocationInfos = new ArrayList<>();
-        for (Certificate cert : revokedCerts) {
-            revocationInfos.add(cert.toRevocationInfo());
-        }
-        AuthProvider provider = null;
-        if (certUtil.getPkiConfiguration() instanceof P11PKIConfiguration) {
-            P11PKIConfiguration pkiConfiguration = (P11PKIConfiguration) certUtil.getPkiConfiguration();
-            provider = pkiConfiguration.getProvider();
-            pkiConfiguration.providerLogin();
-        }
-        X509CRL crl = Revocation.generateCRL(revocationInfos, certUtil.getKeystoreHandler().getSigningCertEntry(caAlias), provider);
-        if (provider != null) {
-            ((P11PKIConfiguration) certUtil.getPkiConfiguration()).providerLogout();
-        }
         try {
-            String pemCrl = CertificateHandler.getPemFromEncoded("X509 CRL", crl.getEncoded());
-            return new ResponseEntity<>(pemCrl, HttpStatus.OK);
-        } catch (CRLException e) {
-            log.error("Unable to get Pem from bytes", e);
+            return new ResponseEntity<>(revocationService.getCrl(caAlias), HttpStatus.OK);
+        } catch (GeneralSecurityException | OperatorCreationException | IOException e) {
+            log.error("Unable to generate CRL", e);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
@@ -172,9 +165,17 @@ public class CertificateController {
         }*/
         BasicOCSPRespBuilder respBuilder = Revocation.initOCSPRespBuilder(ocspreq, certUtil.getKeystoreHandler().getMCPCertificate(certAlias).getPublicKey());
         Req[] requests = ocspreq.getRequestList();
+        // The statuses of all the requested certificates are looked up at once
+        Set<BigInteger> serialNumbers = new HashSet<>();
+        for (Req req : requests) {
+            serialNumbers.add(req.getCertID().getSerialNumber());
+        }
+        Map<BigInteger, CertificateRevocationStatus> statuses = new HashMap<>();
+        for (CertificateRevocationStatus status : this.certificateService.listRevocationStatuses(serialNumbers)) {
+            statuses.put(status.getSerialNumber(), status);
+        }
         for (Req req : requests) {
-            BigInteger sn = req.getCertID().getSerialNumber();
-            Certificate cert = this.certificateService.getCertificateBySerialNumber(sn);
+            CertificateRevocationStatus cert = statuses.get(req.getCertID().getSerialNumber());
 
             if (cert == null) {
                 respBuilder.addResponse(req.getCertID(), new UnknownStatus());
@@ -198,10 +199,15 @@ public class CertificateController {
             provider = pkiConfiguration.getProvider();
             pkiConfiguration.providerLogin();
         }
-        OCSPResp response = Revocation.generateOCSPResponse(respBuilder, certUtil.getKeystoreHandler().getSigningCertEntry(certAlias), provider);
-        if (provider != null) {
-            ((P11PKIConfiguration) certUtil.getPkiConfiguration()).providerLogout();
+        try {
+            OCSPResp response = certUtil.generateOCSPResponse(respBuilder, certAlias, provider);
+            return response.getEncoded();
+        } catch (GeneralSecurityException | OperatorCreationException | OCSPException e) {
+            throw new IOException("Unable to sign OCSP response", e);
+        } finally {
+            if (provider != null) {
+                ((P11PKIConfiguration) certUtil.getPkiConfiguration()).providerLogout();
+            }
         }
-        return response.getEncoded();
     }
 }
@@ -18,8 +18,11 @@ package net.maritimeconnectivity.identityregistry.controllers;
 import io.swagger.annotations.ApiParam;
 import io.swagger.v3.oas.annotations.Operation;
 import net.maritimeconnectivity.identityregistry.exception.McpBasicRestException;
+import net.maritimeconnectivity.identityregistry.model.data.BulkItemResult;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateBundle;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateRevocation;
+import net.maritimeconnectivity.identityregistry.model.data.CursorSlice;
+import net.maritimeconnectivity.identityregistry.model.data.KeysetCursor;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Device;
 import net.maritimeconnectivity.identityregistry.services.EntityService;
@@ -35,12 +38,14 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.math.BigInteger;
+import java.util.List;
 
 @RestController
 public class DeviceController extends EntityController<Device> {
@@ -83,6 +88,21 @@ public class DeviceController extends EntityController<Device> {
         return this.getEntity(request, orgMrn, deviceMrn);
     }
 
+    /**
+     * Returns a page of the certificates of the device identified by the given ID
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/device/{deviceMrn}/certificates",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public Page<Certificate> getDeviceCertificates(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String deviceMrn, Pageable pageable) throws McpBasicRestException {
+        return this.getEntityCertificates(request, orgMrn, deviceMrn, pageable);
+    }
+
     /**
      * Updates a Device
      * 
@@ -114,6 +134,53 @@ public class DeviceController extends EntityController<Device> {
         return this.deleteEntity(request, orgMrn, deviceMrn);
     }
 
+    /**
+     * Creates a list of devices in one transaction. The devices that fail validation or any of the checks done
+     * when creating a single device are left out, and the rest are created.
+     *
+     * @return the result of each device, in the order they were given
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/devices/bulk",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('DEVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<BulkItemResult>> createDevices(HttpServletRequest request, @PathVariable String orgMrn, @RequestBody List<Device> input) throws McpBasicRestException {
+        return this.createEntities(request, orgMrn, input);
+    }
+
+    /**
+     * Updates a list of devices, identified by their MRNs, in one transaction. The devices that fail validation
+     * or any of the checks done when updating a single device are left out, and the rest are updated.
+     *
+     * @return the result of each device, in the order they were given
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/devices/bulk",
+            method = RequestMethod.PUT,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('DEVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<BulkItemResult>> updateDevices(HttpServletRequest request, @PathVariable String orgMrn, @RequestBody List<Device> input) throws McpBasicRestException {
+        return this.updateEntities(request, orgMrn, input);
+    }
+
+    /**
+     * Deletes the devices with the given MRNs in one transaction
+     *
+     * @return the result of each MRN, in the order they were given
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/devices/bulk-delete",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('DEVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<BulkItemResult>> deleteDevices(HttpServletRequest request, @PathVariable String orgMrn, @ApiParam(value = "The MRNs of the devices to delete", required = true) @RequestBody List<String> mrns) throws McpBasicRestException {
+        return this.deleteEntities(request, orgMrn, mrns);
+    }
+
     /**
      * Returns a list of devices owned by the organization identified by the given ID
      * 
@@ -129,6 +196,25 @@ public class DeviceController extends EntityController<Device> {
         return this.getOrganizationEntities(request, orgMrn, pageable);
     }
 
+    /**
+     * Returns a slice of the devices owned by the organization identified by the given ID. Unlike the paged list it
+     * seeks past the given cursor and does not count the devices, so that deep slices are as fast as the first one.
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/devices/keyset",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public CursorSlice<Device> getOrganizationDevicesSlice(HttpServletRequest request, @PathVariable String orgMrn,
+                                                           @ApiParam(value = "The cursor returned with the previous slice") @RequestParam(value = "cursor", required = false) String cursor,
+                                                           @ApiParam(value = "Either id or mrn, ignored when a cursor is given") @RequestParam(value = "sort", defaultValue = KeysetCursor.SORT_ID) String sort,
+                                                           @ApiParam(value = "The maximum number of rows in the slice") @RequestParam(value = "size", defaultValue = "20") int size) throws McpBasicRestException {
+        return this.getOrganizationEntitySlice(request, orgMrn, cursor, sort, size);
+    }
+
     /**
      * Returns new certificate for the device identified by the given ID
      *
@@ -167,8 +253,23 @@ public class DeviceController extends EntityController<Device> {
             produces = {"application/pem-certificate-chain", MediaType.APPLICATION_JSON_UTF8_VALUE}
     )
     @PreAuthorize("hasRole('DEVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<String> newDeviceCertFromCsr(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String deviceMrn, @ApiParam(value = "A PEM encoded PKCS#10 CSR", required = true) @RequestBody String csr) throws McpBasicRestException {
-        return this.signEntityCert(request, csr, orgMrn, deviceMrn, "device", null);
+    public ResponseEntity<String> newDeviceCertFromCsr(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String deviceMrn, @ApiParam(value = "A PEM encoded PKCS#10 CSR", required = true) @RequestBody String csr, @ApiParam(value = "If given, a short-lived certificate without revocation information is issued that is valid for this many hours") @RequestParam(value = "validityHours", required = false) Integer validityHours) throws McpBasicRestException {
+        return this.signEntityCert(request, csr, orgMrn, deviceMrn, "device", null, validityHours);
+    }
+
+    /**
+     * Revokes all active certificates of the device identified by the given ID
+     *
+     * @return the serial numbers of the revoked certificates
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/device/{deviceMrn}/certificate/revoke-all",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('DEVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<String>> revokeAllDeviceCerts(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String deviceMrn, @Valid @RequestBody CertificateRevocation input) throws McpBasicRestException {
+        return this.revokeAllEntityCerts(request, orgMrn, deviceMrn, "device", null, input);
     }
 
     /**
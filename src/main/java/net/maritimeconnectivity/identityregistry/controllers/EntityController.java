@@ -15,13 +15,17 @@
  */
 package net.maritimeconnectivity.identityregistry.controllers;
 
+import lombok.extern.slf4j.Slf4j;
 import net.maritimeconnectivity.identityregistry.exception.McpBasicRestException;
+import net.maritimeconnectivity.identityregistry.model.data.BulkItemResult;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateBundle;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateRevocation;
+import net.maritimeconnectivity.identityregistry.model.data.CertificateSerial;
+import net.maritimeconnectivity.identityregistry.model.data.CursorSlice;
+import net.maritimeconnectivity.identityregistry.model.data.KeysetCursor;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
 import net.maritimeconnectivity.identityregistry.model.database.CertificateModel;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
-import net.maritimeconnectivity.identityregistry.model.database.Role;
 import net.maritimeconnectivity.identityregistry.model.database.entities.EntityModel;
 import net.maritimeconnectivity.identityregistry.services.CertificateService;
 import net.maritimeconnectivity.identityregistry.services.EntityService;
@@ -31,21 +35,36 @@ import net.maritimeconnectivity.identityregistry.services.ServiceService;
 import net.maritimeconnectivity.identityregistry.utils.AccessControlUtil;
 import net.maritimeconnectivity.identityregistry.utils.CsrUtil;
 import net.maritimeconnectivity.identityregistry.utils.MCPIdRegConstants;
+import net.maritimeconnectivity.identityregistry.utils.ValidateUtil;
 import org.bouncycastle.pkcs.jcajce.JcaPKCS10CertificationRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.Validator;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+@Slf4j
 @RestController
 public abstract class EntityController<T extends EntityModel> extends BaseControllerWithCertificate {
     protected EntityService<T> entityService;
@@ -53,6 +72,10 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
     protected CertificateService certificateService;
     protected RoleService roleService;
     protected AccessControlUtil accessControlUtil;
+    protected Validator validator;
+
+    // Upper bound on the number of entities in a bulk request
+    protected static final int MAX_BULK_SIZE = 1000;
 
     @Autowired
     public void setCertificateService(CertificateService certificateService) {
@@ -74,6 +97,12 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
         this.accessControlUtil = accessControlUtil;
     }
 
+    // The validator that is used for @Valid request bodies
+    @Autowired
+    public void setValidator(@Qualifier("mvcValidator") Validator validator) {
+        this.validator = validator;
+    }
+
     /**
      * Creates a new Entity
      *
@@ -109,6 +138,27 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
      * @throws McpBasicRestException
      */
     protected ResponseEntity<T> getEntity(HttpServletRequest request, String orgMrn, String entityMrn) throws McpBasicRestException {
+        return new ResponseEntity<>(withCertificates(getOrgEntity(request, orgMrn, entityMrn)), HttpStatus.OK);
+    }
+
+    /**
+     * Returns a page of the certificates of an entity
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    protected Page<Certificate> getEntityCertificates(HttpServletRequest request, String orgMrn, String entityMrn, Pageable pageable) throws McpBasicRestException {
+        T entity = getOrgEntity(request, orgMrn, entityMrn);
+        return this.certificateService.listCertificatesOf(entity, pageable);
+    }
+
+    /**
+     * Looks up an entity and checks that it belongs to the given organization
+     *
+     * @return the entity
+     * @throws McpBasicRestException
+     */
+    private T getOrgEntity(HttpServletRequest request, String orgMrn, String entityMrn) throws McpBasicRestException {
         Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
         if (org != null) {
             // Check that the entity being queried belongs to the organization
@@ -120,7 +170,7 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
                 throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
             }
             if (entity.getIdOrganization().compareTo(org.getId()) == 0) {
-                return new ResponseEntity<>(entity, HttpStatus.OK);
+                return entity;
             }
             throw new McpBasicRestException(HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS, request.getServletPath());
         } else {
@@ -202,12 +252,272 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
         }
     }
 
+    /**
+     * Returns a slice of the entities owned by the organization identified by the given ID using keyset pagination
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    protected CursorSlice<T> getOrganizationEntitySlice(HttpServletRequest request, String orgMrn, String cursor, String sort, int size) throws McpBasicRestException {
+        KeysetCursor keysetCursor = getKeysetCursor(cursor, sort, request);
+        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
+        if (org != null) {
+            Slice<T> slice = this.entityService.listSliceFromOrg(org.getId(), keysetCursor, size);
+            String nextCursor = null;
+            if (slice.hasNext()) {
+                T last = slice.getContent().get(slice.getNumberOfElements() - 1);
+                nextCursor = keysetCursor.after(last.getId(), last.getMrnLower()).encode();
+            }
+            return new CursorSlice<>(slice.getContent(), slice.hasNext(), nextCursor);
+        } else {
+            throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+        }
+    }
+
+    /**
+     * Creates the given entities in a single transaction so that the inserts are sent in batches. Each entity is
+     * checked in the same way as when it is created on its own, and the ones that fail a check are not created.
+     *
+     * @return the result of each entity, in the order they were given
+     * @throws McpBasicRestException
+     */
+    protected ResponseEntity<List<BulkItemResult>> createEntities(HttpServletRequest request, String orgMrn, List<T> inputs) throws McpBasicRestException {
+        Organization org = getBulkOrganization(request, orgMrn, inputs);
+        BulkItemResult[] results = validateAll(inputs);
+        Map<String, Boolean> mayGrant = new HashMap<>();
+        Map<String, Integer> accepted = new LinkedHashMap<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            if (results[i] == null) {
+                T input = inputs.get(i);
+                String mrnLower = EntityModel.toLowerCaseMrn(input.getMrn());
+                if (!belongsToOrg(orgMrn, input.getMrn())) {
+                    results[i] = BulkItemResult.failed(i, input.getMrn(), HttpStatus.BAD_REQUEST, MCPIdRegConstants.MISSING_RIGHTS);
+                } else if (!mayGrantPermissions(org, input, mayGrant)) {
+                    results[i] = BulkItemResult.failed(i, input.getMrn(), HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS);
+                } else if (accepted.putIfAbsent(mrnLower, i) != null) {
+                    results[i] = BulkItemResult.failed(i, input.getMrn(), HttpStatus.CONFLICT, MCPIdRegConstants.DUPLICATE_BULK_MRN);
+                }
+            }
+        }
+        // Looking up which MRNs are taken beforehand keeps a single duplicate from failing the whole transaction
+        Set<String> existing = this.entityService.listExistingMrns(accepted.keySet());
+        List<Integer> indexes = new ArrayList<>();
+        List<T> entities = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : accepted.entrySet()) {
+            int i = entry.getValue();
+            T input = inputs.get(i);
+            if (existing.contains(entry.getKey())) {
+                results[i] = BulkItemResult.failed(i, input.getMrn(), HttpStatus.CONFLICT, MCPIdRegConstants.ENTITY_ALREADY_EXISTS);
+            } else {
+                input.setIdOrganization(org.getId());
+                input.setMrn(input.getMrn().toLowerCase());
+                indexes.add(i);
+                entities.add(input);
+            }
+        }
+        saveAll(indexes, entities, results);
+        return new ResponseEntity<>(Arrays.asList(results), HttpStatus.OK);
+    }
+
+    /**
+     * Updates the given entities in a single transaction so that the updates are sent in batches. Each entity is
+     * checked in the same way as when it is updated on its own, and the ones that fail a check are not updated.
+     *
+     * @return the result of each entity, in the order they were given
+     * @throws McpBasicRestException
+     */
+    protected ResponseEntity<List<BulkItemResult>> updateEntities(HttpServletRequest request, String orgMrn, List<T> inputs) throws McpBasicRestException {
+        Organization org = getBulkOrganization(request, orgMrn, inputs);
+        BulkItemResult[] results = validateAll(inputs);
+        Map<String, Integer> accepted = new LinkedHashMap<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            if (results[i] == null) {
+                T input = inputs.get(i);
+                if (!belongsToOrg(orgMrn, input.getMrn())) {
+                    results[i] = BulkItemResult.failed(i, input.getMrn(), HttpStatus.BAD_REQUEST, MCPIdRegConstants.MISSING_RIGHTS);
+                } else if (accepted.putIfAbsent(EntityModel.toLowerCaseMrn(input.getMrn()), i) != null) {
+                    results[i] = BulkItemResult.failed(i, input.getMrn(), HttpStatus.CONFLICT, MCPIdRegConstants.DUPLICATE_BULK_MRN);
+                }
+            }
+        }
+        Map<String, T> existing = getByMrnLower(accepted.keySet());
+        Map<String, Boolean> mayGrant = new HashMap<>();
+        List<Integer> indexes = new ArrayList<>();
+        List<T> entities = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : accepted.entrySet()) {
+            int i = entry.getValue();
+            T input = inputs.get(i);
+            T entity = existing.get(entry.getKey());
+            if (entity == null) {
+                results[i] = BulkItemResult.failed(i, input.getMrn(), HttpStatus.NOT_FOUND, MCPIdRegConstants.ENTITY_NOT_FOUND);
+            } else if (entity.getIdOrganization().compareTo(org.getId()) != 0 || !mayGrantPermissions(org, input, mayGrant)) {
+                results[i] = BulkItemResult.failed(i, input.getMrn(), HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS);
+            } else {
+                input.selectiveCopyTo(entity);
+                indexes.add(i);
+                entities.add(entity);
+            }
+        }
+        saveAll(indexes, entities, results);
+        return new ResponseEntity<>(Arrays.asList(results), HttpStatus.OK);
+    }
+
+    /**
+     * Deletes the entities with the given MRNs in a single transaction so that the deletes are sent in batches
+     *
+     * @return the result of each MRN, in the order they were given
+     * @throws McpBasicRestException
+     */
+    protected ResponseEntity<List<BulkItemResult>> deleteEntities(HttpServletRequest request, String orgMrn, List<String> entityMrns) throws McpBasicRestException {
+        Organization org = getBulkOrganization(request, orgMrn, entityMrns);
+        BulkItemResult[] results = new BulkItemResult[entityMrns.size()];
+        Map<String, Integer> accepted = new LinkedHashMap<>();
+        for (int i = 0; i < entityMrns.size(); i++) {
+            String entityMrn = entityMrns.get(i);
+            if (entityMrn == null) {
+                results[i] = BulkItemResult.failed(i, null, HttpStatus.BAD_REQUEST, MCPIdRegConstants.MISSING_BULK_ENTITY);
+            } else if (!belongsToOrg(orgMrn, entityMrn)) {
+                results[i] = BulkItemResult.failed(i, entityMrn, HttpStatus.BAD_REQUEST, MCPIdRegConstants.MISSING_RIGHTS);
+            } else if (accepted.putIfAbsent(EntityModel.toLowerCaseMrn(entityMrn), i) != null) {
+                results[i] = BulkItemResult.failed(i, entityMrn, HttpStatus.CONFLICT, MCPIdRegConstants.DUPLICATE_BULK_MRN);
+            }
+        }
+        Map<String, T> existing = getByMrnLower(accepted.keySet());
+        List<Integer> indexes = new ArrayList<>();
+        List<T> entities = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : accepted.entrySet()) {
+            int i = entry.getValue();
+            T entity = existing.get(entry.getKey());
+            if (entity == null) {
+                results[i] = BulkItemResult.failed(i, entityMrns.get(i), HttpStatus.NOT_FOUND, MCPIdRegConstants.ENTITY_NOT_FOUND);
+            } else if (entity.getIdOrganization().compareTo(org.getId()) != 0) {
+                results[i] = BulkItemResult.failed(i, entityMrns.get(i), HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS);
+            } else {
+                indexes.add(i);
+                entities.add(entity);
+            }
+        }
+        if (!entities.isEmpty()) {
+            List<String> mrns = entities.stream().map(EntityModel::getMrn).collect(Collectors.toList());
+            try {
+                this.entityService.deleteAll(entities);
+                setSucceeded(indexes, mrns, results);
+            } catch (DataIntegrityViolationException e) {
+                setFailed(indexes, mrns, results, e);
+            }
+        }
+        return new ResponseEntity<>(Arrays.asList(results), HttpStatus.OK);
+    }
+
+    private Organization getBulkOrganization(HttpServletRequest request, String orgMrn, List<?> items) throws McpBasicRestException {
+        if (items.isEmpty() || items.size() > MAX_BULK_SIZE) {
+            throw new McpBasicRestException(HttpStatus.BAD_REQUEST, MCPIdRegConstants.INVALID_BULK_SIZE, request.getServletPath());
+        }
+        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
+        if (org == null) {
+            throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+        }
+        return org;
+    }
+
+    /**
+     * Validates the entities as the @Valid on a single entity would. This is done on the request thread, as the MRN
+     * validators memoize their lookups per request.
+     *
+     * @return an array with a failed result for each invalid entity and null for the valid ones
+     */
+    private BulkItemResult[] validateAll(List<T> inputs) {
+        BulkItemResult[] results = new BulkItemResult[inputs.size()];
+        for (int i = 0; i < inputs.size(); i++) {
+            T input = inputs.get(i);
+            if (input == null) {
+                results[i] = BulkItemResult.failed(i, null, HttpStatus.BAD_REQUEST, MCPIdRegConstants.MISSING_BULK_ENTITY);
+                continue;
+            }
+            BindingResult bindingResult = new BeanPropertyBindingResult(input, "input");
+            this.validator.validate(input, bindingResult);
+            if (bindingResult.hasErrors()) {
+                results[i] = BulkItemResult.failed(i, input.getMrn(), HttpStatus.BAD_REQUEST, ValidateUtil.getErrorMessage(bindingResult));
+            }
+        }
+        return results;
+    }
+
+    private boolean belongsToOrg(String orgMrn, String entityMrn) {
+        try {
+            return mrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(mrnUtil.getOrgShortNameFromEntityMrn(entityMrn));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Entities in a bulk request mostly share a few sets of permissions, so each set is only checked once
+    private boolean mayGrantPermissions(Organization org, T input, Map<String, Boolean> checked) {
+        return checked.computeIfAbsent(input.getPermissions(), permissions -> {
+            for (String roleName : this.roleService.getRoleNamesByIdOrganizationAndPermissions(org.getId(), permissions)) {
+                if (!accessControlUtil.hasRole(roleName)) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    private Map<String, T> getByMrnLower(Collection<String> mrnLowers) {
+        Map<String, T> ret = new HashMap<>();
+        if (!mrnLowers.isEmpty()) {
+            for (T entity : this.entityService.listByMrns(mrnLowers)) {
+                ret.put(entity.getMrnLower(), entity);
+            }
+        }
+        return ret;
+    }
+
+    private void saveAll(List<Integer> indexes, List<T> entities, BulkItemResult[] results) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        List<String> mrns = entities.stream().map(EntityModel::getMrn).collect(Collectors.toList());
+        try {
+            this.entityService.saveAll(entities);
+            setSucceeded(indexes, mrns, results);
+        } catch (DataIntegrityViolationException e) {
+            setFailed(indexes, mrns, results, e);
+        }
+    }
+
+    private static void setSucceeded(List<Integer> indexes, List<String> mrns, BulkItemResult[] results) {
+        for (int j = 0; j < indexes.size(); j++) {
+            int i = indexes.get(j);
+            results[i] = BulkItemResult.succeeded(i, mrns.get(j));
+        }
+    }
+
+    // The transaction has been rolled back, so none of the entities that passed the checks have been written. The
+    // cause names database constraints and values, so it is only logged.
+    private static void setFailed(List<Integer> indexes, List<String> mrns, BulkItemResult[] results, DataIntegrityViolationException e) {
+        log.warn(MCPIdRegConstants.BULK_SAVE_FAILED, e);
+        for (int j = 0; j < indexes.size(); j++) {
+            int i = indexes.get(j);
+            results[i] = BulkItemResult.failed(i, mrns.get(j), HttpStatus.CONFLICT, MCPIdRegConstants.BULK_SAVE_FAILED);
+        }
+    }
+
     /**
      * Receives a CSR and returns a signed and PEM encoded certificate
      * @return a PEM encoded certificate
      * @throws McpBasicRestException
      */
     protected ResponseEntity<String> signEntityCert(HttpServletRequest request, String csr, String orgMrn, String entityMrn, String type, String version) throws McpBasicRestException {
+        return signEntityCert(request, csr, orgMrn, entityMrn, type, version, null);
+    }
+
+    /**
+     * Receives a CSR and returns a signed and PEM encoded certificate, which is short-lived if validityHours is given
+     * @return a PEM encoded certificate
+     * @throws McpBasicRestException
+     */
+    protected ResponseEntity<String> signEntityCert(HttpServletRequest request, String csr, String orgMrn, String entityMrn, String type, String version, Integer validityHours) throws McpBasicRestException {
         Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
         if (org != null) {
             // Check that the entity being queried belongs to the organization
@@ -225,7 +535,7 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
             }
             if (entity.getIdOrganization().compareTo(org.getId()) == 0) {
                 JcaPKCS10CertificationRequest pkcs10CertificationRequest = CsrUtil.getCsrFromPem(request, csr);
-                String cert = this.signCertificate(pkcs10CertificationRequest, entity, org, type, request);
+                String cert = this.signCertificate(pkcs10CertificationRequest, entity, org, type, validityHours, request);
                 HttpHeaders httpHeaders = new HttpHeaders();
                 httpHeaders.setContentType(new MediaType("application", "pem-certificate-chain"));
                 return new ResponseEntity<>(cert, httpHeaders, HttpStatus.OK);
@@ -302,6 +612,38 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
         }
     }
 
+    /**
+     * Revokes all active certificates of the entity identified by the given MRN
+     *
+     * @return the serial numbers of the revoked certificates
+     * @throws McpBasicRestException
+     */
+    protected ResponseEntity<List<String>> revokeAllEntityCerts(HttpServletRequest request, String orgMrn, String entityMrn, String type, String version, CertificateRevocation input) throws McpBasicRestException {
+        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
+        if (org != null) {
+            // Check that the entity being queried belongs to the organization
+            if (!mrnUtil.getOrgShortNameFromOrgMrn(orgMrn).equalsIgnoreCase(mrnUtil.getOrgShortNameFromEntityMrn(entityMrn))) {
+                throw new McpBasicRestException(HttpStatus.BAD_REQUEST, MCPIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+            }
+            EntityModel entity;
+            if (type.equals("service")) {
+                entity = ((ServiceService) this.entityService).getServiceByMrnAndVersion(entityMrn, version);
+            } else {
+                entity = this.entityService.getByMrn(entityMrn.toLowerCase());
+            }
+            if (entity == null) {
+                throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
+            }
+            if (entity.getIdOrganization().compareTo(org.getId()) == 0) {
+                List<CertificateSerial> activeCerts = this.certificateService.listActiveCertificatesOf(entity);
+                return new ResponseEntity<>(this.revokeCertificates(activeCerts, input, request), HttpStatus.OK);
+            }
+            throw new McpBasicRestException(HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS, request.getServletPath());
+        } else {
+            throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+        }
+    }
+
     protected T getCertEntity(Certificate cert) {
         throw new UnsupportedOperationException("EntityController implementation is missing getCertEntity method");
     }
@@ -313,13 +655,9 @@ public abstract class EntityController<T extends EntityModel> extends BaseContro
     // Checks that the requesting user has a role that is equal to or higher than the ones being given to the input
     protected void checkRoles(HttpServletRequest request, T input, Organization org) throws McpBasicRestException {
         if (input.getPermissions() != null) {
-            String[] permissions = input.getPermissions().split(",");
-            for (String permission : permissions) {
-                List<Role> roleList = this.roleService.getRolesByIdOrganizationAndPermission(org.getId(), permission);
-                for (Role role : roleList) {
-                    if (!accessControlUtil.hasRole(role.getRoleName())) {
-                        throw new McpBasicRestException(HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS, request.getServletPath());
-                    }
+            for (String roleName : this.roleService.getRoleNamesByIdOrganizationAndPermissions(org.getId(), input.getPermissions())) {
+                if (!accessControlUtil.hasRole(roleName)) {
+                    throw new McpBasicRestException(HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS, request.getServletPath());
                 }
             }
         }
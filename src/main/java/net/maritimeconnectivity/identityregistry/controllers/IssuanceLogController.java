@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import net.maritimeconnectivity.identityregistry.model.data.ConsistencyProof;
+import net.maritimeconnectivity.identityregistry.model.data.InclusionProof;
+import net.maritimeconnectivity.identityregistry.model.data.SignedTreeHead;
+import net.maritimeconnectivity.identityregistry.services.IssuanceLogService;
+import net.maritimeconnectivity.identityregistry.utils.CertificateUtil;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+
+@RestController
+@RequestMapping(value={"oidc", "x509"})
+@Slf4j
+public class IssuanceLogController {
+    private IssuanceLogService issuanceLogService;
+
+    private CertificateUtil certUtil;
+
+    @Autowired
+    public void setIssuanceLogService(IssuanceLogService issuanceLogService) {
+        this.issuanceLogService = issuanceLogService;
+    }
+
+    @Autowired
+    public void setCertUtil(CertificateUtil certUtil) {
+        this.certUtil = certUtil;
+    }
+
+    /**
+     * Returns the current signed tree head of the issuance log of the given CA
+     *
+     * @return a reply...
+     */
+    @RequestMapping(
+            value = "/api/certificates/log/{caAlias}/sth",
+            method = RequestMethod.GET,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<SignedTreeHead> getSignedTreeHead(@PathVariable String caAlias) {
+        if (!isKnownCA(caAlias)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        try {
+            return new ResponseEntity<>(issuanceLogService.getSignedTreeHead(caAlias), HttpStatus.OK);
+        } catch (GeneralSecurityException | OperatorCreationException | IOException e) {
+            log.error("Unable to sign tree head", e);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Returns the proof that the certificate with the given serial number is included in the issuance log of the given CA
+     *
+     * @return a reply...
+     */
+    @RequestMapping(
+            value = "/api/certificates/log/{caAlias}/proof-by-serial/{serialNumber}",
+            method = RequestMethod.GET,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<InclusionProof> getInclusionProof(@PathVariable String caAlias, @PathVariable BigInteger serialNumber,
+                                                            @RequestParam(value = "treeSize", required = false) Long treeSize) {
+        if (!isKnownCA(caAlias)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        try {
+            InclusionProof proof = issuanceLogService.getInclusionProof(caAlias, serialNumber, treeSize);
+            if (proof == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(proof, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Returns the proof that the issuance log of the given CA at size first is a prefix of the log at size second
+     *
+     * @return a reply...
+     */
+    @RequestMapping(
+            value = "/api/certificates/log/{caAlias}/consistency",
+            method = RequestMethod.GET,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<ConsistencyProof> getConsistencyProof(@PathVariable String caAlias, @RequestParam("first") long first,
+                                                                @RequestParam("second") long second) {
+        if (!isKnownCA(caAlias)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        try {
+            return new ResponseEntity<>(issuanceLogService.getConsistencyProof(caAlias, first, second), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private boolean isKnownCA(String caAlias) {
+        return !certUtil.getRootCAAlias().equals(caAlias) && certUtil.getKeystoreHandler().getMCPCertificate(caAlias) != null;
+    }
+}
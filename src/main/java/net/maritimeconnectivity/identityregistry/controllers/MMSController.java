@@ -18,8 +18,11 @@ package net.maritimeconnectivity.identityregistry.controllers;
 import io.swagger.annotations.ApiParam;
 import io.swagger.v3.oas.annotations.Operation;
 import net.maritimeconnectivity.identityregistry.exception.McpBasicRestException;
+import net.maritimeconnectivity.identityregistry.model.data.BulkItemResult;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateBundle;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateRevocation;
+import net.maritimeconnectivity.identityregistry.model.data.CursorSlice;
+import net.maritimeconnectivity.identityregistry.model.data.KeysetCursor;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
 import net.maritimeconnectivity.identityregistry.model.database.CertificateModel;
 import net.maritimeconnectivity.identityregistry.model.database.entities.MMS;
@@ -34,11 +37,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 
 @RestController
 public class MMSController extends EntityController<MMS> {
@@ -81,6 +86,21 @@ public class MMSController extends EntityController<MMS> {
         return this.getEntity(request, orgMrn, mmsMrn);
     }
 
+    /**
+     * Returns a page of the certificates of the MMS instance identified by the given ID
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/mms/{mmsMrn}/certificates",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public Page<Certificate> getMMSCertificates(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String mmsMrn, Pageable pageable) throws McpBasicRestException {
+        return this.getEntityCertificates(request, orgMrn, mmsMrn, pageable);
+    }
+
     /**
      * Updates a mms
      * 
@@ -112,6 +132,53 @@ public class MMSController extends EntityController<MMS> {
         return this.deleteEntity(request, orgMrn, mmsMrn);
     }
 
+    /**
+     * Creates a list of mmses in one transaction. The mmses that fail validation or any of the checks done
+     * when creating a single mms are left out, and the rest are created.
+     *
+     * @return the result of each mms, in the order they were given
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/mmses/bulk",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('MMS_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<BulkItemResult>> createMMSes(HttpServletRequest request, @PathVariable String orgMrn, @RequestBody List<MMS> input) throws McpBasicRestException {
+        return this.createEntities(request, orgMrn, input);
+    }
+
+    /**
+     * Updates a list of mmses, identified by their MRNs, in one transaction. The mmses that fail validation
+     * or any of the checks done when updating a single mms are left out, and the rest are updated.
+     *
+     * @return the result of each mms, in the order they were given
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/mmses/bulk",
+            method = RequestMethod.PUT,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('MMS_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<BulkItemResult>> updateMMSes(HttpServletRequest request, @PathVariable String orgMrn, @RequestBody List<MMS> input) throws McpBasicRestException {
+        return this.updateEntities(request, orgMrn, input);
+    }
+
+    /**
+     * Deletes the mmses with the given MRNs in one transaction
+     *
+     * @return the result of each MRN, in the order they were given
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/mmses/bulk-delete",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('MMS_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<BulkItemResult>> deleteMMSes(HttpServletRequest request, @PathVariable String orgMrn, @ApiParam(value = "The MRNs of the mmses to delete", required = true) @RequestBody List<String> mrns) throws McpBasicRestException {
+        return this.deleteEntities(request, orgMrn, mrns);
+    }
+
     /**
      * Returns a list of mmses owned by the organization identified by the given ID
      * 
@@ -127,6 +194,25 @@ public class MMSController extends EntityController<MMS> {
         return this.getOrganizationEntities(request, orgMrn, pageable);
     }
 
+    /**
+     * Returns a slice of the MMS instances owned by the organization identified by the given ID. Unlike the paged list it
+     * seeks past the given cursor and does not count the MMS instances, so that deep slices are as fast as the first one.
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/mmses/keyset",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public CursorSlice<MMS> getOrganizationMMSesSlice(HttpServletRequest request, @PathVariable String orgMrn,
+                                                      @ApiParam(value = "The cursor returned with the previous slice") @RequestParam(value = "cursor", required = false) String cursor,
+                                                      @ApiParam(value = "Either id or mrn, ignored when a cursor is given") @RequestParam(value = "sort", defaultValue = KeysetCursor.SORT_ID) String sort,
+                                                      @ApiParam(value = "The maximum number of rows in the slice") @RequestParam(value = "size", defaultValue = "20") int size) throws McpBasicRestException {
+        return this.getOrganizationEntitySlice(request, orgMrn, cursor, sort, size);
+    }
+
     /**
      * Returns new certificate for the mms identified by the given ID
      * @deprecated It is generally not considered secure letting the server generate the private key. Will be removed in the future
@@ -168,6 +254,21 @@ public class MMSController extends EntityController<MMS> {
         return this.signEntityCert(request, csr, orgMrn, mmsMrn, "mms", null);
     }
 
+    /**
+     * Revokes all active certificates of the mms identified by the given ID
+     *
+     * @return the serial numbers of the revoked certificates
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/mms/{mmsMrn}/certificate/revoke-all",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('MMS_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<String>> revokeAllMMSCerts(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String mmsMrn, @Valid @RequestBody CertificateRevocation input) throws McpBasicRestException {
+        return this.revokeAllEntityCerts(request, orgMrn, mmsMrn, "mms", null, input);
+    }
+
     /**
      * Revokes certificate for the mms identified by the given ID
      * 
@@ -15,11 +15,16 @@
  */
 package net.maritimeconnectivity.identityregistry.controllers;
 
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.annotations.ApiParam;
 import io.swagger.v3.oas.annotations.Operation;
 import net.maritimeconnectivity.identityregistry.exception.McpBasicRestException;
+import net.maritimeconnectivity.identityregistry.model.data.BulkCertificateRevocation;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateBundle;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateRevocation;
+import net.maritimeconnectivity.identityregistry.model.data.CertificateSerial;
+import net.maritimeconnectivity.identityregistry.model.data.CursorSlice;
+import net.maritimeconnectivity.identityregistry.model.data.KeysetCursor;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
 import net.maritimeconnectivity.identityregistry.model.database.CertificateModel;
 import net.maritimeconnectivity.identityregistry.model.database.IdentityProviderAttribute;
@@ -29,13 +34,16 @@ import net.maritimeconnectivity.identityregistry.model.database.entities.Service
 import net.maritimeconnectivity.identityregistry.model.database.entities.User;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Vessel;
 import net.maritimeconnectivity.identityregistry.model.database.entities.MMS;
+import net.maritimeconnectivity.identityregistry.services.AgentDelegationService;
 import net.maritimeconnectivity.identityregistry.services.AgentService;
 import net.maritimeconnectivity.identityregistry.services.CertificateService;
 import net.maritimeconnectivity.identityregistry.services.EntityService;
 import net.maritimeconnectivity.identityregistry.services.OrganizationService;
 import net.maritimeconnectivity.identityregistry.services.RoleService;
+import net.maritimeconnectivity.identityregistry.utils.CertificateArchiveWriter;
 import net.maritimeconnectivity.identityregistry.utils.CsrUtil;
 import net.maritimeconnectivity.identityregistry.utils.EmailUtil;
+import net.maritimeconnectivity.identityregistry.utils.EntityExportWriter;
 import net.maritimeconnectivity.identityregistry.utils.KeycloakAdminUtil;
 import net.maritimeconnectivity.identityregistry.utils.MCPIdRegConstants;
 import net.maritimeconnectivity.identityregistry.utils.ValidateUtil;
@@ -44,6 +52,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -54,18 +63,26 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.ws.rs.InternalServerErrorException;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.net.MalformedURLException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 @RestController
 public class OrganizationController extends BaseControllerWithCertificate {
+    private static final Set<String> EXPORT_ENTITY_TYPES = new HashSet<>(Arrays.asList("organization", "vessel", "user", "device", "service", "mms"));
+
     // These 4 services are used when deleting an organization
     @Autowired
     private EntityService<Device> deviceService;
@@ -96,6 +113,12 @@ public class OrganizationController extends BaseControllerWithCertificate {
     @Autowired
     private AgentService agentService;
 
+    @Autowired
+    private AgentDelegationService agentDelegationService;
+
+    @Autowired
+    private ObjectWriter streamingJsonWriter;
+
     /**
      * Receives an application for a new organization and root-user
      * 
@@ -177,6 +200,7 @@ public class OrganizationController extends BaseControllerWithCertificate {
         // Enabled the organization and save it
         org.setApproved(true);
         Organization approvedOrg =  this.organizationService.save(org);
+        this.agentDelegationService.addOrganization(approvedOrg);
         return new ResponseEntity<>(approvedOrg, HttpStatus.OK);
     }
 
@@ -196,7 +220,26 @@ public class OrganizationController extends BaseControllerWithCertificate {
         if (org == null) {
             throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
         }
-        return new ResponseEntity<>(org, HttpStatus.OK);
+        return new ResponseEntity<>(withCertificates(org), HttpStatus.OK);
+    }
+
+    /**
+     * Returns a page of the certificates of the organization identified by the given ID
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/certificates",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public Page<Certificate> getOrganizationCertificates(HttpServletRequest request, @PathVariable String orgMrn, Pageable pageable) throws McpBasicRestException {
+        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
+        if (org == null) {
+            throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+        }
+        return this.certificateService.listCertificatesOf(org, pageable);
     }
 
     /**
@@ -215,7 +258,7 @@ public class OrganizationController extends BaseControllerWithCertificate {
         if (org == null) {
             throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
         }
-        return new ResponseEntity<>(org, HttpStatus.OK);
+        return new ResponseEntity<>(withCertificates(org), HttpStatus.OK);
     }
 
     /**
@@ -231,6 +274,31 @@ public class OrganizationController extends BaseControllerWithCertificate {
         return this.organizationService.listAllPage(pageable);
     }
 
+    /**
+     * Returns a slice of all organizations. Unlike the paged list it seeks past the given cursor and does not count
+     * the organizations, so that deep slices are as fast as the first one.
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/orgs/keyset",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    public CursorSlice<Organization> getOrganizationSlice(HttpServletRequest request,
+                                                          @ApiParam(value = "The cursor returned with the previous slice") @RequestParam(value = "cursor", required = false) String cursor,
+                                                          @ApiParam(value = "Either id or mrn, ignored when a cursor is given") @RequestParam(value = "sort", defaultValue = KeysetCursor.SORT_ID) String sort,
+                                                          @ApiParam(value = "The maximum number of rows in the slice") @RequestParam(value = "size", defaultValue = "20") int size) throws McpBasicRestException {
+        KeysetCursor keysetCursor = getKeysetCursor(cursor, sort, request);
+        Slice<Organization> slice = this.organizationService.listAllSlice(keysetCursor, size);
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            Organization last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            nextCursor = keysetCursor.after(last.getId(), last.getMrn()).encode();
+        }
+        return new CursorSlice<>(slice.getContent(), slice.hasNext(), nextCursor);
+    }
+
     /**
      * Updates info about the organization identified by the given ID
      * 
@@ -309,7 +377,12 @@ public class OrganizationController extends BaseControllerWithCertificate {
             this.roleService.deleteByOrg(org.getId());
             this.mmsService.deleteByOrg(org.getId());
             this.organizationService.delete(org.getId());
+            this.userDetailsCache.evictByOrganization(org.getId());
+            this.authenticationCache.evictByOrganization(org.getId());
             this.agentService.deleteByOrg(org.getId());
+            this.agentDelegationService.removeOrganization(org.getId());
+            // users of other organizations may have been agents for this one
+            this.userClaimsService.evictAll();
             return new ResponseEntity<>(HttpStatus.OK);
         } else {
             throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
@@ -404,6 +477,119 @@ public class OrganizationController extends BaseControllerWithCertificate {
         }
     }
 
+    /**
+     * Revokes all active certificates of the organization and of all the entities that belong to it
+     *
+     * @return the serial numbers of the revoked certificates
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/certificate/revoke-all",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('ORG_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<String>> revokeAllOrgCerts(HttpServletRequest request, @PathVariable String orgMrn, @Valid @RequestBody CertificateRevocation input) throws McpBasicRestException {
+        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
+        if (org != null) {
+            List<CertificateSerial> certs = this.certificateService.listActiveCertificatesOfOrganization(org.getId());
+            return new ResponseEntity<>(this.revokeCertificates(certs, input, request), HttpStatus.OK);
+        } else {
+            throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+        }
+    }
+
+    /**
+     * Revokes the listed certificates. Only active certificates that belong to the organization or to one of
+     * its entities are revoked.
+     *
+     * @return the serial numbers of the revoked certificates
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/certificate/revoke-bulk",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('ORG_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<String>> revokeOrgCertsBulk(HttpServletRequest request, @PathVariable String orgMrn, @Valid @RequestBody BulkCertificateRevocation input) throws McpBasicRestException {
+        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
+        if (org != null) {
+            List<CertificateSerial> certs = this.certificateService.listActiveCertificatesOfOrganization(org.getId(), new HashSet<>(input.getSerialNumbers()));
+            return new ResponseEntity<>(this.revokeCertificates(certs, input, request), HttpStatus.OK);
+        } else {
+            throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+        }
+    }
+
+    /**
+     * Streams all active certificates of the organization and of the entities that belong to it, either as a ZIP
+     * archive of PEM files named after their serial numbers or as a single certs-only PKCS#7 bundle
+     *
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/certificates/export",
+            method = RequestMethod.GET)
+    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public void exportOrgCerts(HttpServletRequest request, HttpServletResponse response, @PathVariable String orgMrn,
+                               @ApiParam(value = "Either zip or pkcs7") @RequestParam(value = "format", defaultValue = CertificateArchiveWriter.FORMAT_ZIP) String format,
+                               @ApiParam(value = "Only export the certificates of this type of entity") @RequestParam(value = "entityType", required = false) String entityType) throws McpBasicRestException, IOException {
+        if (!CertificateArchiveWriter.FORMAT_ZIP.equalsIgnoreCase(format) && !CertificateArchiveWriter.FORMAT_PKCS7.equalsIgnoreCase(format)) {
+            throw new McpBasicRestException(HttpStatus.BAD_REQUEST, MCPIdRegConstants.INVALID_EXPORT_FORMAT, request.getServletPath());
+        }
+        if (entityType != null && !EXPORT_ENTITY_TYPES.contains(entityType)) {
+            throw new McpBasicRestException(HttpStatus.BAD_REQUEST, MCPIdRegConstants.INVALID_MCP_TYPE, request.getServletPath());
+        }
+        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
+        if (org == null) {
+            throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+        }
+        response.setContentType(CertificateArchiveWriter.getContentType(format));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"certificates." + CertificateArchiveWriter.getFileExtension(format) + "\"");
+        try (CertificateArchiveWriter writer = CertificateArchiveWriter.forFormat(format, response.getOutputStream())) {
+            try {
+                this.certificateService.writeActiveCertificatesOfOrganization(org.getId(), entityType, writer);
+            } catch (IOException | RuntimeException e) {
+                // reading the certificates may fail as well as writing them
+                writer.abort();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Streams the organization and all the vessels, users, devices, services and MMSes that belong to it as newline
+     * delimited JSON, one entity per line tagged with its type. Certificates are not included. A complete export
+     * ends with a line of the type "end", which is left out if the export fails after it has started.
+     *
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/export",
+            method = RequestMethod.GET)
+    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public void exportOrg(HttpServletRequest request, HttpServletResponse response, @PathVariable String orgMrn) throws McpBasicRestException, IOException {
+        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
+        if (org == null) {
+            throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
+        }
+        response.setContentType(EntityExportWriter.CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        try (EntityExportWriter writer = new EntityExportWriter(this.streamingJsonWriter, response.getOutputStream())) {
+            try {
+                writer.write(org);
+                this.vesselService.writeAllFromOrg(org.getId(), writer);
+                this.userService.writeAllFromOrg(org.getId(), writer);
+                this.deviceService.writeAllFromOrg(org.getId(), writer);
+                this.serviceService.writeAllFromOrg(org.getId(), writer);
+                this.mmsService.writeAllFromOrg(org.getId(), writer);
+            } catch (IOException | RuntimeException e) {
+                // reading the entities may fail as well as writing them
+                writer.abort();
+                throw e;
+            }
+        }
+    }
+
     @Override
     protected String getName(CertificateModel certOwner) {
         return ((Organization)certOwner).getName();
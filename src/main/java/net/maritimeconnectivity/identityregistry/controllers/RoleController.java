@@ -18,9 +18,13 @@ package net.maritimeconnectivity.identityregistry.controllers;
 import net.maritimeconnectivity.identityregistry.exception.McpBasicRestException;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
 import net.maritimeconnectivity.identityregistry.model.database.Role;
+import net.maritimeconnectivity.identityregistry.security.BearerTokenAuthenticationCache;
+import net.maritimeconnectivity.identityregistry.security.x509.X509UserDetailsCache;
 import net.maritimeconnectivity.identityregistry.services.OrganizationService;
 import net.maritimeconnectivity.identityregistry.services.RoleService;
+import net.maritimeconnectivity.identityregistry.services.UserClaimsService;
 import net.maritimeconnectivity.identityregistry.utils.AccessControlUtil;
+import net.maritimeconnectivity.identityregistry.utils.HasRoleUtil;
 import net.maritimeconnectivity.identityregistry.utils.MCPIdRegConstants;
 import net.maritimeconnectivity.identityregistry.utils.ValidateUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,7 +41,6 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
-import java.util.Arrays;
 import java.util.List;
 
 @RestController
@@ -50,6 +53,12 @@ public class RoleController {
     private OrganizationService organizationService;
     @Autowired
     private AccessControlUtil accessControlUtil;
+    @Autowired
+    private X509UserDetailsCache userDetailsCache;
+    @Autowired
+    private BearerTokenAuthenticationCache authenticationCache;
+    @Autowired
+    private UserClaimsService userClaimsService;
 
     /**
      * Returns a list of rolemappings for this organization
@@ -87,6 +96,9 @@ public class RoleController {
             }
             input.setIdOrganization(org.getId());
             Role newRole = this.roleService.save(input);
+            this.userDetailsCache.evictByOrganization(org.getId());
+            this.authenticationCache.evictByOrganization(org.getId());
+            this.userClaimsService.evictByOrganization(org.getId());
             return new ResponseEntity<>(newRole, HttpStatus.OK);
         } else {
             throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
@@ -150,6 +162,9 @@ public class RoleController {
             }
             input.copyTo(role);
             this.roleService.save(role);
+            this.userDetailsCache.evictByOrganization(org.getId());
+            this.authenticationCache.evictByOrganization(org.getId());
+            this.userClaimsService.evictByOrganization(org.getId());
             return new ResponseEntity<>(HttpStatus.OK);
         } else {
             throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
@@ -176,6 +191,9 @@ public class RoleController {
             }
             if (role.getIdOrganization().compareTo(org.getId()) == 0) {
                 this.roleService.delete(roleId);
+                this.userDetailsCache.evictByOrganization(org.getId());
+                this.authenticationCache.evictByOrganization(org.getId());
+                this.userClaimsService.evictByOrganization(org.getId());
                 return new ResponseEntity<>(HttpStatus.OK);
             }
             throw new McpBasicRestException(HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS, request.getServletPath());
@@ -212,11 +230,7 @@ public class RoleController {
             produces = "application/json;charset=UTF-8")
     @ResponseBody
     public ResponseEntity<List<String>> getAvailableRoles(@PathVariable String orgMrn) {
-        // See net.maritimecloud.identityregistry.security.MultiSecurityConfig for the role hierarchy
-        List<String> roles = Arrays.asList("ROLE_SITE_ADMIN", "ROLE_ORG_ADMIN", "ROLE_ENTITY_ADMIN", "ROLE_USER_ADMIN",
-                                           "ROLE_VESSEL_ADMIN", "ROLE_SERVICE_ADMIN", "ROLE_DEVICE_ADMIN", "ROLE_MMS_ADMIN",
-                                           "ROLE_APPROVE_ORG", "ROLE_USER");
-        return new ResponseEntity<>(roles, HttpStatus.OK);
+        return new ResponseEntity<>(HasRoleUtil.ROLES, HttpStatus.OK);
     }
 
 
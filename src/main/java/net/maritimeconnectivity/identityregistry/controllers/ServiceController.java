@@ -22,6 +22,8 @@ import net.maritimeconnectivity.identityregistry.exception.DuplicatedKeycloakEnt
 import net.maritimeconnectivity.identityregistry.exception.McpBasicRestException;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateBundle;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateRevocation;
+import net.maritimeconnectivity.identityregistry.model.data.CursorSlice;
+import net.maritimeconnectivity.identityregistry.model.data.KeysetCursor;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
 import net.maritimeconnectivity.identityregistry.model.database.CertificateModel;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
@@ -48,6 +50,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -56,6 +59,7 @@ import javax.validation.Valid;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 
 @RestController
 @Slf4j
@@ -182,6 +186,29 @@ public class ServiceController extends EntityController<Service> {
     @ResponseBody
     @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
     public ResponseEntity<Service> getServiceVersion(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String serviceMrn, @PathVariable String version) throws McpBasicRestException {
+        return new ResponseEntity<>(withCertificates(getOrgServiceVersion(request, orgMrn, serviceMrn, version)), HttpStatus.OK);
+    }
+
+    /**
+     * Returns a page of the certificates of a specific version of the service instance identified by the given ID
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/service/{serviceMrn}/{version}/certificates",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public Page<Certificate> getServiceVersionCertificates(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String serviceMrn, @PathVariable String version, Pageable pageable) throws McpBasicRestException {
+        Service service = getOrgServiceVersion(request, orgMrn, serviceMrn, version);
+        return this.certificateService.listCertificatesOf(service, pageable);
+    }
+
+    /**
+     * Looks up a specific version of a service instance and checks that it belongs to the given organization
+     */
+    private Service getOrgServiceVersion(HttpServletRequest request, String orgMrn, String serviceMrn, String version) throws McpBasicRestException {
         Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
         if (org != null) {
             // Check that the entity being queried belongs to the organization
@@ -193,7 +220,7 @@ public class ServiceController extends EntityController<Service> {
                 throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ENTITY_NOT_FOUND, request.getServletPath());
             }
             if (service.getIdOrganization().compareTo(org.getId()) == 0) {
-                return new ResponseEntity<>(service, HttpStatus.OK);
+                return service;
             }
             throw new McpBasicRestException(HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS, request.getServletPath());
         } else {
@@ -330,6 +357,25 @@ public class ServiceController extends EntityController<Service> {
         return this.getOrganizationEntities(request, orgMrn, pageable);
     }
 
+    /**
+     * Returns a slice of the service instances owned by the organization identified by the given ID. Unlike the paged list it
+     * seeks past the given cursor and does not count the service instances, so that deep slices are as fast as the first one.
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/services/keyset",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public CursorSlice<Service> getOrganizationServicesSlice(HttpServletRequest request, @PathVariable String orgMrn,
+                                                             @ApiParam(value = "The cursor returned with the previous slice") @RequestParam(value = "cursor", required = false) String cursor,
+                                                             @ApiParam(value = "Either id or mrn, ignored when a cursor is given") @RequestParam(value = "sort", defaultValue = KeysetCursor.SORT_ID) String sort,
+                                                             @ApiParam(value = "The maximum number of rows in the slice") @RequestParam(value = "size", defaultValue = "20") int size) throws McpBasicRestException {
+        return this.getOrganizationEntitySlice(request, orgMrn, cursor, sort, size);
+    }
+
     /**
      * Returns new certificate for the service identified by the given ID
      *
@@ -385,8 +431,23 @@ public class ServiceController extends EntityController<Service> {
             produces = {"application/pem-certificate-chain", MediaType.APPLICATION_JSON_UTF8_VALUE}
     )
     @PreAuthorize("hasRole('SERVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
-    public ResponseEntity<String> newServiceCertFromCsr(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String serviceMrn, @PathVariable String version, @ApiParam(value = "A PEM encoded PKCS#10 CSR", required = true) @RequestBody String csr) throws McpBasicRestException {
-        return this.signEntityCert(request, csr, orgMrn, serviceMrn, "service", version);
+    public ResponseEntity<String> newServiceCertFromCsr(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String serviceMrn, @PathVariable String version, @ApiParam(value = "A PEM encoded PKCS#10 CSR", required = true) @RequestBody String csr, @ApiParam(value = "If given, a short-lived certificate without revocation information is issued that is valid for this many hours") @RequestParam(value = "validityHours", required = false) Integer validityHours) throws McpBasicRestException {
+        return this.signEntityCert(request, csr, orgMrn, serviceMrn, "service", version, validityHours);
+    }
+
+    /**
+     * Revokes all active certificates of the service identified by the given ID
+     *
+     * @return the serial numbers of the revoked certificates
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/service/{serviceMrn}/{version}/certificate/revoke-all",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('SERVICE_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<String>> revokeAllServiceCerts(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String serviceMrn, @PathVariable String version, @Valid @RequestBody CertificateRevocation input) throws McpBasicRestException {
+        return this.revokeAllEntityCerts(request, orgMrn, serviceMrn, "service", version, input);
     }
 
     /**
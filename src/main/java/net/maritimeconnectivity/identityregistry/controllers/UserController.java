@@ -22,6 +22,8 @@ import net.maritimeconnectivity.identityregistry.exception.DuplicatedKeycloakEnt
 import net.maritimeconnectivity.identityregistry.exception.McpBasicRestException;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateBundle;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateRevocation;
+import net.maritimeconnectivity.identityregistry.model.data.CursorSlice;
+import net.maritimeconnectivity.identityregistry.model.data.KeysetCursor;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
 import net.maritimeconnectivity.identityregistry.model.database.CertificateModel;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
@@ -59,6 +61,8 @@ import javax.validation.Valid;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.security.AuthProvider;
+import java.util.List;
+import java.util.Objects;
 
 @RestController
 public class UserController extends EntityController<User> {
@@ -169,6 +173,21 @@ public class UserController extends EntityController<User> {
         return this.getEntity(request, orgMrn, userMrn);
     }
 
+    /**
+     * Returns a page of the certificates of the user identified by the given ID
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/user/{userMrn}/certificates",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public Page<Certificate> getUserCertificates(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String userMrn, Pageable pageable) throws McpBasicRestException {
+        return this.getEntityCertificates(request, orgMrn, userMrn, pageable);
+    }
+
     /**
      * Updates a User
      *
@@ -214,6 +233,8 @@ public class UserController extends EntityController<User> {
             }
             input.selectiveCopyTo(user);
             this.entityService.save(user);
+            this.userDetailsCache.evictByMrn(user.getMrn());
+            this.userClaimsService.evictByMrn(user.getMrn());
             return new ResponseEntity<>(HttpStatus.OK);
         } else {
             throw new McpBasicRestException(HttpStatus.NOT_FOUND, MCPIdRegConstants.ORG_NOT_FOUND, request.getServletPath());
@@ -244,6 +265,8 @@ public class UserController extends EntityController<User> {
             }
             if (user.getIdOrganization().equals(org.getId())) {
                 this.entityService.delete(user.getId());
+                this.userDetailsCache.evictByMrn(user.getMrn());
+                this.userClaimsService.evictByMrn(user.getMrn());
                 keycloakAU.deleteUser(user.getEmail(), user.getMrn());
                 return new ResponseEntity<>(HttpStatus.OK);
             }
@@ -268,6 +291,25 @@ public class UserController extends EntityController<User> {
         return this.getOrganizationEntities(request, orgMrn, pageable);
     }
 
+    /**
+     * Returns a slice of the users owned by the organization identified by the given ID. Unlike the paged list it
+     * seeks past the given cursor and does not count the users, so that deep slices are as fast as the first one.
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/users/keyset",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public CursorSlice<User> getOrganizationUsersSlice(HttpServletRequest request, @PathVariable String orgMrn,
+                                                       @ApiParam(value = "The cursor returned with the previous slice") @RequestParam(value = "cursor", required = false) String cursor,
+                                                       @ApiParam(value = "Either id or mrn, ignored when a cursor is given") @RequestParam(value = "sort", defaultValue = KeysetCursor.SORT_ID) String sort,
+                                                       @ApiParam(value = "The maximum number of rows in the slice") @RequestParam(value = "size", defaultValue = "20") int size) throws McpBasicRestException {
+        return this.getOrganizationEntitySlice(request, orgMrn, cursor, sort, size);
+    }
+
     /**
      * Returns new certificate for the user identified by the given ID
      * @deprecated It is generally not considered secure letting the server generate the private key. Will be removed in the future
@@ -309,6 +351,21 @@ public class UserController extends EntityController<User> {
         return this.signEntityCert(request, csr, orgMrn, userMrn, "user", null);
     }
 
+    /**
+     * Revokes all active certificates of the user identified by the given ID
+     *
+     * @return the serial numbers of the revoked certificates
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/user/{userMrn}/certificate/revoke-all",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('USER_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<String>> revokeAllUserCerts(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String userMrn, @Valid @RequestBody CertificateRevocation input) throws McpBasicRestException {
+        return this.revokeAllEntityCerts(request, orgMrn, userMrn, "user", null, input);
+    }
+
     /**
      * Revokes certificate for the user identified by the given ID
      *
@@ -343,7 +400,7 @@ public class UserController extends EntityController<User> {
         if (!AccessControlUtil.isUserSync(this.userSyncMRN, this.userSyncO, this.userSyncOU, this.userSyncC)) {
             throw new McpBasicRestException(HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS, request.getServletPath());
         }
-        Organization org = this.organizationService.getOrganizationByMrnNoFilter(orgMrn);
+        Organization org = this.organizationService.getOrganizationByMrn(orgMrn);
         // The organization does not exists - check if this a an organization hosted by an external "validator".
         if (org == null && orgAddress != null && orgName != null) {
             // Check that the org shortname is the same for the orgMrn and originalErrorMessage
@@ -397,6 +454,9 @@ public class UserController extends EntityController<User> {
                     newRole.setIdOrganization(org.getId());
                     this.roleService.save(newRole);
                 }
+                this.userDetailsCache.evictByOrganization(org.getId());
+                this.authenticationCache.evictByOrganization(org.getId());
+                this.userClaimsService.evictByOrganization(org.getId());
             }
         }
 
@@ -412,8 +472,14 @@ public class UserController extends EntityController<User> {
                 this.entityService.save(input);
             } else {
                 // Update the existing user and save
+                String oldPermissions = oldUser.getPermissions();
                 oldUser = input.selectiveCopyTo(oldUser);
                 this.entityService.save(oldUser);
+                this.userDetailsCache.evictByMrn(oldUser.getMrn());
+                // The user is synced on every login, so only forget the claims if they may have changed
+                if (!Objects.equals(oldPermissions, oldUser.getPermissions())) {
+                    this.userClaimsService.evictByMrn(oldUser.getMrn());
+                }
             }
             return new ResponseEntity<>(HttpStatus.OK);
         } else {
@@ -17,13 +17,8 @@
 package net.maritimeconnectivity.identityregistry.controllers;
 
 import net.maritimeconnectivity.identityregistry.exception.McpBasicRestException;
-import net.maritimeconnectivity.identityregistry.model.database.Agent;
-import net.maritimeconnectivity.identityregistry.model.database.Organization;
-import net.maritimeconnectivity.identityregistry.model.database.entities.User;
-import net.maritimeconnectivity.identityregistry.services.AgentService;
-import net.maritimeconnectivity.identityregistry.services.EntityService;
-import net.maritimeconnectivity.identityregistry.services.OrganizationService;
-import net.maritimeconnectivity.identityregistry.services.RoleService;
+import net.maritimeconnectivity.identityregistry.model.data.UserClaims;
+import net.maritimeconnectivity.identityregistry.services.UserClaimsService;
 import net.maritimeconnectivity.identityregistry.utils.AccessControlUtil;
 import net.maritimeconnectivity.identityregistry.utils.MCPIdRegConstants;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,11 +31,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping(value = "service")
@@ -57,20 +48,7 @@ public class UserInformationController {
     private String userSyncMRN;
 
     @Autowired
-    private RoleService roleService;
-
-    @Autowired
-    private OrganizationService organizationService;
-
-    private EntityService<User> userService;
-
-    @Autowired
-    private AgentService agentService;
-
-    @Autowired
-    public void setUserService(EntityService<User> userService) {
-        this.userService = userService;
-    }
+    private UserClaimsService userClaimsService;
 
     @RequestMapping(
             value = "/{userMrn}/roles",
@@ -82,16 +60,7 @@ public class UserInformationController {
             throw new McpBasicRestException(HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS, request.getServletPath());
         }
 
-        User user = this.userService.getByMrn(userMrn);
-        if (user != null && user.getPermissions() != null) {
-            List<String> userPermissions = Arrays.asList(user.getPermissions().split(",")).parallelStream().map(String::trim).collect(Collectors.toList());
-
-            List<String> userRoles = new ArrayList<>();
-            userPermissions.forEach(permission -> roleService.getRolesByIdOrganizationAndPermission(user.getIdOrganization(), permission).forEach(role -> userRoles.add(role.getRoleName())));
-
-            return new ResponseEntity<>(userRoles, HttpStatus.OK);
-        }
-        return new ResponseEntity<>(Collections.singletonList("ROLE_USER"), HttpStatus.OK);
+        return new ResponseEntity<>(this.userClaimsService.getClaims(userMrn).getRoles(), HttpStatus.OK);
     }
 
     @RequestMapping(
@@ -104,28 +73,25 @@ public class UserInformationController {
             throw new McpBasicRestException(HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS, request.getServletPath());
         }
 
-        User user = this.userService.getByMrn(userMrn);
-
-        if (user != null) {
-
-            Organization organization = this.organizationService.getOrganizationById(user.getIdOrganization());
-
-            if (organization != null) {
-                List<Agent> agents = this.agentService.getAgentsByIdActingOrg(organization.getId());
+        return new ResponseEntity<>(this.userClaimsService.getClaims(userMrn).getActingOnBehalfOf(), HttpStatus.OK);
+    }
 
-                if (agents != null) {
-                    List<String> orgs = new ArrayList<>();
-                    agents.forEach(agent -> {
-                        Organization org = this.organizationService.getOrganizationById(agent.getIdOnBehalfOfOrganization());
-                        if (org != null) {
-                            orgs.add(org.getMrn());
-                        }
-                    });
-                    return new ResponseEntity<>(orgs, HttpStatus.OK);
-                }
-            }
+    /**
+     * Returns both the roles of a user and the organizations that it can act on behalf of, so that a login only needs
+     * one call
+     *
+     * @return the claims of the user
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/{userMrn}/claims",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8"
+    )
+    public ResponseEntity<UserClaims> getUserClaims(HttpServletRequest request, @PathVariable String userMrn) throws McpBasicRestException {
+        if (!AccessControlUtil.isUserSync(this.userSyncMRN, this.userSyncO, this.userSyncOU, this.userSyncC)) {
+            throw new McpBasicRestException(HttpStatus.FORBIDDEN, MCPIdRegConstants.MISSING_RIGHTS, request.getServletPath());
         }
-
-        return new ResponseEntity<>(new ArrayList<>(), HttpStatus.OK);
+        return new ResponseEntity<>(this.userClaimsService.getClaims(userMrn), HttpStatus.OK);
     }
 }
@@ -18,8 +18,11 @@ package net.maritimeconnectivity.identityregistry.controllers;
 import io.swagger.annotations.ApiParam;
 import io.swagger.v3.oas.annotations.Operation;
 import net.maritimeconnectivity.identityregistry.exception.McpBasicRestException;
+import net.maritimeconnectivity.identityregistry.model.data.BulkItemResult;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateBundle;
 import net.maritimeconnectivity.identityregistry.model.data.CertificateRevocation;
+import net.maritimeconnectivity.identityregistry.model.data.CursorSlice;
+import net.maritimeconnectivity.identityregistry.model.data.KeysetCursor;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
 import net.maritimeconnectivity.identityregistry.model.database.CertificateModel;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Service;
@@ -40,6 +43,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -47,6 +51,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.math.BigInteger;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Set;
 
 @RestController
@@ -90,6 +95,21 @@ public class VesselController extends EntityController<Vessel> {
         return this.getEntity(request, orgMrn, vesselMrn);
     }
 
+    /**
+     * Returns a page of the certificates of the vessel identified by the given ID
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/vessel/{vesselMrn}/certificates",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public Page<Certificate> getVesselCertificates(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String vesselMrn, Pageable pageable) throws McpBasicRestException {
+        return this.getEntityCertificates(request, orgMrn, vesselMrn, pageable);
+    }
+
     /**
      * Updates a Vessel
      *
@@ -143,6 +163,53 @@ public class VesselController extends EntityController<Vessel> {
         return this.deleteEntity(request, orgMrn, vesselMrn);
     }
 
+    /**
+     * Creates a list of vessels in one transaction. The vessels that fail validation or any of the checks done
+     * when creating a single vessel are left out, and the rest are created.
+     *
+     * @return the result of each vessel, in the order they were given
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/vessels/bulk",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<BulkItemResult>> createVessels(HttpServletRequest request, @PathVariable String orgMrn, @RequestBody List<Vessel> input) throws McpBasicRestException {
+        return this.createEntities(request, orgMrn, input);
+    }
+
+    /**
+     * Updates a list of vessels, identified by their MRNs, in one transaction. The vessels that fail validation
+     * or any of the checks done when updating a single vessel are left out, and the rest are updated.
+     *
+     * @return the result of each vessel, in the order they were given
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/vessels/bulk",
+            method = RequestMethod.PUT,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<BulkItemResult>> updateVessels(HttpServletRequest request, @PathVariable String orgMrn, @RequestBody List<Vessel> input) throws McpBasicRestException {
+        return this.updateEntities(request, orgMrn, input);
+    }
+
+    /**
+     * Deletes the vessels with the given MRNs in one transaction
+     *
+     * @return the result of each MRN, in the order they were given
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/vessels/bulk-delete",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<BulkItemResult>> deleteVessels(HttpServletRequest request, @PathVariable String orgMrn, @ApiParam(value = "The MRNs of the vessels to delete", required = true) @RequestBody List<String> mrns) throws McpBasicRestException {
+        return this.deleteEntities(request, orgMrn, mrns);
+    }
+
     /**
      * Returns a list of vessels owned by the organization identified by the given ID
      *
@@ -158,6 +225,25 @@ public class VesselController extends EntityController<Vessel> {
         return this.getOrganizationEntities(request, orgMrn, pageable);
     }
 
+    /**
+     * Returns a slice of the vessels owned by the organization identified by the given ID. Unlike the paged list it
+     * seeks past the given cursor and does not count the vessels, so that deep slices are as fast as the first one.
+     *
+     * @return a reply...
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/vessels/keyset",
+            method = RequestMethod.GET,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("@accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public CursorSlice<Vessel> getOrganizationVesselsSlice(HttpServletRequest request, @PathVariable String orgMrn,
+                                                           @ApiParam(value = "The cursor returned with the previous slice") @RequestParam(value = "cursor", required = false) String cursor,
+                                                           @ApiParam(value = "Either id or mrn, ignored when a cursor is given") @RequestParam(value = "sort", defaultValue = KeysetCursor.SORT_ID) String sort,
+                                                           @ApiParam(value = "The maximum number of rows in the slice") @RequestParam(value = "size", defaultValue = "20") int size) throws McpBasicRestException {
+        return this.getOrganizationEntitySlice(request, orgMrn, cursor, sort, size);
+    }
+
     /**
      * Returns new certificate for the vessel identified by the given ID
      * @deprecated It is generally not considered secure letting the server generate the private key. Will be removed in the future
@@ -199,6 +285,21 @@ public class VesselController extends EntityController<Vessel> {
         return this.signEntityCert(request, csr, orgMrn, vesselMrn, "vessel", null);
     }
 
+    /**
+     * Revokes all active certificates of the vessel identified by the given ID
+     *
+     * @return the serial numbers of the revoked certificates
+     * @throws McpBasicRestException
+     */
+    @RequestMapping(
+            value = "/api/org/{orgMrn}/vessel/{vesselMrn}/certificate/revoke-all",
+            method = RequestMethod.POST,
+            produces = "application/json;charset=UTF-8")
+    @PreAuthorize("hasRole('VESSEL_ADMIN') and @accessControlUtil.hasAccessToOrg(#orgMrn)")
+    public ResponseEntity<List<String>> revokeAllVesselCerts(HttpServletRequest request, @PathVariable String orgMrn, @PathVariable String vesselMrn, @Valid @RequestBody CertificateRevocation input) throws McpBasicRestException {
+        return this.revokeAllEntityCerts(request, orgMrn, vesselMrn, "vessel", null, input);
+    }
+
     /**
      * Revokes certificate for the vessel identified by the given ID
      *
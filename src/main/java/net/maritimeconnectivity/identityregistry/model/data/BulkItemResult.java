@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.model.data;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.maritimeconnectivity.identityregistry.model.JsonSerializable;
+import org.springframework.http.HttpStatus;
+
+/**
+ * The result for one of the entities in a bulk request
+ */
+@AllArgsConstructor
+@Getter
+public class BulkItemResult implements JsonSerializable {
+    @ApiModelProperty(value = "The position of the entity in the request")
+    private int index;
+    @ApiModelProperty(value = "The MRN of the entity")
+    private String mrn;
+    @ApiModelProperty(value = "The HTTP status the entity would have gotten if it had been sent on its own")
+    private int status;
+    @ApiModelProperty(value = "Why the entity was rejected, or null if it was not")
+    private String message;
+
+    public static BulkItemResult succeeded(int index, String mrn) {
+        return new BulkItemResult(index, mrn, HttpStatus.OK.value(), null);
+    }
+
+    public static BulkItemResult failed(int index, String mrn, HttpStatus status, String message) {
+        return new BulkItemResult(index, mrn, status.value(), message);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.model.data;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.maritimeconnectivity.identityregistry.model.JsonSerializable;
+
+import java.util.List;
+
+/**
+ * Proof that an earlier version of the issuance log of a CA is a prefix of a later version
+ */
+@AllArgsConstructor
+@Getter
+public class ConsistencyProof implements JsonSerializable {
+    @ApiModelProperty(value = "The size of the earlier tree")
+    private long firstTreeSize;
+    @ApiModelProperty(value = "The size of the later tree")
+    private long secondTreeSize;
+    @ApiModelProperty(value = "The Base64 encoded hashes of the proof")
+    private List<String> consistency;
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.model.data;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A slice of a list that is paginated using a {@link KeysetCursor}. Unlike a page it carries no total count, as
+ * counting would cost as much as reading the whole list.
+ */
+@AllArgsConstructor
+@Getter
+public class CursorSlice<T> {
+    @ApiModelProperty(value = "The rows of this slice")
+    private List<T> content;
+    @ApiModelProperty(value = "Whether there are more rows after this slice")
+    private boolean hasNext;
+    @ApiModelProperty(value = "The cursor to pass to get the next slice, or null if this is the last one")
+    private String nextCursor;
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.model.data;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.maritimeconnectivity.identityregistry.model.JsonSerializable;
+
+import java.util.List;
+
+/**
+ * Proof that a certificate is included in the issuance log of a CA
+ */
+@AllArgsConstructor
+@Getter
+public class InclusionProof implements JsonSerializable {
+    @ApiModelProperty(value = "The index of the certificate in the log")
+    private long leafIndex;
+    @ApiModelProperty(value = "The size of the tree the proof is for")
+    private long treeSize;
+    @ApiModelProperty(value = "The Base64 encoded hashes of the audit path")
+    private List<String> auditPath;
+}
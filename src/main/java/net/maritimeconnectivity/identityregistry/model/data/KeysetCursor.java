@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.model.data;
+
+import lombok.Getter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * An opaque position in a list that is paginated by seeking past the last returned row instead of skipping an offset,
+ * so that deep pages cost the same as the first one.
+ * <p/>
+ * Lists are ordered either by id or by MRN with the id as tie breaker, and the cursor holds the sort key and id of
+ * the last row that was returned.
+ */
+@Getter
+public class KeysetCursor {
+    public static final String SORT_ID = "id";
+    public static final String SORT_MRN = "mrn";
+    // Same upper bound as the default one for pages
+    public static final int MAX_SIZE = 2000;
+
+    private final String sort;
+    private final long lastId;
+    private final String lastMrn;
+
+    private KeysetCursor(String sort, long lastId, String lastMrn) {
+        this.sort = sort;
+        this.lastId = lastId;
+        this.lastMrn = lastMrn;
+    }
+
+    /**
+     * Returns the cursor for the first slice of a list with the given ordering
+     *
+     * @throws IllegalArgumentException if the sort key is not supported
+     */
+    public static KeysetCursor first(String sort) {
+        if (sort == null || sort.isEmpty()) {
+            return new KeysetCursor(SORT_ID, 0, "");
+        }
+        if (!SORT_ID.equals(sort) && !SORT_MRN.equals(sort)) {
+            throw new IllegalArgumentException("Unsupported sort key: " + sort);
+        }
+        return new KeysetCursor(sort, 0, "");
+    }
+
+    /**
+     * Decodes a cursor that was previously returned by {@link #encode()}
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static KeysetCursor decode(String cursor) {
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        // The MRN goes last as it may itself contain the separator
+        String[] parts = decoded.split(":", 3);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        KeysetCursor first = first(parts[0]);
+        return new KeysetCursor(first.sort, Long.parseLong(parts[1]), parts[2]);
+    }
+
+    /**
+     * Returns the cursor pointing past the given row
+     */
+    public KeysetCursor after(Long id, String mrn) {
+        return new KeysetCursor(sort, id, isSortedByMrn() ? mrn : "");
+    }
+
+    public String encode() {
+        String raw = sort + ":" + lastId + ":" + lastMrn;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isSortedByMrn() {
+        return SORT_MRN.equals(sort);
+    }
+
+    /**
+     * Returns the page request for a slice of the given size. The ordering is given by the query itself and the
+     * offset is always 0 as the cursor decides where the slice starts.
+     */
+    public static Pageable limit(int size) {
+        return PageRequest.of(0, Math.min(Math.max(size, 1), MAX_SIZE));
+    }
+}
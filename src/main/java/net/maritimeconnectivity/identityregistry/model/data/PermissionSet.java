@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.model.data;
+
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable set of interned permission ids, see net.maritimeconnectivity.identityregistry.utils.PermissionUtil
+ */
+public final class PermissionSet {
+
+    public static final PermissionSet EMPTY = new PermissionSet(new BitSet());
+
+    private final BitSet ids;
+
+    public PermissionSet(BitSet ids) {
+        this.ids = (BitSet) ids.clone();
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && ids.get(id);
+    }
+
+    public boolean isEmpty() {
+        return ids.isEmpty();
+    }
+
+    public IntStream ids() {
+        return ids.stream();
+    }
+
+    public PermissionSet union(PermissionSet other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        BitSet union = (BitSet) ids.clone();
+        union.or(other.ids);
+        return new PermissionSet(union);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PermissionSet && ids.equals(((PermissionSet) o).ids);
+    }
+
+    @Override
+    public int hashCode() {
+        return ids.hashCode();
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.model.data;
+
+import java.util.Date;
+
+/**
+ * Summary of the revoked certificates of a CA. Revoking a certificate increases the count and sets the time the
+ * certificate was last updated, so the summary changes whenever a certificate of the CA is revoked on any instance.
+ */
+public interface RevocationVersion {
+    long getRevokedCount();
+
+    Date getLastUpdatedAt();
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.model.data;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.maritimeconnectivity.identityregistry.model.JsonSerializable;
+
+/**
+ * Signed head of the issuance log of a CA. The signature is made over the TreeHeadSignature structure
+ * of RFC 6962 section 3.5 with the key of the CA.
+ */
+@AllArgsConstructor
+@Getter
+public class SignedTreeHead implements JsonSerializable {
+    @ApiModelProperty(value = "The number of certificates in the log")
+    private long treeSize;
+    @ApiModelProperty(value = "The time the tree head was signed in milliseconds since the epoch")
+    private long timestamp;
+    @ApiModelProperty(value = "The Base64 encoded SHA-256 root hash of the tree")
+    private String sha256RootHash;
+    @ApiModelProperty(value = "The Base64 encoded signature of the tree head")
+    private String treeHeadSignature;
+    @ApiModelProperty(value = "The algorithm used for the signature")
+    private String signatureAlgorithm;
+}
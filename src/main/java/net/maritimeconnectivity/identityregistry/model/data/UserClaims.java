@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.model.data;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.maritimeconnectivity.identityregistry.model.JsonSerializable;
+
+import java.util.List;
+
+/**
+ * The claims of a user that are looked up when the user logs in
+ */
+@AllArgsConstructor
+@Getter
+public class UserClaims implements JsonSerializable {
+    @ApiModelProperty(value = "The roles of the user")
+    private List<String> roles;
+    @ApiModelProperty(value = "The MRNs of the organizations that the organization of the user can act on behalf of")
+    private List<String> actingOnBehalfOf;
+}
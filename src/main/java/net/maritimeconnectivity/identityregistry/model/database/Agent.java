@@ -19,7 +19,10 @@ package net.maritimeconnectivity.identityregistry.model.database;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
@@ -27,6 +30,8 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "acting_on_behalf")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "agents")
 @Getter
 @Setter
 public class Agent extends TimestampModel {
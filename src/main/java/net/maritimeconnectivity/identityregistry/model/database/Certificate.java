@@ -22,6 +22,7 @@ import io.swagger.annotations.ApiModelProperty;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import net.maritimeconnectivity.identityregistry.model.data.CertificateSerial;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Device;
 import net.maritimeconnectivity.identityregistry.model.database.entities.MMS;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Service;
@@ -49,7 +50,7 @@ import java.util.Date;
 @Getter
 @Setter
 @ToString(exclude = {"vessel", "user", "device", "service", "organization", "mms"})
-public class Certificate extends TimestampModel {
+public class Certificate extends TimestampModel implements CertificateSerial {
 
     public Certificate() {
     }
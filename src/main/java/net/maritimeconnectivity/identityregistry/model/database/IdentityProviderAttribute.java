@@ -23,7 +23,10 @@ import lombok.Setter;
 import lombok.ToString;
 import lombok.experimental.Accessors;
 import net.maritimeconnectivity.identityregistry.validators.InPredefinedList;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.JoinColumn;
@@ -36,6 +39,8 @@ import java.util.Set;
 
 @Entity
 @Table(name = "identity_provider_attributes")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "identityProviderAttributes")
 @Getter
 @Setter
 @Accessors(chain = true)
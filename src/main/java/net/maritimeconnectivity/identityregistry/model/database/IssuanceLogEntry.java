@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.model.database;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.math.BigInteger;
+
+/**
+ * A leaf in the Merkle tree based issuance log of a CA
+ */
+@Entity
+@Table(name = "issuance_log_entries", uniqueConstraints = @UniqueConstraint(columnNames = {"certificate_authority", "leaf_index"}))
+@Getter
+@Setter
+public class IssuanceLogEntry extends TimestampModel {
+
+    @Column(name = "certificate_authority", nullable = false)
+    private String certificateAuthority;
+
+    @Column(name = "leaf_index", nullable = false)
+    private Long leafIndex;
+
+    /* The RFC 6962 leaf hash of the DER encoded certificate */
+    @Column(name = "leaf_hash", columnDefinition = "BINARY(32)", nullable = false)
+    private byte[] leafHash;
+
+    @Column(name = "serial_number", nullable = false)
+    private BigInteger serialNumber;
+}
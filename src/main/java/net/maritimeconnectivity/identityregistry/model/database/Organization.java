@@ -20,11 +20,17 @@ import io.swagger.annotations.ApiModelProperty;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import net.maritimeconnectivity.identityregistry.model.SensitiveField;
+import net.maritimeconnectivity.identityregistry.model.SerializedWhenLoaded;
 import net.maritimeconnectivity.identityregistry.validators.MCPMRN;
 import net.maritimeconnectivity.identityregistry.validators.MRN;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.Length;
 import org.hibernate.validator.constraints.URL;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -46,9 +52,11 @@ import java.util.Set;
 
 @Entity
 @Table(name = "organizations")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "organizations")
 @Getter
 @Setter
-@ToString
+@ToString(exclude = {"certificates", "identityProviderAttributes"})
 public class Organization extends CertificateModel {
 
     @ApiModelProperty(value = "The name of the organization", required = true)
@@ -98,21 +106,27 @@ public class Organization extends CertificateModel {
     @Column(name = "approved", nullable = false)
     private boolean approved;
 
+    @SensitiveField
     @Column(name = "federation_type", nullable = false)
     @ApiModelProperty(value = "Type of identity federation used by organization", allowableValues = "test-idp, own-idp, external-idp", accessMode = ApiModelProperty.AccessMode.READ_ONLY)
     private String federationType;
 
     @JsonIgnore
-    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name="id_logo")
     private Logo logo;
 
     @ApiModelProperty(value = "Cannot be created/updated by editing in the model. Use the dedicate create and revoke calls.")
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "organization")
+    @SerializedWhenLoaded
+    @BatchSize(size = 50)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "organization")
     private Set<Certificate> certificates;
 
     @Valid
-    @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL, mappedBy = "organization", orphanRemoval=true)
+    @SensitiveField
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "organizationIdentityProviderAttributes")
+    @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL, mappedBy = "organization", orphanRemoval=true)
     private Set<IdentityProviderAttribute> identityProviderAttributes;
 
     @JsonIgnore
@@ -179,15 +193,4 @@ public class Organization extends CertificateModel {
     public Organization copy() {
         return copyTo(new Organization());
     }
-
-    @Override
-    public boolean hasSensitiveFields() {
-        return true;
-    }
-
-    @Override
-    public void clearSensitiveFields() {
-        this.identityProviderAttributes.clear();
-        this.federationType = null;
-    }
 }
@@ -17,7 +17,10 @@ package net.maritimeconnectivity.identityregistry.model.database;
 
 import io.swagger.annotations.ApiModelProperty;
 import net.maritimeconnectivity.identityregistry.validators.InPredefinedList;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
@@ -29,6 +32,8 @@ import java.util.Objects;
 
 @Entity
 @Table(name="roles")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "roles")
 public class Role extends TimestampModel {
 
     public Role() {
@@ -20,6 +20,7 @@ import lombok.Setter;
 import lombok.ToString;
 import net.maritimeconnectivity.identityregistry.model.JsonSerializable;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.Column;
 import javax.persistence.GeneratedValue;
@@ -35,9 +36,18 @@ import java.util.Date;
 @Setter
 @ToString
 public abstract class TimestampModel implements JsonSerializable {
+    // Ids are handed out in blocks from a row per table in id_generators, so that inserts can be batched, which they
+    // cannot be when the database generates the id of each row
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO, generator = "native")
-    @GenericGenerator(name = "native", strategy = "native")
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "pooled")
+    @GenericGenerator(name = "pooled", strategy = "enhanced-table", parameters = {
+            @Parameter(name = "table_name", value = "id_generators"),
+            @Parameter(name = "segment_column_name", value = "entity_table"),
+            @Parameter(name = "value_column_name", value = "next_id"),
+            @Parameter(name = "prefer_entity_table_as_segment_value", value = "true"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     @Column(name = "id", nullable = false)
     protected Long id;
 
@@ -66,14 +76,4 @@ public abstract class TimestampModel implements JsonSerializable {
     protected void setId(Long id) {
         this.id = id;
     }
-
-    // Override if needed - use to detect if blanking of sensitive fields are needed
-    public boolean hasSensitiveFields() {
-        return false;
-    }
-
-    // Override if needed - use when blanking sensitive fields so that users without privileges
-    // can see object with non-sensitive data.
-    public void clearSensitiveFields() {
-    }
 }
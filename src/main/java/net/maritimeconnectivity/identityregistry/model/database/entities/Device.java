@@ -16,7 +16,9 @@
 package net.maritimeconnectivity.identityregistry.model.database.entities;
 
 import io.swagger.annotations.ApiModelProperty;
+import net.maritimeconnectivity.identityregistry.model.SerializedWhenLoaded;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
@@ -35,7 +37,9 @@ public class Device extends NonHumanEntityModel {
     public Device() {
     }
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "device")
+    @SerializedWhenLoaded
+    @BatchSize(size = 50)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "device")
     @ApiModelProperty(value = "Cannot be created/updated by editing in the model. Use the dedicate create and revoke calls.")
     private Set<Certificate> certificates;
 
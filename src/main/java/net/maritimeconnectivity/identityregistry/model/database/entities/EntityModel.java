@@ -15,7 +15,9 @@
  */
 package net.maritimeconnectivity.identityregistry.model.database.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.annotations.ApiModelProperty;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -26,6 +28,7 @@ import org.hibernate.validator.constraints.URL;
 
 import javax.persistence.Column;
 import javax.persistence.MappedSuperclass;
+import java.util.Locale;
 import java.util.Objects;
 
 @MappedSuperclass
@@ -42,6 +45,12 @@ public abstract class EntityModel extends CertificateModel {
     @Column(name = "mrn", nullable = false)
     private String mrn;
 
+    // Kept in sync with mrn so that case insensitive lookups can use an index
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @Column(name = "mrn_lower")
+    private String mrnLower;
+
     @MRN
     @ApiModelProperty(value = "Subsidiary Maritime Resource Name")
     @Column(name = "mrn_subsidiary")
@@ -56,6 +65,16 @@ public abstract class EntityModel extends CertificateModel {
     @Column(name = "permissions")
     private String permissions;
 
+    public void setMrn(String mrn) {
+        this.mrn = mrn;
+        this.mrnLower = toLowerCaseMrn(mrn);
+    }
+
+    /** Returns the MRN in the form stored in the mrn_lower column */
+    public static String toLowerCaseMrn(String mrn) {
+        return mrn != null ? mrn.toLowerCase(Locale.ROOT) : null;
+    }
+
     /** Copies this entity into the other */
     public EntityModel copyTo(EntityModel entity) {
         Objects.requireNonNull(entity);
@@ -19,7 +19,9 @@ import io.swagger.annotations.ApiModelProperty;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import net.maritimeconnectivity.identityregistry.model.SerializedWhenLoaded;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.validator.constraints.URL;
 
 import javax.persistence.*;
@@ -34,7 +36,7 @@ import java.util.Set;
 @Table(name = "mmses")
 @Getter
 @Setter
-@ToString
+@ToString(exclude = "certificates")
 public class MMS extends NonHumanEntityModel {
     public MMS() {
     }
@@ -45,7 +47,9 @@ public class MMS extends NonHumanEntityModel {
     @Column(name = "url", nullable = false)
     private String url;
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "mms")
+    @SerializedWhenLoaded
+    @BatchSize(size = 50)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "mms")
     @ApiModelProperty(value = "Cannot be created/updated by editing in the model. Use the dedicate create and revoke calls.")
     private Set<Certificate> certificates;
 
@@ -19,8 +19,11 @@ import io.swagger.annotations.ApiModelProperty;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import net.maritimeconnectivity.identityregistry.model.SensitiveField;
+import net.maritimeconnectivity.identityregistry.model.SerializedWhenLoaded;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
 import net.maritimeconnectivity.identityregistry.validators.InPredefinedList;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -41,26 +44,30 @@ import java.util.Set;
 @Table(name = "services")
 @Getter
 @Setter
-@ToString
+@ToString(exclude = "certificates")
 public class Service extends NonHumanEntityModel {
 
     public Service() {
     }
 
     @ApiModelProperty(value = "Access type of the OpenId Connect client", allowableValues = "public, bearer-only, confidential")
+    @SensitiveField
     @Column(name = "oidc_access_type")
     @InPredefinedList(acceptedValues = {"public", "bearer-only", "confidential"})
     private String oidcAccessType;
 
     @ApiModelProperty(value = "The client id of the service in MCP. Will be generated.", accessMode = ApiModelProperty.AccessMode.READ_ONLY)
+    @SensitiveField
     @Column(name = "oidc_client_id")
     private String oidcClientId;
 
     @ApiModelProperty(value = "The client secret of the service in MCP. Will be generated.", accessMode = ApiModelProperty.AccessMode.READ_ONLY)
+    @SensitiveField
     @Column(name = "oidc_client_secret")
     private String oidcClientSecret;
 
     @ApiModelProperty(value = "The OpenId Connect redirect uri of service.")
+    @SensitiveField
     @Column(name = "oidc_redirect_uri")
     private String oidcRedirectUri;
 
@@ -75,7 +82,9 @@ public class Service extends NonHumanEntityModel {
     private String instanceVersion;
 
     @ApiModelProperty(value = "Cannot be created/updated by editing in the model. Use the dedicate create and revoke calls.")
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "service")
+    @SerializedWhenLoaded
+    @BatchSize(size = 50)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "service")
     private Set<Certificate> certificates;
 
     @ApiModelProperty(value = "The vessel that is linked to this service.")
@@ -117,19 +126,6 @@ public class Service extends NonHumanEntityModel {
         cert.setService(this);
     }
 
-    @Override
-    public boolean hasSensitiveFields() {
-        return true;
-    }
-
-    @Override
-    public void clearSensitiveFields() {
-        this.setOidcAccessType(null);
-        this.setOidcClientId(null);
-        this.setOidcClientSecret(null);
-        this.setOidcRedirectUri(null);
-    }
-
     /**
      * Generates the oidcClientId. Currently done by concat'ing the version and the mrn
      */
@@ -19,7 +19,9 @@ import io.swagger.annotations.ApiModelProperty;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import net.maritimeconnectivity.identityregistry.model.SerializedWhenLoaded;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -61,7 +63,9 @@ public class User extends EntityModel {
     private String email;
 
     @ApiModelProperty(value = "Cannot be created/updated by editing in the model. Use the dedicate create and revoke calls.")
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "user")
+    @SerializedWhenLoaded
+    @BatchSize(size = 50)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "user")
     private Set<Certificate> certificates;
 
     /** Copies this user into the other */
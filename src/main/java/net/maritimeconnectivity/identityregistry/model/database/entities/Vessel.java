@@ -20,8 +20,10 @@ import io.swagger.annotations.ApiModelProperty;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import net.maritimeconnectivity.identityregistry.model.SerializedWhenLoaded;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
 import net.maritimeconnectivity.identityregistry.model.database.VesselImage;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
@@ -43,25 +45,28 @@ import java.util.Set;
 @Table(name = "vessels")
 @Getter
 @Setter
-@ToString(exclude = "services")
+@ToString(exclude = {"attributes", "certificates", "services"})
 public class Vessel extends NonHumanEntityModel {
 
     public Vessel() {
     }
 
-    @OneToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL, mappedBy = "vessel", orphanRemoval=true)
+    @BatchSize(size = 50)
+    @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL, mappedBy = "vessel", orphanRemoval=true)
     private Set<@Valid VesselAttribute> attributes;
 
     @ApiModelProperty(value = "Cannot be created/updated by editing in the model. Use the dedicate create and revoke calls.")
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "vessel")
+    @SerializedWhenLoaded
+    @BatchSize(size = 50)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "vessel")
     private Set<Certificate> certificates;
 
     @JsonIgnore
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "vessel")
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "vessel")
     private Set<Service> services;
 
     @JsonIgnore
-    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name="id_image")
     private VesselImage image;
 
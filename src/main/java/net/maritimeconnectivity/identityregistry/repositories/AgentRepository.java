@@ -31,6 +31,8 @@ public interface AgentRepository extends CrudRepository<Agent, Long> {
 
     List<Agent> findByIdActingOrganization(Long orgId);
 
+    List<Agent> findByIdOnBehalfOfOrganization(Long id);
+
     List<Agent> findByIdOnBehalfOfOrganizationAndIdActingOrganization(Long onBehalfOfId, Long actingId);
 
     void deleteByIdOnBehalfOfOrganization(Long id);
@@ -15,21 +15,113 @@
  */
 package net.maritimeconnectivity.identityregistry.repositories;
 
+import net.maritimeconnectivity.identityregistry.model.data.CertificatePem;
+import net.maritimeconnectivity.identityregistry.model.data.CertificateRevocationStatus;
+import net.maritimeconnectivity.identityregistry.model.data.CertificateSerial;
+import net.maritimeconnectivity.identityregistry.model.data.RevocationVersion;
+import net.maritimeconnectivity.identityregistry.model.data.RevokedCertificate;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Device;
+import net.maritimeconnectivity.identityregistry.model.database.entities.MMS;
+import net.maritimeconnectivity.identityregistry.model.database.entities.Service;
 import net.maritimeconnectivity.identityregistry.model.database.entities.User;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Vessel;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
 
 import java.math.BigInteger;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface CertificateRepository extends CrudRepository<Certificate, Long> {
     Certificate getBySerialNumber(BigInteger serialNumber);
     List<Certificate> findByvessel(Vessel vessel);
     List<Certificate> findBydevice(Device device);
     List<Certificate> findByuser(User user);
-    List<Certificate> findByCertificateAuthorityIgnoreCaseAndRevokedTrueAndRevokedAtIsBefore(String caAlias, Date date);
+    Page<Certificate> findByorganization(Organization organization, Pageable pageable);
+    Page<Certificate> findByvessel(Vessel vessel, Pageable pageable);
+    Page<Certificate> findBydevice(Device device, Pageable pageable);
+    Page<Certificate> findByuser(User user, Pageable pageable);
+    Page<Certificate> findByservice(Service service, Pageable pageable);
+    Page<Certificate> findBymms(MMS mms, Pageable pageable);
+    List<Certificate> findByCertificateAuthorityAndRevokedTrueAndRevokedAtIsBefore(String caAlias, Date date);
+    Certificate findFirstByCertificateAuthorityAndRevokedTrueAndRevokedAtIsAfterOrderByRevokedAtAsc(String caAlias, Date date);
+
+    @Query("SELECT COUNT(c) AS revokedCount, MAX(c.updatedAt) AS lastUpdatedAt FROM Certificate c " +
+            "WHERE c.certificateAuthority = :caAlias AND c.revoked = true")
+    RevocationVersion findRevocationVersion(@Param("caAlias") String caAlias);
+
+    @Query("SELECT c.serialNumber AS serialNumber, c.certificateAuthority AS certificateAuthority, c.revokedAt AS revokedAt " +
+            "FROM Certificate c WHERE c.revoked = true AND c.end > :now")
+    List<RevokedCertificate> findUnexpiredRevoked(@Param("now") Date now);
+
+    @Query("SELECT c.serialNumber AS serialNumber, c.certificateAuthority AS certificateAuthority, c.revokedAt AS revokedAt " +
+            "FROM Certificate c WHERE c.revoked = true AND c.end > :now AND c.certificateAuthority = :caAlias")
+    List<RevokedCertificate> findUnexpiredRevokedByCertificateAuthority(@Param("caAlias") String caAlias, @Param("now") Date now);
+
+    // Only selecting the columns needed for the OCSP responses avoids loading the certificates and their owners
+    @Query("SELECT c.serialNumber AS serialNumber, c.certificateAuthority AS certificateAuthority, c.revoked AS revoked, " +
+            "c.revokedAt AS revokedAt, c.revokeReason AS revokeReason FROM Certificate c WHERE c.serialNumber IN :serialNumbers")
+    List<CertificateRevocationStatus> findRevocationStatusBySerialNumbers(@Param("serialNumbers") Collection<BigInteger> serialNumbers);
+
+    String ORGANIZATION_CERTIFICATES = "FROM Certificate c LEFT JOIN c.organization o LEFT JOIN c.vessel v LEFT JOIN c.user u " +
+            "LEFT JOIN c.device d LEFT JOIN c.service s LEFT JOIN c.mms m " +
+            "WHERE (o.id = :orgId OR v.idOrganization = :orgId OR u.idOrganization = :orgId OR d.idOrganization = :orgId " +
+            "OR s.idOrganization = :orgId OR m.idOrganization = :orgId)";
+
+    @Query("SELECT c.serialNumber AS serialNumber, c.certificateAuthority AS certificateAuthority " + ORGANIZATION_CERTIFICATES +
+            " AND c.revoked = false AND c.end > :now")
+    List<CertificateSerial> findActiveByOrganization(@Param("orgId") Long orgId, @Param("now") Date now);
+
+    @Query("SELECT c.serialNumber AS serialNumber, c.certificateAuthority AS certificateAuthority " + ORGANIZATION_CERTIFICATES +
+            " AND c.revoked = false AND c.end > :now AND c.serialNumber IN :serialNumbers")
+    List<CertificateSerial> findActiveByOrganizationAndSerialNumbers(@Param("orgId") Long orgId, @Param("serialNumbers") Collection<BigInteger> serialNumbers, @Param("now") Date now);
+
+    String ACTIVE_CERTIFICATE_SERIALS = "SELECT c.serialNumber AS serialNumber, c.certificateAuthority AS certificateAuthority " +
+            "FROM Certificate c WHERE c.revoked = false AND c.end > :now AND ";
+
+    @Query(ACTIVE_CERTIFICATE_SERIALS + "c.vessel = :owner")
+    List<CertificateSerial> findActiveByVessel(@Param("owner") Vessel vessel, @Param("now") Date now);
+
+    @Query(ACTIVE_CERTIFICATE_SERIALS + "c.device = :owner")
+    List<CertificateSerial> findActiveByDevice(@Param("owner") Device device, @Param("now") Date now);
+
+    @Query(ACTIVE_CERTIFICATE_SERIALS + "c.user = :owner")
+    List<CertificateSerial> findActiveByUser(@Param("owner") User user, @Param("now") Date now);
+
+    @Query(ACTIVE_CERTIFICATE_SERIALS + "c.service = :owner")
+    List<CertificateSerial> findActiveByService(@Param("owner") Service service, @Param("now") Date now);
+
+    @Query(ACTIVE_CERTIFICATE_SERIALS + "c.mms = :owner")
+    List<CertificateSerial> findActiveByMms(@Param("owner") MMS mms, @Param("now") Date now);
+
+    // Only selecting the serial number and the PEM keeps the rows out of the persistence context and avoids loading the
+    // owning entities. The fetch size makes the driver stream the result set, which for MySQL Connector/J also
+    // requires useCursorFetch=true in the JDBC URL.
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("SELECT c.serialNumber AS serialNumber, c.certificate AS certificate " + ORGANIZATION_CERTIFICATES +
+            " AND c.revoked = false AND c.end > :now AND (:entityType = '' " +
+            "OR (:entityType = 'organization' AND o.id IS NOT NULL) OR (:entityType = 'vessel' AND v.id IS NOT NULL) " +
+            "OR (:entityType = 'user' AND u.id IS NOT NULL) OR (:entityType = 'device' AND d.id IS NOT NULL) " +
+            "OR (:entityType = 'service' AND s.id IS NOT NULL) OR (:entityType = 'mms' AND m.id IS NOT NULL))")
+    Stream<CertificatePem> streamActiveByOrganization(@Param("orgId") Long orgId, @Param("entityType") String entityType, @Param("now") Date now);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Certificate c SET c.revoked = true, c.revokedAt = :revokedAt, c.revokeReason = :revokeReason, c.updatedAt = :now " +
+            "WHERE c.revoked = false AND c.serialNumber IN :serialNumbers")
+    int revokeBySerialNumbers(@Param("serialNumbers") Collection<BigInteger> serialNumbers, @Param("revokedAt") Date revokedAt, @Param("revokeReason") String revokeReason, @Param("now") Date now);
 }
 
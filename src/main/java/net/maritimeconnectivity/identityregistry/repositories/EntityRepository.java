@@ -17,10 +17,17 @@ package net.maritimeconnectivity.identityregistry.repositories;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.NoRepositoryBean;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @NoRepositoryBean
 public interface EntityRepository<T> extends PagingAndSortingRepository<T, Long> {
@@ -28,9 +35,32 @@ public interface EntityRepository<T> extends PagingAndSortingRepository<T, Long>
 
     Page<T> findByidOrganization(Long orgId, Pageable pageable);
 
+    // Keyset pagination: seeking past the last returned row instead of using an offset, and returning a slice
+    // without a count query, keeps every slice as cheap as the first one
+    @Query("SELECT e FROM #{#entityName} e WHERE e.idOrganization = :orgId AND e.id > :lastId ORDER BY e.id")
+    Slice<T> findSliceByOrganizationAfterId(@Param("orgId") Long orgId, @Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("SELECT e FROM #{#entityName} e WHERE e.idOrganization = :orgId " +
+            "AND (e.mrnLower > :lastMrn OR (e.mrnLower = :lastMrn AND e.id > :lastId)) ORDER BY e.mrnLower, e.id")
+    Slice<T> findSliceByOrganizationAfterMrn(@Param("orgId") Long orgId, @Param("lastMrn") String lastMrn, @Param("lastId") Long lastId, Pageable pageable);
+
+    // Streams the entities for exports without holding a whole page of them. The fetch size makes the driver stream
+    // the result set, which for MySQL Connector/J also requires useCursorFetch=true in the JDBC URL.
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("SELECT e FROM #{#entityName} e WHERE e.idOrganization = :orgId ORDER BY e.id")
+    Stream<T> streamByOrganization(@Param("orgId") Long orgId);
+
+    List<T> findByMrnLowerIn(Collection<String> mrnLowers);
+
+    @Query("SELECT e.mrnLower FROM #{#entityName} e WHERE e.mrnLower IN :mrnLowers")
+    List<String> findExistingMrnLower(@Param("mrnLowers") Collection<String> mrnLowers);
+
     void deleteByidOrganization(Long orgId);
 
-    T getByMrnIgnoreCase(String mrn);
+    T getByMrnLower(String mrnLower);
 
     T getByMrnSubsidiaryIgnoreCase(String subMrn);
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.repositories;
+
+import net.maritimeconnectivity.identityregistry.model.database.IssuanceLogEntry;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigInteger;
+import java.util.List;
+
+public interface IssuanceLogRepository extends CrudRepository<IssuanceLogEntry, Long> {
+
+    @Query("SELECT e.leafHash FROM IssuanceLogEntry e WHERE e.certificateAuthority = :caAlias AND e.leafIndex >= :fromIndex ORDER BY e.leafIndex")
+    List<byte[]> findLeafHashes(@Param("caAlias") String caAlias, @Param("fromIndex") long fromIndex);
+
+    // Served from the unique (certificate_authority, leaf_index) index, so it stays cheap however long the log gets
+    @Query("SELECT MAX(e.leafIndex) FROM IssuanceLogEntry e WHERE e.certificateAuthority = :caAlias")
+    Long findMaxLeafIndex(@Param("caAlias") String caAlias);
+
+    IssuanceLogEntry findFirstByCertificateAuthorityAndSerialNumber(String caAlias, BigInteger serialNumber);
+}
@@ -15,11 +15,16 @@
  */
 package net.maritimeconnectivity.identityregistry.repositories;
 
+import net.maritimeconnectivity.identityregistry.model.data.OrganizationMrn;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface OrganizationRepository extends PagingAndSortingRepository<Organization, Long> {
@@ -27,10 +32,23 @@ public interface OrganizationRepository extends PagingAndSortingRepository<Organ
 
     Organization findByMrn(String mrn);
 
+    // Only the id, so that the organization itself can be read from the second-level cache
+    @Query("SELECT o.id FROM Organization o WHERE o.mrn = :mrn")
+    Long findIdByMrn(@Param("mrn") String mrn);
+
     Optional<Organization> findById(Long id);
 
     Page<Organization> findByApprovedFalse(Pageable pageable);
 
     Page<Organization> findByApprovedTrue(Pageable pageable);
 
+    @Query("SELECT o FROM Organization o WHERE o.approved = true AND o.id > :lastId ORDER BY o.id")
+    Slice<Organization> findApprovedSliceAfterId(@Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("SELECT o FROM Organization o WHERE o.approved = true " +
+            "AND (o.mrn > :lastMrn OR (o.mrn = :lastMrn AND o.id > :lastId)) ORDER BY o.mrn, o.id")
+    Slice<Organization> findApprovedSliceAfterMrn(@Param("lastMrn") String lastMrn, @Param("lastId") Long lastId, Pageable pageable);
+
+    List<OrganizationMrn> findAllByApprovedTrue();
+
 }
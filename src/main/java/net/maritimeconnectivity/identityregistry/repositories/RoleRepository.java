@@ -16,6 +16,7 @@
 package net.maritimeconnectivity.identityregistry.repositories;
 
 import net.maritimeconnectivity.identityregistry.model.database.Role;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 import java.util.List;
@@ -26,4 +27,8 @@ public interface RoleRepository extends CrudRepository<Role, Long> {
     void deleteByidOrganization(Long orgId);
 
     List<Role> findByIdOrganizationAndPermission(Long idOrganization, String permission);
+
+    @Query("SELECT DISTINCT r.permission FROM Role r")
+    List<String> findDistinctPermissions();
+
 }
@@ -18,18 +18,28 @@ package net.maritimeconnectivity.identityregistry.repositories;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Service;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface ServiceRepository extends PagingAndSortingRepository<Service, Long> {
-    Page<Service> findByidOrganization(Long orgId, Pageable pageable);
+public interface ServiceRepository extends EntityRepository<Service> {
     List<Service> findByidOrganization(Long orgId);
 
-    void deleteByidOrganization(Long orgId);
+    // The vessel of a service is eagerly fetched, so it is joined instead of being selected for each service
+    @Override
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")
+    })
+    @Query("SELECT s FROM Service s LEFT JOIN FETCH s.vessel WHERE s.idOrganization = :orgId ORDER BY s.id")
+    Stream<Service> streamByOrganization(@Param("orgId") Long orgId);
 
     List<Service> findByName(String lastName);
 
-    Service getByMrnIgnoreCaseAndInstanceVersion(String mrn, String version);
-    Page<Service> findByMrnIgnoreCase(String mrn, Pageable pageable);
+    Service getByMrnLowerAndInstanceVersion(String mrnLower, String version);
+    Page<Service> findByMrnLower(String mrnLower, Pageable pageable);
 }
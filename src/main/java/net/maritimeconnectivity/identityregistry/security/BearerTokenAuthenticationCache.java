@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of the authorities mapped from verified bearer tokens, keyed by the SHA-256 hash of the token.
+ * Entries expire when the token expires or when the TTL is reached, whichever comes first.
+ */
+@Component
+public class BearerTokenAuthenticationCache {
+
+    public static final String CACHE_NAME = "bearerTokenAuthentications";
+
+    @Value("${net.maritimeconnectivity.idreg.oidc.authentication-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${net.maritimeconnectivity.idreg.oidc.authentication-cache.ttl:300}")
+    private long ttl;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, CachedAuthentication> cache;
+
+    @AllArgsConstructor
+    @Getter
+    public static class CachedAuthentication {
+        private final Collection<? extends GrantedAuthority> authorities;
+        // The id of the organization whose roles were used, or null if no roles were looked up
+        private final Long orgId;
+        private final long expiresAt;
+    }
+
+    @PostConstruct
+    public void setup() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .expireAfter(new Expiry<String, CachedAuthentication>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedAuthentication value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, value.getExpiresAt() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedAuthentication value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedAuthentication value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        if (meterRegistry != null) {
+            // Exposes cache.gets{result=hit|miss}, cache.size and cache.evictions under the name of the cache
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        }
+    }
+
+    /**
+     * Returns the SHA-256 hash of the encoded token, or null if there is no token
+     */
+    public static String hash(String tokenString) {
+        if (tokenString == null) {
+            return null;
+        }
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(tokenString.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public CachedAuthentication get(String tokenHash) {
+        return cache.getIfPresent(tokenHash);
+    }
+
+    /**
+     * Caches the authorities of a token
+     *
+     * @param tokenHash the hash of the token
+     * @param authorities the mapped authorities of the token
+     * @param orgId the id of the organization whose roles were used
+     * @param tokenExpiration the expiration of the token in seconds since the epoch, or null if it does not expire
+     */
+    public void put(String tokenHash, Collection<? extends GrantedAuthority> authorities, Long orgId, Long tokenExpiration) {
+        long expiresAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl);
+        if (tokenExpiration != null) {
+            expiresAt = Math.min(expiresAt, TimeUnit.SECONDS.toMillis(tokenExpiration));
+        }
+        if (expiresAt > System.currentTimeMillis()) {
+            cache.put(tokenHash, new CachedAuthentication(authorities, orgId, expiresAt));
+        }
+    }
+
+    /**
+     * Removes the entries whose authorities were resolved using the roles of the given organization
+     */
+    public void evictByOrganization(Long orgId) {
+        if (orgId != null) {
+            cache.asMap().values().removeIf(cached -> orgId.equals(cached.getOrgId()));
+        }
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+}
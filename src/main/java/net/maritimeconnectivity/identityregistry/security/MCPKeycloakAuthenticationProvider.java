@@ -16,8 +16,8 @@
 package net.maritimeconnectivity.identityregistry.security;
 
 
+import net.maritimeconnectivity.identityregistry.config.ReplicaRoutingDataSource;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
-import net.maritimeconnectivity.identityregistry.model.database.Role;
 import net.maritimeconnectivity.identityregistry.services.OrganizationService;
 import net.maritimeconnectivity.identityregistry.services.RoleService;
 import net.maritimeconnectivity.identityregistry.utils.AccessControlUtil;
@@ -47,6 +47,8 @@ public class MCPKeycloakAuthenticationProvider extends KeycloakAuthenticationPro
     private OrganizationService organizationService;
     @Autowired
     private RoleService roleService;
+    @Autowired
+    private BearerTokenAuthenticationCache authenticationCache;
 
     @Override
     public void setGrantedAuthoritiesMapper(GrantedAuthoritiesMapper grantedAuthoritiesMapper) {
@@ -58,29 +60,30 @@ public class MCPKeycloakAuthenticationProvider extends KeycloakAuthenticationPro
         List<GrantedAuthority> grantedAuthorities = new ArrayList<>();
         KeycloakAuthenticationToken token = (KeycloakAuthenticationToken) authentication;
         KeycloakSecurityContext ksc = (KeycloakSecurityContext)token.getCredentials();
+        // The token has already been verified at this point, so a repeated token maps to the same authorities
+        String tokenHash = BearerTokenAuthenticationCache.hash(ksc.getTokenString());
+        if (tokenHash != null) {
+            BearerTokenAuthenticationCache.CachedAuthentication cached = authenticationCache.get(tokenHash);
+            if (cached != null) {
+                return new KeycloakAuthenticationToken(token.getAccount(), token.isInteractive(), cached.getAuthorities());
+            }
+        }
         Map<String, Object> otherClaims = ksc.getToken().getOtherClaims();
 
-        Organization org;
+        Organization org = null;
         if (otherClaims.containsKey(AccessControlUtil.ORG_PROPERTY_NAME)) {
             String orgMrn = (String) otherClaims.get(AccessControlUtil.ORG_PROPERTY_NAME);
             logger.debug("Found org mrn: {}", orgMrn);
-            org = organizationService.getOrganizationByMrnNoFilter(orgMrn);
+            // The authorities are kept until the cache entry expires, so they must not be read from a lagging replica
+            org = ReplicaRoutingDataSource.onPrimary(() -> organizationService.getOrganizationByMrn(orgMrn));
 
             if (org != null) {
                 if (otherClaims.containsKey(AccessControlUtil.PERMISSIONS_PROPERTY_NAME)) {
                     ArrayList<String> usersPermissions = (ArrayList<String>) otherClaims.get(AccessControlUtil.PERMISSIONS_PROPERTY_NAME);
-                    for (String permission : usersPermissions) {
-                        String[] auths = permission.split(",");
-                        for (String auth : auths) {
-                            logger.debug("Looking up role: {}", auth);
-                            List<Role> foundRoles = roleService.getRolesByIdOrganizationAndPermission(org.getId(), auth);
-                            if (foundRoles != null) {
-                                for (Role foundRole : foundRoles) {
-                                    logger.debug("Replacing role {}, with: {}", auth, foundRole.getRoleName());
-                                    grantedAuthorities.add(new KeycloakRole(foundRole.getRoleName()));
-                                }
-                            }
-                        }
+                    logger.debug("Looking up roles: {}", usersPermissions);
+                    Long idOrganization = org.getId();
+                    for (String roleName : ReplicaRoutingDataSource.onPrimary(() -> roleService.getRoleNamesByIdOrganizationAndPermissions(idOrganization, usersPermissions))) {
+                        grantedAuthorities.add(new KeycloakRole(roleName));
                     }
                 }
                 if (grantedAuthorities.isEmpty()) {
@@ -88,7 +91,12 @@ public class MCPKeycloakAuthenticationProvider extends KeycloakAuthenticationPro
                 }
             }
         }
-        return new KeycloakAuthenticationToken(token.getAccount(), token.isInteractive(), mapTheAuthorities(grantedAuthorities));
+        Collection<? extends GrantedAuthority> authorities = mapTheAuthorities(grantedAuthorities);
+        // An organization that is not found yet might be created later, so that outcome is not cached
+        if (tokenHash != null && (org != null || !otherClaims.containsKey(AccessControlUtil.ORG_PROPERTY_NAME))) {
+            authenticationCache.put(tokenHash, authorities, org != null ? org.getId() : null, ksc.getToken().getExp());
+        }
+        return new KeycloakAuthenticationToken(token.getAccount(), token.isInteractive(), authorities);
     }
 
     private Collection<? extends GrantedAuthority> mapTheAuthorities(
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.security.x509;
+
+import org.springframework.security.core.userdetails.AuthenticationUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+
+import java.security.cert.X509Certificate;
+
+/**
+ * Used when TLS is terminated by the application itself. The client certificate that the connector has already
+ * parsed is handed directly to the {@link X509HeaderUserDetailsService}, so the identity and roles are extracted
+ * the same way as when the certificate is passed in a header by nginx.
+ */
+public class X509CertificateUserDetailsService implements AuthenticationUserDetailsService<PreAuthenticatedAuthenticationToken> {
+
+    private final X509HeaderUserDetailsService userDetailsService;
+
+    public X509CertificateUserDetailsService(X509HeaderUserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    public UserDetails loadUserDetails(PreAuthenticatedAuthenticationToken token) {
+        if (!(token.getCredentials() instanceof X509Certificate)) {
+            throw new UsernameNotFoundException("No client certificate found");
+        }
+        return userDetailsService.loadUserByCertificate((X509Certificate) token.getCredentials());
+    }
+}
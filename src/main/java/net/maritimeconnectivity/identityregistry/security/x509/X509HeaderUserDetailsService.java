@@ -16,15 +16,17 @@
 package net.maritimeconnectivity.identityregistry.security.x509;
 
 import lombok.extern.slf4j.Slf4j;
+import net.maritimeconnectivity.identityregistry.config.ReplicaRoutingDataSource;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
-import net.maritimeconnectivity.identityregistry.model.database.Role;
 import net.maritimeconnectivity.identityregistry.model.database.entities.User;
 import net.maritimeconnectivity.identityregistry.services.EntityService;
 import net.maritimeconnectivity.identityregistry.services.OrganizationService;
+import net.maritimeconnectivity.identityregistry.services.RevocationService;
 import net.maritimeconnectivity.identityregistry.services.RoleService;
 import net.maritimeconnectivity.pki.CertificateHandler;
 import net.maritimeconnectivity.pki.PKIIdentity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -33,11 +35,13 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.ldap.userdetails.InetOrgPerson;
 import org.springframework.stereotype.Service;
 
+import javax.security.auth.x500.X500Principal;
 import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 
 @Slf4j
 @Service("userDetailsService")
@@ -49,6 +53,10 @@ public class X509HeaderUserDetailsService implements UserDetailsService {
     private RoleService roleService;
     @Autowired
     private EntityService<User> userService;
+    @Autowired
+    private X509UserDetailsCache userDetailsCache;
+    @Autowired
+    private RevocationService revocationService;
 
     @Override
     public UserDetails loadUserByUsername(String certificateHeader) {
@@ -56,6 +64,12 @@ public class X509HeaderUserDetailsService implements UserDetailsService {
             log.warn("No certificate header found");
             throw new UsernameNotFoundException("No certificate header found");
         }
+        // The same clients present the same certificates over and over, so look for an earlier resolution first
+        String fingerprint = X509UserDetailsCache.fingerprint(certificateHeader);
+        UserDetails cached = getCached(fingerprint);
+        if (cached != null) {
+            return cached;
+        }
         X509Certificate userCertificate = null;
         try {
             userCertificate = CertificateHandler.getCertFromNginxHeader(certificateHeader);
@@ -66,6 +80,37 @@ public class X509HeaderUserDetailsService implements UserDetailsService {
             log.error("Extracting certificate from header failed");
             throw new UsernameNotFoundException("Extracting certificate from header failed");
         }
+        // only cache when the fingerprint computed from the header is that of the certificate that was parsed
+        if (fingerprint != null && !fingerprint.equals(fingerprint(userCertificate))) {
+            fingerprint = null;
+        }
+        return ReplicaRoutingDataSource.onPrimary(() -> loadUser(userCertificate, fingerprint));
+    }
+
+    /**
+     * Loads the user from a client certificate that has already been parsed, e.g. by the servlet container when
+     * it terminates TLS itself
+     *
+     * @param userCertificate the client certificate
+     * @return the user details with the roles of the user
+     */
+    public UserDetails loadUserByCertificate(X509Certificate userCertificate) {
+        if (userCertificate == null) {
+            log.warn("No client certificate found");
+            throw new UsernameNotFoundException("No client certificate found");
+        }
+        String fingerprint = fingerprint(userCertificate);
+        UserDetails cached = getCached(fingerprint);
+        if (cached != null) {
+            return cached;
+        }
+        return ReplicaRoutingDataSource.onPrimary(() -> loadUser(userCertificate, fingerprint));
+    }
+
+    // The user details are kept until the cache entry expires, so they are read from the primary and not from a
+    // replica that may lag behind a change of the permissions of the user
+    private UserDetails loadUser(X509Certificate userCertificate, String fingerprint) {
+        checkRevocation(userCertificate.getIssuerX500Principal(), userCertificate.getSerialNumber());
 
         // Get user details from the certificate
         PKIIdentity user = CertificateHandler.getIdentityFromCert(userCertificate);
@@ -86,6 +131,7 @@ public class X509HeaderUserDetailsService implements UserDetailsService {
         essence.setDn(user.getDn());
         essence.setDescription(user.getDn());
         Collection<GrantedAuthority> newRoles = new ArrayList<>();
+        Long rolesOrgId = null;
 
         // Check that the user actually exists in the database and get its roles
         if (user.getMrn() != null && user.getO() != null && user.getOu().equals("user")) {
@@ -99,16 +145,11 @@ public class X509HeaderUserDetailsService implements UserDetailsService {
                 log.error("The User is unknown!");
                 throw new UsernameNotFoundException("The User is unknown!");
             }
+            rolesOrgId = org.getId();
             if (mirUser.getPermissions() != null) {
-                String[] permissions = mirUser.getPermissions().split(",");
-                for(String permission: permissions) {
-                    log.debug("Looking up role: {}", permission);
-                    List<Role> foundRoles = roleService.getRolesByIdOrganizationAndPermission(org.getId(), permission);
-                    if (foundRoles != null) {
-                        for (Role foundRole : foundRoles) {
-                            newRoles.add(new SimpleGrantedAuthority(foundRole.getRoleName()));
-                        }
-                    }
+                log.debug("Looking up roles: {}", mirUser.getPermissions());
+                for (String roleName : roleService.getRoleNamesByIdOrganizationAndPermissions(org.getId(), mirUser.getPermissions())) {
+                    newRoles.add(new SimpleGrantedAuthority(roleName));
                 }
             }
         }
@@ -117,6 +158,38 @@ public class X509HeaderUserDetailsService implements UserDetailsService {
             newRoles.add(new SimpleGrantedAuthority("ROLE_USER"));
         }
         essence.setAuthorities(newRoles);
-        return essence.createUserDetails();
+        UserDetails userDetails = essence.createUserDetails();
+        if (fingerprint != null) {
+            userDetailsCache.put(fingerprint, userDetails, user.getMrn(), rolesOrgId, userCertificate);
+        }
+        return userDetails;
+    }
+
+    private UserDetails getCached(String fingerprint) {
+        if (fingerprint == null) {
+            return null;
+        }
+        X509UserDetailsCache.CachedUserDetails cached = userDetailsCache.get(fingerprint);
+        if (cached == null) {
+            return null;
+        }
+        checkRevocation(cached.getIssuer(), cached.getSerialNumber());
+        return cached.getUserDetails();
+    }
+
+    private static String fingerprint(X509Certificate certificate) {
+        try {
+            return X509UserDetailsCache.fingerprint(certificate.getEncoded());
+        } catch (CertificateEncodingException e) {
+            log.debug("Could not encode the client certificate", e);
+            return null;
+        }
+    }
+
+    private void checkRevocation(X500Principal issuer, BigInteger serialNumber) {
+        if (revocationService.isRevoked(issuer, serialNumber)) {
+            log.warn("Revoked client certificate with serial number {} was presented", serialNumber);
+            throw new BadCredentialsException("The client certificate has been revoked");
+        }
     }
 }
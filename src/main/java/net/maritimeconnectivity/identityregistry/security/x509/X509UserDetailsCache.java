@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.security.x509;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.security.auth.x500.X500Principal;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of the UserDetails resolved from client certificates, keyed by the SHA-256 fingerprint of the
+ * certificate. Entries expire when the certificate expires or when the TTL is reached, whichever comes first.
+ */
+@Slf4j
+@Component
+public class X509UserDetailsCache {
+
+    @Value("${net.maritimeconnectivity.idreg.x509.user-details-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${net.maritimeconnectivity.idreg.x509.user-details-cache.ttl:300}")
+    private long ttl;
+
+    private Cache<String, CachedUserDetails> cache;
+
+    @AllArgsConstructor
+    @Getter
+    static class CachedUserDetails {
+        private final UserDetails userDetails;
+        private final String mrn;
+        // The id of the organization whose roles were used, or null if no roles were looked up
+        private final Long orgId;
+        private final BigInteger serialNumber;
+        private final X500Principal issuer;
+        private final long expiresAt;
+    }
+
+    @PostConstruct
+    public void setup() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, CachedUserDetails>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedUserDetails value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, value.getExpiresAt() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedUserDetails value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedUserDetails value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns the SHA-256 fingerprint of the certificate in the nginx header without parsing the certificate, or null
+     * if the header could not be decoded
+     */
+    public static String fingerprint(String certificateHeader) {
+        try {
+            // nginx URL encodes the PEM when using $ssl_client_escaped_cert, which is recognized by the encoded line breaks
+            String pem = certificateHeader.contains("%") ? URLDecoder.decode(certificateHeader, "UTF-8") : certificateHeader;
+            String base64 = pem.replace("-----BEGIN CERTIFICATE-----", "").replace("-----END CERTIFICATE-----", "").replaceAll("\\s", "");
+            return fingerprint(Base64.getDecoder().decode(base64));
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            log.debug("Could not compute the fingerprint of the client certificate", e);
+            return null;
+        }
+    }
+
+    public static String fingerprint(byte[] encodedCertificate) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(encodedCertificate));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    CachedUserDetails get(String fingerprint) {
+        return cache.getIfPresent(fingerprint);
+    }
+
+    public void put(String fingerprint, UserDetails userDetails, String mrn, Long orgId, X509Certificate certificate) {
+        long expiresAt = Math.min(certificate.getNotAfter().getTime(), System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl));
+        if (expiresAt > System.currentTimeMillis()) {
+            cache.put(fingerprint, new CachedUserDetails(userDetails, mrn, orgId, certificate.getSerialNumber(), certificate.getIssuerX500Principal(), expiresAt));
+        }
+    }
+
+    /**
+     * Removes the entries of the entity with the given MRN, e.g. when its permissions have changed
+     */
+    public void evictByMrn(String mrn) {
+        if (mrn != null) {
+            cache.asMap().values().removeIf(cached -> mrn.equalsIgnoreCase(cached.getMrn()));
+        }
+    }
+
+    /**
+     * Removes the entries whose roles were resolved using the roles of the given organization
+     */
+    public void evictByOrganization(Long orgId) {
+        if (orgId != null) {
+            cache.asMap().values().removeIf(cached -> orgId.equals(cached.getOrgId()));
+        }
+    }
+
+    /**
+     * Removes the entries of the certificates with the given serial numbers, e.g. when they have been revoked
+     */
+    public void evictBySerialNumbers(Collection<BigInteger> serialNumbers) {
+        if (serialNumbers != null && !serialNumbers.isEmpty()) {
+            cache.asMap().values().removeIf(cached -> serialNumbers.contains(cached.getSerialNumber()));
+        }
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+}
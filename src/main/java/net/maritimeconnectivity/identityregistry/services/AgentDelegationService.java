@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
+
+import java.util.List;
+
+/**
+ * In-memory graph of which organizations act on behalf of which, so that access checks of agents do not hit the
+ * database
+ */
+public interface AgentDelegationService {
+
+    /**
+     * Returns whether the organization with the MRN actingOrgMrn is an agent for the organization with the MRN
+     * onBehalfOfOrgMrn. Only approved organizations are considered.
+     */
+    boolean isAgentFor(String actingOrgMrn, String onBehalfOfOrgMrn);
+
+    /**
+     * Returns the MRNs of the organizations that the given organization can act on behalf of
+     */
+    List<String> getOrgMrnsActedOnBehalfOf(Long idActingOrganization);
+
+    /**
+     * Reloads the agents of the organization that is being acted on behalf of, e.g. after an agent has been created,
+     * updated or deleted
+     */
+    void refreshAgentsOnBehalfOf(Long idOnBehalfOfOrganization);
+
+    /**
+     * Adds or updates an approved organization
+     */
+    void addOrganization(Organization organization);
+
+    /**
+     * Removes an organization and all agent relationships that it is part of
+     */
+    void removeOrganization(Long orgId);
+
+    /**
+     * Reloads the whole graph from the database
+     */
+    void reload();
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import lombok.extern.slf4j.Slf4j;
+import net.maritimeconnectivity.identityregistry.config.ReplicaRoutingDataSource;
+import net.maritimeconnectivity.identityregistry.model.data.OrganizationMrn;
+import net.maritimeconnectivity.identityregistry.model.database.Agent;
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the approved organizations and the agents between them in memory. Changes made on this instance are applied to
+ * the graph right away, while changes made on other instances, such as new agents or organizations that have been
+ * approved or deleted there, are only picked up when the graph is reloaded in the background. This happens every
+ * graph-max-age seconds, which is therefore how long the graph can be behind the database. Requests never wait for a
+ * reload, except for the first load if the graph was not loaded on startup.
+ */
+@Service
+@Slf4j
+public class AgentDelegationServiceImpl implements AgentDelegationService {
+
+    // Replaced as a whole on every change so that readers never need to lock
+    private volatile Graph graph = new Graph(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), 0);
+
+    private OrganizationService organizationService;
+
+    private AgentService agentService;
+
+    // Bounds how long changes made by other instances go unnoticed
+    @Value("${net.maritimeconnectivity.idreg.agents.graph-max-age:300}")
+    private long graphMaxAge;
+
+    private ScheduledExecutorService refresher;
+
+    private static final class Graph {
+        // lower case MRN -> organization id
+        private final Map<String, Long> orgIdsByMrn;
+        private final Map<Long, String> orgMrnsById;
+        // acting organization id -> ids of the organizations it acts on behalf of
+        private final Map<Long, Set<Long>> onBehalfOfByActing;
+        private final long loadedAt;
+
+        private Graph(Map<String, Long> orgIdsByMrn, Map<Long, String> orgMrnsById, Map<Long, Set<Long>> onBehalfOfByActing, long loadedAt) {
+            this.orgIdsByMrn = orgIdsByMrn;
+            this.orgMrnsById = orgMrnsById;
+            this.onBehalfOfByActing = onBehalfOfByActing;
+            this.loadedAt = loadedAt;
+        }
+
+        private Graph copy() {
+            Map<Long, Set<Long>> edges = new HashMap<>();
+            onBehalfOfByActing.forEach((acting, onBehalfOf) -> edges.put(acting, new HashSet<>(onBehalfOf)));
+            return new Graph(new HashMap<>(orgIdsByMrn), new HashMap<>(orgMrnsById), edges, loadedAt);
+        }
+    }
+
+    @Autowired
+    public void setOrganizationService(OrganizationService organizationService) {
+        this.organizationService = organizationService;
+    }
+
+    @Autowired
+    public void setAgentService(AgentService agentService) {
+        this.agentService = agentService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // the graph is loaded on the first access check instead
+            log.error("Could not load the agent delegation graph", e);
+        }
+        if (graphMaxAge > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "agent-graph-refresher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refresher.scheduleWithFixedDelay(this::refresh, graphMaxAge, graphMaxAge, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stopRefreshing() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    private void refresh() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // the current graph is kept until the next refresh succeeds
+            log.error("Could not reload the agent delegation graph", e);
+        }
+    }
+
+    @Override
+    public boolean isAgentFor(String actingOrgMrn, String onBehalfOfOrgMrn) {
+        if (actingOrgMrn == null || onBehalfOfOrgMrn == null) {
+            return false;
+        }
+        Graph current = currentGraph();
+        Long actingId = current.orgIdsByMrn.get(actingOrgMrn.toLowerCase());
+        Long onBehalfOfId = current.orgIdsByMrn.get(onBehalfOfOrgMrn.toLowerCase());
+        if (actingId == null || onBehalfOfId == null) {
+            return false;
+        }
+        return current.onBehalfOfByActing.getOrDefault(actingId, Collections.emptySet()).contains(onBehalfOfId);
+    }
+
+    @Override
+    public List<String> getOrgMrnsActedOnBehalfOf(Long idActingOrganization) {
+        Graph current = currentGraph();
+        List<String> mrns = new ArrayList<>();
+        for (Long onBehalfOfId : current.onBehalfOfByActing.getOrDefault(idActingOrganization, Collections.emptySet())) {
+            String mrn = current.orgMrnsById.get(onBehalfOfId);
+            if (mrn != null) {
+                mrns.add(mrn);
+            }
+        }
+        return mrns;
+    }
+
+    @Override
+    public synchronized void refreshAgentsOnBehalfOf(Long idOnBehalfOfOrganization) {
+        if (idOnBehalfOfOrganization == null) {
+            return;
+        }
+        Graph updated = graph.copy();
+        updated.onBehalfOfByActing.values().forEach(onBehalfOf -> onBehalfOf.remove(idOnBehalfOfOrganization));
+        for (Agent agent : agentService.getAgentsByIdOnBehalfOfOrg(idOnBehalfOfOrganization)) {
+            updated.onBehalfOfByActing.computeIfAbsent(agent.getIdActingOrganization(), id -> new HashSet<>()).add(idOnBehalfOfOrganization);
+        }
+        updated.onBehalfOfByActing.values().removeIf(Set::isEmpty);
+        graph = updated;
+    }
+
+    @Override
+    public synchronized void addOrganization(Organization organization) {
+        if (organization == null || organization.getId() == null || !organization.isApproved()) {
+            return;
+        }
+        Graph updated = graph.copy();
+        String oldMrn = updated.orgMrnsById.put(organization.getId(), organization.getMrn());
+        if (oldMrn != null) {
+            updated.orgIdsByMrn.remove(oldMrn.toLowerCase());
+        }
+        updated.orgIdsByMrn.put(organization.getMrn().toLowerCase(), organization.getId());
+        graph = updated;
+    }
+
+    @Override
+    public synchronized void removeOrganization(Long orgId) {
+        if (orgId == null) {
+            return;
+        }
+        Graph updated = graph.copy();
+        String mrn = updated.orgMrnsById.remove(orgId);
+        if (mrn != null) {
+            updated.orgIdsByMrn.remove(mrn.toLowerCase());
+        }
+        updated.onBehalfOfByActing.remove(orgId);
+        updated.onBehalfOfByActing.values().forEach(onBehalfOf -> onBehalfOf.remove(orgId));
+        updated.onBehalfOfByActing.values().removeIf(Set::isEmpty);
+        graph = updated;
+    }
+
+    @Override
+    public synchronized void reload() {
+        // The graph is kept until it is reloaded, so it must not be read from a lagging replica
+        ReplicaRoutingDataSource.onPrimary(() -> {
+            loadGraph();
+            return null;
+        });
+    }
+
+    private void loadGraph() {
+        Map<String, Long> orgIdsByMrn = new HashMap<>();
+        Map<Long, String> orgMrnsById = new HashMap<>();
+        for (OrganizationMrn org : organizationService.listApprovedOrganizationMrns()) {
+            orgIdsByMrn.put(org.getMrn().toLowerCase(), org.getId());
+            orgMrnsById.put(org.getId(), org.getMrn());
+        }
+        Map<Long, Set<Long>> onBehalfOfByActing = new HashMap<>();
+        for (Agent agent : agentService.listAll()) {
+            onBehalfOfByActing.computeIfAbsent(agent.getIdActingOrganization(), id -> new HashSet<>()).add(agent.getIdOnBehalfOfOrganization());
+        }
+        graph = new Graph(orgIdsByMrn, orgMrnsById, onBehalfOfByActing, System.currentTimeMillis());
+        log.debug("Loaded {} organizations and the agents of {} organizations", orgMrnsById.size(), onBehalfOfByActing.size());
+    }
+
+    private Graph currentGraph() {
+        Graph current = graph;
+        if (current.loadedAt == 0) {
+            synchronized (this) {
+                // another thread may have loaded the graph while this one was waiting
+                if (graph.loadedAt == 0) {
+                    reload();
+                }
+                current = graph;
+            }
+        }
+        return current;
+    }
+}
@@ -32,5 +32,9 @@ public interface AgentService extends BaseService<Agent> {
 
     Page<Agent> getAgentsByIdOnBehalfOfOrg(Long id, Pageable pageable);
 
+    List<Agent> getAgentsByIdOnBehalfOfOrg(Long id);
+
+    List<Agent> listAll();
+
     List<Agent> getAgentsByIdOnBehalfOfOrgAndIdActingOrg(Long idOnBehalfOf, Long idActing);
 }
@@ -24,6 +24,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -58,6 +59,18 @@ public class AgentServiceImpl extends BaseServiceImpl<Agent> implements AgentSer
         return this.repository.findByIdOnBehalfOfOrganization(id, pageable);
     }
 
+    @Override
+    public List<Agent> getAgentsByIdOnBehalfOfOrg(Long id) {
+        return this.repository.findByIdOnBehalfOfOrganization(id);
+    }
+
+    @Override
+    public List<Agent> listAll() {
+        List<Agent> agents = new ArrayList<>();
+        this.repository.findAll().forEach(agents::add);
+        return agents;
+    }
+
     @Override
     public List<Agent> getAgentsByIdOnBehalfOfOrgAndIdActingOrg(Long idOnBehalfOf, Long idActing) {
         return this.repository.findByIdOnBehalfOfOrganizationAndIdActingOrganization(idOnBehalfOf, idActing);
@@ -16,71 +16,21 @@
 package net.maritimeconnectivity.identityregistry.services;
 
 import net.maritimeconnectivity.identityregistry.model.database.TimestampModel;
-import net.maritimeconnectivity.identityregistry.utils.AccessControlUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Arrays;
-import java.util.List;
 import java.util.Optional;
 
 @Transactional(readOnly = true)
 public abstract class BaseServiceImpl<T extends TimestampModel> implements BaseService<T> {
     private static final Logger logger = LoggerFactory.getLogger(BaseServiceImpl.class);
 
-    protected final List<String> authorizedRoles =  Arrays.asList("ORG_ADMIN", "SITE_ADMIN");
-
-    @Autowired
-    protected AccessControlUtil accessControlUtil;
-
-    protected boolean isAuthorized() {
-        return accessControlUtil.hasAnyRoles(authorizedRoles);
-    }
-
-    protected T filterResult(T data) {
-        if (data != null && data.hasSensitiveFields() && !isAuthorized()) {
-            // If not authorized to see all we clean the object for sensitive data.
-            logger.debug("Clearing Sensitive Fields");
-            data.clearSensitiveFields();
-        }
-        return data;
-    }
-
-    protected Page<T> filterResult(Page<T> data) {
-        if (data != null && !data.hasContent()) {
-            data = (Page<T>) this.filterIterable(data);
-        }
-        return data;
-    }
-
-    protected List<T> filterResult(List<T> data) {
-        if (data != null && !data.isEmpty()) {
-            data = (List<T>) this.filterIterable(data);
-        }
-        return data;
-    }
-
-    protected Iterable<T> filterIterable(Iterable<T> data) {
-        // If not authorized to see all we clean the object for sensitive data.
-        if (!isAuthorized()) {
-            logger.debug("Clearing Sensitive Fields");
-            for (T entity : data) {
-                if (!entity.hasSensitiveFields()) {
-                    break;
-                }
-                entity.clearSensitiveFields();
-            }
-        }
-        return data;
-    }
-
+    // Sensitive fields are left out when the entities are serialized, see SensitiveFieldsUtil
     public T getById(Long id) {
         Optional<T> ret = getRepository().findById(id);
 
-        return filterResult(ret.orElse(null));
+        return ret.orElse(null);
     }
 
     @Transactional
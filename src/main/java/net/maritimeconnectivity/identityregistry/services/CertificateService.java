@@ -15,19 +15,45 @@
  */
 package net.maritimeconnectivity.identityregistry.services;
 
+import net.maritimeconnectivity.identityregistry.model.data.CertificateRevocationStatus;
+import net.maritimeconnectivity.identityregistry.model.data.CertificateSerial;
+import net.maritimeconnectivity.identityregistry.model.data.RevokedCertificate;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
+import net.maritimeconnectivity.identityregistry.model.database.CertificateModel;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Device;
+import net.maritimeconnectivity.identityregistry.model.database.entities.EntityModel;
 import net.maritimeconnectivity.identityregistry.model.database.entities.User;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Vessel;
+import net.maritimeconnectivity.identityregistry.utils.CertificateArchiveWriter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 public interface CertificateService {
     Certificate getCertificateBySerialNumber(BigInteger serialNumber);
 
+    /**
+     * Returns the revocation status of the certificates with the given serial numbers. Serial numbers that are not
+     * known are left out.
+     */
+    List<CertificateRevocationStatus> listRevocationStatuses(Collection<BigInteger> serialNumbers);
+
     Certificate saveCertificate(Certificate certificate);
 
+    /**
+     * Saves a newly issued certificate and appends it to the issuance log of its CA in one transaction
+     *
+     * @param certificate the certificate to save
+     * @param encodedCertificate the DER encoded certificate
+     * @return the saved certificate
+     */
+    Certificate saveIssuedCertificate(Certificate certificate, byte[] encodedCertificate);
+
     void deleteCertificate(Long id);
 
     List<Certificate> listVesselCertificate(Vessel vessel);
@@ -36,5 +62,55 @@ public interface CertificateService {
     
     List<Certificate> listDeviceCertificate(Device device);
 
+    /**
+     * Returns a page of the certificates that have been issued to the given organization or entity
+     */
+    Page<Certificate> listCertificatesOf(CertificateModel certOwner, Pageable pageable);
+
     List<Certificate> listRevokedCertificate(String caAlias);
+
+    /**
+     * Returns the earliest revocation date of the given CA that lies in the future, or null if there is none
+     */
+    Date getNextScheduledRevocation(String caAlias);
+
+    /**
+     * Returns a value that changes whenever a certificate of the given CA is revoked, so that revocation information
+     * cached from an earlier lookup can be checked against the database
+     */
+    String getRevocationVersion(String caAlias);
+
+    /**
+     * Returns the revoked certificates of all CAs that have not yet expired, including those whose revocation
+     * takes effect in the future
+     */
+    List<RevokedCertificate> listUnexpiredRevokedCertificates();
+
+    List<RevokedCertificate> listUnexpiredRevokedCertificates(String caAlias);
+
+    /**
+     * Returns the certificates of the given entity that are neither revoked nor expired, without loading the
+     * certificates themselves
+     */
+    List<CertificateSerial> listActiveCertificatesOf(EntityModel entity);
+
+    List<CertificateSerial> listActiveCertificatesOfOrganization(Long orgId);
+
+    List<CertificateSerial> listActiveCertificatesOfOrganization(Long orgId, Collection<BigInteger> serialNumbers);
+
+    /**
+     * Writes all active certificates of the organization and of the entities that belong to it while reading them
+     * from the database
+     *
+     * @param entityType the type of entity to restrict the certificates to, or null for all types
+     * @return the number of certificates that were written
+     */
+    int writeActiveCertificatesOfOrganization(Long orgId, String entityType, CertificateArchiveWriter writer) throws IOException;
+
+    /**
+     * Revokes all the given certificates that are not already revoked using batched updates
+     *
+     * @return the number of certificates that were revoked
+     */
+    int revokeCertificates(Collection<BigInteger> serialNumbers, Date revokedAt, String revokeReason);
 }
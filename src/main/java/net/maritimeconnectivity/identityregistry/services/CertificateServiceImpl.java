@@ -15,37 +15,86 @@
  */
 package net.maritimeconnectivity.identityregistry.services;
 
+import net.maritimeconnectivity.identityregistry.model.data.CertificatePem;
+import net.maritimeconnectivity.identityregistry.model.data.CertificateRevocationStatus;
+import net.maritimeconnectivity.identityregistry.model.data.CertificateSerial;
+import net.maritimeconnectivity.identityregistry.model.data.RevocationVersion;
+import net.maritimeconnectivity.identityregistry.model.data.RevokedCertificate;
 import net.maritimeconnectivity.identityregistry.model.database.Certificate;
+import net.maritimeconnectivity.identityregistry.model.database.CertificateModel;
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Device;
+import net.maritimeconnectivity.identityregistry.model.database.entities.EntityModel;
+import net.maritimeconnectivity.identityregistry.model.database.entities.MMS;
 import net.maritimeconnectivity.identityregistry.model.database.entities.User;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Vessel;
 import net.maritimeconnectivity.identityregistry.repositories.CertificateRepository;
+import net.maritimeconnectivity.identityregistry.utils.CertificateArchiveWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 public class CertificateServiceImpl implements CertificateService {
+    // Upper bound on the number of serial numbers in the IN clause of a single update statement
+    private static final int REVOCATION_BATCH_SIZE = 1000;
+
     private CertificateRepository certificateRepository;
 
+    private IssuanceLogService issuanceLogService;
+
     @Autowired
     public void setCertificateRepository(CertificateRepository certificateRepository) {
         this.certificateRepository = certificateRepository;
     }
 
+    @Autowired
+    public void setIssuanceLogService(IssuanceLogService issuanceLogService) {
+        this.issuanceLogService = issuanceLogService;
+    }
+
     @Override
     public Certificate getCertificateBySerialNumber(BigInteger serialNumber) {
         return certificateRepository.getBySerialNumber(serialNumber);
     }
 
+    @Override
+    public List<CertificateRevocationStatus> listRevocationStatuses(Collection<BigInteger> serialNumbers) {
+        if (serialNumbers.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<BigInteger> serials = new ArrayList<>(serialNumbers);
+        List<CertificateRevocationStatus> ret = new ArrayList<>();
+        for (int i = 0; i < serials.size(); i += REVOCATION_BATCH_SIZE) {
+            ret.addAll(certificateRepository.findRevocationStatusBySerialNumbers(serials.subList(i, Math.min(i + REVOCATION_BATCH_SIZE, serials.size()))));
+        }
+        return ret;
+    }
+
     @Override
     public Certificate saveCertificate(Certificate certificate) {
         return certificateRepository.save(certificate);
     }
 
+    @Override
+    @Transactional
+    public Certificate saveIssuedCertificate(Certificate certificate, byte[] encodedCertificate) {
+        Certificate saved = certificateRepository.save(certificate);
+        issuanceLogService.logCertificate(certificate.getCertificateAuthority(), certificate.getSerialNumber(), encodedCertificate);
+        return saved;
+    }
+
     @Override
     public void deleteCertificate(Long id) {
         throw new UnsupportedOperationException("Deletion of certificates is not supported, please revoke them");
@@ -66,11 +115,113 @@ public class CertificateServiceImpl implements CertificateService {
         return certificateRepository.findBydevice(device);
     }
 
+    @Override
+    public Page<Certificate> listCertificatesOf(CertificateModel certOwner, Pageable pageable) {
+        if (certOwner instanceof Organization) {
+            return certificateRepository.findByorganization((Organization) certOwner, pageable);
+        } else if (certOwner instanceof Vessel) {
+            return certificateRepository.findByvessel((Vessel) certOwner, pageable);
+        } else if (certOwner instanceof Device) {
+            return certificateRepository.findBydevice((Device) certOwner, pageable);
+        } else if (certOwner instanceof User) {
+            return certificateRepository.findByuser((User) certOwner, pageable);
+        } else if (certOwner instanceof net.maritimeconnectivity.identityregistry.model.database.entities.Service) {
+            return certificateRepository.findByservice((net.maritimeconnectivity.identityregistry.model.database.entities.Service) certOwner, pageable);
+        } else if (certOwner instanceof MMS) {
+            return certificateRepository.findBymms((MMS) certOwner, pageable);
+        }
+        throw new IllegalArgumentException("Unsupported certificate owner: " + certOwner.getClass().getSimpleName());
+    }
+
     @Override
     public List<Certificate> listRevokedCertificate(String caAlias) {
         Date now = new Date();
-        return certificateRepository.findByCertificateAuthorityIgnoreCaseAndRevokedTrueAndRevokedAtIsBefore(caAlias, now);
+        return certificateRepository.findByCertificateAuthorityAndRevokedTrueAndRevokedAtIsBefore(caAlias, now);
     }
 
-}
+    @Override
+    public Date getNextScheduledRevocation(String caAlias) {
+        Certificate next = certificateRepository.findFirstByCertificateAuthorityAndRevokedTrueAndRevokedAtIsAfterOrderByRevokedAtAsc(caAlias, new Date());
+        return next != null ? next.getRevokedAt() : null;
+    }
+
+    @Override
+    public String getRevocationVersion(String caAlias) {
+        RevocationVersion version = certificateRepository.findRevocationVersion(caAlias);
+        Date lastUpdatedAt = version.getLastUpdatedAt();
+        return version.getRevokedCount() + "/" + (lastUpdatedAt != null ? lastUpdatedAt.getTime() : 0);
+    }
+
+    @Override
+    public List<RevokedCertificate> listUnexpiredRevokedCertificates() {
+        return certificateRepository.findUnexpiredRevoked(new Date());
+    }
+
+    @Override
+    public List<RevokedCertificate> listUnexpiredRevokedCertificates(String caAlias) {
+        return certificateRepository.findUnexpiredRevokedByCertificateAuthority(caAlias, new Date());
+    }
+
+    @Override
+    public List<CertificateSerial> listActiveCertificatesOf(EntityModel entity) {
+        Date now = new Date();
+        if (entity instanceof Vessel) {
+            return certificateRepository.findActiveByVessel((Vessel) entity, now);
+        } else if (entity instanceof Device) {
+            return certificateRepository.findActiveByDevice((Device) entity, now);
+        } else if (entity instanceof User) {
+            return certificateRepository.findActiveByUser((User) entity, now);
+        } else if (entity instanceof net.maritimeconnectivity.identityregistry.model.database.entities.Service) {
+            return certificateRepository.findActiveByService((net.maritimeconnectivity.identityregistry.model.database.entities.Service) entity, now);
+        } else if (entity instanceof MMS) {
+            return certificateRepository.findActiveByMms((MMS) entity, now);
+        }
+        throw new IllegalArgumentException("Unsupported certificate owner: " + entity.getClass().getSimpleName());
+    }
+
+    @Override
+    public List<CertificateSerial> listActiveCertificatesOfOrganization(Long orgId) {
+        return certificateRepository.findActiveByOrganization(orgId, new Date());
+    }
 
+    @Override
+    public List<CertificateSerial> listActiveCertificatesOfOrganization(Long orgId, Collection<BigInteger> serialNumbers) {
+        if (serialNumbers.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<BigInteger> serials = new ArrayList<>(serialNumbers);
+        List<CertificateSerial> ret = new ArrayList<>();
+        Date now = new Date();
+        for (int i = 0; i < serials.size(); i += REVOCATION_BATCH_SIZE) {
+            ret.addAll(certificateRepository.findActiveByOrganizationAndSerialNumbers(orgId, serials.subList(i, Math.min(i + REVOCATION_BATCH_SIZE, serials.size())), now));
+        }
+        return ret;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int writeActiveCertificatesOfOrganization(Long orgId, String entityType, CertificateArchiveWriter writer) throws IOException {
+        int written = 0;
+        try (Stream<CertificatePem> certificates = certificateRepository.streamActiveByOrganization(orgId, entityType != null ? entityType : "", new Date())) {
+            Iterator<CertificatePem> iterator = certificates.iterator();
+            while (iterator.hasNext()) {
+                CertificatePem certificate = iterator.next();
+                writer.write(certificate.getSerialNumber(), certificate.getCertificate());
+                written++;
+            }
+        }
+        return written;
+    }
+
+    @Override
+    @Transactional
+    public int revokeCertificates(Collection<BigInteger> serialNumbers, Date revokedAt, String revokeReason) {
+        List<BigInteger> serials = new ArrayList<>(serialNumbers);
+        Date now = new Date();
+        int revoked = 0;
+        for (int i = 0; i < serials.size(); i += REVOCATION_BATCH_SIZE) {
+            revoked += certificateRepository.revokeBySerialNumbers(serials.subList(i, Math.min(i + REVOCATION_BATCH_SIZE, serials.size())), revokedAt, revokeReason, now);
+        }
+        return revoked;
+    }
+}
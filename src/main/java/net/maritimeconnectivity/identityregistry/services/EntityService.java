@@ -15,17 +15,56 @@
  */
 package net.maritimeconnectivity.identityregistry.services;
 
+import net.maritimeconnectivity.identityregistry.model.data.KeysetCursor;
+import net.maritimeconnectivity.identityregistry.utils.EntityExportWriter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface EntityService<T> extends BaseService<T> {
     List<T> listAllFromOrg(Long id);
 
     Page<T> listPageFromOrg(Long id, Pageable pageable);
 
+    /**
+     * Returns the slice of entities of the organization that follows the given cursor, without counting them
+     */
+    Slice<T> listSliceFromOrg(Long id, KeysetCursor cursor, int size);
+
+    /**
+     * Streams the entities of the organization to the writer in the order of their ids, detaching them once they
+     * have been written so that the memory used does not grow with the number of entities
+     *
+     * @return the number of entities written
+     */
+    int writeAllFromOrg(Long id, EntityExportWriter writer) throws IOException;
+
     void deleteByOrg(Long id);
 
+    /**
+     * Saves the entities in a single transaction, so that the inserts and updates are sent in batches
+     */
+    List<T> saveAll(List<T> entities);
+
+    /**
+     * Deletes the entities in a single transaction, so that the deletes are sent in batches
+     */
+    void deleteAll(List<T> entities);
+
     T getByMrn(String mrn);
+
+    /**
+     * Returns the entities with the given MRNs, ignoring the MRNs that do not exist
+     */
+    List<T> listByMrns(Collection<String> mrns);
+
+    /**
+     * Returns which of the given MRNs already exist, in lower case
+     */
+    Set<String> listExistingMrns(Collection<String> mrns);
 }
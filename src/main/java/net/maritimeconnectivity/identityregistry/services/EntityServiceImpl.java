@@ -15,18 +15,39 @@
  */
 package net.maritimeconnectivity.identityregistry.services;
 
+import net.maritimeconnectivity.identityregistry.model.data.KeysetCursor;
 import net.maritimeconnectivity.identityregistry.model.database.TimestampModel;
+import net.maritimeconnectivity.identityregistry.model.database.entities.EntityModel;
 import net.maritimeconnectivity.identityregistry.repositories.EntityRepository;
+import net.maritimeconnectivity.identityregistry.utils.EntityExportWriter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public abstract class EntityServiceImpl<T extends TimestampModel> extends BaseServiceImpl<T> implements EntityService<T> {
 
+    // Matches the batch size of the lazy collections of the entities
+    private static final int EXPORT_BATCH_SIZE = 50;
+
+    private static final int MRN_BATCH_SIZE = 500;
+
     protected EntityRepository<T> repository;
 
+    @PersistenceContext
+    protected EntityManager entityManager;
+
     public List<T> listAllFromOrg(Long id) {
         return this.getRepository().findByIdOrganization(id);
     }
@@ -35,17 +56,99 @@ public abstract class EntityServiceImpl<T extends TimestampModel> extends BaseSe
         return this.getRepository().findByidOrganization(id, pageable);
     }
 
+    public Slice<T> listSliceFromOrg(Long id, KeysetCursor cursor, int size) {
+        if (cursor.isSortedByMrn()) {
+            return this.getRepository().findSliceByOrganizationAfterMrn(id, cursor.getLastMrn(), cursor.getLastId(), KeysetCursor.limit(size));
+        }
+        return this.getRepository().findSliceByOrganizationAfterId(id, cursor.getLastId(), KeysetCursor.limit(size));
+    }
+
+    @Transactional(readOnly = true)
+    public int writeAllFromOrg(Long id, EntityExportWriter writer) throws IOException {
+        int written = 0;
+        List<T> batch = new ArrayList<>(EXPORT_BATCH_SIZE);
+        try (Stream<T> entities = this.getRepository().streamByOrganization(id)) {
+            Iterator<T> iterator = entities.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == EXPORT_BATCH_SIZE) {
+                    written += writeAndDetach(batch, writer);
+                }
+            }
+        }
+        return written + writeAndDetach(batch, writer);
+    }
+
+    // The entities are written a batch at a time, so that the lazy collections of the whole batch are loaded by the
+    // first one that is serialized. Only the written entities are detached as the persistence context may be shared
+    // with the rest of the request.
+    private int writeAndDetach(List<T> batch, EntityExportWriter writer) throws IOException {
+        int written = batch.size();
+        for (T entity : batch) {
+            writer.write(entity);
+        }
+        batch.forEach(this::detach);
+        batch.clear();
+        return written;
+    }
+
+    /**
+     * Detaches an exported entity from the persistence context
+     */
+    protected void detach(T entity) {
+        entityManager.detach(entity);
+    }
+
     @Transactional
     public void deleteByOrg(Long id) {
         this.getRepository().deleteByidOrganization(id);
     }
 
+    @Transactional
+    public List<T> saveAll(List<T> entities) {
+        List<T> saved = new ArrayList<>(entities.size());
+        this.getRepository().saveAll(entities).forEach(saved::add);
+        return saved;
+    }
+
+    @Transactional
+    public void deleteAll(List<T> entities) {
+        this.getRepository().deleteAll(entities);
+    }
+
     public EntityRepository<T> getRepository() {
         return this.repository;
     }
 
     public T getByMrn(String mrn) {
-        return this.getRepository().getByMrnIgnoreCase(mrn);
+        return this.getRepository().getByMrnLower(EntityModel.toLowerCaseMrn(mrn));
+    }
+
+    public List<T> listByMrns(Collection<String> mrns) {
+        List<T> ret = new ArrayList<>();
+        for (List<String> chunk : lowerCaseChunks(mrns)) {
+            ret.addAll(this.getRepository().findByMrnLowerIn(chunk));
+        }
+        return ret;
+    }
+
+    public Set<String> listExistingMrns(Collection<String> mrns) {
+        Set<String> ret = new HashSet<>();
+        for (List<String> chunk : lowerCaseChunks(mrns)) {
+            ret.addAll(this.getRepository().findExistingMrnLower(chunk));
+        }
+        return ret;
+    }
+
+    // Keeps the IN lists short enough for the database to plan them as index lookups
+    private static List<List<String>> lowerCaseChunks(Collection<String> mrns) {
+        List<String> lowerCase = new ArrayList<>(mrns.size());
+        mrns.forEach(mrn -> lowerCase.add(EntityModel.toLowerCaseMrn(mrn)));
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < lowerCase.size(); i += MRN_BATCH_SIZE) {
+            chunks.add(lowerCase.subList(i, Math.min(i + MRN_BATCH_SIZE, lowerCase.size())));
+        }
+        return chunks;
     }
 
     public T getByMrnSubsidiary(String mrn){
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import net.maritimeconnectivity.identityregistry.model.data.ConsistencyProof;
+import net.maritimeconnectivity.identityregistry.model.data.InclusionProof;
+import net.maritimeconnectivity.identityregistry.model.data.SignedTreeHead;
+import org.bouncycastle.operator.OperatorCreationException;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+
+/**
+ * Append-only log of the certificates issued by each CA in the style of Certificate Transparency (RFC 6962)
+ */
+public interface IssuanceLogService {
+
+    /**
+     * Appends an issued certificate to the log of the CA that issued it. Must be called in the transaction that saves
+     * the certificate. The transaction fails to commit if another instance appended to the log in the meantime.
+     *
+     * @param caAlias the alias of the issuing CA
+     * @param serialNumber the serial number of the certificate
+     * @param encodedCertificate the DER encoded certificate
+     */
+    void logCertificate(String caAlias, BigInteger serialNumber, byte[] encodedCertificate);
+
+    /**
+     * Returns the current tree head of the log of the given CA signed with the key of the CA
+     */
+    SignedTreeHead getSignedTreeHead(String caAlias) throws GeneralSecurityException, OperatorCreationException, IOException;
+
+    /**
+     * Returns the proof that the certificate with the given serial number is included in the log of the given CA
+     *
+     * @param treeSize the size of the tree to make the proof for, or null for the current size
+     * @return the inclusion proof, or null if the certificate is not in the log
+     */
+    InclusionProof getInclusionProof(String caAlias, BigInteger serialNumber, Long treeSize);
+
+    /**
+     * Returns the proof that the log of the given CA at size firstSize is a prefix of the log at size secondSize
+     */
+    ConsistencyProof getConsistencyProof(String caAlias, long firstSize, long secondSize);
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import lombok.extern.slf4j.Slf4j;
+import net.maritimeconnectivity.identityregistry.model.data.ConsistencyProof;
+import net.maritimeconnectivity.identityregistry.model.data.InclusionProof;
+import net.maritimeconnectivity.identityregistry.model.data.SignedTreeHead;
+import net.maritimeconnectivity.identityregistry.model.database.IssuanceLogEntry;
+import net.maritimeconnectivity.identityregistry.repositories.IssuanceLogRepository;
+import net.maritimeconnectivity.identityregistry.utils.CertificateUtil;
+import net.maritimeconnectivity.identityregistry.utils.MerkleTree;
+import net.maritimeconnectivity.pki.pkcs11.P11PKIConfiguration;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.AuthProvider;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the Merkle tree of each CA in memory, loaded from the leaf hashes in the database on first use. The database
+ * is the source of truth, so trees are caught up with leaves written by other instances before they are used. Leaves
+ * are written in the transaction that saves the certificate, so a certificate is never saved without its leaf.
+ * Signed tree heads are kept per CA and only signed again once the tree has grown, so reading the public log does not
+ * use the key of the CA on every request.
+ */
+@Service
+@Slf4j
+public class IssuanceLogServiceImpl implements IssuanceLogService {
+
+    private final Map<String, MerkleTree> trees = new ConcurrentHashMap<>();
+
+    private final Map<String, SignedTreeHead> signedTreeHeads = new ConcurrentHashMap<>();
+
+    private IssuanceLogRepository issuanceLogRepository;
+
+    private CertificateUtil certificateUtil;
+
+    @Autowired
+    public void setIssuanceLogRepository(IssuanceLogRepository issuanceLogRepository) {
+        this.issuanceLogRepository = issuanceLogRepository;
+    }
+
+    @Autowired
+    public void setCertificateUtil(CertificateUtil certificateUtil) {
+        this.certificateUtil = certificateUtil;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void logCertificate(String caAlias, BigInteger serialNumber, byte[] encodedCertificate) {
+        MerkleTree tree = trees.computeIfAbsent(caAlias, alias -> new MerkleTree());
+        byte[] leafHash = MerkleTree.leafHash(encodedCertificate);
+        long leafIndex;
+        synchronized (tree) {
+            catchUp(caAlias, tree);
+            leafIndex = tree.size();
+        }
+        IssuanceLogEntry entry = new IssuanceLogEntry();
+        entry.setCertificateAuthority(caAlias);
+        entry.setLeafHash(leafHash);
+        entry.setSerialNumber(serialNumber);
+        entry.setLeafIndex(leafIndex);
+        // If the leaf index is taken by the time the transaction commits, the commit fails and the caller has to try again
+        issuanceLogRepository.save(entry);
+        // The leaf is only added to the tree once it is in the database, so a rolled back certificate never shows up in it
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                synchronized (tree) {
+                    if (tree.size() == leafIndex) {
+                        tree.append(leafHash);
+                    } else {
+                        catchUp(caAlias, tree);
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public SignedTreeHead getSignedTreeHead(String caAlias) throws GeneralSecurityException, OperatorCreationException, IOException {
+        MerkleTree tree = getTree(caAlias);
+        long treeSize;
+        byte[] rootHash;
+        synchronized (tree) {
+            treeSize = tree.size();
+            rootHash = tree.rootHash(treeSize);
+        }
+        SignedTreeHead signedTreeHead = signedTreeHeads.get(caAlias);
+        if (signedTreeHead != null && signedTreeHead.getTreeSize() == treeSize) {
+            return signedTreeHead;
+        }
+        long timestamp = System.currentTimeMillis();
+        // TreeHeadSignature from RFC 6962: version v1 (0), signature type tree_hash (1), timestamp, tree size, root hash
+        ByteBuffer toSign = ByteBuffer.allocate(2 + 8 + 8 + rootHash.length);
+        toSign.put((byte) 0).put((byte) 1).putLong(timestamp).putLong(treeSize).put(rootHash);
+
+        AuthProvider provider = null;
+        P11PKIConfiguration p11PKIConfiguration = null;
+        if (certificateUtil.getPkiConfiguration() instanceof P11PKIConfiguration) {
+            p11PKIConfiguration = (P11PKIConfiguration) certificateUtil.getPkiConfiguration();
+            provider = p11PKIConfiguration.getProvider();
+            p11PKIConfiguration.providerLogin();
+        }
+        byte[] signature;
+        try {
+            signature = certificateUtil.sign(toSign.array(), caAlias, provider);
+        } finally {
+            if (p11PKIConfiguration != null) {
+                p11PKIConfiguration.providerLogout();
+            }
+        }
+        String algorithm = CertificateUtil.getSignatureAlgorithm(certificateUtil.getKeystoreHandler().getMCPCertificate(caAlias).getPublicKey());
+        Base64.Encoder encoder = Base64.getEncoder();
+        signedTreeHead = new SignedTreeHead(treeSize, timestamp, encoder.encodeToString(rootHash), encoder.encodeToString(signature), algorithm);
+        // Concurrent requests may both sign the same size, in which case either head is fine, but never replace a larger one
+        signedTreeHeads.merge(caAlias, signedTreeHead, (old, sth) -> sth.getTreeSize() >= old.getTreeSize() ? sth : old);
+        return signedTreeHead;
+    }
+
+    @Override
+    public InclusionProof getInclusionProof(String caAlias, BigInteger serialNumber, Long treeSize) {
+        IssuanceLogEntry entry = issuanceLogRepository.findFirstByCertificateAuthorityAndSerialNumber(caAlias, serialNumber);
+        if (entry == null) {
+            return null;
+        }
+        MerkleTree tree = getTree(caAlias);
+        synchronized (tree) {
+            long size = treeSize != null ? treeSize : tree.size();
+            return new InclusionProof(entry.getLeafIndex(), size, encode(tree.inclusionProof(entry.getLeafIndex(), size)));
+        }
+    }
+
+    @Override
+    public ConsistencyProof getConsistencyProof(String caAlias, long firstSize, long secondSize) {
+        MerkleTree tree = getTree(caAlias);
+        synchronized (tree) {
+            return new ConsistencyProof(firstSize, secondSize, encode(tree.consistencyProof(firstSize, secondSize)));
+        }
+    }
+
+    private MerkleTree getTree(String caAlias) {
+        MerkleTree tree = trees.computeIfAbsent(caAlias, alias -> new MerkleTree());
+        synchronized (tree) {
+            catchUp(caAlias, tree);
+        }
+        return tree;
+    }
+
+    // Appends the leaves that are in the database but not yet in the in-memory tree. Must hold the lock of the tree.
+    private void catchUp(String caAlias, MerkleTree tree) {
+        Long maxLeafIndex = issuanceLogRepository.findMaxLeafIndex(caAlias);
+        if (maxLeafIndex != null && maxLeafIndex >= tree.size()) {
+            for (byte[] leafHash : issuanceLogRepository.findLeafHashes(caAlias, tree.size())) {
+                tree.append(leafHash);
+            }
+        }
+    }
+
+    private static List<String> encode(List<byte[]> hashes) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        List<String> ret = new ArrayList<>(hashes.size());
+        for (byte[] hash : hashes) {
+            ret.add(encoder.encodeToString(hash));
+        }
+        return ret;
+    }
+}
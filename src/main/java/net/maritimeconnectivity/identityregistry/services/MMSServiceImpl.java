@@ -15,6 +15,7 @@
  */
 package net.maritimeconnectivity.identityregistry.services;
 
+import net.maritimeconnectivity.identityregistry.model.database.entities.EntityModel;
 import net.maritimeconnectivity.identityregistry.model.database.entities.MMS;
 import net.maritimeconnectivity.identityregistry.repositories.MMSRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,7 +30,7 @@ public class MMSServiceImpl extends EntityServiceImpl<MMS> implements MMSService
     }
 
     public MMS getByMrn(String mrn) {
-        return this.getRepository().getByMrnIgnoreCase(mrn);
+        return this.getRepository().getByMrnLower(EntityModel.toLowerCaseMrn(mrn));
     }
 
     @Override
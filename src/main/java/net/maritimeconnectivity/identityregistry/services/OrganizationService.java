@@ -15,9 +15,14 @@
  */
 package net.maritimeconnectivity.identityregistry.services;
 
+import net.maritimeconnectivity.identityregistry.model.data.KeysetCursor;
+import net.maritimeconnectivity.identityregistry.model.data.OrganizationMrn;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
 
 public interface OrganizationService extends BaseService<Organization>{
     Organization getOrganizationByMrn(String mrn);
@@ -25,10 +30,14 @@ public interface OrganizationService extends BaseService<Organization>{
     Organization getOrganizationById(Long id);
 
     Organization getOrganizationByMrnDisregardApproved(String mrn);
-    /* Does not filter sensitive data from the result! */
-    Organization getOrganizationByMrnNoFilter(String mrn);
 
     Page<Organization> getUnapprovedOrganizations(Pageable page);
 
     Page<Organization> listAllPage(Pageable pageable);
+
+    /* Returns the slice of approved organizations that follows the given cursor, without counting them */
+    Slice<Organization> listAllSlice(KeysetCursor cursor, int size);
+
+    /* Returns the ids and MRNs of all approved organizations */
+    List<OrganizationMrn> listApprovedOrganizationMrns();
 }
@@ -15,80 +15,177 @@
  */
 package net.maritimeconnectivity.identityregistry.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.maritimeconnectivity.identityregistry.config.ReplicaRoutingDataSource;
+import net.maritimeconnectivity.identityregistry.model.data.KeysetCursor;
+import net.maritimeconnectivity.identityregistry.model.data.OrganizationMrn;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
 import net.maritimeconnectivity.identityregistry.repositories.OrganizationRepository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import net.maritimeconnectivity.identityregistry.utils.RequestMemoUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class OrganizationServiceImpl extends BaseServiceImpl<Organization> implements OrganizationService {
-    private static final Logger logger = LoggerFactory.getLogger(OrganizationServiceImpl.class);
+    private static final String MEMO_NAMESPACE = "organizations";
+    public static final String ID_CACHE_NAME = "organizationIds";
 
     private OrganizationRepository organizationRepository;
 
+    @Value("${net.maritimeconnectivity.idreg.entity-cache.max-size:10000}")
+    private long idCacheMaxSize;
+
+    @Value("${net.maritimeconnectivity.idreg.entity-cache.ttl:300}")
+    private long idCacheTtl;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // MRN -> id of the organization. The organizations themselves are read by id, which the second-level cache
+    // answers, so this saves the query by MRN. Unknown MRNs are not cached, as an organization created on another
+    // instance would otherwise not be found here until the entry expires.
+    private Cache<String, Long> idCache;
+
     @Autowired
     public void setOrganizationRepository(OrganizationRepository organizationRepository) {
         this.organizationRepository = organizationRepository;
     }
 
+    @PostConstruct
+    public void setup() {
+        idCache = Caffeine.newBuilder()
+                .maximumSize(idCacheMaxSize)
+                .expireAfterWrite(idCacheTtl, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, idCache, ID_CACHE_NAME);
+        }
+    }
+
     @Override
     public Organization getOrganizationByMrn(String mrn) {
-        return this.filterResult(organizationRepository.findByMrnAndApprovedTrue(mrn));
+        return findApprovedByMrn(mrn);
     }
 
     @Override
     public Organization getOrganizationById(Long id) {
-        return this.filterResult(organizationRepository.findById(id).orElse(null));
+        return findById(id);
     }
 
     @Override
     public Organization getOrganizationByMrnDisregardApproved(String mrn) {
-        return this.filterResult(organizationRepository.findByMrn(mrn));
+        return RequestMemoUtil.get(MEMO_NAMESPACE, Arrays.asList("mrn", mrn), () -> findByMrn(mrn));
     }
 
-    /* Does not filter sensitive data from the result! */
-    public Organization getOrganizationByMrnNoFilter(String mrn) {
-        return organizationRepository.findByMrnAndApprovedTrue(mrn);
+    @Override
+    public Organization getById(Long id) {
+        return findById(id);
+    }
+
+    // The persistence context of the request already returns the same instance for repeated lookups,
+    // so memoizing them for the request does not change what the callers see
+    private Organization findApprovedByMrn(String mrn) {
+        return RequestMemoUtil.get(MEMO_NAMESPACE, Arrays.asList("approved-mrn", mrn), () -> {
+            Organization org = findByMrn(mrn);
+            return org != null && org.isApproved() ? org : null;
+        });
+    }
+
+    private Organization findByMrn(String mrn) {
+        if (mrn == null) {
+            return null;
+        }
+        // Concurrent misses for the same MRN wait for a single query, which is not cached if it finds nothing. It goes
+        // to the primary as a replica may not have the organization yet, or still have the old MRN.
+        Long id = idCache.get(mrn, key -> ReplicaRoutingDataSource.onPrimary(() -> organizationRepository.findIdByMrn(key)));
+        if (id == null) {
+            return null;
+        }
+        Organization org = organizationRepository.findById(id).orElse(null);
+        if (org == null || !mrn.equals(org.getMrn())) {
+            // The organization has been deleted or has changed its MRN on another instance
+            idCache.invalidate(mrn);
+            return organizationRepository.findByMrn(mrn);
+        }
+        return org;
+    }
+
+    private Organization findById(Long id) {
+        return RequestMemoUtil.get(MEMO_NAMESPACE, Arrays.asList("id", id), () -> organizationRepository.findById(id).orElse(null));
+    }
+
+    @Override
+    @Transactional
+    public Organization save(Organization organization) {
+        RequestMemoUtil.clear(MEMO_NAMESPACE);
+        Organization saved = super.save(organization);
+        evict(saved.getMrn());
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public void delete(Long id) {
+        RequestMemoUtil.clear(MEMO_NAMESPACE);
+        organizationRepository.findById(id).ifPresent(org -> evict(org.getMrn()));
+        super.delete(id);
+    }
+
+    // Evicts right away and again after commit, so that a lookup made before the commit cannot keep the old id cached.
+    // A changed MRN leaves the old one cached, which is caught by comparing the MRN of the organization that is read.
+    private void evict(String mrn) {
+        if (mrn == null) {
+            return;
+        }
+        idCache.invalidate(mrn);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    idCache.invalidate(mrn);
+                }
+            });
+        }
     }
 
     /* This only shows approved organizations */
     @Override
     public Page<Organization> listAllPage(Pageable pageable) {
-        return this.filterResult(getRepository().findByApprovedTrue(pageable));
+        return getRepository().findByApprovedTrue(pageable);
     }
 
     @Override
-    public OrganizationRepository getRepository() {
-        return this.organizationRepository;
+    public Slice<Organization> listAllSlice(KeysetCursor cursor, int size) {
+        if (cursor.isSortedByMrn()) {
+            return organizationRepository.findApprovedSliceAfterMrn(cursor.getLastMrn(), cursor.getLastId(), KeysetCursor.limit(size));
+        }
+        return organizationRepository.findApprovedSliceAfterId(cursor.getLastId(), KeysetCursor.limit(size));
     }
 
     @Override
-    protected Organization filterResult(Organization data) {
-        if (data != null && data.hasSensitiveFields() && (!isAuthorized() || !accessControlUtil.hasAccessToOrg(data.getMrn()))) {
-            // If not authorized to see all we clean the object for sensitive data.
-            logger.debug("Clearing Sensitive Fields");
-            data.clearSensitiveFields();
-        }
-        return data;
+    public List<OrganizationMrn> listApprovedOrganizationMrns() {
+        return organizationRepository.findAllByApprovedTrue();
     }
 
     @Override
-    protected Page<Organization> filterResult(Page<Organization> data) {
-        if (data != null && !data.hasContent() && !accessControlUtil.hasRole("SITE_ADMIN")) {
-            // If not authorized to see all we clean the object for sensitive data.
-            boolean isAuthorized = isAuthorized();
-            for (Organization org : data) {
-                if (!isAuthorized || !accessControlUtil.hasAccessToOrg(org.getMrn())) {
-                    logger.debug("Clearing Sensitive Fields");
-                    org.clearSensitiveFields();
-                }
-            }
-        }
-        return data;
+    public OrganizationRepository getRepository() {
+        return this.organizationRepository;
     }
 
     public Page<Organization> getUnapprovedOrganizations(Pageable pageable) {
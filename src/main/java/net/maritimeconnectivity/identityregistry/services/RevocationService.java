@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import org.bouncycastle.operator.OperatorCreationException;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+
+/**
+ * Keeps the revocation information that is served for each sub CA up to date
+ */
+public interface RevocationService {
+
+    /**
+     * Returns the PEM encoded CRL of the given CA. The CRL is only regenerated if the cached one has expired
+     * or the revocation information of the CA has changed since it was generated.
+     *
+     * @param caAlias the alias of the CA
+     * @return a PEM encoded CRL
+     */
+    String getCrl(String caAlias) throws GeneralSecurityException, OperatorCreationException, IOException;
+
+    /**
+     * Reloads the revocation information of the given CA. Should be called once after certificates
+     * of the CA have been revoked.
+     *
+     * @param caAlias the alias of the CA
+     */
+    void refresh(String caAlias);
+
+    /**
+     * Checks whether the certificate with the given issuer and serial number has been revoked, using an in-memory
+     * set of the revoked serial numbers of each CA. The sets are updated on refresh and reloaded from the
+     * database at a fixed interval to pick up revocations made by other instances.
+     *
+     * @param issuer the subject of the CA that issued the certificate
+     * @param serialNumber the serial number of the certificate
+     * @return true if the certificate has been revoked and the revocation has taken effect
+     */
+    boolean isRevoked(X500Principal issuer, BigInteger serialNumber);
+}
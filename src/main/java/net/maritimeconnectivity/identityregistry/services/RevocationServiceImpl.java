@@ -0,0 +1,210 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import lombok.extern.slf4j.Slf4j;
+import net.maritimeconnectivity.identityregistry.model.data.RevokedCertificate;
+import net.maritimeconnectivity.identityregistry.model.database.Certificate;
+import net.maritimeconnectivity.identityregistry.utils.CertificateUtil;
+import net.maritimeconnectivity.pki.CertificateHandler;
+import net.maritimeconnectivity.pki.pkcs11.P11PKIConfiguration;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.AuthProvider;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@Slf4j
+public class RevocationServiceImpl implements RevocationService {
+
+    private final Map<String, CachedCrl> crls = new ConcurrentHashMap<>();
+
+    // CA alias -> serial number -> time in milliseconds at which the revocation takes effect
+    private final Map<String, Map<BigInteger, Long>> revokedSerials = new ConcurrentHashMap<>();
+
+    private final Map<String, X500Principal> caSubjects = new ConcurrentHashMap<>();
+
+    private volatile long revokedSerialsLoadedAt;
+
+    private CertificateService certificateService;
+
+    private CertificateUtil certificateUtil;
+
+    @Value("${net.maritimeconnectivity.idreg.certs.crl-cache-max-age:3600}")
+    private long crlCacheMaxAge;
+
+    @Value("${net.maritimeconnectivity.idreg.certs.revoked-serials-max-age:60}")
+    private long revokedSerialsMaxAge;
+
+    @Autowired
+    public void setCertificateService(CertificateService certificateService) {
+        this.certificateService = certificateService;
+    }
+
+    @Autowired
+    public void setCertificateUtil(CertificateUtil certificateUtil) {
+        this.certificateUtil = certificateUtil;
+    }
+
+    @Override
+    public String getCrl(String caAlias) throws GeneralSecurityException, OperatorCreationException, IOException {
+        CachedCrl cached = crls.get(caAlias);
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.expiresAt > now) {
+            // Certificates may have been revoked on another instance, which only refreshes its own CRLs. This is checked
+            // at most as often as the revoked serial numbers are reloaded, so both lag behind other instances equally.
+            if (cached.versionCheckedAt + revokedSerialsMaxAge * 1000 > now) {
+                return cached.pem;
+            }
+            if (Objects.equals(cached.revocationVersion, certificateService.getRevocationVersion(caAlias))) {
+                cached.versionCheckedAt = now;
+                return cached.pem;
+            }
+        }
+        return regenerateCrl(caAlias);
+    }
+
+    @Override
+    public void refresh(String caAlias) {
+        if (caAlias == null || caAlias.equals(certificateUtil.getRootCAAlias())) {
+            return;
+        }
+        reloadRevokedSerials(caAlias);
+        try {
+            regenerateCrl(caAlias);
+        } catch (GeneralSecurityException | OperatorCreationException | IOException | RuntimeException e) {
+            // make sure that the next request generates a new CRL instead of serving the outdated one
+            crls.remove(caAlias);
+            log.error("Could not regenerate CRL for " + caAlias, e);
+        }
+    }
+
+    @Override
+    public boolean isRevoked(X500Principal issuer, BigInteger serialNumber) {
+        if (revokedSerialsLoadedAt + revokedSerialsMaxAge * 1000 < System.currentTimeMillis()) {
+            reloadRevokedSerials();
+        }
+        for (Map.Entry<String, Map<BigInteger, Long>> entry : revokedSerials.entrySet()) {
+            Long revokedAt = entry.getValue().get(serialNumber);
+            if (revokedAt != null && issuer.equals(getCaSubject(entry.getKey()))) {
+                return revokedAt <= System.currentTimeMillis();
+            }
+        }
+        return false;
+    }
+
+    private synchronized void reloadRevokedSerials() {
+        // another thread may have reloaded while this one was waiting
+        if (revokedSerialsLoadedAt + revokedSerialsMaxAge * 1000 >= System.currentTimeMillis()) {
+            return;
+        }
+        Map<String, Map<BigInteger, Long>> loaded = new HashMap<>();
+        for (RevokedCertificate cert : certificateService.listUnexpiredRevokedCertificates()) {
+            loaded.computeIfAbsent(cert.getCertificateAuthority(), ca -> new HashMap<>())
+                    .put(cert.getSerialNumber(), revokedAt(cert));
+        }
+        revokedSerials.keySet().retainAll(loaded.keySet());
+        revokedSerials.putAll(loaded);
+        revokedSerialsLoadedAt = System.currentTimeMillis();
+    }
+
+    private void reloadRevokedSerials(String caAlias) {
+        try {
+            Map<BigInteger, Long> loaded = new HashMap<>();
+            for (RevokedCertificate cert : certificateService.listUnexpiredRevokedCertificates(caAlias)) {
+                loaded.put(cert.getSerialNumber(), revokedAt(cert));
+            }
+            revokedSerials.put(caAlias, loaded);
+        } catch (RuntimeException e) {
+            // force a full reload on the next check rather than accepting certificates that may have been revoked
+            revokedSerialsLoadedAt = 0;
+            log.error("Could not reload the revoked serial numbers of " + caAlias, e);
+        }
+    }
+
+    private static long revokedAt(RevokedCertificate cert) {
+        return cert.getRevokedAt() != null ? cert.getRevokedAt().getTime() : 0;
+    }
+
+    private X500Principal getCaSubject(String caAlias) {
+        return caSubjects.computeIfAbsent(caAlias, alias -> {
+            X509Certificate caCert = (X509Certificate) certificateUtil.getKeystoreHandler().getMCPCertificate(alias);
+            return caCert != null ? caCert.getSubjectX500Principal() : null;
+        });
+    }
+
+    private synchronized String regenerateCrl(String caAlias) throws GeneralSecurityException, OperatorCreationException, IOException {
+        // Read before the revoked certificates, so that a revocation in between makes the next request regenerate
+        String revocationVersion = certificateService.getRevocationVersion(caAlias);
+        List<Certificate> revokedCerts = certificateService.listRevokedCertificate(caAlias);
+        AuthProvider provider = null;
+        P11PKIConfiguration p11PKIConfiguration = null;
+        if (certificateUtil.getPkiConfiguration() instanceof P11PKIConfiguration) {
+            p11PKIConfiguration = (P11PKIConfiguration) certificateUtil.getPkiConfiguration();
+            provider = p11PKIConfiguration.getProvider();
+            p11PKIConfiguration.providerLogin();
+        }
+        X509CRL crl;
+        try {
+            crl = certificateUtil.generateCRL(revokedCerts, caAlias, provider);
+        } finally {
+            if (p11PKIConfiguration != null) {
+                p11PKIConfiguration.providerLogout();
+            }
+        }
+        String pem = CertificateHandler.getPemFromEncoded("X509 CRL", crl.getEncoded());
+
+        // The CRL must be regenerated when it expires, or when a revocation that was scheduled for later takes effect
+        long expiresAt = System.currentTimeMillis() + crlCacheMaxAge * 1000;
+        if (crl.getNextUpdate() != null) {
+            expiresAt = Math.min(expiresAt, crl.getNextUpdate().getTime());
+        }
+        Date nextRevocation = certificateService.getNextScheduledRevocation(caAlias);
+        if (nextRevocation != null) {
+            expiresAt = Math.min(expiresAt, nextRevocation.getTime());
+        }
+        crls.put(caAlias, new CachedCrl(pem, expiresAt, revocationVersion));
+        return pem;
+    }
+
+    private static class CachedCrl {
+        private final String pem;
+        private final long expiresAt;
+        private final String revocationVersion;
+        private volatile long versionCheckedAt;
+
+        CachedCrl(String pem, long expiresAt, String revocationVersion) {
+            this.pem = pem;
+            this.expiresAt = expiresAt;
+            this.revocationVersion = revocationVersion;
+            this.versionCheckedAt = System.currentTimeMillis();
+        }
+    }
+}
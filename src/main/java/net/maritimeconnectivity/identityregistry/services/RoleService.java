@@ -17,12 +17,32 @@ package net.maritimeconnectivity.identityregistry.services;
 
 import net.maritimeconnectivity.identityregistry.model.database.Role;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface RoleService extends BaseService<Role> {
 
     List<Role> getRolesByIdOrganizationAndPermission(Long idOrganization, String permissions);
 
+    /**
+     * Resolves the given permissions to the names of the roles they map to in the organization. The result is
+     * cached per organization until the roles of the organization are changed.
+     *
+     * @param idOrganization the id of the organization
+     * @param permissions the permissions, where each element may be a comma separated list of permissions
+     * @return the distinct role names
+     */
+    List<String> getRoleNamesByIdOrganizationAndPermissions(Long idOrganization, Collection<String> permissions);
+
+    /**
+     * Resolves the given comma separated permissions to the names of the roles they map to in the organization
+     *
+     * @param idOrganization the id of the organization
+     * @param permissions the comma separated permissions
+     * @return the distinct role names
+     */
+    List<String> getRoleNamesByIdOrganizationAndPermissions(Long idOrganization, String permissions);
+
     List<Role> listFromOrg(Long id);
 
     void deleteByOrg(Long id);
@@ -15,40 +15,167 @@
  */
 package net.maritimeconnectivity.identityregistry.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.maritimeconnectivity.identityregistry.config.ReplicaRoutingDataSource;
+import net.maritimeconnectivity.identityregistry.model.data.PermissionSet;
 import net.maritimeconnectivity.identityregistry.model.database.Role;
 import net.maritimeconnectivity.identityregistry.repositories.RoleRepository;
+import net.maritimeconnectivity.identityregistry.utils.PermissionUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class RoleServiceImpl extends BaseServiceImpl<Role> implements RoleService {
 
+    public static final String CACHE_NAME = "roleNames";
+
     protected RoleRepository repository;
 
+    @Value("${net.maritimeconnectivity.idreg.role-cache.max-organizations:1000}")
+    private long roleCacheMaxOrganizations;
+
+    // Bounds how long other instances may use roles that have been changed elsewhere
+    @Value("${net.maritimeconnectivity.idreg.role-cache.ttl:300}")
+    private long roleCacheTtl;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    // organization id -> permission id -> role names
+    private Cache<Long, Map<Integer, List<String>>> roleNameCache;
+
     @Autowired
     public void setRoleRepository(RoleRepository roleRepository) {
         this.repository = roleRepository;
     }
 
+    @PostConstruct
+    public void setup() {
+        roleNameCache = Caffeine.newBuilder()
+                .maximumSize(roleCacheMaxOrganizations)
+                .expireAfterWrite(roleCacheTtl, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, roleNameCache, CACHE_NAME);
+        }
+        // Permissions of users and entities are only known if a role has been defined for them, so the permissions
+        // of the existing roles are registered before the first lookup
+        this.getRepository().findDistinctPermissions().forEach(PermissionUtil::register);
+    }
+
     @Override
     public List<Role> getRolesByIdOrganizationAndPermission(Long idOrganization, String permission) {
         return repository.findByIdOrganizationAndPermission(idOrganization, permission);
     }
 
+    @Override
+    public List<String> getRoleNamesByIdOrganizationAndPermissions(Long idOrganization, Collection<String> permissions) {
+        if (idOrganization == null) {
+            return Collections.emptyList();
+        }
+        // Parsing only keeps the permissions that are registered, so the roles of the organization, whose
+        // permissions are registered when they are loaded, have to be loaded before the permissions are parsed
+        Map<Integer, List<String>> orgRoles = getOrgRoles(idOrganization);
+        return getRoleNames(orgRoles, PermissionUtil.parse(permissions));
+    }
+
+    @Override
+    public List<String> getRoleNamesByIdOrganizationAndPermissions(Long idOrganization, String permissions) {
+        if (idOrganization == null) {
+            return Collections.emptyList();
+        }
+        Map<Integer, List<String>> orgRoles = getOrgRoles(idOrganization);
+        return getRoleNames(orgRoles, PermissionUtil.parse(permissions));
+    }
+
+    private Map<Integer, List<String>> getOrgRoles(Long idOrganization) {
+        // The roles are kept until the cache entry expires, so they must not be read from a lagging replica
+        return roleNameCache.get(idOrganization, id -> ReplicaRoutingDataSource.onPrimary(() -> loadRoleNames(id)));
+    }
+
+    private static List<String> getRoleNames(Map<Integer, List<String>> orgRoles, PermissionSet permissions) {
+        if (permissions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> roleNames = new LinkedHashSet<>();
+        permissions.ids().forEach(id -> roleNames.addAll(orgRoles.getOrDefault(id, Collections.emptyList())));
+        return new ArrayList<>(roleNames);
+    }
+
+    // Loads all roles of the organization with one query, keyed by the interned id of their permission
+    private Map<Integer, List<String>> loadRoleNames(Long idOrganization) {
+        Map<Integer, List<String>> roleNames = new HashMap<>();
+        for (Role role : this.getRepository().findByidOrganization(idOrganization)) {
+            int id = PermissionUtil.register(role.getPermission());
+            if (id >= 0) {
+                roleNames.computeIfAbsent(id, i -> new ArrayList<>()).add(role.getRoleName());
+            }
+        }
+        return roleNames;
+    }
+
     public List<Role> listFromOrg(Long id) {
         return this.getRepository().findByidOrganization(id);
     }
 
+    @Override
+    @Transactional
+    public Role save(Role role) {
+        Role saved = super.save(role);
+        PermissionUtil.register(saved.getPermission());
+        evict(saved.getIdOrganization());
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public void delete(Long id) {
+        this.getRepository().findById(id).ifPresent(role -> evict(role.getIdOrganization()));
+        super.delete(id);
+    }
+
     @Transactional
     public void deleteByOrg(Long id) {
         this.getRepository().deleteByidOrganization(id);
+        evict(id);
     }
 
     public RoleRepository getRepository() {
         return this.repository;
     }
 
+    // Evicts right away and again after commit, so that a lookup made before the commit cannot keep the old roles cached
+    private void evict(Long idOrganization) {
+        if (idOrganization == null) {
+            return;
+        }
+        roleNameCache.invalidate(idOrganization);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    roleNameCache.invalidate(idOrganization);
+                }
+            });
+        }
+    }
 }
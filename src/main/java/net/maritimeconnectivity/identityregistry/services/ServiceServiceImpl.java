@@ -15,6 +15,7 @@
  */
 package net.maritimeconnectivity.identityregistry.services;
 
+import net.maritimeconnectivity.identityregistry.model.database.entities.EntityModel;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Service;
 import net.maritimeconnectivity.identityregistry.repositories.ServiceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,23 +29,26 @@ import java.util.Optional;
 @org.springframework.stereotype.Service
 public class ServiceServiceImpl extends EntityServiceImpl<Service> implements ServiceService {
 
+    private ServiceRepository serviceRepository;
+
     @Autowired
-    private ServiceRepository repository;
+    public void setServiceRepository(ServiceRepository serviceRepository) {
+        this.serviceRepository = serviceRepository;
+        this.repository = serviceRepository;
+    }
 
     @Override
     public Page<Service> listPageFromOrg(Long orgId, Pageable pageable) {
-        Page<Service> ret = repository.findByidOrganization(orgId, pageable);
-        return this.filterResult(ret);
+        return serviceRepository.findByidOrganization(orgId, pageable);
     }
 
     @Override
     public List<Service> listAllFromOrg(Long id) {
-        List<Service> ret = repository.findByidOrganization(id);
-        return this.filterResult(ret);
+        return serviceRepository.findByidOrganization(id);
     }
 
     public Service getServiceByMrnAndVersion(String mrn, String version) {
-        return repository.getByMrnIgnoreCaseAndInstanceVersion(mrn, version);
+        return serviceRepository.getByMrnLowerAndInstanceVersion(EntityModel.toLowerCaseMrn(mrn), version);
     }
 
     public Service getByMrn(String mrn) {
@@ -52,32 +56,40 @@ public class ServiceServiceImpl extends EntityServiceImpl<Service> implements Se
     }
 
     public Page<Service> getServicesByMrn(String mrn, Pageable pageable) {
-        Page<Service> ret = repository.findByMrnIgnoreCase(mrn, pageable);
-        return this.filterResult(ret);
+        return serviceRepository.findByMrnLower(EntityModel.toLowerCaseMrn(mrn), pageable);
     }
 
     @Transactional
     @Override
     public void deleteByOrg(Long id) {
-        repository.deleteByidOrganization(id);
+        serviceRepository.deleteByidOrganization(id);
     }
 
     @Override
     @Transactional
     public Service save(Service service) {
-        return repository.save(service);
+        return serviceRepository.save(service);
     }
 
     @Override
     @Transactional
     public void delete(Long id) {
-        repository.deleteById(id);
+        serviceRepository.deleteById(id);
+    }
+
+    // The vessel is exported with the service, so it is detached with it
+    @Override
+    protected void detach(Service service) {
+        super.detach(service);
+        if (service.getVessel() != null) {
+            entityManager.detach(service.getVessel());
+        }
     }
 
     @Override
     public Service getById(Long id) {
-        Optional<Service> ret = repository.findById(id);
-        return filterResult(ret.orElse(null));
+        Optional<Service> ret = serviceRepository.findById(id);
+        return ret.orElse(null);
     }
 
 }
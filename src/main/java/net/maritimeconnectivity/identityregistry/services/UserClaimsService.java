@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import net.maritimeconnectivity.identityregistry.model.data.UserClaims;
+
+/**
+ * Looks up the roles and agent relationships of users when they log in, cached per user
+ */
+public interface UserClaimsService {
+
+    /**
+     * Returns the claims of the user with the given MRN. A user that does not exist gets ROLE_USER and no
+     * organizations to act on behalf of.
+     */
+    UserClaims getClaims(String userMrn);
+
+    /**
+     * Removes the cached claims of the user with the given MRN, e.g. when its permissions have changed
+     */
+    void evictByMrn(String userMrn);
+
+    /**
+     * Removes the cached claims of the users of the given organization, e.g. when its roles have changed
+     */
+    void evictByOrganization(Long orgId);
+
+    /**
+     * Removes all cached claims, e.g. when an agent has been changed
+     */
+    void evictAll();
+}
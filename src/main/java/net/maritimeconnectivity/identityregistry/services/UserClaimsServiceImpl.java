@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.maritimeconnectivity.identityregistry.config.ReplicaRoutingDataSource;
+import net.maritimeconnectivity.identityregistry.model.data.UserClaims;
+import net.maritimeconnectivity.identityregistry.model.database.entities.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class UserClaimsServiceImpl implements UserClaimsService {
+
+    private EntityService<User> userService;
+
+    private RoleService roleService;
+
+    private AgentDelegationService agentDelegationService;
+
+    @Value("${net.maritimeconnectivity.idreg.user-claims-cache.max-size:10000}")
+    private long maxSize;
+
+    // Bounds how long other instances may use claims of users that have been changed elsewhere
+    @Value("${net.maritimeconnectivity.idreg.user-claims-cache.ttl:300}")
+    private long ttl;
+
+    // lower case user MRN -> claims
+    private Cache<String, CachedClaims> cache;
+
+    @AllArgsConstructor
+    @Getter
+    private static class CachedClaims {
+        private final UserClaims claims;
+        private final Long orgId;
+    }
+
+    @Autowired
+    public void setUserService(EntityService<User> userService) {
+        this.userService = userService;
+    }
+
+    @Autowired
+    public void setRoleService(RoleService roleService) {
+        this.roleService = roleService;
+    }
+
+    @Autowired
+    public void setAgentDelegationService(AgentDelegationService agentDelegationService) {
+        this.agentDelegationService = agentDelegationService;
+    }
+
+    @PostConstruct
+    public void setup() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    public UserClaims getClaims(String userMrn) {
+        String key = userMrn.toLowerCase(Locale.ROOT);
+        CachedClaims cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached.getClaims();
+        }
+        // The claims are kept until the cache entry expires, so they must not be read from a lagging replica
+        return ReplicaRoutingDataSource.onPrimary(() -> loadClaims(userMrn, key));
+    }
+
+    private UserClaims loadClaims(String userMrn, String key) {
+        User user = userService.getByMrn(userMrn);
+        if (user == null) {
+            // Not cached as the user is usually created by the user sync right after
+            return new UserClaims(Collections.singletonList("ROLE_USER"), Collections.emptyList());
+        }
+        List<String> roles = Collections.singletonList("ROLE_USER");
+        if (user.getPermissions() != null) {
+            roles = roleService.getRoleNamesByIdOrganizationAndPermissions(user.getIdOrganization(), user.getPermissions());
+        }
+        UserClaims claims = new UserClaims(Collections.unmodifiableList(roles),
+                Collections.unmodifiableList(agentDelegationService.getOrgMrnsActedOnBehalfOf(user.getIdOrganization())));
+        cache.put(key, new CachedClaims(claims, user.getIdOrganization()));
+        return claims;
+    }
+
+    @Override
+    public void evictByMrn(String userMrn) {
+        if (userMrn != null) {
+            cache.invalidate(userMrn.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    @Override
+    public void evictByOrganization(Long orgId) {
+        if (orgId != null) {
+            cache.asMap().values().removeIf(cached -> orgId.equals(cached.getOrgId()));
+        }
+    }
+
+    @Override
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+}
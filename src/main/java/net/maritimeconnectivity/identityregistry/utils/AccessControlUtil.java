@@ -16,10 +16,9 @@
 package net.maritimeconnectivity.identityregistry.utils;
 
 import lombok.extern.slf4j.Slf4j;
-import net.maritimeconnectivity.identityregistry.model.database.Agent;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
 import net.maritimeconnectivity.identityregistry.model.database.entities.User;
-import net.maritimeconnectivity.identityregistry.services.AgentService;
+import net.maritimeconnectivity.identityregistry.services.AgentDelegationService;
 import net.maritimeconnectivity.identityregistry.services.EntityService;
 import net.maritimeconnectivity.identityregistry.services.OrganizationService;
 import org.keycloak.KeycloakSecurityContext;
@@ -52,7 +51,7 @@ public class AccessControlUtil {
     private OrganizationService organizationService;
 
     @Autowired
-    private AgentService agentService;
+    private AgentDelegationService agentDelegationService;
 
     @Autowired
     private EntityService<User> userService;
@@ -85,14 +84,9 @@ public class AccessControlUtil {
                     log.debug("Entity from org: " + otherClaims.get(AccessControlUtil.ORG_PROPERTY_NAME) + " is in " + orgMrn);
                     return true;
                 }
-                Organization organization = organizationService.getOrganizationByMrnNoFilter(orgMrn);
-                Organization agentOrganization = organizationService.getOrganizationByMrnNoFilter(org);
-                if (organization != null && agentOrganization != null) {
-                    List<Agent> agents = agentService.getAgentsByIdOnBehalfOfOrgAndIdActingOrg(organization.getId(), agentOrganization.getId());
-                    if (!agents.isEmpty()) {
-                        log.debug("Entity from org: " + org + " is an agent for " + orgMrn);
-                        return true;
-                    }
+                if (agentDelegationService.isAgentFor(org, orgMrn)) {
+                    log.debug("Entity from org: " + org + " is an agent for " + orgMrn);
+                    return true;
                 }
             }
             log.debug("Entity from org: " + otherClaims.get(AccessControlUtil.ORG_PROPERTY_NAME) + " is not in " + orgMrn);
@@ -108,14 +102,9 @@ public class AccessControlUtil {
                 log.debug("Entity with O=" + certOrgMrn + " is in " + orgMrn);
                 return true;
             }
-            Organization organization = organizationService.getOrganizationByMrnNoFilter(orgMrn);
-            Organization agentOrganization = organizationService.getOrganizationByMrnNoFilter(certOrgMrn);
-            if (organization != null && agentOrganization != null) {
-                List<Agent> agents = agentService.getAgentsByIdOnBehalfOfOrgAndIdActingOrg(organization.getId(), agentOrganization.getId());
-                if (!agents.isEmpty()) {
-                    log.debug("Entity with O=" + certOrgMrn + " is an agent for " + orgMrn);
-                    return true;
-                }
+            if (agentDelegationService.isAgentFor(certOrgMrn, orgMrn)) {
+                log.debug("Entity with O=" + certOrgMrn + " is an agent for " + orgMrn);
+                return true;
             }
             log.debug("Entity with O=" + certOrgMrn + " is not in " + orgMrn);
         } else {
@@ -172,6 +161,7 @@ public class AccessControlUtil {
         return false;
     }
 
+    @SuppressWarnings("unchecked")
     public static boolean hasPermission(String permission) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth instanceof KeycloakAuthenticationToken) {
@@ -180,14 +170,14 @@ public class AccessControlUtil {
             KeycloakAuthenticationToken kat = (KeycloakAuthenticationToken) auth;
             KeycloakSecurityContext ksc = (KeycloakSecurityContext) kat.getCredentials();
             Map<String, Object> otherClaims = ksc.getToken().getOtherClaims();
-            if (otherClaims.containsKey(AccessControlUtil.PERMISSIONS_PROPERTY_NAME)) {
-                String usersPermissions = (String) otherClaims.get(AccessControlUtil.PERMISSIONS_PROPERTY_NAME);
-                String[] permissionList = usersPermissions.split(",");
-                for (String per : permissionList) {
-                    if (per.equalsIgnoreCase(permission)) {
-                        return true;
-                    }
-                }
+            Object usersPermissions = otherClaims.get(AccessControlUtil.PERMISSIONS_PROPERTY_NAME);
+            // The permission is given by the caller, so it is registered before the permissions of the user are parsed
+            int permissionId = PermissionUtil.register(permission);
+            // The permissions claim is a list of permissions, but may also be given as a comma separated string
+            if (usersPermissions instanceof Collection) {
+                return PermissionUtil.parse((Collection<String>) usersPermissions).contains(permissionId);
+            } else if (usersPermissions instanceof String) {
+                return PermissionUtil.parse((String) usersPermissions).contains(permissionId);
             }
         } else if (auth instanceof PreAuthenticatedAuthenticationToken) {
             log.debug("Certificate permission lookup");
@@ -195,14 +185,10 @@ public class AccessControlUtil {
             PreAuthenticatedAuthenticationToken token = (PreAuthenticatedAuthenticationToken) auth;
             // Check that the permission is granted to this user
             InetOrgPerson person = ((InetOrgPerson) token.getPrincipal());
-            Collection<GrantedAuthority> authorities = person.getAuthorities();
-            for (GrantedAuthority authority : authorities) {
-                String usersPermissions = authority.getAuthority();
-                String[] permissionList = usersPermissions.split(",");
-                for (String per : permissionList) {
-                    if (per.equalsIgnoreCase(permission)) {
-                        return true;
-                    }
+            int permissionId = PermissionUtil.register(permission);
+            for (GrantedAuthority authority : person.getAuthorities()) {
+                if (PermissionUtil.parse(authority.getAuthority()).contains(permissionId)) {
+                    return true;
                 }
             }
         } else {
@@ -226,8 +212,12 @@ public class AccessControlUtil {
     }
 
     public boolean hasAnyRoles(List<String> roles) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null) {
+            return false;
+        }
         for (String lookingForRole : roles) {
-            if (lookingForRole != null && this.hasRole(lookingForRole)) {
+            if (lookingForRole != null && hasRoleUtil.hasRole(auth.getAuthorities(), lookingForRole)) {
                 return true;
             }
         }
@@ -235,15 +225,13 @@ public class AccessControlUtil {
     }
 
     public boolean hasRole(String role) {
-        try {
-            // If the user does not have the role (or a role that is above it in the role hierarchy)
-            // an exception will be thrown by Spring Security.
-            hasRoleUtil.testRole(role);
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        // The user has the role if it has been given the role or a role that is above it in the role hierarchy
+        if (auth != null && hasRoleUtil.hasRole(auth.getAuthorities(), role)) {
             log.debug("user has role " + role);
             return true;
-        } catch (Exception ade) {
-            log.debug("user does not have role " + role);
-            return false;
         }
+        log.debug("user does not have role " + role);
+        return false;
     }
 }
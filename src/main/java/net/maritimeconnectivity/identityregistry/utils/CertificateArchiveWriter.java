@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes certificates one at a time to an output stream as either a ZIP archive of PEM files or a single
+ * certs-only PKCS#7 bundle, so that nothing but the current certificate has to be held in memory. If writing fails or
+ * the writer is aborted, closing it leaves the archive unfinished, so that a partial export cannot be mistaken for a
+ * complete one.
+ */
+public abstract class CertificateArchiveWriter implements Closeable {
+    public static final String FORMAT_ZIP = "zip";
+    public static final String FORMAT_PKCS7 = "pkcs7";
+
+    protected final OutputStream out;
+
+    private boolean aborted;
+
+    protected CertificateArchiveWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Returns a writer for the given format, or null if the format is not supported
+     */
+    public static CertificateArchiveWriter forFormat(String format, OutputStream out) throws IOException {
+        if (FORMAT_ZIP.equalsIgnoreCase(format)) {
+            return new Zip(out);
+        } else if (FORMAT_PKCS7.equalsIgnoreCase(format)) {
+            return new Pkcs7(out);
+        }
+        return null;
+    }
+
+    public static String getContentType(String format) {
+        return FORMAT_PKCS7.equalsIgnoreCase(format) ? "application/pkcs7-mime" : "application/zip";
+    }
+
+    public static String getFileExtension(String format) {
+        return FORMAT_PKCS7.equalsIgnoreCase(format) ? "p7b" : "zip";
+    }
+
+    /**
+     * Writes a certificate as it is stored in the database, where line breaks may have been escaped
+     */
+    public void write(BigInteger serialNumber, String pemCertificate) throws IOException {
+        if (aborted) {
+            throw new IOException("The archive has been aborted");
+        }
+        try {
+            writeCertificate(serialNumber, pemCertificate);
+        } catch (IOException | RuntimeException e) {
+            aborted = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Marks the archive as failed, so that it is not finished when the writer is closed
+     */
+    public void abort() {
+        aborted = true;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!aborted) {
+            finish();
+        }
+    }
+
+    protected abstract void writeCertificate(BigInteger serialNumber, String pemCertificate) throws IOException;
+
+    /**
+     * Writes what ends the archive after the last certificate
+     */
+    protected abstract void finish() throws IOException;
+
+    protected static String normalizePem(String pemCertificate) {
+        return pemCertificate.replace("\\n", "\n").trim() + "\n";
+    }
+
+    protected static byte[] pemToDer(String pemCertificate) {
+        StringBuilder base64 = new StringBuilder();
+        for (String line : normalizePem(pemCertificate).split("\n")) {
+            if (!line.startsWith("-----")) {
+                base64.append(line.trim());
+            }
+        }
+        return Base64.getDecoder().decode(base64.toString());
+    }
+
+    private static class Zip extends CertificateArchiveWriter {
+        private final ZipOutputStream zip;
+
+        Zip(OutputStream out) {
+            super(out);
+            this.zip = new ZipOutputStream(out);
+        }
+
+        @Override
+        protected void writeCertificate(BigInteger serialNumber, String pemCertificate) throws IOException {
+            zip.putNextEntry(new ZipEntry(serialNumber.toString() + ".pem"));
+            zip.write(normalizePem(pemCertificate).getBytes(StandardCharsets.US_ASCII));
+            zip.closeEntry();
+        }
+
+        @Override
+        protected void finish() throws IOException {
+            zip.finish();
+            zip.flush();
+        }
+    }
+
+    /**
+     * PKCS#7 SignedData without signers (RFC 2315 section 9.1). The number of certificates is not known in advance,
+     * so the enclosing structures are BER encoded with indefinite lengths and the certificates are copied as is.
+     */
+    private static class Pkcs7 extends CertificateArchiveWriter {
+        private static final byte[] HEADER = {
+                0x30, (byte) 0x80, // ContentInfo
+                0x06, 0x09, 0x2A, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xF7, 0x0D, 0x01, 0x07, 0x02, // signedData
+                (byte) 0xA0, (byte) 0x80, // [0] content
+                0x30, (byte) 0x80, // SignedData
+                0x02, 0x01, 0x01, // version
+                0x31, 0x00, // digestAlgorithms
+                0x30, 0x0B, 0x06, 0x09, 0x2A, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xF7, 0x0D, 0x01, 0x07, 0x01, // contentInfo of type data
+                (byte) 0xA0, (byte) 0x80 // [0] certificates
+        };
+        private static final byte[] TRAILER = {
+                0x00, 0x00, // end of certificates
+                0x31, 0x00, // signerInfos
+                0x00, 0x00, // end of SignedData
+                0x00, 0x00, // end of content
+                0x00, 0x00  // end of ContentInfo
+        };
+
+        Pkcs7(OutputStream out) throws IOException {
+            super(out);
+            out.write(HEADER);
+        }
+
+        @Override
+        protected void writeCertificate(BigInteger serialNumber, String pemCertificate) throws IOException {
+            out.write(pemToDer(pemCertificate));
+        }
+
+        @Override
+        protected void finish() throws IOException {
+            out.write(TRAILER);
+            out.flush();
+        }
+    }
+}
@@ -18,20 +18,91 @@ package net.maritimeconnectivity.identityregistry.utils;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.maritimeconnectivity.identityregistry.model.database.Certificate;
 import net.maritimeconnectivity.pki.CertificateBuilder;
 import net.maritimeconnectivity.pki.KeystoreHandler;
 import net.maritimeconnectivity.pki.PKIConfiguration;
+import net.maritimeconnectivity.pki.PKIConstants;
+import net.maritimeconnectivity.pki.Revocation;
 import net.maritimeconnectivity.pki.pkcs11.P11PKIConfiguration;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERTaggedObject;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.bouncycastle.asn1.edec.EdECObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.X500NameBuilder;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.CRLNumber;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CRLConverter;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v2CRLBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.OCSPException;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
 
 @Component
 @Slf4j
 @NoArgsConstructor
 public class CertificateUtil {
 
+    // How long a generated CRL is valid before relying parties should fetch a new one
+    private static final long CRL_VALIDITY_MS = 24L * 60 * 60 * 1000;
+
+    // Lower case country names and codes -> ISO 3166 alpha-2 code
+    private static final Map<String, String> COUNTRY_CODES = buildCountryCodes();
+
     // Values below are loaded from application.test
     @Value("${net.maritimeconnectivity.idreg.certs.sub-ca-keystore-path}")
     private String subCaKeystorePath;
@@ -101,12 +172,25 @@ public class CertificateUtil {
     @Value("${net.maritimeconnectivity.idreg.certs.validity-period.mms}")
     private int validityPeriodForMms;
 
+    @Value("${net.maritimeconnectivity.idreg.certs.short-lived.validity-period.device:0}")
+    private int shortLivedValidityPeriodForDevice;
+
+    @Value("${net.maritimeconnectivity.idreg.certs.short-lived.validity-period.service:0}")
+    private int shortLivedValidityPeriodForService;
+
+    @Getter
+    @Value("${net.maritimeconnectivity.idreg.certs.short-lived.max-validity-period:168}")
+    private int maxShortLivedValidityPeriod;
+
     @Getter
     @Value("${net.maritimeconnectivity.idreg.certs.enable-server-generated-keys:false}")
     private boolean enableServerGeneratedKeys;
 
     @PostConstruct
     public void setup() {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
         if (isUsingPKCS11) {
             pkiConfiguration = new P11PKIConfiguration(rootCAAlias, pkcs11ConfigFile, pkcs11Pin);
             pkiConfiguration.setTruststorePath(truststorePath);
@@ -141,4 +225,285 @@ public class CertificateUtil {
                 return -1;
         }
     }
+
+    /**
+     * Returns the default validity period in hours of short-lived certificates for the given type.
+     * Short-lived certificates can only be issued to entities that are able to renew their certificates
+     * automatically, so for any other type or if not configured 0 is returned.
+     *
+     * @param type the entity type
+     * @return the validity period in hours, or 0 if certificates should not be short-lived by default
+     */
+    public int getShortLivedValidityPeriod(String type) {
+        switch (type) {
+            case "device":
+                return shortLivedValidityPeriodForDevice;
+            case "service":
+                return shortLivedValidityPeriodForService;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Returns whether short-lived certificates can be issued for the given type
+     *
+     * @param type the entity type
+     * @return true if short-lived certificates are supported for the type
+     */
+    public static boolean supportsShortLived(String type) {
+        return "device".equals(type) || "service".equals(type);
+    }
+
+    /**
+     * Returns the name of the signature algorithm that should be used when signing with the private key that belongs
+     * to the given public key. RSA keys use SHA256withRSA, EC keys use an ECDSA variant with a digest matching the
+     * size of the curve, and EdDSA keys use Ed25519 or Ed448.
+     *
+     * @param publicKey the public key of the signing CA
+     * @return the JCA name of the signature algorithm
+     */
+    public static String getSignatureAlgorithm(PublicKey publicKey) {
+        if (publicKey instanceof RSAPublicKey) {
+            return "SHA256withRSA";
+        }
+        if (publicKey instanceof ECPublicKey) {
+            int fieldSize = ((ECPublicKey) publicKey).getParams().getCurve().getField().getFieldSize();
+            if (fieldSize <= 256) {
+                return "SHA256withECDSA";
+            } else if (fieldSize <= 384) {
+                return "SHA384withECDSA";
+            }
+            return "SHA512withECDSA";
+        }
+        // EdDSA keys don't have a common interface in Java 8, so we look at the algorithm of the encoded key instead
+        ASN1ObjectIdentifier keyAlgorithm = SubjectPublicKeyInfo.getInstance(publicKey.getEncoded()).getAlgorithm().getAlgorithm();
+        if (EdECObjectIdentifiers.id_Ed25519.equals(keyAlgorithm)) {
+            return "Ed25519";
+        } else if (EdECObjectIdentifiers.id_Ed448.equals(keyAlgorithm)) {
+            return "Ed448";
+        }
+        throw new IllegalArgumentException("Unsupported signing key algorithm: " + publicKey.getAlgorithm());
+    }
+
+    /**
+     * Builds a content signer for the given signing entry using the signature algorithm that matches its key type
+     *
+     * @param signingEntry the private key entry of the signing CA
+     * @param provider the PKCS#11 provider, or null if the BouncyCastle provider should be used
+     * @return a content signer
+     * @throws OperatorCreationException if the signer could not be created
+     */
+    public static ContentSigner buildContentSigner(KeyStore.PrivateKeyEntry signingEntry, Provider provider) throws OperatorCreationException {
+        JcaContentSignerBuilder signerBuilder = new JcaContentSignerBuilder(getSignatureAlgorithm(signingEntry.getCertificate().getPublicKey()));
+        if (provider != null) {
+            signerBuilder.setProvider(provider);
+        } else {
+            signerBuilder.setProvider(BouncyCastleProvider.PROVIDER_NAME);
+        }
+        return signerBuilder.build(signingEntry.getPrivateKey());
+    }
+
+    private KeyStore.PrivateKeyEntry getSigningEntry(String caAlias) throws GeneralSecurityException {
+        KeyStore.PrivateKeyEntry signingEntry = keystoreHandler.getSigningCertEntry(caAlias);
+        if (signingEntry == null) {
+            throw new GeneralSecurityException("No signing key found for CA " + caAlias);
+        }
+        return signingEntry;
+    }
+
+    /**
+     * Generates a certificate for an entity, signed by the CA with the given alias. The signature algorithm is
+     * chosen based on the key type of the CA, so both RSA, EC and EdDSA sub CAs are supported.
+     *
+     * @param serialNumber the serial number of the certificate
+     * @param country the country of the organization of the entity
+     * @param orgName the MRN of the organization of the entity
+     * @param type the entity type
+     * @param callName the name of the entity
+     * @param email the email of the entity, can be empty
+     * @param uid the MRN of the entity
+     * @param validityPeriod the validity period of the certificate in months
+     * @param publicKey the public key of the entity
+     * @param customAttr special MCP attributes that are put in the subject alternative name extension
+     * @param signingAlias the alias of the signing CA
+     * @param authProvider the PKCS#11 provider, or null if not using an HSM
+     * @return the signed certificate
+     */
+    public X509Certificate generateCertForEntity(BigInteger serialNumber, String country, String orgName, String type, String callName, String email, String uid, int validityPeriod, PublicKey publicKey, Map<String, String> customAttr, String signingAlias, Provider authProvider) throws GeneralSecurityException, OperatorCreationException, IOException {
+        KeyStore.PrivateKeyEntry signingEntry = getSigningEntry(signingAlias);
+        ContentSigner signer = buildContentSigner(signingEntry, authProvider);
+        Calendar cal = Calendar.getInstance();
+        Date notBefore = cal.getTime();
+        cal.add(Calendar.MONTH, validityPeriod);
+        Date notAfter = cal.getTime();
+        return buildEntityCertificate(serialNumber, country, orgName, type, callName, email, uid, notBefore, notAfter, publicKey, customAttr,
+                (X509Certificate) signingEntry.getCertificate(), signer, baseCrlOcspCrlURI + "crl/" + signingAlias, baseCrlOcspCrlURI + "ocsp/" + signingAlias);
+    }
+
+    /**
+     * Generates a short-lived certificate for an entity. The certificate does not point to a CRL or OCSP responder
+     * and is marked with the noRevAvail extension (RFC 9608), as it is expected to expire before revocation
+     * information would have reached relying parties anyway.
+     *
+     * @param validityHours the validity period of the certificate in hours
+     * @return the signed certificate
+     * @see #generateCertForEntity(BigInteger, String, String, String, String, String, String, int, PublicKey, Map, String, Provider)
+     */
+    public X509Certificate generateShortLivedCertForEntity(BigInteger serialNumber, String country, String orgName, String type, String callName, String email, String uid, int validityHours, PublicKey publicKey, Map<String, String> customAttr, String signingAlias, Provider authProvider) throws GeneralSecurityException, OperatorCreationException, IOException {
+        KeyStore.PrivateKeyEntry signingEntry = getSigningEntry(signingAlias);
+        ContentSigner signer = buildContentSigner(signingEntry, authProvider);
+        Calendar cal = Calendar.getInstance();
+        Date notBefore = cal.getTime();
+        cal.add(Calendar.HOUR_OF_DAY, validityHours);
+        Date notAfter = cal.getTime();
+        return buildEntityCertificate(serialNumber, country, orgName, type, callName, email, uid, notBefore, notAfter, publicKey, customAttr,
+                (X509Certificate) signingEntry.getCertificate(), signer, null, null);
+    }
+
+    /**
+     * Returns the ISO 3166 alpha-2 code of a country, which may be given by its English name, its alpha-2 code or its
+     * alpha-3 code, as the C attribute of a certificate subject only allows the two letter code.
+     *
+     * @param country the name or code of the country
+     * @return the upper case alpha-2 code, or null if the country is not known
+     */
+    public static String getCountryCode(String country) {
+        if (country == null || country.trim().isEmpty()) {
+            return null;
+        }
+        return COUNTRY_CODES.get(country.trim().toLowerCase(Locale.ROOT));
+    }
+
+    private static Map<String, String> buildCountryCodes() {
+        Map<String, String> codes = new HashMap<>();
+        for (String code : Locale.getISOCountries()) {
+            Locale locale = new Locale("", code);
+            codes.put(code.toLowerCase(Locale.ROOT), code);
+            try {
+                codes.put(locale.getISO3Country().toLowerCase(Locale.ROOT), code);
+            } catch (MissingResourceException e) {
+                log.debug("No alpha-3 code for country {}", code);
+            }
+            codes.put(locale.getDisplayCountry(Locale.ENGLISH).toLowerCase(Locale.ROOT), code);
+        }
+        return Collections.unmodifiableMap(codes);
+    }
+
+    /**
+     * Builds and signs an entity certificate with the given signer. If neither a CRL nor an OCSP URI is given the
+     * certificate is marked as having no revocation information available. The subject and extensions are the same as
+     * those of the CertificateBuilder of mcp-pki, which is not used here as it always signs with the same algorithm.
+     *
+     * @param country the country of the organization of the entity, which must map to an ISO 3166 code
+     * @param crlUri the URI of the CRL of the signing CA
+     * @param ocspUri the URI of the OCSP responder of the signing CA
+     * @return the signed certificate
+     */
+    public static X509Certificate buildEntityCertificate(BigInteger serialNumber, String country, String orgName, String type, String callName, String email, String uid, Date notBefore, Date notAfter, PublicKey publicKey, Map<String, String> customAttr, X509Certificate signingCert, ContentSigner signer, String crlUri, String ocspUri) throws GeneralSecurityException, IOException {
+        X500NameBuilder subjectBuilder = new X500NameBuilder(BCStyle.INSTANCE);
+        String countryCode = getCountryCode(country);
+        if (countryCode == null) {
+            throw new IllegalArgumentException("No ISO 3166 country code found for '" + country + "'");
+        }
+        subjectBuilder
+                .addRDN(BCStyle.C, countryCode)
+                .addRDN(BCStyle.O, orgName)
+                .addRDN(BCStyle.OU, type)
+                .addRDN(BCStyle.CN, callName)
+                .addRDN(BCStyle.UID, uid);
+        if (email != null && !email.isEmpty()) {
+            subjectBuilder.addRDN(BCStyle.EmailAddress, email);
+        }
+        X500Name issuer = X500Name.getInstance(signingCert.getSubjectX500Principal().getEncoded());
+        X509v3CertificateBuilder certBuilder = new JcaX509v3CertificateBuilder(issuer, serialNumber, notBefore, notAfter, subjectBuilder.build(), publicKey);
+        JcaX509ExtensionUtils extensionUtils = new JcaX509ExtensionUtils();
+        certBuilder.addExtension(Extension.basicConstraints, true, new BasicConstraints(false));
+        certBuilder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.digitalSignature | KeyUsage.nonRepudiation | KeyUsage.keyEncipherment | KeyUsage.keyAgreement));
+        certBuilder.addExtension(Extension.subjectKeyIdentifier, false, extensionUtils.createSubjectKeyIdentifier(publicKey));
+        certBuilder.addExtension(Extension.authorityKeyIdentifier, false, extensionUtils.createAuthorityKeyIdentifier(signingCert));
+
+        if (customAttr != null && !customAttr.isEmpty()) {
+            List<GeneralName> altNames = new ArrayList<>();
+            for (Map.Entry<String, String> attr : customAttr.entrySet()) {
+                if (PKIConstants.X509_SAN_DNSNAME.equals(attr.getKey())) {
+                    altNames.add(new GeneralName(GeneralName.dNSName, attr.getValue()));
+                } else {
+                    ASN1Encodable[] otherName = {new ASN1ObjectIdentifier(attr.getKey()), new DERTaggedObject(true, 0, new DERUTF8String(attr.getValue()))};
+                    altNames.add(new GeneralName(GeneralName.otherName, new DERSequence(otherName)));
+                }
+            }
+            certBuilder.addExtension(Extension.subjectAlternativeName, false, new GeneralNames(altNames.toArray(new GeneralName[0])));
+        }
+
+        if (crlUri != null) {
+            DistributionPointName distributionPointName = new DistributionPointName(new GeneralNames(new GeneralName(GeneralName.uniformResourceIdentifier, crlUri)));
+            certBuilder.addExtension(Extension.cRLDistributionPoints, false, new CRLDistPoint(new DistributionPoint[]{new DistributionPoint(distributionPointName, null, null)}));
+        }
+        if (ocspUri != null) {
+            AccessDescription ocsp = new AccessDescription(AccessDescription.id_ad_ocsp, new GeneralName(GeneralName.uniformResourceIdentifier, ocspUri));
+            certBuilder.addExtension(Extension.authorityInfoAccess, false, new AuthorityInformationAccess(ocsp));
+        }
+
+        if (crlUri == null && ocspUri == null) {
+            certBuilder.addExtension(Extension.noRevAvail, false, DERNull.INSTANCE);
+        }
+
+        X509CertificateHolder certHolder = certBuilder.build(signer);
+        return new JcaX509CertificateConverter().setProvider(BouncyCastleProvider.PROVIDER_NAME).getCertificate(certHolder);
+    }
+
+    /**
+     * Generates a CRL for the CA with the given alias containing the given revoked certificates
+     *
+     * @param revokedCerts the revoked certificates
+     * @param caAlias the alias of the CA
+     * @param provider the PKCS#11 provider, or null if not using an HSM
+     * @return the signed CRL
+     */
+    public X509CRL generateCRL(List<Certificate> revokedCerts, String caAlias, Provider provider) throws GeneralSecurityException, OperatorCreationException, IOException {
+        KeyStore.PrivateKeyEntry signingEntry = getSigningEntry(caAlias);
+        X509Certificate caCert = (X509Certificate) signingEntry.getCertificate();
+        Date now = new Date();
+        X509v2CRLBuilder crlBuilder = new JcaX509v2CRLBuilder(caCert.getSubjectX500Principal(), now);
+        crlBuilder.setNextUpdate(new Date(now.getTime() + CRL_VALIDITY_MS));
+        for (Certificate cert : revokedCerts) {
+            crlBuilder.addCRLEntry(cert.getSerialNumber(), cert.getRevokedAt(), Revocation.getCRLReasonFromString(cert.getRevokeReason()));
+        }
+        crlBuilder.addExtension(Extension.authorityKeyIdentifier, false, new JcaX509ExtensionUtils().createAuthorityKeyIdentifier(caCert));
+        crlBuilder.addExtension(Extension.cRLNumber, false, new CRLNumber(BigInteger.valueOf(now.getTime())));
+        X509CRLHolder crlHolder = crlBuilder.build(buildContentSigner(signingEntry, provider));
+        return new JcaX509CRLConverter().setProvider(BouncyCastleProvider.PROVIDER_NAME).getCRL(crlHolder);
+    }
+
+    /**
+     * Signs an OCSP response with the key of the CA with the given alias
+     *
+     * @param respBuilder the OCSP response builder containing the statuses of the requested certificates
+     * @param caAlias the alias of the CA
+     * @param provider the PKCS#11 provider, or null if not using an HSM
+     * @return the signed OCSP response
+     */
+    public OCSPResp generateOCSPResponse(BasicOCSPRespBuilder respBuilder, String caAlias, Provider provider) throws GeneralSecurityException, OperatorCreationException, OCSPException {
+        KeyStore.PrivateKeyEntry signingEntry = getSigningEntry(caAlias);
+        X509CertificateHolder[] chain = {new JcaX509CertificateHolder((X509Certificate) signingEntry.getCertificate())};
+        BasicOCSPResp basicResp = respBuilder.build(buildContentSigner(signingEntry, provider), chain, new Date());
+        return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, basicResp);
+    }
+
+    /**
+     * Signs arbitrary data with the key of the CA with the given alias
+     *
+     * @param data the data to sign
+     * @param caAlias the alias of the CA
+     * @param provider the PKCS#11 provider, or null if not using an HSM
+     * @return the signature
+     */
+    public byte[] sign(byte[] data, String caAlias, Provider provider) throws GeneralSecurityException, OperatorCreationException, IOException {
+        ContentSigner signer = buildContentSigner(getSigningEntry(caAlias), provider);
+        try (OutputStream out = signer.getOutputStream()) {
+            out.write(data);
+        }
+        return signer.getSignature();
+    }
 }
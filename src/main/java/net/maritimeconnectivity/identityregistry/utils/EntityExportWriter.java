@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.hibernate.Hibernate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * Writes entities one at a time to an output stream as newline delimited JSON, where every line is an object with
+ * the type of the entity, e.g. "vessel", and the entity itself serialized as it is by the other endpoints.
+ * <p>
+ * Closing the writer ends the export with a line of the type "end" holding the number of entities written. A
+ * failed export can still end on a line boundary, so readers must check for that line before trusting the export.
+ * If the writer is aborted, closing it leaves out the end line.
+ */
+public class EntityExportWriter implements Closeable {
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+    public static final String END_TYPE = "end";
+
+    private final ObjectWriter objectWriter;
+    private final JsonGenerator generator;
+
+    private long count;
+    private boolean aborted;
+
+    public EntityExportWriter(ObjectWriter objectWriter, OutputStream out) throws IOException {
+        this.objectWriter = objectWriter;
+        this.generator = objectWriter.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Lines are separated by the new line written after each entity
+        this.generator.setRootValueSeparator(null);
+    }
+
+    public static String getType(Object entity) {
+        return Hibernate.getClass(entity).getSimpleName().toLowerCase(Locale.ROOT);
+    }
+
+    public void write(Object entity) throws IOException {
+        if (aborted) {
+            throw new IOException("The export has been aborted");
+        }
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("type", getType(entity));
+            generator.writeFieldName("entity");
+            objectWriter.writeValue(generator, entity);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            count++;
+        } catch (IOException | RuntimeException e) {
+            aborted = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Marks the export as failed, so that the end line is not written when the writer is closed
+     */
+    public void abort() {
+        aborted = true;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!aborted) {
+                generator.writeStartObject();
+                generator.writeStringField("type", END_TYPE);
+                generator.writeNumberField("count", count);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        } finally {
+            generator.close();
+        }
+    }
+}
@@ -16,17 +16,79 @@
 package net.maritimeconnectivity.identityregistry.utils;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * This class is only used to help AccessControlUtil detect if a user has a role
+ * This class is only used to help AccessControlUtil detect if a user has a role. The role hierarchy is expanded once
+ * into the set of roles reachable from each role, so a check is a couple of set lookups.
  */
 @Slf4j
 @Component
 public class HasRoleUtil {
-    @PreAuthorize("hasRole(#role)")
-    public void testRole(String role) {
-        log.debug("should have role: {}", role);
+
+    // See net.maritimeconnectivity.identityregistry.security.MultiSecurityConfig for the role hierarchy
+    public static final List<String> ROLES = Collections.unmodifiableList(Arrays.asList("ROLE_SITE_ADMIN",
+            "ROLE_ORG_ADMIN", "ROLE_ENTITY_ADMIN", "ROLE_USER_ADMIN", "ROLE_VESSEL_ADMIN", "ROLE_SERVICE_ADMIN",
+            "ROLE_DEVICE_ADMIN", "ROLE_MMS_ADMIN", "ROLE_APPROVE_ORG", "ROLE_USER"));
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private RoleHierarchy roleHierarchy;
+
+    // role -> the roles that it implies, including itself
+    private final Map<String, Set<String>> reachableRoles = new ConcurrentHashMap<>();
+
+    @Autowired
+    public void setRoleHierarchy(RoleHierarchy roleHierarchy) {
+        this.roleHierarchy = roleHierarchy;
+    }
+
+    @PostConstruct
+    public void setup() {
+        ROLES.forEach(this::getReachableRoles);
+    }
+
+    /**
+     * Returns whether the given authorities contain the role or a role that is above it in the role hierarchy.
+     * Like hasRole in Spring Security expressions the role may be given without the ROLE_ prefix.
+     */
+    public boolean hasRole(Collection<? extends GrantedAuthority> authorities, String role) {
+        if (authorities == null || role == null) {
+            return false;
+        }
+        String prefixedRole = role.startsWith(ROLE_PREFIX) ? role : ROLE_PREFIX + role;
+        for (GrantedAuthority authority : authorities) {
+            if (authority.getAuthority() != null && getReachableRoles(authority.getAuthority()).contains(prefixedRole)) {
+                log.debug("should have role: {}", role);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Roles that are not in the hierarchy, like ROLE_ANONYMOUS, are expanded when first seen
+    private Set<String> getReachableRoles(String role) {
+        return reachableRoles.computeIfAbsent(role, r -> {
+            Set<String> reachable = new HashSet<>();
+            for (GrantedAuthority authority : roleHierarchy.getReachableGrantedAuthorities(Collections.singletonList(new SimpleGrantedAuthority(r)))) {
+                reachable.add(authority.getAuthority());
+            }
+            reachable.add(r);
+            return Collections.unmodifiableSet(reachable);
+        });
     }
 }
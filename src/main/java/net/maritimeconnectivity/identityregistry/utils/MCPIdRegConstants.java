@@ -55,6 +55,15 @@ public class MCPIdRegConstants {
     public static final String VESSEL_IMAGE_ALREADY_EXISTS = "This vessel already has an image! Please update using PUT request.";
     public static final String MRN_IS_NOT_VALID = "The given MRN is not a valid MCP MRN";
     public static final String INVALID_MCP_TYPE = "The given type is not a valid MCP entity type";
+    public static final String INVALID_EXPORT_FORMAT = "The export format must be either zip or pkcs7.";
+    public static final String INVALID_CURSOR = "The cursor or sort key is not valid.";
+    public static final String INVALID_BULK_SIZE = "A bulk request must contain between 1 and 1000 entities.";
+    public static final String MISSING_BULK_ENTITY = "The entity is missing.";
+    public static final String DUPLICATE_BULK_MRN = "The MRN is given more than once in the request.";
+    public static final String ENTITY_ALREADY_EXISTS = "An entity with this MRN already exists.";
+    public static final String BULK_SAVE_FAILED = "The changes conflict with other data in the database, so none of the entities in the request were changed.";
+    public static final String ORG_COUNTRY_UNKNOWN = "The country of the organization must be a known country name or ISO 3166 code to issue certificates.";
+    public static final String INVALID_SHORT_LIVED_VALIDITY = "The validity period of a short-lived certificate must be between 1 hour and the configured maximum.";
 
     private MCPIdRegConstants() {
         // empty private constructor as this class should not be instantiated
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only Merkle tree as defined in RFC 6962 section 2.1.
+ * <p>
+ * Besides the leaf hashes the tree keeps the hash of every complete subtree, level by level, so the root of any
+ * earlier tree size and inclusion and consistency proofs can all be computed with O(log n) lookups and hashes.
+ * This class is not thread safe.
+ */
+public class MerkleTree {
+
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    // levels.get(k).get(i) is the hash of the complete subtree of size 2^k that starts at leaf i * 2^k
+    private final List<List<byte[]>> levels = new ArrayList<>();
+
+    public MerkleTree() {
+        levels.add(new ArrayList<>());
+    }
+
+    /**
+     * @return the number of leaves in the tree
+     */
+    public long size() {
+        return levels.get(0).size();
+    }
+
+    /**
+     * Appends a leaf to the tree
+     *
+     * @param leafHash the hash of the leaf as returned by {@link #leafHash(byte[])}
+     * @return the index of the new leaf
+     */
+    public long append(byte[] leafHash) {
+        List<byte[]> leaves = levels.get(0);
+        leaves.add(leafHash);
+        long index = leaves.size() - 1L;
+        // every time a node becomes the right child of a pair the parent subtree is complete
+        long i = index;
+        int level = 0;
+        while ((i & 1) == 1) {
+            List<byte[]> current = levels.get(level);
+            byte[] parent = nodeHash(current.get((int) i - 1), current.get((int) i));
+            level++;
+            if (levels.size() == level) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(level).add(parent);
+            i >>= 1;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the root hash of the tree as it was when it had the given number of leaves
+     *
+     * @param treeSize the size of the tree, at most {@link #size()}
+     * @return the root hash
+     */
+    public byte[] rootHash(long treeSize) {
+        checkTreeSize(treeSize);
+        if (treeSize == 0) {
+            return sha256(new byte[0]);
+        }
+        return subtreeHash(0, treeSize);
+    }
+
+    /**
+     * Returns the audit path for the leaf with the given index in the tree of the given size, ordered from the
+     * sibling of the leaf up to the sibling of the child of the root.
+     */
+    public List<byte[]> inclusionProof(long leafIndex, long treeSize) {
+        checkTreeSize(treeSize);
+        if (leafIndex < 0 || leafIndex >= treeSize) {
+            throw new IllegalArgumentException("Leaf index " + leafIndex + " is not in a tree of size " + treeSize);
+        }
+        List<byte[]> proof = new ArrayList<>();
+        path(leafIndex, 0, treeSize, proof);
+        return proof;
+    }
+
+    /**
+     * Returns the proof that the tree of size firstSize is a prefix of the tree of size secondSize
+     */
+    public List<byte[]> consistencyProof(long firstSize, long secondSize) {
+        checkTreeSize(secondSize);
+        if (firstSize <= 0 || firstSize > secondSize) {
+            throw new IllegalArgumentException("Invalid tree sizes " + firstSize + " and " + secondSize);
+        }
+        List<byte[]> proof = new ArrayList<>();
+        if (firstSize < secondSize) {
+            subProof(firstSize, 0, secondSize, true, proof);
+        }
+        return proof;
+    }
+
+    private void checkTreeSize(long treeSize) {
+        if (treeSize < 0 || treeSize > size()) {
+            throw new IllegalArgumentException("The tree only has " + size() + " leaves");
+        }
+    }
+
+    // MTH(D[start:end]). Ranges produced by the recursions of RFC 6962 always have their left parts aligned,
+    // so a complete left subtree can be looked up directly.
+    private byte[] subtreeHash(long start, long end) {
+        long n = end - start;
+        if (Long.bitCount(n) == 1) {
+            int level = Long.numberOfTrailingZeros(n);
+            return levels.get(level).get((int) (start >> level));
+        }
+        long k = largestPowerOfTwoBelow(n);
+        return nodeHash(subtreeHash(start, start + k), subtreeHash(start + k, end));
+    }
+
+    private void path(long m, long start, long end, List<byte[]> proof) {
+        long n = end - start;
+        if (n == 1) {
+            return;
+        }
+        long k = largestPowerOfTwoBelow(n);
+        if (m < k) {
+            path(m, start, start + k, proof);
+            proof.add(subtreeHash(start + k, end));
+        } else {
+            path(m - k, start + k, end, proof);
+            proof.add(subtreeHash(start, start + k));
+        }
+    }
+
+    private void subProof(long m, long start, long end, boolean completeSubtree, List<byte[]> proof) {
+        long n = end - start;
+        if (m == n) {
+            if (!completeSubtree) {
+                proof.add(subtreeHash(start, end));
+            }
+            return;
+        }
+        long k = largestPowerOfTwoBelow(n);
+        if (m <= k) {
+            subProof(m, start, start + k, completeSubtree, proof);
+            proof.add(subtreeHash(start + k, end));
+        } else {
+            subProof(m - k, start + k, end, false, proof);
+            proof.add(subtreeHash(start, start + k));
+        }
+    }
+
+    // the largest power of two that is strictly smaller than n, n must be at least 2
+    private static long largestPowerOfTwoBelow(long n) {
+        return Long.highestOneBit(n - 1);
+    }
+
+    /**
+     * Verifies an inclusion proof as described in RFC 9162 section 2.1.3.2
+     */
+    public static boolean verifyInclusion(byte[] leafHash, long leafIndex, long treeSize, List<byte[]> proof, byte[] rootHash) {
+        if (leafIndex < 0 || leafIndex >= treeSize) {
+            return false;
+        }
+        long fn = leafIndex;
+        long sn = treeSize - 1;
+        byte[] r = leafHash;
+        for (byte[] p : proof) {
+            if (sn == 0) {
+                return false;
+            }
+            if ((fn & 1) == 1 || fn == sn) {
+                r = nodeHash(p, r);
+                if ((fn & 1) == 0) {
+                    while ((fn & 1) == 0 && fn != 0) {
+                        fn >>= 1;
+                        sn >>= 1;
+                    }
+                }
+            } else {
+                r = nodeHash(r, p);
+            }
+            fn >>= 1;
+            sn >>= 1;
+        }
+        return sn == 0 && Arrays.equals(r, rootHash);
+    }
+
+    /**
+     * Verifies a consistency proof as described in RFC 9162 section 2.1.4.2
+     */
+    public static boolean verifyConsistency(long firstSize, long secondSize, byte[] firstRoot, byte[] secondRoot, List<byte[]> proof) {
+        if (firstSize <= 0 || firstSize > secondSize) {
+            return false;
+        }
+        if (firstSize == secondSize) {
+            return proof.isEmpty() && Arrays.equals(firstRoot, secondRoot);
+        }
+        if (proof.isEmpty()) {
+            return false;
+        }
+        List<byte[]> path = new ArrayList<>(proof);
+        if (Long.bitCount(firstSize) == 1) {
+            path.add(0, firstRoot);
+        }
+        long fn = firstSize - 1;
+        long sn = secondSize - 1;
+        while ((fn & 1) == 1) {
+            fn >>= 1;
+            sn >>= 1;
+        }
+        byte[] fr = path.get(0);
+        byte[] sr = path.get(0);
+        for (byte[] c : path.subList(1, path.size())) {
+            if (sn == 0) {
+                return false;
+            }
+            if ((fn & 1) == 1 || fn == sn) {
+                fr = nodeHash(c, fr);
+                sr = nodeHash(c, sr);
+                if ((fn & 1) == 0) {
+                    while ((fn & 1) == 0 && fn != 0) {
+                        fn >>= 1;
+                        sn >>= 1;
+                    }
+                }
+            } else {
+                sr = nodeHash(sr, c);
+            }
+            fn >>= 1;
+            sn >>= 1;
+        }
+        return sn == 0 && Arrays.equals(fr, firstRoot) && Arrays.equals(sr, secondRoot);
+    }
+
+    /**
+     * @param leafData the data of the leaf, e.g. a DER encoded certificate
+     * @return the RFC 6962 leaf hash of the data
+     */
+    public static byte[] leafHash(byte[] leafData) {
+        MessageDigest digest = newDigest();
+        digest.update(LEAF_PREFIX);
+        digest.update(leafData);
+        return digest.digest();
+    }
+
+    private static byte[] nodeHash(byte[] left, byte[] right) {
+        MessageDigest digest = newDigest();
+        digest.update(NODE_PREFIX);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+
+    private static byte[] sha256(byte[] data) {
+        return newDigest().digest(data);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java implementation is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
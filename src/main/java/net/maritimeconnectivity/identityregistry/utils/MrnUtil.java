@@ -41,7 +41,7 @@ public class MrnUtil {
 
     public String getOrgShortNameFromOrgMrn(String orgMrn) {
         String[] mrnSplit = orgMrn.split(":");
-        if (!mcpMrnPattern.matcher(orgMrn).matches()) {
+        if (!isMcpMrn(orgMrn)) {
             throw new IllegalArgumentException(MCPIdRegConstants.MRN_IS_NOT_VALID);
         }
         return mrnSplit[mrnSplit.length - 1];
@@ -49,7 +49,7 @@ public class MrnUtil {
 
     public String getOrgShortNameFromEntityMrn(String entityMrn) {
         String[] mrnSplit = entityMrn.split(":");
-        if (!mcpMrnPattern.matcher(entityMrn).matches() || mrnSplit.length < 7) {
+        if (!isMcpMrn(entityMrn) || mrnSplit.length < 7) {
             throw new IllegalArgumentException(MCPIdRegConstants.MRN_IS_NOT_VALID);
         }
         return mrnSplit[5];
@@ -57,7 +57,7 @@ public class MrnUtil {
 
     public String getEntityIdFromMrn(String entityMrn) {
         String[] mrnSplit = entityMrn.split(":");
-        if (!mcpMrnPattern.matcher(entityMrn).matches() || mrnSplit.length < 7) {
+        if (!isMcpMrn(entityMrn) || mrnSplit.length < 7) {
             throw new IllegalArgumentException(MCPIdRegConstants.MRN_IS_NOT_VALID);
         }
         if (mrnSplit.length > 7) {
@@ -67,16 +67,21 @@ public class MrnUtil {
         return mrnSplit[mrnSplit.length - 1];
     }
 
+    // The patterns are expensive to match and the same MRNs are usually checked several times during a request
+    private boolean isMcpMrn(String mrn) {
+        return RequestMemoUtil.get("mcp-mrn-matches", mrn, () -> mcpMrnPattern.matcher(mrn).matches());
+    }
+
     public boolean isNotMrnEmpty(String mrn) {
         return (mrn != null) && !(mrn.trim().isEmpty());
     }
 
     public boolean validateMrn(String mrn) {
-        return isNotMrnEmpty(mrn) && mrnPattern.matcher(mrn).matches();
+        return isNotMrnEmpty(mrn) && RequestMemoUtil.get("mrn-matches", mrn, () -> mrnPattern.matcher(mrn).matches());
     }
 
     public boolean validateMCPMrn(String mrn) {
-        if(validateMrn(mrn) && mcpMrnPattern.matcher(mrn).matches()){
+        if(validateMrn(mrn) && isMcpMrn(mrn)){
             String[] parts = mrn.split(":");
             if (parts.length < 6) {
                 throw new IllegalArgumentException(MCPIdRegConstants.MRN_IS_NOT_VALID);
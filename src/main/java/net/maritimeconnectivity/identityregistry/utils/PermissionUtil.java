@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import net.maritimeconnectivity.identityregistry.model.data.PermissionSet;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns permissions as small integer ids so that permission and role checks are set operations instead of string
+ * splitting and comparison. Permissions are compared case insensitively.
+ */
+public class PermissionUtil {
+
+    // Only the permissions that roles are defined for are interned, as permissions from tokens and entities are
+    // supplied by the clients and would otherwise grow the map without bound
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // The comma separated permissions of entities, which are the same for many entities
+    private static final Cache<String, PermissionSet> parsed = Caffeine.newBuilder().maximumSize(10000).build();
+
+    private PermissionUtil() {
+        // empty private constructor as this class should not be instantiated
+    }
+
+    /**
+     * Interns the given permission of a role and returns its id, or -1 if it is empty
+     */
+    public static int register(String permission) {
+        String normalized = normalize(permission);
+        if (normalized == null) {
+            return -1;
+        }
+        Integer id = ids.get(normalized);
+        if (id == null) {
+            synchronized (ids) {
+                id = ids.get(normalized);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(normalized, id);
+                    // Sets parsed before the permission was known leave it out
+                    parsed.invalidateAll();
+                }
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the given permission, or -1 if it is empty or no role has been registered for it
+     */
+    public static int idOf(String permission) {
+        String normalized = normalize(permission);
+        if (normalized == null) {
+            return -1;
+        }
+        return ids.getOrDefault(normalized, -1);
+    }
+
+    private static String normalize(String permission) {
+        if (permission == null) {
+            return null;
+        }
+        String normalized = permission.trim().toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /**
+     * Returns the set of registered permissions in a comma separated string of permissions
+     */
+    public static PermissionSet parse(String permissions) {
+        if (permissions == null || permissions.trim().isEmpty()) {
+            return PermissionSet.EMPTY;
+        }
+        return parsed.get(permissions, p -> {
+            BitSet bits = new BitSet();
+            for (String permission : p.split(",")) {
+                int id = idOf(permission);
+                if (id >= 0) {
+                    bits.set(id);
+                }
+            }
+            return new PermissionSet(bits);
+        });
+    }
+
+    /**
+     * Returns the union of the permissions in the given comma separated strings of permissions
+     */
+    public static PermissionSet parse(Collection<String> permissions) {
+        PermissionSet union = PermissionSet.EMPTY;
+        if (permissions != null) {
+            for (String p : permissions) {
+                union = union.union(parse(p));
+            }
+        }
+        return union;
+    }
+}
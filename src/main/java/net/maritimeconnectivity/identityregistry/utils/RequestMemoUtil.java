@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes lookups for the duration of the current HTTP request. Outside of a request the lookups are not memoized.
+ */
+public class RequestMemoUtil {
+
+    private static final String ATTRIBUTE_NAME = RequestMemoUtil.class.getName();
+
+    private RequestMemoUtil() {
+        // empty private constructor as this class should not be instantiated
+    }
+
+    /**
+     * Returns the memoized result of the lookup with the given key, or runs the lookup and memoizes its result,
+     * including null
+     *
+     * @param namespace the kind of lookup, e.g. the name of the method
+     * @param key the arguments of the lookup
+     * @param loader the lookup
+     * @return the result of the lookup
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(String namespace, Object key, Supplier<T> loader) {
+        Map<Object, Optional<Object>> memo = getMemo(namespace);
+        if (memo == null || key == null) {
+            return loader.get();
+        }
+        Optional<Object> memoized = memo.get(key);
+        if (memoized == null) {
+            memoized = Optional.ofNullable(loader.get());
+            memo.put(key, memoized);
+        }
+        return (T) memoized.orElse(null);
+    }
+
+    /**
+     * Forgets the memoized results of a kind of lookup, e.g. after the looked up data has been changed
+     */
+    public static void clear(String namespace) {
+        Map<Object, Optional<Object>> memo = getMemo(namespace);
+        if (memo != null) {
+            memo.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Optional<Object>> getMemo(String namespace) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Map<String, Map<Object, Optional<Object>>> memos = (Map<String, Map<Object, Optional<Object>>>) attributes.getAttribute(ATTRIBUTE_NAME, RequestAttributes.SCOPE_REQUEST);
+        if (memos == null) {
+            memos = new HashMap<>();
+            attributes.setAttribute(ATTRIBUTE_NAME, memos, RequestAttributes.SCOPE_REQUEST);
+        }
+        return memos.computeIfAbsent(namespace, n -> new HashMap<>());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import lombok.Getter;
+
+/**
+ * Counts the SQL statements, entity loads and collection fetches of the request handled by the current thread. The
+ * statistics are bound to the thread by the filter that starts counting, so that the statements run by the filters
+ * after it are counted as well. Outside of a request, and in the threads that a request hands work off to, nothing is
+ * counted.
+ */
+@Getter
+public class RequestQueryStatistics {
+
+    private static final ThreadLocal<RequestQueryStatistics> CURRENT = new ThreadLocal<>();
+
+    private long statements;
+    private long entityLoads;
+    private long collectionFetches;
+
+    /**
+     * Starts counting for the request handled by the current thread
+     *
+     * @return the statistics of the request
+     */
+    public static RequestQueryStatistics start() {
+        RequestQueryStatistics statistics = new RequestQueryStatistics();
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * Stops counting for the current thread
+     */
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Returns the statistics of the current request
+     *
+     * @return the statistics or null if the current request is not counted
+     */
+    public static RequestQueryStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static void statementExecuted() {
+        RequestQueryStatistics statistics = current();
+        if (statistics != null) {
+            statistics.statements++;
+        }
+    }
+
+    public static void entityLoaded() {
+        RequestQueryStatistics statistics = current();
+        if (statistics != null) {
+            statistics.entityLoads++;
+        }
+    }
+
+    public static void collectionFetched() {
+        RequestQueryStatistics statistics = current();
+        if (statistics != null) {
+            statistics.collectionFetches++;
+        }
+    }
+}
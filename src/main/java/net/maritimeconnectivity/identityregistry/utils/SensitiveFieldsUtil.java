@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decides whether the current user may see the sensitive fields of an entity. The decisions are computed once per
+ * request, so serializing a page of entities does not repeat the access checks for every element.
+ */
+@Component
+public class SensitiveFieldsUtil {
+
+    private static final String MEMO_NAMESPACE = "sensitive-fields";
+
+    private static final List<String> AUTHORIZED_ROLES = Arrays.asList("ORG_ADMIN", "SITE_ADMIN");
+
+    private AccessControlUtil accessControlUtil;
+
+    @Autowired
+    public void setAccessControlUtil(AccessControlUtil accessControlUtil) {
+        this.accessControlUtil = accessControlUtil;
+    }
+
+    /**
+     * Returns true if the sensitive fields of the given entity can be shown to the current user. Sensitive fields of
+     * an organization are only shown to admins with access to that organization, for other entities being an admin
+     * is enough.
+     *
+     * @param entity the entity being serialized
+     * @return whether the sensitive fields can be shown
+     */
+    public boolean canSeeSensitiveFields(Object entity) {
+        boolean authorized = RequestMemoUtil.get(MEMO_NAMESPACE, "authorized", () -> accessControlUtil.hasAnyRoles(AUTHORIZED_ROLES));
+        if (!authorized) {
+            return false;
+        }
+        if (entity instanceof Organization) {
+            String orgMrn = ((Organization) entity).getMrn();
+            return RequestMemoUtil.get(MEMO_NAMESPACE, Arrays.asList("org", orgMrn), () -> accessControlUtil.hasAccessToOrg(orgMrn));
+        }
+        return true;
+    }
+}
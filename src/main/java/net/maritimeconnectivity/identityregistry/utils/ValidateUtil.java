@@ -31,11 +31,15 @@ public class ValidateUtil {
 
     public static void hasErrors(BindingResult bindingResult, HttpServletRequest request) throws McpBasicRestException {
         if (bindingResult.hasErrors()) {
-            StringJoiner stringJoiner = new StringJoiner(", ");
-            for (ObjectError err : bindingResult.getAllErrors()) {
-                stringJoiner.add(err.getDefaultMessage());
-            }
-            throw new McpBasicRestException(HttpStatus.BAD_REQUEST, stringJoiner.toString(), request.getServletPath());
+            throw new McpBasicRestException(HttpStatus.BAD_REQUEST, getErrorMessage(bindingResult), request.getServletPath());
         }
     }
+
+    public static String getErrorMessage(BindingResult bindingResult) {
+        StringJoiner stringJoiner = new StringJoiner(", ");
+        for (ObjectError err : bindingResult.getAllErrors()) {
+            stringJoiner.add(err.getDefaultMessage());
+        }
+        return stringJoiner.toString();
+    }
 }
@@ -0,0 +1,12 @@
+CREATE TABLE `issuance_log_entries` (
+  `id` INT NOT NULL AUTO_INCREMENT,
+  `certificate_authority` VARCHAR(255) NOT NULL,
+  `leaf_index` BIGINT NOT NULL,
+  `leaf_hash` BINARY(32) NOT NULL,
+  `serial_number` NUMERIC(50) NOT NULL,
+  `created_at` DATETIME,
+  `updated_at` DATETIME,
+  PRIMARY KEY (`id`),
+  UNIQUE (`certificate_authority`, `leaf_index`),
+  INDEX `issuance_log_ca_serial` (`certificate_authority`, `serial_number`)
+);
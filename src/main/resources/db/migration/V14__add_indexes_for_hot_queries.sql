@@ -0,0 +1,28 @@
+-- Used by every OCSP request and revocation
+CREATE INDEX `certificates_serial_number` ON `certificates` (`serial_number`);
+-- Used by every CRL build
+CREATE INDEX `certificates_ca_revoked` ON `certificates` (`certificate_authority`, `revoked`, `revoked_at`);
+CREATE INDEX `roles_organization_permission` ON `roles` (`id_organization`, `permission`);
+CREATE INDEX `acting_on_behalf_on_behalf_of_acting` ON `acting_on_behalf` (`id_on_behalf_of`, `id_acting`);
+
+-- Case insensitive MRN lookups query the lower case MRN instead of applying UPPER() to the mrn column,
+-- which cannot use the unique index on mrn
+ALTER TABLE `users` ADD COLUMN `mrn_lower` VARCHAR(255);
+UPDATE `users` SET `mrn_lower` = LOWER(`mrn`);
+CREATE INDEX `users_mrn_lower` ON `users` (`mrn_lower`);
+
+ALTER TABLE `vessels` ADD COLUMN `mrn_lower` VARCHAR(255);
+UPDATE `vessels` SET `mrn_lower` = LOWER(`mrn`);
+CREATE INDEX `vessels_mrn_lower` ON `vessels` (`mrn_lower`);
+
+ALTER TABLE `devices` ADD COLUMN `mrn_lower` VARCHAR(255);
+UPDATE `devices` SET `mrn_lower` = LOWER(`mrn`);
+CREATE INDEX `devices_mrn_lower` ON `devices` (`mrn_lower`);
+
+ALTER TABLE `services` ADD COLUMN `mrn_lower` VARCHAR(255);
+UPDATE `services` SET `mrn_lower` = LOWER(`mrn`);
+CREATE INDEX `services_mrn_lower_version` ON `services` (`mrn_lower`, `instance_version`);
+
+ALTER TABLE `mmses` ADD COLUMN `mrn_lower` VARCHAR(255);
+UPDATE `mmses` SET `mrn_lower` = LOWER(`mrn`);
+CREATE INDEX `mmses_mrn_lower` ON `mmses` (`mrn_lower`);
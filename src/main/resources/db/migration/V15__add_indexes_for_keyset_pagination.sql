@@ -0,0 +1,8 @@
+-- Keyset pagination of the entities of an organization seeks on the organization and the lower case MRN, or on the
+-- organization and the id which the index on the foreign key already covers
+CREATE INDEX `users_organization_mrn_lower` ON `users` (`id_organization`, `mrn_lower`, `id`);
+CREATE INDEX `vessels_organization_mrn_lower` ON `vessels` (`id_organization`, `mrn_lower`, `id`);
+CREATE INDEX `devices_organization_mrn_lower` ON `devices` (`id_organization`, `mrn_lower`, `id`);
+CREATE INDEX `services_organization_mrn_lower` ON `services` (`id_organization`, `mrn_lower`, `id`);
+CREATE INDEX `mmses_organization_mrn_lower` ON `mmses` (`id_organization`, `mrn_lower`, `id`);
+CREATE INDEX `organizations_approved_mrn` ON `organizations` (`approved`, `mrn`, `id`);
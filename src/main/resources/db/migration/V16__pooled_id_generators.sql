@@ -0,0 +1,22 @@
+-- Ids are allocated by Hibernate in blocks from this table instead of by AUTO_INCREMENT, which would keep it from
+-- batching inserts. Every table has its own row holding the next id that has not been handed out yet.
+CREATE TABLE `id_generators` (
+  `entity_table` VARCHAR(64) NOT NULL,
+  `next_id` BIGINT NOT NULL,
+  PRIMARY KEY (`entity_table`)
+);
+
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'logos', COALESCE(MAX(`id`), 0) + 1 FROM `logos`;
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'organizations', COALESCE(MAX(`id`), 0) + 1 FROM `organizations`;
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'identity_provider_attributes', COALESCE(MAX(`id`), 0) + 1 FROM `identity_provider_attributes`;
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'roles', COALESCE(MAX(`id`), 0) + 1 FROM `roles`;
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'acting_on_behalf', COALESCE(MAX(`id`), 0) + 1 FROM `acting_on_behalf`;
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'certificates', COALESCE(MAX(`id`), 0) + 1 FROM `certificates`;
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'vessels', COALESCE(MAX(`id`), 0) + 1 FROM `vessels`;
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'vessel_attributes', COALESCE(MAX(`id`), 0) + 1 FROM `vessel_attributes`;
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'vessel_images', COALESCE(MAX(`id`), 0) + 1 FROM `vessel_images`;
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'users', COALESCE(MAX(`id`), 0) + 1 FROM `users`;
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'devices', COALESCE(MAX(`id`), 0) + 1 FROM `devices`;
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'services', COALESCE(MAX(`id`), 0) + 1 FROM `services`;
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'mmses', COALESCE(MAX(`id`), 0) + 1 FROM `mmses`;
+INSERT INTO `id_generators` (`entity_table`, `next_id`) SELECT 'issuance_log_entries', COALESCE(MAX(`id`), 0) + 1 FROM `issuance_log_entries`;
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.benchmarks;
+
+import net.maritimeconnectivity.identityregistry.utils.CertificateUtil;
+import net.maritimeconnectivity.pki.PKIConstants;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PublicKey;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the signing throughput of the supported sub CA key types, both for a raw signature (which is what
+ * dominates CRL and OCSP responses) and for issuing a complete entity certificate.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.maritimeconnectivity.identityregistry.benchmarks.SigningProfileBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SigningProfileBenchmark {
+
+    @Param({"RSA_2048", "RSA_4096", "EC_P256", "EC_P384", "ED25519"})
+    public String profile;
+
+    private KeyStore.PrivateKeyEntry caEntry;
+    private X509Certificate caCert;
+    private PublicKey entityPublicKey;
+    private Map<String, String> attrs;
+    private byte[] tbsData;
+    private BigInteger serial = BigInteger.ONE;
+
+    @Setup
+    public void setup() throws Exception {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+        KeyPair caKeyPair = generateKeyPair(profile);
+        X500Name name = new X500Name("C=DK, O=urn:mrn:mcp:org:idp1:dma, CN=Benchmark CA");
+        Date now = new Date();
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name, BigInteger.ONE, now, new Date(now.getTime() + 86400000L), name, caKeyPair.getPublic());
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+        ContentSigner selfSigner = new JcaContentSignerBuilder(CertificateUtil.getSignatureAlgorithm(caKeyPair.getPublic())).build(caKeyPair.getPrivate());
+        caCert = new JcaX509CertificateConverter().getCertificate(builder.build(selfSigner));
+        caEntry = new KeyStore.PrivateKeyEntry(caKeyPair.getPrivate(), new X509Certificate[]{caCert});
+
+        entityPublicKey = generateKeyPair("EC_P256").getPublic();
+        attrs = new HashMap<>();
+        attrs.put(PKIConstants.MC_OID_MRN, "urn:mrn:mcp:vessel:idp1:dma:benchmark");
+        attrs.put(PKIConstants.MC_OID_FLAGSTATE, "DK");
+        // roughly the size of the TBS part of an OCSP response with a single status
+        tbsData = new byte[512];
+    }
+
+    private static KeyPair generateKeyPair(String profile) throws Exception {
+        KeyPairGenerator generator;
+        switch (profile) {
+            case "RSA_2048":
+            case "RSA_4096":
+                generator = KeyPairGenerator.getInstance("RSA", BouncyCastleProvider.PROVIDER_NAME);
+                generator.initialize(Integer.parseInt(profile.substring(4)));
+                break;
+            case "EC_P256":
+                generator = KeyPairGenerator.getInstance("EC", BouncyCastleProvider.PROVIDER_NAME);
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+                break;
+            case "EC_P384":
+                generator = KeyPairGenerator.getInstance("EC", BouncyCastleProvider.PROVIDER_NAME);
+                generator.initialize(new ECGenParameterSpec("secp384r1"));
+                break;
+            case "ED25519":
+                generator = KeyPairGenerator.getInstance("Ed25519", BouncyCastleProvider.PROVIDER_NAME);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown profile " + profile);
+        }
+        return generator.generateKeyPair();
+    }
+
+    @Benchmark
+    public byte[] rawSignature() throws Exception {
+        ContentSigner signer = CertificateUtil.buildContentSigner(caEntry, null);
+        try (OutputStream out = signer.getOutputStream()) {
+            out.write(tbsData);
+        }
+        return signer.getSignature();
+    }
+
+    @Benchmark
+    public X509Certificate issueEntityCertificate() throws Exception {
+        Date now = new Date();
+        serial = serial.add(BigInteger.ONE);
+        return CertificateUtil.buildEntityCertificate(serial, "DK", "urn:mrn:mcp:org:idp1:dma", "vessel", "Benchmark vessel", "",
+                "urn:mrn:mcp:vessel:idp1:dma:benchmark", now, new Date(now.getTime() + 86400000L), entityPublicKey, attrs, caCert,
+                CertificateUtil.buildContentSigner(caEntry, null), "http://localhost/crl/ca", "http://localhost/ocsp/ca");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SigningProfileBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.benchmarks;
+
+import net.maritimeconnectivity.identityregistry.model.data.RevokedCertificate;
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
+import net.maritimeconnectivity.identityregistry.model.database.entities.User;
+import net.maritimeconnectivity.identityregistry.security.x509.X509HeaderUserDetailsService;
+import net.maritimeconnectivity.identityregistry.security.x509.X509UserDetailsCache;
+import net.maritimeconnectivity.identityregistry.services.CertificateService;
+import net.maritimeconnectivity.identityregistry.services.EntityService;
+import net.maritimeconnectivity.identityregistry.services.OrganizationService;
+import net.maritimeconnectivity.identityregistry.services.RevocationServiceImpl;
+import net.maritimeconnectivity.identityregistry.services.RoleService;
+import net.maritimeconnectivity.identityregistry.utils.CertificateUtil;
+import net.maritimeconnectivity.pki.CertificateHandler;
+import net.maritimeconnectivity.pki.KeystoreHandler;
+import net.maritimeconnectivity.pki.PKIConstants;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.math.BigInteger;
+import java.net.URLEncoder;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures the path from the X-Client-Certificate header set by nginx to the resolved principal, with and without
+ * the UserDetails cache. Both include the revocation check against 10,000 revoked serial numbers. The services are mocked, so the uncached numbers only include the parsing of the certificate
+ * and the lookups themselves, not the database round trips they would cause.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.maritimeconnectivity.identityregistry.benchmarks.X509HeaderUserDetailsBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class X509HeaderUserDetailsBenchmark {
+
+    private static final String ORG_MRN = "urn:mrn:mcp:org:idp1:dma";
+    private static final String USER_MRN = "urn:mrn:mcp:user:idp1:dma:benchmark";
+    private static final String CA_ALIAS = "urn:mrn:mcp:ca:idp1:benchmark";
+
+    private AnnotationConfigApplicationContext context;
+    private X509HeaderUserDetailsService userDetailsService;
+    private X509UserDetailsCache userDetailsCache;
+    private String header;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC", BouncyCastleProvider.PROVIDER_NAME);
+        generator.initialize(new ECGenParameterSpec("secp384r1"));
+        KeyPair caKeyPair = generator.generateKeyPair();
+        X500Name name = new X500Name("C=DK, O=" + ORG_MRN + ", CN=Benchmark CA");
+        Date now = new Date();
+        Date notAfter = new Date(now.getTime() + 86400000L);
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name, BigInteger.ONE, now, notAfter, name, caKeyPair.getPublic());
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+        X509Certificate caCert = new JcaX509CertificateConverter().getCertificate(builder.build(
+                new JcaContentSignerBuilder(CertificateUtil.getSignatureAlgorithm(caKeyPair.getPublic())).build(caKeyPair.getPrivate())));
+        KeyStore.PrivateKeyEntry caEntry = new KeyStore.PrivateKeyEntry(caKeyPair.getPrivate(), new X509Certificate[]{caCert});
+
+        Map<String, String> attrs = new HashMap<>();
+        attrs.put(PKIConstants.MC_OID_MRN, USER_MRN);
+        attrs.put(PKIConstants.MC_OID_PERMISSIONS, "admin,routeplanner,viewer");
+        X509Certificate userCert = CertificateUtil.buildEntityCertificate(BigInteger.TEN, "DK", ORG_MRN, "user", "Benchmark User",
+                "benchmark@dma.dk", USER_MRN, now, notAfter, generator.generateKeyPair().getPublic(), attrs, caCert,
+                CertificateUtil.buildContentSigner(caEntry, null), "http://localhost/crl/ca", "http://localhost/ocsp/ca");
+        // nginx passes the certificate as a URL encoded PEM when using $ssl_client_escaped_cert
+        header = URLEncoder.encode(CertificateHandler.getPemFromEncoded("CERTIFICATE", userCert.getEncoded()), "UTF-8");
+
+        Organization org = mock(Organization.class);
+        given(org.getId()).willReturn(1L);
+        OrganizationService organizationService = mock(OrganizationService.class);
+        given(organizationService.getOrganizationByMrn(ORG_MRN)).willReturn(org);
+        User user = mock(User.class);
+        given(user.getIdOrganization()).willReturn(1L);
+        given(user.getPermissions()).willReturn("admin,routeplanner,viewer");
+        EntityService<User> userService = mock(EntityService.class);
+        given(userService.getByMrn(USER_MRN)).willReturn(user);
+        RoleService roleService = mock(RoleService.class);
+        given(roleService.getRoleNamesByIdOrganizationAndPermissions(anyLong(), anyString())).willReturn(Collections.singletonList("ROLE_USER_ADMIN"));
+
+        // A realistic number of revoked certificates for the CA of the benchmark certificate
+        List<RevokedCertificate> revoked = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            revoked.add(new Revoked(BigInteger.valueOf(1000 + i)));
+        }
+        CertificateService certificateService = mock(CertificateService.class);
+        given(certificateService.listUnexpiredRevokedCertificates()).willReturn(revoked);
+        KeystoreHandler keystoreHandler = mock(KeystoreHandler.class);
+        given(keystoreHandler.getMCPCertificate(CA_ALIAS)).willReturn(caCert);
+        CertificateUtil certificateUtil = mock(CertificateUtil.class);
+        given(certificateUtil.getKeystoreHandler()).willReturn(keystoreHandler);
+
+        // The services under test are wired by Spring with the mocked ones around them, just like in the application
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("net.maritimeconnectivity.idreg.x509.user-details-cache.max-size", 10000L);
+        properties.put("net.maritimeconnectivity.idreg.x509.user-details-cache.ttl", 300L);
+        properties.put("net.maritimeconnectivity.idreg.certs.revoked-serials-max-age", 60L);
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.registerBean(OrganizationService.class, () -> organizationService);
+        context.registerBean(EntityService.class, () -> userService);
+        context.registerBean(RoleService.class, () -> roleService);
+        context.registerBean(CertificateService.class, () -> certificateService);
+        context.registerBean(CertificateUtil.class, () -> certificateUtil);
+        context.register(X509UserDetailsCache.class, RevocationServiceImpl.class, X509HeaderUserDetailsService.class);
+        context.refresh();
+
+        userDetailsCache = context.getBean(X509UserDetailsCache.class);
+        userDetailsService = context.getBean(X509HeaderUserDetailsService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private static class Revoked implements RevokedCertificate {
+        private final BigInteger serialNumber;
+
+        Revoked(BigInteger serialNumber) {
+            this.serialNumber = serialNumber;
+        }
+
+        @Override
+        public BigInteger getSerialNumber() {
+            return serialNumber;
+        }
+
+        @Override
+        public String getCertificateAuthority() {
+            return CA_ALIAS;
+        }
+
+        @Override
+        public Date getRevokedAt() {
+            return new Date(0);
+        }
+    }
+
+    @Benchmark
+    public UserDetails uncached() {
+        userDetailsCache.evictAll();
+        return userDetailsService.loadUserByUsername(header);
+    }
+
+    @Benchmark
+    public UserDetails cached() {
+        return userDetailsService.loadUserByUsername(header);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(X509HeaderUserDetailsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
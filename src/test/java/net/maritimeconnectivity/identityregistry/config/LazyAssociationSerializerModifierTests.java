@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import net.maritimeconnectivity.identityregistry.model.database.Certificate;
+import net.maritimeconnectivity.identityregistry.model.database.entities.Vessel;
+import org.hibernate.collection.internal.PersistentSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LazyAssociationSerializerModifierTests {
+
+    private ObjectMapper mapper;
+
+    @BeforeEach
+    public void setUp() {
+        SimpleModule module = new SimpleModule();
+        module.setSerializerModifier(new LazyAssociationSerializerModifier());
+        mapper = new ObjectMapper();
+        mapper.registerModule(module);
+    }
+
+    private static Vessel vessel(Set<Certificate> certificates) {
+        Vessel vessel = new Vessel();
+        vessel.setMrn("urn:mrn:mcp:vessel:idp1:dma:poul-loewenoern");
+        vessel.setName("POUL LØWENØRN");
+        vessel.setCertificates(certificates);
+        return vessel;
+    }
+
+    @Test
+    public void unloadedCertificatesAreLeftOut() {
+        JsonNode json = mapper.valueToTree(vessel(new PersistentSet()));
+        assertEquals("POUL LØWENØRN", json.get("name").asText());
+        assertFalse(json.has("certificates"));
+    }
+
+    @Test
+    public void loadedCertificatesAreSerialized() {
+        Set<Certificate> certificates = new HashSet<>();
+        certificates.add(new Certificate());
+        JsonNode json = mapper.valueToTree(vessel(new PersistentSet(null, certificates)));
+        assertTrue(json.has("certificates"));
+        assertEquals(1, json.get("certificates").size());
+    }
+
+    @Test
+    public void plainCollectionsAreSerialized() {
+        JsonNode json = mapper.valueToTree(vessel(new HashSet<>()));
+        assertTrue(json.has("certificates"));
+        assertEquals(0, json.get("certificates").size());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.config;
+
+import net.maritimeconnectivity.identityregistry.controllers.TokenGenerator;
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
+import net.maritimeconnectivity.identityregistry.repositories.OrganizationRepository;
+import net.maritimeconnectivity.identityregistry.repositories.VesselRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs requests through JPA with the replicas enabled. The replica is the same database as the primary, accessed as
+ * a user that may only read, so that a write sent to the replica fails.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaDataSourceConfigTests.URL,
+        "net.maritimeconnectivity.idreg.replicas.enabled=true",
+        "net.maritimeconnectivity.idreg.replicas.check-interval=0",
+        "net.maritimeconnectivity.idreg.replicas.datasources[0].url=" + ReplicaDataSourceConfigTests.URL,
+        "net.maritimeconnectivity.idreg.replicas.datasources[0].username=replica",
+        "net.maritimeconnectivity.idreg.replicas.datasources[0].password=replica"
+})
+@ContextConfiguration
+@WebAppConfiguration
+public class ReplicaDataSourceConfigTests {
+
+    static final String URL = "jdbc:h2:mem:replica-routing;MODE=MySQL;database_to_upper=false;DB_CLOSE_DELAY=-1";
+
+    private static final String ORG_MRN = "urn:mrn:mcp:org:idp1:replica-routing";
+    private static final String VESSEL_MRN = "urn:mrn:mcp:vessel:idp1:replica-routing:vessel-1";
+
+    // The replica user has to exist before the replicas are checked on startup
+    static {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", ""); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE USER IF NOT EXISTS replica PASSWORD 'replica'");
+            statement.execute("GRANT SELECT ON SCHEMA PUBLIC TO replica");
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    private OrganizationRepository organizationRepository;
+
+    @Autowired
+    private VesselRepository vesselRepository;
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    public void setup() {
+        mvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+        if (organizationRepository.findByMrn(ORG_MRN) == null) {
+            Organization org = new Organization();
+            org.setMrn(ORG_MRN);
+            org.setName("Replica Routing Authority");
+            org.setEmail("replica-routing@maritimeconnectivity.net");
+            org.setUrl("https://maritimeconnectivity.net");
+            org.setAddress("Carl Jakobsensvej 31, 2500 Valby");
+            org.setCountry("Denmark");
+            org.setFederationType("test-idp");
+            org.setCertificateAuthority("urn:mrn:mcp:ca:idp1:mcp-idreg");
+            org.setApproved(true);
+            organizationRepository.save(org);
+        }
+    }
+
+    @Test
+    public void writeAfterReadOnlyLookupGoesToThePrimary() throws Exception {
+        assertEquals(Collections.singletonList("replica-1"), replicaRoutingDataSource.getUsableReplicas());
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken(ORG_MRN, "ROLE_VESSEL_ADMIN", "");
+        // The organization is looked up in a read-only transaction on the replica before the vessel is saved
+        mvc.perform(post("/oidc/api/org/" + ORG_MRN + "/vessel").with(authentication(auth))
+                .header("Origin", "bla")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"mrn\": \"" + VESSEL_MRN + "\", \"name\": \"Replica Vessel\"}")
+        ).andExpect(status().isOk());
+        assertNotNull(vesselRepository.getByMrnLower(VESSEL_MRN));
+    }
+}
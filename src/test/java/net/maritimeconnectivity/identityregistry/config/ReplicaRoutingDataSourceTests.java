@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReplicaRoutingDataSourceTests {
+
+    private ReplicaRoutingDataSource routingDataSource;
+    private JdbcTemplate replicaJdbc;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    public void setup() {
+        DriverManagerDataSource primary = new DriverManagerDataSource("jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1");
+        DriverManagerDataSource replica = new DriverManagerDataSource("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1");
+        new JdbcTemplate(primary).execute("CREATE TABLE IF NOT EXISTS db (name VARCHAR(16))");
+        new JdbcTemplate(primary).execute("MERGE INTO db KEY (name) VALUES ('primary')");
+        replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.execute("CREATE TABLE IF NOT EXISTS db (name VARCHAR(16))");
+        replicaJdbc.execute("MERGE INTO db KEY (name) VALUES ('replica')");
+        replicaJdbc.execute("CREATE TABLE IF NOT EXISTS replication (Seconds_Behind_Master BIGINT)");
+        replicaJdbc.execute("DELETE FROM replication");
+        replicaJdbc.execute("INSERT INTO replication VALUES (0)");
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, Collections.singletonMap("replica-1", replica),
+                5, 60, 0, "SELECT * FROM replication");
+        routingDataSource.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+        routingDataSource.close();
+    }
+
+    private String readOnlyDb() {
+        return readOnly.execute(status -> jdbc.queryForObject("SELECT name FROM db", String.class));
+    }
+
+    private String readWriteDb() {
+        return readWrite.execute(status -> jdbc.queryForObject("SELECT name FROM db", String.class));
+    }
+
+    @Test
+    public void testReadOnlyTransactionsGoToTheReplica() {
+        assertEquals("replica", readOnlyDb());
+        assertEquals("primary", readWriteDb());
+        // Outside of transactions it is not known whether there will be writes
+        assertEquals("primary", jdbc.queryForObject("SELECT name FROM db", String.class));
+    }
+
+    @Test
+    public void testLaggingReplicaIsNotUsed() {
+        replicaJdbc.execute("UPDATE replication SET Seconds_Behind_Master = 30");
+        routingDataSource.checkReplicas();
+        assertTrue(routingDataSource.getUsableReplicas().isEmpty());
+        assertEquals("primary", readOnlyDb());
+
+        replicaJdbc.execute("UPDATE replication SET Seconds_Behind_Master = 1");
+        routingDataSource.checkReplicas();
+        assertEquals("replica", readOnlyDb());
+    }
+
+    @Test
+    public void testStoppedReplicaIsNotUsed() {
+        replicaJdbc.execute("UPDATE replication SET Seconds_Behind_Master = NULL");
+        routingDataSource.checkReplicas();
+        assertEquals("primary", readOnlyDb());
+    }
+
+    @Test
+    public void testReadsForCachesGoToThePrimary() {
+        assertEquals("primary", ReplicaRoutingDataSource.onPrimary(this::readOnlyDb));
+        String afterNested = ReplicaRoutingDataSource.onPrimary(() -> {
+            ReplicaRoutingDataSource.onPrimary(this::readOnlyDb);
+            // The nested reads must not send the rest of the outer ones back to the replica
+            return readOnlyDb();
+        });
+        assertEquals("primary", afterNested);
+        assertEquals("replica", readOnlyDb());
+    }
+
+    @Test
+    public void testPrincipalReadsItsOwnWrites() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("writer", null, "ROLE_USER"));
+        assertEquals("replica", readOnlyDb());
+        readWriteDb();
+        assertEquals("primary", readOnlyDb());
+
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("reader", null, "ROLE_USER"));
+        assertEquals("replica", readOnlyDb());
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.maritimeconnectivity.identityregistry.repositories.OrganizationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Collections;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RepositoryMetricsInterceptorTests {
+
+    private MeterRegistry meterRegistry;
+    private Function<String, String> repository;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Collections.singletonMap("meterRegistry", meterRegistry));
+        Function<String, String> target = mrn -> {
+            if (mrn == null) {
+                throw new IllegalArgumentException();
+            }
+            return mrn;
+        };
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addInterface(Function.class);
+        proxyFactory.addAdvice(new RepositoryMetricsInterceptor(beanFactory.getBeanProvider(MeterRegistry.class), OrganizationRepository.class));
+        repository = (Function<String, String>) proxyFactory.getProxy();
+    }
+
+    @Test
+    public void invocationsAreTimedByRepositoryAndMethod() {
+        repository.apply("urn:mrn:mcp:org:idp1:dma");
+        repository.apply("urn:mrn:mcp:org:idp1:bim");
+
+        Timer timer = meterRegistry.find(RepositoryMetricsInterceptor.METRIC_NAME)
+                .tags("repository", "OrganizationRepository", "method", "apply", "exception", "None").timer();
+        assertNotNull(timer);
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    public void failedInvocationsAreTaggedWithTheException() {
+        assertThrows(IllegalArgumentException.class, () -> repository.apply(null));
+
+        Timer timer = meterRegistry.find(RepositoryMetricsInterceptor.METRIC_NAME)
+                .tags("repository", "OrganizationRepository", "method", "apply", "exception", "IllegalArgumentException").timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.config;
+
+import net.maritimeconnectivity.identityregistry.utils.RequestQueryStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class StatementMonitoringDataSourceTests {
+
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    public void setup() {
+        DriverManagerDataSource target = new DriverManagerDataSource("jdbc:h2:mem:monitoring;DB_CLOSE_DELAY=-1");
+        // A threshold of 1 ms makes most statements end up in the slow query log
+        jdbc = new JdbcTemplate(new StatementMonitoringDataSource(target, 1));
+        jdbc.execute("CREATE TABLE IF NOT EXISTS vessels (mrn VARCHAR(255))");
+        jdbc.execute("DELETE FROM vessels");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        RequestQueryStatistics.stop();
+    }
+
+    @Test
+    public void statementsOfTheRequestAreCounted() {
+        RequestQueryStatistics statistics = RequestQueryStatistics.start();
+
+        jdbc.update("INSERT INTO vessels (mrn) VALUES (?)", "urn:mrn:mcp:vessel:idp1:dma:1");
+        jdbc.batchUpdate("INSERT INTO vessels (mrn) VALUES (?)", Arrays.asList(new Object[]{"urn:mrn:mcp:vessel:idp1:dma:2"},
+                new Object[]{"urn:mrn:mcp:vessel:idp1:dma:3"}));
+        assertEquals(3, jdbc.queryForObject("SELECT COUNT(*) FROM vessels WHERE mrn LIKE ?", Integer.class, "urn:mrn:mcp:vessel:%"));
+
+        // The batch is run as one statement
+        assertEquals(3, statistics.getStatements());
+    }
+
+    @Test
+    public void statementsOutsideOfARequestAreNotCounted() {
+        jdbc.update("INSERT INTO vessels (mrn) VALUES ('urn:mrn:mcp:vessel:idp1:dma:1')");
+        assertNull(RequestQueryStatistics.current());
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM vessels", Integer.class));
+    }
+
+    @Test
+    public void stringLiteralsAreRedacted() {
+        assertEquals("SELECT * FROM users WHERE mrn = '?' AND last_name = '?' AND id = ?",
+                StatementMonitoringDataSource.redact("SELECT * FROM users WHERE mrn = 'urn:mrn:mcp:user:idp1:dma:thc' AND last_name = 'O''Brien' AND id = ?"));
+        assertEquals("SELECT 1", StatementMonitoringDataSource.redact("SELECT 1"));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.controllers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ContextConfiguration
+@WebAppConfiguration
+public class ActuatorEndpointsTests {
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    public void setup() {
+        mvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+    }
+
+    /**
+     * Try to get the health of the application without being authenticated
+     */
+    @Test
+    public void testGetHealthWithoutAuthentication() throws Exception {
+        mvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    /**
+     * Try to get the metrics without being authenticated
+     */
+    @Test
+    public void testGetMetricsWithoutAuthentication() throws Exception {
+        mvc.perform(get("/actuator/metrics")).andExpect(status().isForbidden());
+    }
+
+    /**
+     * Try to get the metrics as a user that is not a site admin
+     */
+    @Test
+    public void testGetMetricsWithoutRights() throws Exception {
+        PreAuthenticatedAuthenticationToken auth = TokenGenerator.generatePreAuthenticatedAuthenticationToken("urn:mrn:mcp:org:idp1:dma", "ROLE_ORG_ADMIN", "");
+        mvc.perform(get("/actuator/metrics").with(authentication(auth))).andExpect(status().isForbidden());
+    }
+
+    /**
+     * Try to get the metrics as a site admin
+     */
+    @Test
+    public void testGetMetricsAsSiteAdmin() throws Exception {
+        PreAuthenticatedAuthenticationToken auth = TokenGenerator.generatePreAuthenticatedAuthenticationToken("urn:mrn:mcp:org:idp1:dma", "ROLE_SITE_ADMIN", "");
+        mvc.perform(get("/actuator/metrics").with(authentication(auth))).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.controllers;
+
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
+import net.maritimeconnectivity.identityregistry.model.database.entities.Device;
+import net.maritimeconnectivity.identityregistry.services.EntityService;
+import net.maritimeconnectivity.identityregistry.services.OrganizationService;
+import net.maritimeconnectivity.identityregistry.utils.MCPIdRegConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ContextConfiguration
+@WebAppConfiguration
+public class DeviceControllerTests {
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mvc;
+
+    @MockBean
+    private EntityService<Device> entityService;
+
+    @MockBean
+    private OrganizationService organizationService;
+
+    @BeforeEach
+    public void setup() {
+        mvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                //.alwaysDo(print())
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+        Organization org = spy(Organization.class);
+        org.setMrn("urn:mrn:mcp:org:idp1:dma");
+        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcp:org:idp1:dma")).willReturn(org);
+        when(org.getId()).thenReturn(1L);
+    }
+
+    /**
+     * Try to delete devices in bulk, where only the first one exists and belongs to the organization
+     */
+    @Test
+    public void testDeleteDevicesBulk() {
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_DEVICE_ADMIN", "");
+        given(this.entityService.listByMrns(any())).willReturn(Arrays.asList(
+                existingDevice("urn:mrn:mcp:device:idp1:dma:test1", 1L),
+                existingDevice("urn:mrn:mcp:device:idp1:dma:test3", 2L)));
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/devices/bulk-delete").with(authentication(auth))
+                    .header("Origin", "bla")
+                    .content("[\"urn:mrn:mcp:device:idp1:dma:test1\", \"urn:mrn:mcp:device:idp1:dma:test2\", \"urn:mrn:mcp:device:idp1:dma:test3\", \"urn:mrn:mcp:device:idp1:sma:test4\", null]")
+                    .contentType("application/json")
+            ).andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].status").value(200))
+                    .andExpect(jsonPath("$[1].status").value(404))
+                    .andExpect(jsonPath("$[1].message").value(MCPIdRegConstants.ENTITY_NOT_FOUND))
+                    .andExpect(jsonPath("$[2].status").value(403))
+                    .andExpect(jsonPath("$[2].message").value(MCPIdRegConstants.MISSING_RIGHTS))
+                    .andExpect(jsonPath("$[3].status").value(400))
+                    .andExpect(jsonPath("$[4].status").value(400))
+                    .andExpect(jsonPath("$[4].message").value(MCPIdRegConstants.MISSING_BULK_ENTITY));
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.entityService).deleteAll(argThat(devices -> devices.size() == 1 && devices.get(0).getMrn().equals("urn:mrn:mcp:device:idp1:dma:test1")));
+    }
+
+    /**
+     * Try to delete devices in bulk without being a device admin
+     */
+    @Test
+    public void testDeleteDevicesBulkWithoutRights() {
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_USER", "");
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/devices/bulk-delete").with(authentication(auth))
+                    .header("Origin", "bla")
+                    .content("[\"urn:mrn:mcp:device:idp1:dma:test1\"]")
+                    .contentType("application/json")
+            ).andExpect(status().isForbidden());
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.entityService, never()).deleteAll(any());
+    }
+
+    private Device existingDevice(String mrn, Long idOrganization) {
+        Device device = new Device();
+        device.setMrn(mrn);
+        device.setName("Test device");
+        device.setIdOrganization(idOrganization);
+        return device;
+    }
+}
@@ -17,12 +17,14 @@
 package net.maritimeconnectivity.identityregistry.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import net.maritimeconnectivity.identityregistry.model.data.KeysetCursor;
 import net.maritimeconnectivity.identityregistry.model.database.IdentityProviderAttribute;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
 import net.maritimeconnectivity.identityregistry.model.database.entities.MMS;
 import net.maritimeconnectivity.identityregistry.services.EntityService;
 import net.maritimeconnectivity.identityregistry.services.MMSService;
 import net.maritimeconnectivity.identityregistry.services.OrganizationService;
+import net.maritimeconnectivity.identityregistry.utils.MCPIdRegConstants;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -30,6 +32,9 @@ import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
@@ -41,12 +46,18 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -55,6 +66,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -345,6 +357,170 @@ public class MMSControllerTests {
         }
     }
 
+    /**
+     * Get a slice of the MMS instances of an organization using keyset pagination
+     */
+    @Test
+    public void testGetOrganizationMMSesSlice() {
+        Organization org = spy(Organization.class);
+        org.setMrn("urn:mrn:mcp:org:idp1:dma");
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_USER", "");
+        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcp:org:idp1:dma")).willReturn(org);
+        when(org.getId()).thenReturn(1L);
+        String nextCursor = KeysetCursor.first(KeysetCursor.SORT_MRN).after(5L, "urn:mrn:mcp:mms:idp1:dma:test1").encode();
+        try {
+            // The id of an instance is only set by the database or by deserialization, and the mms is serialized in the response so it cannot be a spy
+            MMS mms = new ObjectMapper().readValue("{\"id\":5,\"mrn\":\"urn:mrn:mcp:mms:idp1:dma:test1\",\"name\":\"MMS test instance 1\","
+                    + "\"url\":\"https://maritimeconnectivity.net/\"}", MMS.class);
+            mms.setIdOrganization(1L);
+            given(this.entityService.listSliceFromOrg(eq(1L), any(KeysetCursor.class), eq(1)))
+                    .willReturn(new SliceImpl<>(Collections.singletonList(mms), PageRequest.of(0, 1), true));
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/mmses/keyset?sort=mrn&size=1").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content[0].mrn").value("urn:mrn:mcp:mms:idp1:dma:test1"))
+                    .andExpect(jsonPath("$.hasNext").value(true))
+                    .andExpect(jsonPath("$.nextCursor").value(nextCursor))
+                    .andExpect(jsonPath("$.totalElements").doesNotExist());
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/mmses/keyset?cursor=invalid").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isBadRequest());
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+    }
+
+    /**
+     * Try to create mmses in bulk, where only the first one passes all the checks
+     */
+    @Test
+    public void testCreateMMSesBulk() {
+        Organization org = spy(Organization.class);
+        org.setMrn("urn:mrn:mcp:org:idp1:dma");
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_MMS_ADMIN", "");
+        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcp:org:idp1:dma")).willReturn(org);
+        when(org.getId()).thenReturn(1L);
+        given(this.entityService.listExistingMrns(any())).willReturn(Collections.singleton("urn:mrn:mcp:mms:idp1:dma:test3"));
+        given(this.entityService.saveAll(any())).willAnswer(invocation -> invocation.getArgument(0));
+        String body = "[" + String.join(",",
+                bulkMms("urn:mrn:mcp:mms:idp1:dma:test1"),
+                bulkMms("urn:mrn:mcp:mms:idp1:dma:test1"),
+                bulkMms("urn:mrn:mcp:mms:idp1:sma:test2"),
+                bulkMms("urn:mrn:mcp:mms:idp1:dma:test3"),
+                "{\"mrn\": \"not an mrn\"}") + "]";
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/mmses/bulk").with(authentication(auth))
+                    .header("Origin", "bla")
+                    .content(body)
+                    .contentType("application/json")
+            ).andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].status").value(200))
+                    .andExpect(jsonPath("$[1].status").value(409))
+                    .andExpect(jsonPath("$[2].status").value(400))
+                    .andExpect(jsonPath("$[3].status").value(409))
+                    .andExpect(jsonPath("$[4].status").value(400))
+                    .andExpect(jsonPath("$[4].index").value(4));
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/mmses/bulk").with(authentication(auth))
+                    .header("Origin", "bla")
+                    .content("[]")
+                    .contentType("application/json")
+            ).andExpect(status().isBadRequest());
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.entityService).saveAll(argThat(mmses -> mmses.size() == 1 && mmses.get(0).getIdOrganization() == 1L));
+    }
+
+    /**
+     * Try to update mmses in bulk, where only the first one exists and belongs to the organization
+     */
+    @Test
+    public void testUpdateMMSesBulk() {
+        Organization org = spy(Organization.class);
+        org.setMrn("urn:mrn:mcp:org:idp1:dma");
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_MMS_ADMIN", "");
+        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcp:org:idp1:dma")).willReturn(org);
+        when(org.getId()).thenReturn(1L);
+        given(this.entityService.listByMrns(any())).willReturn(Arrays.asList(
+                existingMms("urn:mrn:mcp:mms:idp1:dma:test1", 1L),
+                existingMms("urn:mrn:mcp:mms:idp1:dma:test3", 2L)));
+        given(this.entityService.saveAll(any())).willAnswer(invocation -> invocation.getArgument(0));
+        String body = "[" + String.join(",",
+                bulkMms("urn:mrn:mcp:mms:idp1:dma:test1"),
+                bulkMms("urn:mrn:mcp:mms:idp1:dma:test2"),
+                bulkMms("urn:mrn:mcp:mms:idp1:dma:test3"),
+                bulkMms("urn:mrn:mcp:mms:idp1:sma:test4")) + "]";
+        try {
+            mvc.perform(put("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/mmses/bulk").with(authentication(auth))
+                    .header("Origin", "bla")
+                    .content(body)
+                    .contentType("application/json")
+            ).andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].status").value(200))
+                    .andExpect(jsonPath("$[1].status").value(404))
+                    .andExpect(jsonPath("$[1].message").value(MCPIdRegConstants.ENTITY_NOT_FOUND))
+                    .andExpect(jsonPath("$[2].status").value(403))
+                    .andExpect(jsonPath("$[2].message").value(MCPIdRegConstants.MISSING_RIGHTS))
+                    .andExpect(jsonPath("$[3].status").value(400));
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.entityService).saveAll(argThat(mmses -> mmses.size() == 1
+                && mmses.get(0).getMrn().equals("urn:mrn:mcp:mms:idp1:dma:test1") && mmses.get(0).getName().equals("MMS test instance")));
+    }
+
+    /**
+     * Try to delete mmses in bulk, where the delete of the only one that may be deleted violates a constraint
+     */
+    @Test
+    public void testDeleteMMSesBulk() {
+        Organization org = spy(Organization.class);
+        org.setMrn("urn:mrn:mcp:org:idp1:dma");
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_MMS_ADMIN", "");
+        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcp:org:idp1:dma")).willReturn(org);
+        when(org.getId()).thenReturn(1L);
+        given(this.entityService.listByMrns(any())).willReturn(Arrays.asList(
+                existingMms("urn:mrn:mcp:mms:idp1:dma:test1", 1L),
+                existingMms("urn:mrn:mcp:mms:idp1:dma:test3", 2L)));
+        doThrow(new DataIntegrityViolationException("constraint violation")).when(this.entityService).deleteAll(any());
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/mmses/bulk-delete").with(authentication(auth))
+                    .header("Origin", "bla")
+                    .content("[\"urn:mrn:mcp:mms:idp1:dma:test1\", \"urn:mrn:mcp:mms:idp1:dma:test2\", \"urn:mrn:mcp:mms:idp1:dma:test3\", \"urn:mrn:mcp:mms:idp1:DMA:TEST1\"]")
+                    .contentType("application/json")
+            ).andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].status").value(409))
+                    .andExpect(jsonPath("$[0].message").value(MCPIdRegConstants.BULK_SAVE_FAILED))
+                    .andExpect(jsonPath("$[1].status").value(404))
+                    .andExpect(jsonPath("$[2].status").value(403))
+                    .andExpect(jsonPath("$[3].status").value(409))
+                    .andExpect(jsonPath("$[3].message").value(MCPIdRegConstants.DUPLICATE_BULK_MRN));
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.entityService).deleteAll(argThat(mmses -> mmses.size() == 1 && mmses.get(0).getMrn().equals("urn:mrn:mcp:mms:idp1:dma:test1")));
+    }
+
+    private MMS existingMms(String mrn, Long idOrganization) {
+        MMS mms = new MMS();
+        mms.setMrn(mrn);
+        mms.setName("Old name");
+        mms.setUrl("https://maritimeconnectivity.net/");
+        mms.setIdOrganization(idOrganization);
+        return mms;
+    }
+
+    private String bulkMms(String mrn) {
+        MMS mms = new MMS();
+        mms.setMrn(mrn);
+        mms.setName("MMS test instance");
+        mms.setUrl("https://maritimeconnectivity.net/");
+        return serialize(mms);
+    }
 
     /**
      * Helper function to serialize a mms to json
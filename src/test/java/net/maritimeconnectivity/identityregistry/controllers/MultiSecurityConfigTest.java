@@ -2,8 +2,8 @@ package net.maritimeconnectivity.identityregistry.controllers;
 
 import net.maritimeconnectivity.identityregistry.config.SimpleCorsFilter;
 import net.maritimeconnectivity.identityregistry.security.MCPKeycloakAuthenticationProvider;
+import net.maritimeconnectivity.identityregistry.security.x509.X509CertificateUserDetailsService;
 import net.maritimeconnectivity.identityregistry.security.x509.X509HeaderUserDetailsService;
-import net.maritimeconnectivity.identityregistry.security.x509.X509UserDetailsService;
 import org.keycloak.adapters.springsecurity.config.KeycloakWebSecurityConfigurerAdapter;
 import org.keycloak.adapters.springsecurity.filter.KeycloakAuthenticationProcessingFilter;
 import org.keycloak.adapters.springsecurity.filter.KeycloakPreAuthActionsFilter;
@@ -111,6 +111,7 @@ public class MultiSecurityConfigTest {
                     .antMatchers(HttpMethod.GET, "/oidc/api/certificates/crl/*").permitAll()
                     .antMatchers(HttpMethod.GET, "/oidc/api/certificates/ocsp/**").permitAll()
                     .antMatchers(HttpMethod.POST, "/oidc/api/certificates/ocsp/*").permitAll()
+                    .antMatchers(HttpMethod.GET, "/oidc/api/certificates/log/**").permitAll()
                     .antMatchers(HttpMethod.POST, "/oidc/api/**").authenticated()
                     .antMatchers(HttpMethod.PUT, "/oidc/api/**").authenticated()
                     .antMatchers(HttpMethod.DELETE, "/oidc/api/**").authenticated()
@@ -182,11 +183,15 @@ public class MultiSecurityConfigTest {
                     .antMatchers(HttpMethod.GET, "/x509/api/certificates/crl/*").permitAll()
                     .antMatchers(HttpMethod.GET, "/x509/api/certificates/ocsp/**").permitAll()
                     .antMatchers(HttpMethod.POST, "/x509/api/certificates/ocsp/*").permitAll()
+                    .antMatchers(HttpMethod.GET, "/x509/api/certificates/log/**").permitAll()
                     .antMatchers(HttpMethod.POST, "/x509/api/**").authenticated()
                     .antMatchers(HttpMethod.PUT, "/x509/api/**").authenticated()
                     .antMatchers(HttpMethod.DELETE, "/x509/api/**").authenticated()
                     .antMatchers(HttpMethod.GET, "/x509/api/**").authenticated()
                     .antMatchers(HttpMethod.GET, "/service/**").authenticated()
+                    // The actuator endpoints share the port of the API unless management.server.port is set
+                    .antMatchers(HttpMethod.GET, "/actuator/health", "/actuator/info").permitAll()
+                    .antMatchers("/actuator/**").hasRole("SITE_ADMIN")
             ;
 
             if (!useStandardSSL) {
@@ -197,12 +202,12 @@ public class MultiSecurityConfigTest {
                 certFilter.setExceptionIfHeaderMissing(false);
                 http.addFilter(certFilter);
             } else {
-                // Using this approach is not recommended since we don't extract all the information from
-                // the certificate, as done in the approach above.
+                // TLS is terminated by the application, so the certificate parsed by the connector is used directly
+                // and the identity is extracted the same way as from the header above
                 http
                         .x509()
-                        .subjectPrincipalRegex("(.*)") // Extract all and let it be handled by the X509UserDetailsService. "CN=(.*?)," for CommonName only
-                        .userDetailsService(x509UserDetailsService())
+                        .subjectPrincipalRegex("(.*)") // The principal is not used, the identity is read from the certificate itself
+                        .authenticationUserDetailsService(x509CertificateUserDetailsService())
                 ;
             }
         }
@@ -213,8 +218,8 @@ public class MultiSecurityConfigTest {
         }
 
         @Bean
-        public X509UserDetailsService x509UserDetailsService() {
-            return new X509UserDetailsService();
+        public X509CertificateUserDetailsService x509CertificateUserDetailsService() {
+            return new X509CertificateUserDetailsService(x509HeaderUserDetailsService());
         }
 
         private SecurityExpressionHandler<FilterInvocation> webExpressionHandler() {
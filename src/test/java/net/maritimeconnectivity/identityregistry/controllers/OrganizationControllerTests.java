@@ -17,15 +17,18 @@ package net.maritimeconnectivity.identityregistry.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.maritimeconnectivity.identityregistry.model.database.Agent;
+import net.maritimeconnectivity.identityregistry.model.database.Certificate;
 import net.maritimeconnectivity.identityregistry.model.database.IdentityProviderAttribute;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Device;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Service;
 import net.maritimeconnectivity.identityregistry.model.database.entities.User;
+import net.maritimeconnectivity.identityregistry.services.AgentDelegationService;
 import net.maritimeconnectivity.identityregistry.services.AgentService;
 import net.maritimeconnectivity.identityregistry.services.CertificateService;
 import net.maritimeconnectivity.identityregistry.services.EntityService;
 import net.maritimeconnectivity.identityregistry.services.OrganizationService;
+import net.maritimeconnectivity.identityregistry.services.RevocationService;
 import net.maritimeconnectivity.identityregistry.services.RoleService;
 import net.maritimeconnectivity.identityregistry.utils.EmailUtil;
 import net.maritimeconnectivity.identityregistry.utils.KeycloakAdminUtil;
@@ -46,19 +49,28 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -96,6 +108,12 @@ public class OrganizationControllerTests {
     @MockBean
     private AgentService agentService;
 
+    @MockBean
+    private AgentDelegationService agentDelegationService;
+
+    @MockBean
+    private RevocationService revocationService;
+
     @BeforeEach
     public void setup() {
         mvc = MockMvcBuilders
@@ -258,13 +276,7 @@ public class OrganizationControllerTests {
         agent.setIdActingOrganization(2L);
         // Create fake authentication object
         Authentication auth = TokenGenerator.generatePreAuthenticatedAuthenticationToken("urn:mrn:mcp:org:idp1:agent", "ROLE_ORG_ADMIN", "");
-        Organization mock1 = mock(Organization.class);
-        given(this.organizationService.getOrganizationByMrnNoFilter("urn:mrn:mcp:org:idp1:dma")).willReturn(mock1);
-        Organization mock2 = mock(Organization.class);
-        given(this.organizationService.getOrganizationByMrnNoFilter("urn:mrn:mcp:org:idp1:agent")).willReturn(mock2);
-        List<Agent> agentList = (List<Agent>) mock(List.class);
-        given(this.agentService.getAgentsByIdOnBehalfOfOrgAndIdActingOrg(mock1.getId(), mock2.getId())).willReturn(agentList);
-        given(agentList.isEmpty()).willReturn(false);
+        given(this.agentDelegationService.isAgentFor("urn:mrn:mcp:org:idp1:agent", "urn:mrn:mcp:org:idp1:dma")).willReturn(true);
         given(this.organizationService.getOrganizationByMrn("urn:mrn:mcp:org:idp1:dma")).willReturn(org);
         try {
             mvc.perform(put("/oidc/api/org/urn:mrn:mcp:org:idp1:dma").with(authentication(auth))
@@ -309,13 +321,7 @@ public class OrganizationControllerTests {
         agent.setIdActingOrganization(2L);
         // Create fake authentication object
         Authentication auth = TokenGenerator.generatePreAuthenticatedAuthenticationToken("urn:mrn:mcp:org:idp1:agent", "ROLE_USER", "");
-        Organization mock1 = mock(Organization.class);
-        given(this.organizationService.getOrganizationByMrnNoFilter("urn:mrn:mcp:org:idp1:dma")).willReturn(mock1);
-        Organization mock2 = mock(Organization.class);
-        given(this.organizationService.getOrganizationByMrnNoFilter("urn:mrn:mcp:org:idp1:agent")).willReturn(mock2);
-        List<Agent> agentList = (List<Agent>) mock(List.class);
-        given(this.agentService.getAgentsByIdOnBehalfOfOrgAndIdActingOrg(mock1.getId(), mock2.getId())).willReturn(agentList);
-        given(agentList.isEmpty()).willReturn(false);
+        given(this.agentDelegationService.isAgentFor("urn:mrn:mcp:org:idp1:agent", "urn:mrn:mcp:org:idp1:dma")).willReturn(true);
         given(this.organizationService.getOrganizationByMrn("urn:mrn:mcp:org:idp1:dma")).willReturn(org);
         try {
             mvc.perform(put("/oidc/api/org/urn:mrn:mcp:org:idp1:dma").with(authentication(auth))
@@ -517,6 +523,99 @@ public class OrganizationControllerTests {
     }
 
 
+    /**
+     * Try to revoke all certificates of an organization, which should be done with one update and one
+     * refresh of the revocation information per CA
+     */
+    @Test
+    public void testRevokeAllOrgCerts() {
+        Authentication auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_ORG_ADMIN", "");
+        Organization org = mock(Organization.class);
+        given(org.getId()).willReturn(1L);
+        given(org.getMrn()).willReturn("urn:mrn:mcp:org:idp1:dma");
+        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcp:org:idp1:dma")).willReturn(org);
+        Certificate cert1 = new Certificate();
+        cert1.setSerialNumber(BigInteger.valueOf(1));
+        cert1.setCertificateAuthority("urn:mrn:mcp:ca:idp1:ca1");
+        Certificate cert2 = new Certificate();
+        cert2.setSerialNumber(BigInteger.valueOf(2));
+        cert2.setCertificateAuthority("urn:mrn:mcp:ca:idp1:ca1");
+        Certificate cert3 = new Certificate();
+        cert3.setSerialNumber(BigInteger.valueOf(3));
+        cert3.setCertificateAuthority("urn:mrn:mcp:ca:idp1:ca2");
+        given(this.certificateService.listActiveCertificatesOfOrganization(1L)).willReturn(Arrays.asList(cert1, cert2, cert3));
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/certificate/revoke-all").with(authentication(auth))
+                    .header("Origin", "bla")
+                    .content("{\"revokedAt\": 1600000000000, \"revokationReason\": \"cessationofoperation\"}")
+                    .contentType("application/json")
+            ).andExpect(status().isOk());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+        verify(this.certificateService, times(1)).revokeCertificates(anyCollection(), any(), eq("cessationofoperation"));
+        verify(this.revocationService, times(1)).refresh("urn:mrn:mcp:ca:idp1:ca1");
+        verify(this.revocationService, times(1)).refresh("urn:mrn:mcp:ca:idp1:ca2");
+        verify(this.revocationService, times(2)).refresh(anyString());
+    }
+
+    /**
+     * Try to export the vessel certificates of an organization as a PKCS#7 bundle
+     */
+    @Test
+    public void testExportOrgCerts() {
+        Authentication auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_USER", "");
+        Organization org = mock(Organization.class);
+        given(org.getId()).willReturn(1L);
+        given(org.getMrn()).willReturn("urn:mrn:mcp:org:idp1:dma");
+        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcp:org:idp1:dma")).willReturn(org);
+        try {
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/certificates/export?format=pkcs7&entityType=vessel").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isOk()).andExpect(content().contentType("application/pkcs7-mime"));
+            verify(this.certificateService, times(1)).writeActiveCertificatesOfOrganization(eq(1L), eq("vessel"), any());
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/certificates/export?format=jks").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isBadRequest());
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/certificates/export?entityType=boat").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isBadRequest());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    /**
+     * Try to export everything registered under an organization
+     */
+    @Test
+    public void testExportOrg() {
+        Authentication auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_USER", "");
+        try {
+            // The organization is written to the export, so it cannot be a spy, and its id is only set by the database or by deserialization
+            Organization org = new ObjectMapper().readValue("{\"id\":1,\"mrn\":\"urn:mrn:mcp:org:idp1:dma\",\"name\":\"Danish Maritime Authority\"}", Organization.class);
+            org.setApproved(true);
+            given(this.organizationService.getOrganizationByMrn("urn:mrn:mcp:org:idp1:dma")).willReturn(org);
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/export").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                    .andExpect(content().string(startsWith("{\"type\":\"organization\",\"entity\":{")))
+                    .andExpect(content().string(endsWith("{\"type\":\"end\",\"count\":1}\n")));
+            verify(this.userService, times(1)).writeAllFromOrg(eq(1L), any());
+            verify(this.deviceService, times(1)).writeAllFromOrg(eq(1L), any());
+            verify(this.serviceService, times(1)).writeAllFromOrg(eq(1L), any());
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcp:org:idp1:unknown/export").with(authentication(auth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isForbidden());
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
     /**
      * Helper function to serialize an organization to json
      * @param org
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.controllers;
+
+import net.maritimeconnectivity.identityregistry.utils.RequestQueryStatistics;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Helper class to count the SQL statements, entity loads and collection fetches of the requests performed when
+ * testing controllers, so that the tests can put a budget on what an endpoint may cost.
+ */
+public class QueryBudget {
+
+    private QueryBudget() {
+        // empty private constructor as this class should not be instantiated
+    }
+
+    /**
+     * Builds a MockMvc with the security filters. RequestQueryStatisticsFilter is left out, as
+     * {@link #perform(MockMvc, MockHttpServletRequestBuilder, ResultMatcher...)} counts around the whole request itself.
+     *
+     * @param context the application context
+     * @return the MockMvc
+     */
+    public static MockMvc buildMockMvc(WebApplicationContext context) {
+        return MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+    }
+
+    /**
+     * Performs the request and returns what it cost. MockMvc handles the request on the calling thread, so counting
+     * around it is the same as counting from the first filter as the application does.
+     *
+     * @param mvc a MockMvc built by {@link #buildMockMvc(WebApplicationContext)}
+     * @param request the request
+     * @param expected the expectations on the result of the request
+     * @return the statistics of the request
+     * @throws Exception if the request fails
+     */
+    public static RequestQueryStatistics perform(MockMvc mvc, MockHttpServletRequestBuilder request, ResultMatcher... expected) throws Exception {
+        RequestQueryStatistics statistics = RequestQueryStatistics.start();
+        ResultActions result;
+        try {
+            result = mvc.perform(request);
+        } finally {
+            RequestQueryStatistics.stop();
+        }
+        for (ResultMatcher matcher : expected) {
+            result.andExpect(matcher);
+        }
+        return statistics;
+    }
+
+    /**
+     * Fails if the request ran more statements than the budget allows
+     */
+    public static void assertStatementsWithin(int budget, RequestQueryStatistics statistics, String endpoint) {
+        assertTrue(statistics.getStatements() <= budget, String.format("%s ran %d statements but may run at most %d, " +
+                        "it loaded %d entities and fetched %d collections", endpoint, statistics.getStatements(), budget,
+                statistics.getEntityLoads(), statistics.getCollectionFetches()));
+    }
+
+    /**
+     * Fails if the request loaded more entities than the budget allows
+     */
+    public static void assertEntityLoadsWithin(int budget, RequestQueryStatistics statistics, String endpoint) {
+        assertTrue(statistics.getEntityLoads() <= budget, String.format("%s loaded %d entities but may load at most %d",
+                endpoint, statistics.getEntityLoads(), budget));
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.controllers;
+
+import net.maritimeconnectivity.identityregistry.model.database.Certificate;
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
+import net.maritimeconnectivity.identityregistry.model.database.entities.Service;
+import net.maritimeconnectivity.identityregistry.model.database.entities.Vessel;
+import net.maritimeconnectivity.identityregistry.model.database.entities.VesselAttribute;
+import net.maritimeconnectivity.identityregistry.repositories.CertificateRepository;
+import net.maritimeconnectivity.identityregistry.repositories.OrganizationRepository;
+import net.maritimeconnectivity.identityregistry.repositories.ServiceRepository;
+import net.maritimeconnectivity.identityregistry.repositories.VesselRepository;
+import net.maritimeconnectivity.identityregistry.utils.CertificateUtil;
+import net.maritimeconnectivity.identityregistry.utils.RequestQueryStatistics;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.operator.DigestCalculator;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigInteger;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Puts a budget on the number of statements that the endpoints run against the database, so that changes that make
+ * an endpoint load its associations one by one fail the build.
+ * <p/>
+ * Unlike the other controller tests, the services are not mocked. Every request is performed once before it is
+ * measured, so that the budgets hold for the organizations and roles that are cached after the first request.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ContextConfiguration
+@WebAppConfiguration
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QueryBudgetTests {
+
+    private static final String ORG_MRN = "urn:mrn:mcp:org:idp1:query-budget";
+    private static final String CA_ALIAS = "urn:mrn:mcp:ca:idp1:mcp-idreg";
+    private static final int VESSELS = 60;
+    private static final int CERTIFICATES = 5;
+    private static final long FIRST_SERIAL_NUMBER = 9000001;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private OrganizationRepository organizationRepository;
+
+    @Autowired
+    private VesselRepository vesselRepository;
+
+    @Autowired
+    private CertificateRepository certificateRepository;
+
+    @Autowired
+    private ServiceRepository serviceRepository;
+
+    @Autowired
+    private CertificateUtil certificateUtil;
+
+    private MockMvc mvc;
+    private Organization org;
+    private List<Vessel> vessels;
+    private List<Certificate> certificates;
+
+    @BeforeAll
+    public void setup() {
+        mvc = QueryBudget.buildMockMvc(context);
+
+        org = new Organization();
+        org.setMrn(ORG_MRN);
+        org.setName("Query Budget Authority");
+        org.setEmail("query-budget@maritimeconnectivity.net");
+        org.setUrl("https://maritimeconnectivity.net");
+        org.setAddress("Carl Jakobsensvej 31, 2500 Valby");
+        org.setCountry("Denmark");
+        org.setFederationType("test-idp");
+        org.setCertificateAuthority(CA_ALIAS);
+        org.setApproved(true);
+        org = organizationRepository.save(org);
+
+        List<Vessel> newVessels = new ArrayList<>();
+        for (int i = 1; i <= VESSELS; i++) {
+            Vessel vessel = new Vessel();
+            vessel.setMrn(ORG_MRN.replace(":org:", ":vessel:") + ":vessel-" + i);
+            vessel.setName("Vessel " + i);
+            vessel.setIdOrganization(org.getId());
+            VesselAttribute attribute = new VesselAttribute();
+            attribute.setAttributeName("imo-number");
+            attribute.setAttributeValue(String.valueOf(1000000 + i));
+            attribute.setVessel(vessel);
+            vessel.setAttributes(new HashSet<>(Collections.singleton(attribute)));
+            newVessels.add(vessel);
+        }
+        vessels = new ArrayList<>();
+        vesselRepository.saveAll(newVessels).forEach(vessels::add);
+
+        List<Certificate> newCertificates = new ArrayList<>();
+        for (int i = 0; i < CERTIFICATES; i++) {
+            Certificate certificate = new Certificate();
+            certificate.setSerialNumber(BigInteger.valueOf(FIRST_SERIAL_NUMBER + i));
+            certificate.setCertificateAuthority(CA_ALIAS);
+            certificate.setCertificate("");
+            certificate.setStart(new Date());
+            certificate.setEnd(new Date(System.currentTimeMillis() + 86400000L));
+            certificate.setVessel(vessels.get(i));
+            if (i == 0) {
+                certificate.setRevoked(true);
+                certificate.setRevokedAt(new Date());
+                certificate.setRevokeReason("keycompromise");
+            }
+            newCertificates.add(certificate);
+        }
+        certificates = new ArrayList<>();
+        certificateRepository.saveAll(newCertificates).forEach(certificates::add);
+    }
+
+    @AfterAll
+    public void tearDown() {
+        certificateRepository.deleteAll(certificates);
+        vesselRepository.deleteAll(vessels);
+        organizationRepository.delete(org);
+    }
+
+    @Test
+    public void vesselPageIsWithinBudget() throws Exception {
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken(ORG_MRN, "ROLE_USER", "");
+        // The page, the count and the attributes of all the vessels on the page. The certificates of the vessels are
+        // not loaded and left out of the response.
+        RequestQueryStatistics statistics = performTwice(get("/oidc/api/org/" + ORG_MRN + "/vessels?page=0&size=50")
+                .with(authentication(auth)).header("Origin", "bla"),
+                jsonPath("$.content.length()").value(50),
+                jsonPath("$.content[0].attributes").isArray(),
+                jsonPath("$.content[*].certificates").isEmpty());
+        QueryBudget.assertStatementsWithin(3, statistics, "Vessel page of 50");
+    }
+
+    @Test
+    public void ocspRequestIsWithinBudget() throws Exception {
+        X509Certificate caCert = (X509Certificate) certificateUtil.getKeystoreHandler().getMCPCertificate(CA_ALIAS);
+        DigestCalculator sha1 = new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1);
+        OCSPReqBuilder ocspReqBuilder = new OCSPReqBuilder();
+        for (int i = 0; i < CERTIFICATES; i++) {
+            ocspReqBuilder.addRequest(new CertificateID(sha1, new JcaX509CertificateHolder(caCert), BigInteger.valueOf(FIRST_SERIAL_NUMBER + i)));
+        }
+        byte[] ocspRequest = ocspReqBuilder.build().getEncoded();
+
+        // Only the status of the certificates is read, not the certificates or their owners
+        RequestQueryStatistics statistics = performTwice(post("/x509/api/certificates/ocsp/" + CA_ALIAS)
+                .contentType("application/ocsp-request").content(ocspRequest).header("Origin", "bla"));
+        QueryBudget.assertStatementsWithin(1, statistics, "OCSP request with " + CERTIFICATES + " serial numbers");
+        QueryBudget.assertEntityLoadsWithin(0, statistics, "OCSP request with " + CERTIFICATES + " serial numbers");
+    }
+
+    @Test
+    public void orgExportDoesNotSelectTheVesselOfEachService() throws Exception {
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken(ORG_MRN, "ROLE_USER", "");
+        MockHttpServletRequestBuilder export = get("/oidc/api/org/" + ORG_MRN + "/export")
+                .with(authentication(auth)).header("Origin", "bla");
+        List<Service> services = new ArrayList<>();
+        try {
+            services.addAll(saveServices(0, 5));
+            RequestQueryStatistics few = performTwice(export);
+            services.addAll(saveServices(5, 25));
+            RequestQueryStatistics many = performTwice(export);
+            // The vessels are joined to the services and their attributes are loaded in one batch
+            assertEquals(few.getStatements(), many.getStatements(), "Exporting 25 instead of 5 services linked to vessels ran more statements");
+        } finally {
+            serviceRepository.deleteAll(services);
+        }
+    }
+
+    private List<Service> saveServices(int from, int to) {
+        List<Service> newServices = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Service service = new Service();
+            service.setMrn(ORG_MRN.replace(":org:", ":service:") + ":service-" + i);
+            service.setName("Service " + i);
+            service.setInstanceVersion("1.0");
+            service.setIdOrganization(org.getId());
+            service.setVessel(vessels.get(i));
+            newServices.add(service);
+        }
+        List<Service> saved = new ArrayList<>();
+        serviceRepository.saveAll(newServices).forEach(saved::add);
+        return saved;
+    }
+
+    private RequestQueryStatistics performTwice(MockHttpServletRequestBuilder request, ResultMatcher... expected) throws Exception {
+        List<ResultMatcher> matchers = new ArrayList<>(Collections.singletonList(status().isOk()));
+        matchers.addAll(Arrays.asList(expected));
+        QueryBudget.perform(mvc, request, matchers.toArray(new ResultMatcher[0]));
+        return QueryBudget.perform(mvc, request, matchers.toArray(new ResultMatcher[0]));
+    }
+}
@@ -62,6 +62,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -188,6 +189,53 @@ public class ServiceControllerTests {
     }
 
 
+    /**
+     * Get a service with OIDC credentials as a user that is not an admin, and as an admin
+     */
+    @Test
+    public void testGetServiceHidesSensitiveFields() {
+        // Build service object to test with
+        Service service = new Service();
+        service.setMrn("urn:mrn:mcp:service:idp1:dma:instance:nw-nm");
+        service.setName("NW NM Service");
+        service.setInstanceVersion("0.3.4");
+        service.setIdOrganization(1L);
+        service.setOidcAccessType("confidential");
+        service.setOidcClientId("nw-nm-client");
+        service.setOidcClientSecret("nw-nm-secret");
+        // Build org object to test with
+        Organization org = spy(Organization.class);
+        org.setMrn("urn:mrn:mcp:org:idp1:dma");
+        org.setAddress("Carl Jakobsensvej 31, 2500 Valby");
+        org.setCountry("Denmark");
+        org.setUrl("http://dma.dk");
+        org.setEmail("dma@dma.dk");
+        org.setName("Danish Maritime Authority");
+        org.setIdentityProviderAttributes(new HashSet<>());
+        // Setup mock returns
+        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcp:org:idp1:dma")).willReturn(org);
+        given(((ServiceService) this.entityService).getServiceByMrnAndVersion("urn:mrn:mcp:service:idp1:dma:instance:nw-nm", "0.3.4")).willReturn(service);
+        when(org.getId()).thenReturn(1L);
+        KeycloakAuthenticationToken userAuth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_USER", "");
+        KeycloakAuthenticationToken adminAuth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_SITE_ADMIN", "");
+        try {
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/service/urn:mrn:mcp:service:idp1:dma:instance:nw-nm/0.3.4").with(authentication(userAuth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isOk())
+                    .andExpect(jsonPath("$.name").value("NW NM Service"))
+                    .andExpect(jsonPath("$.oidcClientSecret").doesNotExist())
+                    .andExpect(jsonPath("$.oidcClientId").doesNotExist())
+                    .andExpect(jsonPath("$.oidcAccessType").doesNotExist());
+            mvc.perform(get("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/service/urn:mrn:mcp:service:idp1:dma:instance:nw-nm/0.3.4").with(authentication(adminAuth))
+                    .header("Origin", "bla")
+            ).andExpect(status().isOk())
+                    .andExpect(jsonPath("$.oidcClientSecret").value("nw-nm-secret"));
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
     /**
      * Try to update a service without the appropriate association
      */
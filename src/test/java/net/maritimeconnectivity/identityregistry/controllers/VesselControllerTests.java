@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
+import net.maritimeconnectivity.identityregistry.model.database.entities.Vessel;
+import net.maritimeconnectivity.identityregistry.services.EntityService;
+import net.maritimeconnectivity.identityregistry.services.OrganizationService;
+import net.maritimeconnectivity.identityregistry.utils.MCPIdRegConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ContextConfiguration
+@WebAppConfiguration
+public class VesselControllerTests {
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mvc;
+
+    @MockBean
+    private EntityService<Vessel> entityService;
+
+    @MockBean
+    private OrganizationService organizationService;
+
+    private Organization org;
+
+    @BeforeEach
+    public void setup() {
+        mvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                //.alwaysDo(print())
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+        org = spy(Organization.class);
+        org.setMrn("urn:mrn:mcp:org:idp1:dma");
+        given(this.organizationService.getOrganizationByMrn("urn:mrn:mcp:org:idp1:dma")).willReturn(org);
+        when(org.getId()).thenReturn(1L);
+    }
+
+    /**
+     * Try to create vessels in bulk, where the second one is already taken
+     */
+    @Test
+    public void testCreateVesselsBulk() {
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_VESSEL_ADMIN", "");
+        given(this.entityService.listExistingMrns(any())).willReturn(Collections.singleton("urn:mrn:mcp:vessel:idp1:dma:test2"));
+        given(this.entityService.saveAll(any())).willAnswer(invocation -> invocation.getArgument(0));
+        String body = "[" + String.join(",",
+                bulkVessel("urn:mrn:mcp:vessel:idp1:dma:test1"),
+                bulkVessel("urn:mrn:mcp:vessel:idp1:dma:test2")) + "]";
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/vessels/bulk").with(authentication(auth))
+                    .header("Origin", "bla")
+                    .content(body)
+                    .contentType("application/json")
+            ).andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].status").value(200))
+                    .andExpect(jsonPath("$[1].status").value(409))
+                    .andExpect(jsonPath("$[1].message").value(MCPIdRegConstants.ENTITY_ALREADY_EXISTS));
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.entityService).saveAll(argThat(vessels -> vessels.size() == 1 && vessels.get(0).getIdOrganization() == 1L));
+    }
+
+    /**
+     * Try to create vessels in bulk without being a vessel admin
+     */
+    @Test
+    public void testCreateVesselsBulkWithoutRights() {
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_USER", "");
+        try {
+            mvc.perform(post("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/vessels/bulk").with(authentication(auth))
+                    .header("Origin", "bla")
+                    .content("[" + bulkVessel("urn:mrn:mcp:vessel:idp1:dma:test1") + "]")
+                    .contentType("application/json")
+            ).andExpect(status().isForbidden());
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.entityService, never()).saveAll(any());
+    }
+
+    /**
+     * Try to update vessels in bulk, where only the first one exists and belongs to the organization
+     */
+    @Test
+    public void testUpdateVesselsBulk() {
+        KeycloakAuthenticationToken auth = TokenGenerator.generateKeycloakToken("urn:mrn:mcp:org:idp1:dma", "ROLE_VESSEL_ADMIN", "");
+        given(this.entityService.listByMrns(any())).willReturn(Arrays.asList(
+                existingVessel("urn:mrn:mcp:vessel:idp1:dma:test1", 1L),
+                existingVessel("urn:mrn:mcp:vessel:idp1:dma:test3", 2L)));
+        given(this.entityService.saveAll(any())).willAnswer(invocation -> invocation.getArgument(0));
+        String body = "[" + String.join(",",
+                bulkVessel("urn:mrn:mcp:vessel:idp1:dma:test1"),
+                bulkVessel("urn:mrn:mcp:vessel:idp1:dma:test2"),
+                bulkVessel("urn:mrn:mcp:vessel:idp1:dma:test3")) + "]";
+        try {
+            mvc.perform(put("/oidc/api/org/urn:mrn:mcp:org:idp1:dma/vessels/bulk").with(authentication(auth))
+                    .header("Origin", "bla")
+                    .content(body)
+                    .contentType("application/json")
+            ).andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].status").value(200))
+                    .andExpect(jsonPath("$[1].status").value(404))
+                    .andExpect(jsonPath("$[2].status").value(403));
+        } catch (Exception e) {
+            e.printStackTrace();
+            assertTrue(false);
+        }
+        verify(this.entityService).saveAll(argThat(vessels -> vessels.size() == 1 && vessels.get(0).getName().equals("Test vessel")));
+    }
+
+    private Vessel existingVessel(String mrn, Long idOrganization) {
+        Vessel vessel = new Vessel();
+        vessel.setMrn(mrn);
+        vessel.setName("Old name");
+        vessel.setIdOrganization(idOrganization);
+        vessel.setAttributes(new HashSet<>());
+        return vessel;
+    }
+
+    private String bulkVessel(String mrn) {
+        Vessel vessel = new Vessel();
+        vessel.setMrn(mrn);
+        vessel.setName("Test vessel");
+        vessel.setAttributes(new HashSet<>());
+        try {
+            return new ObjectMapper().writeValueAsString(vessel);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+}
@@ -19,6 +19,7 @@ package net.maritimeconnectivity.identityregistry.controllers;
 import com.google.common.collect.Lists;
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
 import net.maritimeconnectivity.identityregistry.model.database.VesselImage;
+import net.maritimeconnectivity.identityregistry.model.database.entities.EntityModel;
 import net.maritimeconnectivity.identityregistry.model.database.entities.Vessel;
 import net.maritimeconnectivity.identityregistry.repositories.OrganizationRepository;
 import net.maritimeconnectivity.identityregistry.repositories.VesselRepository;
@@ -98,7 +99,7 @@ public class VesselImageControllerTest {
         try {
             vesselImageController.deleteVesselImage(new MockHttpServletRequest("DELETE", "/path"), org.getMrn(), vessel.getMrn());
 
-            Vessel reloaded = vesselRepo.getByMrnIgnoreCase(vessel.getMrn());
+            Vessel reloaded = vesselRepo.getByMrnLower(EntityModel.toLowerCaseMrn(vessel.getMrn()));
             assertNull("Image should be deleted", reloaded.getImage());
 
             assertNumberOfImages(0);
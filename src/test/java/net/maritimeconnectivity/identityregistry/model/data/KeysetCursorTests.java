@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.model.data;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeysetCursorTests {
+
+    @Test
+    public void firstCursorStartsBeforeAllRows() {
+        KeysetCursor cursor = KeysetCursor.first(null);
+        assertEquals(KeysetCursor.SORT_ID, cursor.getSort());
+        assertEquals(0, cursor.getLastId());
+        assertEquals("", cursor.getLastMrn());
+    }
+
+    @Test
+    public void cursorSurvivesEncoding() {
+        String encoded = KeysetCursor.first(KeysetCursor.SORT_MRN).after(42L, "urn:mrn:mcp:vessel:idp1:dma:poul-loewenoern").encode();
+        // The cursor must be usable as a query parameter as it is
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"));
+
+        KeysetCursor decoded = KeysetCursor.decode(encoded);
+        assertTrue(decoded.isSortedByMrn());
+        assertEquals(42L, decoded.getLastId());
+        assertEquals("urn:mrn:mcp:vessel:idp1:dma:poul-loewenoern", decoded.getLastMrn());
+    }
+
+    @Test
+    public void idCursorDoesNotCarryTheMrn() {
+        KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.first(KeysetCursor.SORT_ID).after(7L, "urn:mrn:mcp:user:idp1:dma:thc").encode());
+        assertFalse(cursor.isSortedByMrn());
+        assertEquals(7L, cursor.getLastId());
+        assertEquals("", cursor.getLastMrn());
+    }
+
+    @Test
+    public void invalidCursorsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.first("name"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not a cursor"));
+        // "id:42"
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("aWQ6NDI"));
+        // "id:x:"
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("aWQ6eDo"));
+    }
+
+    @Test
+    public void sliceSizeIsBounded() {
+        Pageable tooSmall = KeysetCursor.limit(0);
+        assertEquals(1, tooSmall.getPageSize());
+        assertEquals(0, tooSmall.getOffset());
+        assertEquals(KeysetCursor.MAX_SIZE, KeysetCursor.limit(100000).getPageSize());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.repositories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Captures the query plans of the hot queries before and after the index migration, using H2 in the MySQL
+ * compatibility mode that is also used for the other tests.
+ */
+public class QueryPlanTests {
+
+    private static final String MIGRATION = "src/main/resources/db/migration/V14__add_indexes_for_hot_queries.sql";
+
+    private static final String SERIAL_NUMBER_QUERY = "SELECT * FROM `certificates` WHERE `serial_number` = 42";
+    private static final String CRL_QUERY = "SELECT * FROM `certificates` WHERE `certificate_authority` = 'urn:mrn:mcp:ca:idp1:mcp-idreg' " +
+            "AND `revoked` = TRUE AND `revoked_at` < '2021-01-01 00:00:00'";
+    private static final String ROLES_QUERY = "SELECT * FROM `roles` WHERE `id_organization` = 1 AND `permission` = 'MCADMIN'";
+    private static final String AGENTS_QUERY = "SELECT * FROM `acting_on_behalf` WHERE `id_on_behalf_of` = 1 AND `id_acting` = 2";
+    private static final String USER_MRN_IGNORE_CASE_QUERY = "SELECT * FROM `users` WHERE UPPER(`mrn`) = UPPER('urn:mrn:mcp:user:idp1:dma:THC')";
+    private static final String USER_MRN_LOWER_QUERY = "SELECT * FROM `users` WHERE `mrn_lower` = 'urn:mrn:mcp:user:idp1:dma:thc'";
+    private static final String SERVICE_MRN_LOWER_QUERY = "SELECT * FROM `services` WHERE `mrn_lower` = 'urn:mrn:mcp:service:idp1:dma:instance:nw-nm' " +
+            "AND `instance_version` = '0.3.4'";
+
+    private Connection connection;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:query-plans;MODE=MySQL;database_to_upper=false", "sa", "");
+        // Only the columns that the hot queries use, with the indexes of the earlier migrations
+        execute("CREATE TABLE `certificates` (`id` INT NOT NULL AUTO_INCREMENT, `serial_number` NUMERIC(50), " +
+                "`certificate_authority` VARCHAR(255), `revoked` BOOLEAN, `revoked_at` DATETIME, PRIMARY KEY (`id`))");
+        execute("CREATE TABLE `roles` (`id` INT NOT NULL AUTO_INCREMENT, `id_organization` INT, `permission` VARCHAR(512), PRIMARY KEY (`id`))");
+        execute("CREATE TABLE `acting_on_behalf` (`id` INT NOT NULL AUTO_INCREMENT, `id_acting` INT, `id_on_behalf_of` INT, PRIMARY KEY (`id`))");
+        for (String table : new String[]{"users", "vessels", "devices", "mmses"}) {
+            execute("CREATE TABLE `" + table + "` (`id` INT NOT NULL AUTO_INCREMENT, `mrn` VARCHAR(255), PRIMARY KEY (`id`), UNIQUE (`mrn`))");
+        }
+        execute("CREATE TABLE `services` (`id` INT NOT NULL AUTO_INCREMENT, `mrn` VARCHAR(255), `instance_version` VARCHAR(32), " +
+                "PRIMARY KEY (`id`), UNIQUE (`mrn`, `instance_version`))");
+        execute("INSERT INTO `users` (`mrn`) VALUES ('urn:mrn:mcp:user:idp1:dma:THC')");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        execute("DROP ALL OBJECTS");
+        connection.close();
+    }
+
+    @Test
+    public void hotQueriesUseTheNewIndexes() throws Exception {
+        // Before the migration all of these are full table scans
+        assertTrue(plan(SERIAL_NUMBER_QUERY).contains("tablescan"));
+        assertTrue(plan(CRL_QUERY).contains("tablescan"));
+        assertTrue(plan(ROLES_QUERY).contains("tablescan"));
+        assertTrue(plan(AGENTS_QUERY).contains("tablescan"));
+        // The unique index on mrn cannot be used when UPPER() is applied to the column
+        assertTrue(plan(USER_MRN_IGNORE_CASE_QUERY).contains("tablescan"));
+
+        migrate();
+
+        assertTrue(plan(SERIAL_NUMBER_QUERY).contains("certificates_serial_number"));
+        assertTrue(plan(CRL_QUERY).contains("certificates_ca_revoked"));
+        assertTrue(plan(ROLES_QUERY).contains("roles_organization_permission"));
+        assertTrue(plan(AGENTS_QUERY).contains("acting_on_behalf_on_behalf_of_acting"));
+        assertTrue(plan(USER_MRN_LOWER_QUERY).contains("users_mrn_lower"));
+        assertTrue(plan(SERVICE_MRN_LOWER_QUERY).contains("services_mrn_lower_version"));
+        assertFalse(plan(USER_MRN_LOWER_QUERY).contains("tablescan"));
+    }
+
+    @Test
+    public void migrationFillsTheLowerCaseMrn() throws Exception {
+        migrate();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(USER_MRN_LOWER_QUERY)) {
+            assertTrue(resultSet.next());
+        }
+    }
+
+    private void migrate() throws Exception {
+        String script = Files.readAllLines(Paths.get(MIGRATION), StandardCharsets.UTF_8).stream()
+                .filter(line -> !line.trim().startsWith("--"))
+                .collect(Collectors.joining("\n"));
+        for (String sql : script.split(";")) {
+            if (!sql.trim().isEmpty()) {
+                execute(sql);
+            }
+        }
+    }
+
+    private String plan(String query) throws Exception {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN " + query)) {
+            resultSet.next();
+            return resultSet.getString(1).toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private void execute(String sql) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
+import net.maritimeconnectivity.identityregistry.services.OrganizationService;
+import net.maritimeconnectivity.identityregistry.services.RoleService;
+import net.maritimeconnectivity.identityregistry.utils.AccessControlUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.KeycloakPrincipal;
+import org.keycloak.adapters.RefreshableKeycloakSecurityContext;
+import org.keycloak.adapters.spi.KeycloakAccount;
+import org.keycloak.adapters.springsecurity.account.SimpleKeycloakAccount;
+import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
+import org.keycloak.representations.AccessToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MCPKeycloakAuthenticationProvider.class, BearerTokenAuthenticationCache.class, SimpleMeterRegistry.class})
+@TestPropertySource(properties = {
+        "net.maritimeconnectivity.idreg.oidc.authentication-cache.max-size=100",
+        "net.maritimeconnectivity.idreg.oidc.authentication-cache.ttl=300"
+})
+// Every test starts with an empty cache and fresh metrics
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class MCPKeycloakAuthenticationProviderTest {
+
+    private static final String ORG_MRN = "urn:mrn:mcp:org:idp1:dma";
+
+    @MockBean
+    private OrganizationService organizationService;
+
+    @MockBean
+    private RoleService roleService;
+
+    @Autowired
+    private MCPKeycloakAuthenticationProvider provider;
+
+    @Autowired
+    private BearerTokenAuthenticationCache authenticationCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        Organization org = spy(Organization.class);
+        org.setMrn(ORG_MRN);
+        when(org.getId()).thenReturn(1L);
+        given(organizationService.getOrganizationByMrn(ORG_MRN)).willReturn(org);
+        given(roleService.getRoleNamesByIdOrganizationAndPermissions(eq(1L), anyCollection())).willReturn(Collections.singletonList("ROLE_ORG_ADMIN"));
+    }
+
+    private static KeycloakAuthenticationToken token(String tokenString, long expiration) {
+        AccessToken accessToken = new AccessToken();
+        accessToken.exp(expiration);
+        accessToken.setOtherClaims(AccessControlUtil.ORG_PROPERTY_NAME, ORG_MRN);
+        accessToken.setOtherClaims(AccessControlUtil.PERMISSIONS_PROPERTY_NAME, new ArrayList<>(Arrays.asList("admin", "viewer")));
+        RefreshableKeycloakSecurityContext ksc = new RefreshableKeycloakSecurityContext(null, null, tokenString, accessToken, null, null, null);
+        KeycloakAccount account = new SimpleKeycloakAccount(new KeycloakPrincipal<>("user", ksc), Collections.emptySet(), null);
+        return new KeycloakAuthenticationToken(account, false);
+    }
+
+    private static Set<String> authorities(Authentication authentication) {
+        return authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet());
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", BearerTokenAuthenticationCache.CACHE_NAME).tag("result", result).functionCounter().count();
+    }
+
+    @Test
+    public void repeatedTokenIsServedFromCache() {
+        long expiration = System.currentTimeMillis() / 1000 + 300;
+        Authentication first = provider.authenticate(token("token-a", expiration));
+        Authentication second = provider.authenticate(token("token-a", expiration));
+
+        assertEquals(Collections.singleton("ROLE_ORG_ADMIN"), authorities(first));
+        assertEquals(authorities(first), authorities(second));
+        verify(organizationService, times(1)).getOrganizationByMrn(ORG_MRN);
+        verify(roleService, times(1)).getRoleNamesByIdOrganizationAndPermissions(eq(1L), anyCollection());
+        assertEquals(1, cacheGets("hit"));
+        assertEquals(1, cacheGets("miss"));
+
+        provider.authenticate(token("token-b", expiration));
+        verify(organizationService, times(2)).getOrganizationByMrn(ORG_MRN);
+    }
+
+    @Test
+    public void evictedOrganizationIsResolvedAgain() {
+        long expiration = System.currentTimeMillis() / 1000 + 300;
+        provider.authenticate(token("token-a", expiration));
+        authenticationCache.evictByOrganization(1L);
+        provider.authenticate(token("token-a", expiration));
+        verify(organizationService, times(2)).getOrganizationByMrn(ORG_MRN);
+    }
+
+    @Test
+    public void expiredTokenIsNotCached() {
+        long expiration = System.currentTimeMillis() / 1000 - 1;
+        provider.authenticate(token("token-a", expiration));
+        provider.authenticate(token("token-a", expiration));
+        verify(organizationService, times(2)).getOrganizationByMrn(ORG_MRN);
+    }
+
+    @Test
+    public void unknownOrganizationIsNotCached() {
+        given(organizationService.getOrganizationByMrn(ORG_MRN)).willReturn(null);
+        long expiration = System.currentTimeMillis() / 1000 + 300;
+        List<Authentication> authentications = Arrays.asList(provider.authenticate(token("token-a", expiration)), provider.authenticate(token("token-a", expiration)));
+        authentications.forEach(authentication -> assertEquals(Collections.emptySet(), authorities(authentication)));
+        verify(organizationService, times(2)).getOrganizationByMrn(ORG_MRN);
+    }
+}
@@ -16,8 +16,8 @@
 package net.maritimeconnectivity.identityregistry.security.x509;
 
 import net.maritimeconnectivity.identityregistry.model.database.Organization;
-import net.maritimeconnectivity.identityregistry.model.database.Role;
 import net.maritimeconnectivity.identityregistry.services.OrganizationService;
+import net.maritimeconnectivity.identityregistry.services.RevocationService;
 import net.maritimeconnectivity.identityregistry.services.RoleService;
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -26,7 +26,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.ldap.userdetails.InetOrgPerson;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.io.FileInputStream;
@@ -34,14 +37,19 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
 import java.util.Collections;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(SpringExtension.class)
 public class X509HeaderUserDetailsServiceTest {
@@ -50,6 +58,10 @@ public class X509HeaderUserDetailsServiceTest {
     private RoleService roleService;
     @MockBean
     private OrganizationService organizationService;
+    @MockBean
+    private X509UserDetailsCache userDetailsCache;
+    @MockBean
+    private RevocationService revocationService;
 
     @InjectMocks
     X509HeaderUserDetailsService x509HeaderUserDetailsService;
@@ -84,6 +96,38 @@ public class X509HeaderUserDetailsServiceTest {
         assertEquals("ROLE_USER", person.getAuthorities().iterator().next().getAuthority());
     }
 
+    @Test
+    public void loadUserByUsernameRevoked() throws Exception {
+        String contents = new String(Files.readAllBytes(Paths.get("src/test/resources/Certificate_Myboat.pem")), StandardCharsets.UTF_8);
+        given(this.revocationService.isRevoked(any(), any())).willReturn(true);
+        assertThrows(BadCredentialsException.class, () -> x509HeaderUserDetailsService.loadUserByUsername(contents));
+    }
+
+    @Test
+    public void loadUserByCertificateFromTls() throws Exception {
+        X509Certificate certificate;
+        try (FileInputStream fileInputStream = new FileInputStream("src/test/resources/Certificate_Myboat.pem")) {
+            certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(fileInputStream);
+        }
+        X509CertificateUserDetailsService certificateUserDetailsService = new X509CertificateUserDetailsService(x509HeaderUserDetailsService);
+        PreAuthenticatedAuthenticationToken token = new PreAuthenticatedAuthenticationToken(certificate.getSubjectX500Principal().getName(), certificate);
+        // The identity is extracted the same way as from the nginx header
+        InetOrgPerson person = (InetOrgPerson) certificateUserDetailsService.loadUserDetails(token);
+        assertEquals("urn:mrn:mcl:vessel:dma:myboat", person.getUsername());
+        assertEquals("urn:mrn:mcl:org:dma", person.getO());
+        assertEquals("vessel", person.getOu());
+        assertEquals("DK", person.getPostalAddress());
+        assertEquals("ROLE_USER", person.getAuthorities().iterator().next().getAuthority());
+        verify(userDetailsCache).put(eq(X509UserDetailsCache.fingerprint(certificate.getEncoded())), eq(person), eq("urn:mrn:mcl:vessel:dma:myboat"), isNull(), eq(certificate));
+    }
+
+    @Test
+    public void loadUserByCertificateWithoutCertificate() {
+        X509CertificateUserDetailsService certificateUserDetailsService = new X509CertificateUserDetailsService(x509HeaderUserDetailsService);
+        PreAuthenticatedAuthenticationToken token = new PreAuthenticatedAuthenticationToken("CN=Test", "N/A");
+        assertThrows(UsernameNotFoundException.class, () -> certificateUserDetailsService.loadUserDetails(token));
+    }
+
     //@Test
     public void loadUserByUsernameVessel2() throws Exception {
         // Load certificate from file
@@ -96,10 +140,7 @@ public class X509HeaderUserDetailsServiceTest {
             fail("Loading Certificate from file failed!");
         }
         // Setup mocked role
-        Role role = new Role();
-        role.setPermission("routeplanner");
-        role.setRoleName("ROLE_ROUTEPLANNER");
-        given(this.roleService.getRolesByIdOrganizationAndPermission(any(Long.class), eq("routeplanner"))).willReturn(Collections.singletonList(role));
+        given(this.roleService.getRoleNamesByIdOrganizationAndPermissions(any(Long.class), eq("routeplanner"))).willReturn(Collections.singletonList("ROLE_ROUTEPLANNER"));
         // Setup mocked org
         given(this.organizationService.getOrganizationByMrn("urn:mrn:mcl:org:dma")).willReturn(new Organization());
         // Try to get user from certificate
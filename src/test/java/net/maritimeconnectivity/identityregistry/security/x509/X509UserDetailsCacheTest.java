@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.security.x509;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.ldap.userdetails.InetOrgPerson;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.FileInputStream;
+import java.math.BigInteger;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = X509UserDetailsCache.class)
+@TestPropertySource(properties = {
+        "net.maritimeconnectivity.idreg.x509.user-details-cache.max-size=100",
+        "net.maritimeconnectivity.idreg.x509.user-details-cache.ttl=300"
+})
+// Every test starts with an empty cache
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class X509UserDetailsCacheTest {
+
+    @Autowired
+    private X509UserDetailsCache cache;
+
+    private static UserDetails userDetails(String mrn) {
+        InetOrgPerson.Essence essence = new InetOrgPerson.Essence();
+        essence.setUsername(mrn);
+        essence.setAuthorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+        return essence.createUserDetails();
+    }
+
+    private static X509Certificate certificate(BigInteger serialNumber, Date notAfter) {
+        X509Certificate certificate = mock(X509Certificate.class);
+        given(certificate.getSerialNumber()).willReturn(serialNumber);
+        given(certificate.getNotAfter()).willReturn(notAfter);
+        given(certificate.getIssuerX500Principal()).willReturn(new X500Principal("CN=Test CA"));
+        return certificate;
+    }
+
+    @Test
+    public void fingerprintOfHeaderMatchesCertificate() throws Exception {
+        String pem = new String(Files.readAllBytes(Paths.get("src/test/resources/Certificate_Myboat.pem")), StandardCharsets.UTF_8);
+        X509Certificate certificate;
+        try (FileInputStream in = new FileInputStream("src/test/resources/Certificate_Myboat.pem")) {
+            certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(in);
+        }
+        String expected = X509UserDetailsCache.fingerprint(certificate.getEncoded());
+        assertEquals(expected, X509UserDetailsCache.fingerprint(pem));
+        assertEquals(expected, X509UserDetailsCache.fingerprint(URLEncoder.encode(pem, "UTF-8")));
+        assertNull(X509UserDetailsCache.fingerprint("-----BEGIN CERTIFICATE-----%0Anot a certificate%0A-----END CERTIFICATE-----"));
+    }
+
+    @Test
+    public void entriesAreEvicted() {
+        Date notAfter = new Date(System.currentTimeMillis() + 3600000L);
+        UserDetails user = userDetails("urn:mrn:mcp:user:idp1:dma:user");
+        cache.put("a", user, "urn:mrn:mcp:user:idp1:dma:user", 1L, certificate(BigInteger.ONE, notAfter));
+        cache.put("b", userDetails("urn:mrn:mcp:user:idp1:dma:other"), "urn:mrn:mcp:user:idp1:dma:other", 1L, certificate(BigInteger.valueOf(2), notAfter));
+        cache.put("c", userDetails("urn:mrn:mcp:device:idp1:dma:device"), "urn:mrn:mcp:device:idp1:dma:device", null, certificate(BigInteger.valueOf(3), notAfter));
+        assertSame(user, cache.get("a").getUserDetails());
+
+        cache.evictByMrn("URN:MRN:MCP:USER:IDP1:DMA:USER");
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+
+        cache.evictBySerialNumbers(Collections.singleton(BigInteger.valueOf(3)));
+        assertNull(cache.get("c"));
+        assertNotNull(cache.get("b"));
+
+        cache.evictByOrganization(1L);
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void expiredCertificatesAreNotCached() {
+        cache.put("a", userDetails("urn:mrn:mcp:device:idp1:dma:device"), "urn:mrn:mcp:device:idp1:dma:device", null, certificate(BigInteger.ONE, new Date(System.currentTimeMillis() - 1000L)));
+        assertNull(cache.get("a"));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import net.maritimeconnectivity.identityregistry.model.data.OrganizationMrn;
+import net.maritimeconnectivity.identityregistry.model.database.Agent;
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = AgentDelegationServiceImpl.class)
+@TestPropertySource(properties = "net.maritimeconnectivity.idreg.agents.graph-max-age=300")
+// Every test starts without a loaded graph
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class AgentDelegationServiceImplTest {
+
+    private static final String DMA = "urn:mrn:mcp:org:idp1:dma";
+    private static final String AGENT = "urn:mrn:mcp:org:idp1:agent";
+    private static final String OTHER = "urn:mrn:mcp:org:idp1:other";
+
+    @MockBean
+    private OrganizationService organizationService;
+
+    @MockBean
+    private AgentService agentService;
+
+    @Autowired
+    private AgentDelegationServiceImpl agentDelegationService;
+
+    @BeforeEach
+    public void setUp() {
+        given(organizationService.listApprovedOrganizationMrns()).willReturn(Arrays.asList(org(1L, DMA), org(2L, AGENT), org(3L, OTHER)));
+        given(agentService.listAll()).willReturn(Collections.singletonList(agent(2L, 1L)));
+    }
+
+    private static OrganizationMrn org(Long id, String mrn) {
+        OrganizationMrn org = mock(OrganizationMrn.class);
+        given(org.getId()).willReturn(id);
+        given(org.getMrn()).willReturn(mrn);
+        return org;
+    }
+
+    private static Agent agent(Long idActing, Long idOnBehalfOf) {
+        Agent agent = new Agent();
+        agent.setIdActingOrganization(idActing);
+        agent.setIdOnBehalfOfOrganization(idOnBehalfOf);
+        return agent;
+    }
+
+    @Test
+    public void graphIsLoadedOnce() {
+        assertTrue(agentDelegationService.isAgentFor(AGENT, DMA));
+        assertTrue(agentDelegationService.isAgentFor(AGENT.toUpperCase(), DMA));
+        assertFalse(agentDelegationService.isAgentFor(DMA, AGENT));
+        assertFalse(agentDelegationService.isAgentFor(OTHER, DMA));
+        assertFalse(agentDelegationService.isAgentFor("urn:mrn:mcp:org:idp1:unknown", DMA));
+        assertEquals(Collections.singletonList(DMA), agentDelegationService.getOrgMrnsActedOnBehalfOf(2L));
+        verify(organizationService, times(1)).listApprovedOrganizationMrns();
+        verify(agentService, times(1)).listAll();
+    }
+
+    @Test
+    public void agentChangesAreApplied() {
+        agentDelegationService.reload();
+        given(agentService.getAgentsByIdOnBehalfOfOrg(1L)).willReturn(Collections.singletonList(agent(3L, 1L)));
+        agentDelegationService.refreshAgentsOnBehalfOf(1L);
+        assertFalse(agentDelegationService.isAgentFor(AGENT, DMA));
+        assertTrue(agentDelegationService.isAgentFor(OTHER, DMA));
+
+        given(agentService.getAgentsByIdOnBehalfOfOrg(1L)).willReturn(Collections.emptyList());
+        agentDelegationService.refreshAgentsOnBehalfOf(1L);
+        assertFalse(agentDelegationService.isAgentFor(OTHER, DMA));
+        assertEquals(Collections.emptyList(), agentDelegationService.getOrgMrnsActedOnBehalfOf(3L));
+    }
+
+    @Test
+    public void organizationChangesAreApplied() {
+        agentDelegationService.reload();
+        Organization org = mock(Organization.class);
+        given(org.getId()).willReturn(4L);
+        given(org.getMrn()).willReturn("urn:mrn:mcp:org:idp1:new");
+        given(org.isApproved()).willReturn(true);
+        agentDelegationService.addOrganization(org);
+        given(agentService.getAgentsByIdOnBehalfOfOrg(4L)).willReturn(Collections.singletonList(agent(2L, 4L)));
+        agentDelegationService.refreshAgentsOnBehalfOf(4L);
+        assertTrue(agentDelegationService.isAgentFor(AGENT, "urn:mrn:mcp:org:idp1:new"));
+
+        agentDelegationService.removeOrganization(2L);
+        assertFalse(agentDelegationService.isAgentFor(AGENT, DMA));
+        assertFalse(agentDelegationService.isAgentFor(AGENT, "urn:mrn:mcp:org:idp1:new"));
+        verify(organizationService, times(1)).listApprovedOrganizationMrns();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import net.maritimeconnectivity.identityregistry.model.data.InclusionProof;
+import net.maritimeconnectivity.identityregistry.model.database.Certificate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ContextConfiguration
+@WebAppConfiguration
+public class CertificateServiceImplTest {
+
+    // Not a CA in the keystore, but the issuance log does not need one and this keeps the log to this test
+    private static final String CA_ALIAS = "urn:mrn:mcp:ca:idp1:issuance-log-test";
+
+    @Autowired
+    private CertificateService certificateService;
+
+    @Autowired
+    private IssuanceLogService issuanceLogService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static Certificate newCertificate(long serialNumber) {
+        Certificate cert = new Certificate();
+        cert.setCertificate("-----BEGIN CERTIFICATE-----\n" + serialNumber + "\n-----END CERTIFICATE-----\n");
+        cert.setSerialNumber(BigInteger.valueOf(serialNumber));
+        cert.setCertificateAuthority(CA_ALIAS);
+        cert.setStart(new Date());
+        cert.setEnd(new Date(System.currentTimeMillis() + 86400000L));
+        return cert;
+    }
+
+    private static byte[] encoded(long serialNumber) {
+        return ("certificate " + serialNumber).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void issuedCertificateIsSavedWithItsLogEntry() {
+        certificateService.saveIssuedCertificate(newCertificate(8100001), encoded(8100001));
+        assertNotNull(certificateService.getCertificateBySerialNumber(BigInteger.valueOf(8100001)));
+        assertNotNull(issuanceLogService.getInclusionProof(CA_ALIAS, BigInteger.valueOf(8100001), null));
+    }
+
+    @Test
+    public void rolledBackCertificateLeavesNoLogEntry() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            certificateService.saveIssuedCertificate(newCertificate(8100002), encoded(8100002));
+            status.setRollbackOnly();
+        });
+        assertNull(certificateService.getCertificateBySerialNumber(BigInteger.valueOf(8100002)));
+        assertNull(issuanceLogService.getInclusionProof(CA_ALIAS, BigInteger.valueOf(8100002), null));
+
+        // The next certificate takes the place in the log that the rolled back one would have had
+        InclusionProof before = issuanceLogService.getInclusionProof(CA_ALIAS, BigInteger.valueOf(8100001), null);
+        long size = before != null ? before.getTreeSize() : 0;
+        certificateService.saveIssuedCertificate(newCertificate(8100003), encoded(8100003));
+        InclusionProof proof = issuanceLogService.getInclusionProof(CA_ALIAS, BigInteger.valueOf(8100003), null);
+        assertNotNull(proof);
+        assertEquals(size, proof.getLeafIndex());
+        assertEquals(size + 1, proof.getTreeSize());
+    }
+
+    @Test
+    public void logEntryIsOnlyWrittenWithTheCertificate() {
+        assertThrows(IllegalTransactionStateException.class,
+                () -> issuanceLogService.logCertificate(CA_ALIAS, BigInteger.valueOf(8100004), encoded(8100004)));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
+import net.maritimeconnectivity.identityregistry.repositories.OrganizationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = OrganizationServiceImpl.class)
+@TestPropertySource(properties = {
+        "net.maritimeconnectivity.idreg.entity-cache.max-size=100",
+        "net.maritimeconnectivity.idreg.entity-cache.ttl=300"
+})
+// Every test starts with an empty cache
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class OrganizationServiceImplTest {
+
+    private static final String DMA = "urn:mrn:mcp:org:idp1:dma";
+    private static final String UNKNOWN = "urn:mrn:mcp:org:idp1:unknown";
+
+    @MockBean
+    private OrganizationRepository organizationRepository;
+
+    @Autowired
+    private OrganizationServiceImpl organizationService;
+
+    private Organization org;
+
+    @BeforeEach
+    public void setUp() {
+        org = spy(Organization.class);
+        org.setMrn(DMA);
+        org.setApproved(true);
+        when(org.getId()).thenReturn(1L);
+
+        given(organizationRepository.findIdByMrn(DMA)).willReturn(1L);
+        given(organizationRepository.findById(1L)).willReturn(Optional.of(org));
+        given(organizationRepository.save(org)).willReturn(org);
+    }
+
+    @Test
+    public void mrnIsResolvedOnce() {
+        assertSame(org, organizationService.getOrganizationByMrn(DMA));
+        assertSame(org, organizationService.getOrganizationByMrn(DMA));
+        assertSame(org, organizationService.getOrganizationByMrnDisregardApproved(DMA));
+        verify(organizationRepository, times(1)).findIdByMrn(DMA);
+        // The organization itself is read by id every time, which the second-level cache answers
+        verify(organizationRepository, times(3)).findById(1L);
+        verify(organizationRepository, never()).findByMrn(DMA);
+    }
+
+    @Test
+    public void unknownMrnIsNotCached() {
+        assertNull(organizationService.getOrganizationByMrn(UNKNOWN));
+        assertNull(organizationService.getOrganizationByMrn(UNKNOWN));
+        assertNull(organizationService.getOrganizationByMrn(null));
+        verify(organizationRepository, times(2)).findIdByMrn(UNKNOWN);
+    }
+
+    @Test
+    public void organizationCreatedElsewhereIsFoundRightAway() {
+        assertNull(organizationService.getOrganizationByMrn(UNKNOWN));
+        // Created on another instance, so this instance is not told about it
+        Organization created = spy(Organization.class);
+        created.setMrn(UNKNOWN);
+        created.setApproved(true);
+        when(created.getId()).thenReturn(2L);
+        given(organizationRepository.findIdByMrn(UNKNOWN)).willReturn(2L);
+        given(organizationRepository.findById(2L)).willReturn(Optional.of(created));
+        assertSame(created, organizationService.getOrganizationByMrn(UNKNOWN));
+    }
+
+    @Test
+    public void unapprovedOrganizationIsOnlyReturnedWhenDisregardingApproval() {
+        org.setApproved(false);
+        assertNull(organizationService.getOrganizationByMrn(DMA));
+        assertSame(org, organizationService.getOrganizationByMrnDisregardApproved(DMA));
+    }
+
+    @Test
+    public void mrnIsResolvedAgainAfterSave() {
+        organizationService.getOrganizationByMrn(DMA);
+        organizationService.save(org);
+        organizationService.getOrganizationByMrn(DMA);
+        verify(organizationRepository, times(2)).findIdByMrn(DMA);
+    }
+
+    @Test
+    public void changedMrnFallsBackToTheQuery() {
+        organizationService.getOrganizationByMrn(DMA);
+        // Renamed on another instance, so the cached id now points to an organization with another MRN
+        org.setMrn("urn:mrn:mcp:org:idp1:dma-renamed");
+        assertNull(organizationService.getOrganizationByMrn(DMA));
+        verify(organizationRepository, times(1)).findByMrn(DMA);
+
+        organizationService.getOrganizationByMrn(DMA);
+        verify(organizationRepository, times(2)).findIdByMrn(DMA);
+    }
+}
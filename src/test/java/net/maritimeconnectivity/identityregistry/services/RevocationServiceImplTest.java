@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import net.maritimeconnectivity.identityregistry.model.database.Certificate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@ContextConfiguration
+@WebAppConfiguration
+// Check the revocation version on every request instead of at most once per interval
+@TestPropertySource(properties = "net.maritimeconnectivity.idreg.certs.revoked-serials-max-age=0")
+public class RevocationServiceImplTest {
+
+    private static final String CA_ALIAS = "urn:mrn:mcp:ca:idp1:mcp-idreg";
+    private static final BigInteger SERIAL_NUMBER = BigInteger.valueOf(8200001);
+
+    @Autowired
+    private RevocationService revocationService;
+
+    @Autowired
+    private CertificateService certificateService;
+
+    private static X509CRL parse(String pem) throws Exception {
+        CertificateFactory factory = CertificateFactory.getInstance("X.509");
+        return (X509CRL) factory.generateCRL(new ByteArrayInputStream(pem.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void crlIncludesCertificatesRevokedWithoutRefresh() throws Exception {
+        Certificate cert = new Certificate();
+        cert.setCertificate("-----BEGIN CERTIFICATE-----\n8200001\n-----END CERTIFICATE-----\n");
+        cert.setSerialNumber(SERIAL_NUMBER);
+        cert.setCertificateAuthority(CA_ALIAS);
+        cert.setStart(new Date());
+        cert.setEnd(new Date(System.currentTimeMillis() + 86400000L));
+        certificateService.saveCertificate(cert);
+
+        String crl = revocationService.getCrl(CA_ALIAS);
+        assertNull(parse(crl).getRevokedCertificate(SERIAL_NUMBER));
+
+        // Revoked as on another instance, which does not refresh the CRLs of this one
+        certificateService.revokeCertificates(Collections.singletonList(SERIAL_NUMBER), new Date(System.currentTimeMillis() - 1000), "keycompromise");
+
+        String updated = revocationService.getCrl(CA_ALIAS);
+        assertNotEquals(crl, updated);
+        assertNotNull(parse(updated).getRevokedCertificate(SERIAL_NUMBER));
+    }
+}
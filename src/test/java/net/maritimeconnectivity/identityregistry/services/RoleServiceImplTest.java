@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import net.maritimeconnectivity.identityregistry.model.database.Role;
+import net.maritimeconnectivity.identityregistry.repositories.RoleRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = RoleServiceImpl.class)
+@TestPropertySource(properties = {
+        "net.maritimeconnectivity.idreg.role-cache.max-organizations=100",
+        "net.maritimeconnectivity.idreg.role-cache.ttl=300"
+})
+// Every test starts with an empty cache
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class RoleServiceImplTest {
+
+    @MockBean
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private RoleServiceImpl roleService;
+
+    /**
+     * A role created on another instance after this one started has a permission that is not registered here yet
+     */
+    @Test
+    public void permissionOfRoleCreatedElsewhereIsResolved() {
+        Role role = new Role();
+        role.setIdOrganization(1L);
+        role.setPermission("created-elsewhere");
+        role.setRoleName("ROLE_USER_ADMIN");
+        given(roleRepository.findByidOrganization(1L)).willReturn(Collections.singletonList(role));
+
+        assertEquals(Collections.singletonList("ROLE_USER_ADMIN"), roleService.getRoleNamesByIdOrganizationAndPermissions(1L, "created-elsewhere"));
+        assertEquals(Collections.singletonList("ROLE_USER_ADMIN"), roleService.getRoleNamesByIdOrganizationAndPermissions(1L, Collections.singletonList("viewer,Created-Elsewhere")));
+        assertEquals(Collections.emptyList(), roleService.getRoleNamesByIdOrganizationAndPermissions(1L, "viewer"));
+    }
+}
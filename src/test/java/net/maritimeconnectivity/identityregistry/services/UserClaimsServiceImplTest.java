@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.services;
+
+import net.maritimeconnectivity.identityregistry.model.data.UserClaims;
+import net.maritimeconnectivity.identityregistry.model.database.entities.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = UserClaimsServiceImpl.class)
+@TestPropertySource(properties = {
+        "net.maritimeconnectivity.idreg.user-claims-cache.max-size=100",
+        "net.maritimeconnectivity.idreg.user-claims-cache.ttl=300"
+})
+// Every test starts with an empty cache
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class UserClaimsServiceImplTest {
+
+    private static final String USER_MRN = "urn:mrn:mcp:user:idp1:dma:thc";
+    private static final String DMA = "urn:mrn:mcp:org:idp1:dma";
+
+    @MockBean
+    private EntityService<User> userService;
+
+    @MockBean
+    private RoleService roleService;
+
+    @MockBean
+    private AgentDelegationService agentDelegationService;
+
+    @Autowired
+    private UserClaimsServiceImpl userClaimsService;
+
+    @BeforeEach
+    public void setUp() {
+        User user = new User();
+        user.setMrn(USER_MRN);
+        user.setIdOrganization(2L);
+        user.setPermissions("MCADMIN");
+
+        given(userService.getByMrn(USER_MRN)).willReturn(user);
+        given(roleService.getRoleNamesByIdOrganizationAndPermissions(eq(2L), anyString())).willReturn(Collections.singletonList("ROLE_SITE_ADMIN"));
+        given(agentDelegationService.getOrgMrnsActedOnBehalfOf(2L)).willReturn(Collections.singletonList(DMA));
+    }
+
+    @Test
+    public void claimsAreResolvedOnce() {
+        UserClaims claims = userClaimsService.getClaims(USER_MRN);
+        assertEquals(Collections.singletonList("ROLE_SITE_ADMIN"), claims.getRoles());
+        assertEquals(Collections.singletonList(DMA), claims.getActingOnBehalfOf());
+
+        userClaimsService.getClaims(USER_MRN);
+        userClaimsService.getClaims(USER_MRN.toUpperCase());
+        verify(userService, times(1)).getByMrn(any());
+        verify(roleService, times(1)).getRoleNamesByIdOrganizationAndPermissions(eq(2L), anyString());
+        verify(agentDelegationService, times(1)).getOrgMrnsActedOnBehalfOf(2L);
+    }
+
+    @Test
+    public void claimsAreResolvedAgainAfterEviction() {
+        userClaimsService.getClaims(USER_MRN);
+        userClaimsService.evictByMrn(USER_MRN);
+        userClaimsService.getClaims(USER_MRN);
+        userClaimsService.evictByOrganization(1L);
+        userClaimsService.getClaims(USER_MRN);
+        userClaimsService.evictByOrganization(2L);
+        userClaimsService.getClaims(USER_MRN);
+        userClaimsService.evictAll();
+        userClaimsService.getClaims(USER_MRN);
+        verify(userService, times(4)).getByMrn(USER_MRN);
+    }
+
+    @Test
+    public void unknownUserOnlyGetsUserRole() {
+        UserClaims claims = userClaimsService.getClaims("urn:mrn:mcp:user:idp1:dma:unknown");
+        assertEquals(Collections.singletonList("ROLE_USER"), claims.getRoles());
+        assertTrue(claims.getActingOnBehalfOf().isEmpty());
+    }
+}
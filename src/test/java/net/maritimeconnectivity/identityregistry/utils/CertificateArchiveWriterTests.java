@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cms.CMSSignedData;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CertificateArchiveWriterTests {
+
+    private static String readPem(String file) throws Exception {
+        return new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testPkcs7Bundle() throws Exception {
+        String boat = readPem("src/test/resources/Certificate_Myboat.pem");
+        String vessel = readPem("src/test/resources/Certificate_My_vessel.pem");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CertificateArchiveWriter writer = CertificateArchiveWriter.forFormat("pkcs7", out)) {
+            writer.write(BigInteger.ONE, boat);
+            // certificates issued with server generated keys are stored with escaped line breaks
+            writer.write(BigInteger.TEN, vessel.replace("\n", "\\n"));
+        }
+        CMSSignedData signedData = new CMSSignedData(out.toByteArray());
+        Collection<X509CertificateHolder> certificates = signedData.getCertificates().getMatches(null);
+        assertEquals(2, certificates.size());
+        assertTrue(signedData.getSignerInfos().getSigners().isEmpty());
+    }
+
+    @Test
+    public void testZipArchive() throws Exception {
+        String boat = readPem("src/test/resources/Certificate_Myboat.pem");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CertificateArchiveWriter writer = CertificateArchiveWriter.forFormat("zip", out)) {
+            writer.write(BigInteger.ONE, boat);
+            writer.write(BigInteger.TEN, boat.replace("\n", "\\n"));
+        }
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                String pem = new String(readAll(zip), StandardCharsets.US_ASCII);
+                assertEquals(boat.trim() + "\n", pem);
+            }
+        }
+        assertEquals(2, names.size());
+        assertEquals("1.pem", names.get(0));
+        assertEquals("10.pem", names.get(1));
+    }
+
+    @Test
+    public void testFailedPkcs7BundleIsNotFinished() throws Exception {
+        String boat = readPem("src/test/resources/Certificate_Myboat.pem");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CertificateArchiveWriter writer = CertificateArchiveWriter.forFormat("pkcs7", out)) {
+            writer.write(BigInteger.ONE, boat);
+            assertThrows(IllegalArgumentException.class, () -> writer.write(BigInteger.TEN, "-----BEGIN CERTIFICATE-----\n!!!\n-----END CERTIFICATE-----"));
+            assertTrue(writer.isAborted());
+        }
+        // the indefinite length encodings are never ended, so the bundle cannot be parsed
+        assertThrows(Exception.class, () -> new CMSSignedData(out.toByteArray()));
+    }
+
+    @Test
+    public void testAbortedZipArchiveIsNotFinished() throws Exception {
+        String boat = readPem("src/test/resources/Certificate_Myboat.pem");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CertificateArchiveWriter writer = CertificateArchiveWriter.forFormat("zip", out)) {
+            writer.write(BigInteger.ONE, boat);
+            writer.abort();
+            assertThrows(IOException.class, () -> writer.write(BigInteger.TEN, boat));
+        }
+        // no end of central directory record, so unzip tools report the archive as truncated
+        byte[] archive = out.toByteArray();
+        byte[] endOfCentralDirectory = {0x50, 0x4B, 0x05, 0x06};
+        for (int i = 0; i + endOfCentralDirectory.length <= archive.length; i++) {
+            assertFalse(Arrays.equals(endOfCentralDirectory, Arrays.copyOfRange(archive, i, i + endOfCentralDirectory.length)));
+        }
+    }
+
+    @Test
+    public void testUnknownFormat() throws Exception {
+        assertNull(CertificateArchiveWriter.forFormat("jks", new ByteArrayOutputStream()));
+    }
+
+    private static byte[] readAll(ZipInputStream zip) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = zip.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
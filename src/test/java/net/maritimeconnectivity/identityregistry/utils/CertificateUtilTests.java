@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import net.maritimeconnectivity.pki.PKIConstants;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x500.style.IETFUtils;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CertificateUtilTests {
+
+    @BeforeAll
+    public static void addProvider() {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    private static KeyPair generateKeyPair(String algorithm, String curve) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm, BouncyCastleProvider.PROVIDER_NAME);
+        if (curve != null) {
+            generator.initialize(new ECGenParameterSpec(curve));
+        } else if ("RSA".equals(algorithm)) {
+            generator.initialize(2048);
+        }
+        return generator.generateKeyPair();
+    }
+
+    private static KeyStore.PrivateKeyEntry generateCa(KeyPair keyPair) throws Exception {
+        X500Name name = new X500Name("C=DK, O=urn:mrn:mcp:org:idp1:dma, CN=Test CA");
+        Date now = new Date();
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name, BigInteger.ONE, now, new Date(now.getTime() + 86400000L), name, keyPair.getPublic());
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+        JcaContentSignerBuilder signerBuilder = new JcaContentSignerBuilder(CertificateUtil.getSignatureAlgorithm(keyPair.getPublic()));
+        X509Certificate caCert = new JcaX509CertificateConverter().getCertificate(builder.build(signerBuilder.build(keyPair.getPrivate())));
+        return new KeyStore.PrivateKeyEntry(keyPair.getPrivate(), new X509Certificate[]{caCert});
+    }
+
+    @Test
+    public void testSignatureAlgorithmFollowsKeyType() throws Exception {
+        assertEquals("SHA256withRSA", CertificateUtil.getSignatureAlgorithm(generateKeyPair("RSA", null).getPublic()));
+        assertEquals("SHA256withECDSA", CertificateUtil.getSignatureAlgorithm(generateKeyPair("EC", "secp256r1").getPublic()));
+        assertEquals("SHA384withECDSA", CertificateUtil.getSignatureAlgorithm(generateKeyPair("EC", "secp384r1").getPublic()));
+        assertEquals("SHA512withECDSA", CertificateUtil.getSignatureAlgorithm(generateKeyPair("EC", "secp521r1").getPublic()));
+        assertEquals("Ed25519", CertificateUtil.getSignatureAlgorithm(generateKeyPair("Ed25519", null).getPublic()));
+        assertEquals("Ed448", CertificateUtil.getSignatureAlgorithm(generateKeyPair("Ed448", null).getPublic()));
+    }
+
+    @Test
+    public void testUnsupportedKeyType() throws Exception {
+        KeyPair dsa = generateKeyPair("DSA", null);
+        assertThrows(IllegalArgumentException.class, () -> CertificateUtil.getSignatureAlgorithm(dsa.getPublic()));
+    }
+
+    @Test
+    public void testIssueWithEachProfile() throws Exception {
+        KeyPair entityKeyPair = generateKeyPair("EC", "secp256r1");
+        Map<String, String> attrs = new HashMap<>();
+        attrs.put(PKIConstants.MC_OID_MRN, "urn:mrn:mcp:device:idp1:dma:thing");
+        String[][] profiles = {{"RSA", null}, {"EC", "secp256r1"}, {"EC", "secp384r1"}, {"Ed25519", null}};
+        for (String[] profile : profiles) {
+            KeyStore.PrivateKeyEntry ca = generateCa(generateKeyPair(profile[0], profile[1]));
+            X509Certificate caCert = (X509Certificate) ca.getCertificate();
+            Date now = new Date();
+            X509Certificate cert = CertificateUtil.buildEntityCertificate(BigInteger.TEN, "DK", "urn:mrn:mcp:org:idp1:dma", "device", "Thing",
+                    "", "urn:mrn:mcp:device:idp1:dma:thing", now, new Date(now.getTime() + 86400000L), entityKeyPair.getPublic(), attrs,
+                    caCert, CertificateUtil.buildContentSigner(ca, null), "http://localhost/crl/ca", "http://localhost/ocsp/ca");
+            // throws if the signature does not verify with the public key of the CA
+            cert.verify(caCert.getPublicKey(), BouncyCastleProvider.PROVIDER_NAME);
+            assertEquals(CertificateUtil.getSignatureAlgorithm(caCert.getPublicKey()).toUpperCase(), cert.getSigAlgName().toUpperCase());
+            assertEquals(caCert.getSubjectX500Principal(), cert.getIssuerX500Principal());
+            assertNotNull(cert.getSubjectAlternativeNames());
+            assertNotNull(cert.getExtensionValue(Extension.cRLDistributionPoints.getId()));
+            assertNotNull(cert.getExtensionValue(Extension.authorityInfoAccess.getId()));
+        }
+    }
+
+    @Test
+    public void testShortLivedCertificateHasNoRevocationPointers() throws Exception {
+        KeyStore.PrivateKeyEntry ca = generateCa(generateKeyPair("EC", "secp256r1"));
+        X509Certificate caCert = (X509Certificate) ca.getCertificate();
+        Date now = new Date();
+        X509Certificate cert = CertificateUtil.buildEntityCertificate(BigInteger.TEN, "DK", "urn:mrn:mcp:org:idp1:dma", "device", "Thing",
+                "", "urn:mrn:mcp:device:idp1:dma:thing", now, new Date(now.getTime() + 3600000L), generateKeyPair("EC", "secp256r1").getPublic(),
+                new HashMap<>(), caCert, CertificateUtil.buildContentSigner(ca, null), null, null);
+        cert.verify(caCert.getPublicKey(), BouncyCastleProvider.PROVIDER_NAME);
+        assertNull(cert.getExtensionValue(Extension.cRLDistributionPoints.getId()));
+        assertNull(cert.getExtensionValue(Extension.authorityInfoAccess.getId()));
+        assertNotNull(cert.getExtensionValue(Extension.noRevAvail.getId()));
+    }
+
+    @Test
+    public void testSubjectHasCountryCode() throws Exception {
+        KeyStore.PrivateKeyEntry ca = generateCa(generateKeyPair("EC", "secp256r1"));
+        X509Certificate caCert = (X509Certificate) ca.getCertificate();
+        String[][] countries = {{"Denmark", "DK"}, {" denmark ", "DK"}, {"DK", "DK"}, {"dnk", "DK"}, {"United Kingdom", "GB"}};
+        for (String[] country : countries) {
+            X500Name subject = issueWithCountry(ca, caCert, country[0]);
+            assertEquals(1, subject.getRDNs(BCStyle.C).length);
+            assertEquals(country[1], IETFUtils.valueToString(subject.getRDNs(BCStyle.C)[0].getFirst().getValue()));
+        }
+        // A certificate is never issued without the country or with the country written as a name
+        assertThrows(IllegalArgumentException.class, () -> issueWithCountry(ca, caCert, "The Seven Seas"));
+        assertThrows(IllegalArgumentException.class, () -> issueWithCountry(ca, caCert, null));
+    }
+
+    private static X500Name issueWithCountry(KeyStore.PrivateKeyEntry ca, X509Certificate caCert, String country) throws Exception {
+        Date now = new Date();
+        X509Certificate cert = CertificateUtil.buildEntityCertificate(BigInteger.TEN, country, "urn:mrn:mcp:org:idp1:dma", "device", "Thing",
+                "", "urn:mrn:mcp:device:idp1:dma:thing", now, new Date(now.getTime() + 3600000L), generateKeyPair("EC", "secp256r1").getPublic(),
+                new HashMap<>(), caCert, CertificateUtil.buildContentSigner(ca, null), null, null);
+        return X500Name.getInstance(cert.getSubjectX500Principal().getEncoded());
+    }
+
+    @Test
+    public void testShortLivedSupportedTypes() {
+        assertTrue(CertificateUtil.supportsShortLived("device"));
+        assertTrue(CertificateUtil.supportsShortLived("service"));
+        assertFalse(CertificateUtil.supportsShortLived("user"));
+        assertFalse(CertificateUtil.supportsShortLived("organization"));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Maritime Connectivity Platform Consortium.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.maritimeconnectivity.identityregistry.model.database.entities.MMS;
+import net.maritimeconnectivity.identityregistry.model.database.entities.Vessel;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EntityExportWriterTests {
+
+    @Test
+    public void testOneEntityPerLine() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        Vessel vessel = new Vessel();
+        vessel.setMrn("urn:mrn:mcp:vessel:idp1:dma:myboat");
+        vessel.setName("My Boat");
+        MMS mms = new MMS();
+        mms.setMrn("urn:mrn:mcp:mms:idp1:dma:mymms");
+        mms.setName("My MMS");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (EntityExportWriter writer = new EntityExportWriter(mapper.writer(), out)) {
+            writer.write(vessel);
+            writer.write(mms);
+        }
+        String export = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(export.endsWith("\n"));
+        String[] lines = export.split("\n");
+        assertEquals(3, lines.length);
+
+        JsonNode first = mapper.readTree(lines[0]);
+        assertEquals("vessel", first.get("type").asText());
+        assertEquals("urn:mrn:mcp:vessel:idp1:dma:myboat", first.get("entity").get("mrn").asText());
+        JsonNode second = mapper.readTree(lines[1]);
+        assertEquals("mms", second.get("type").asText());
+        assertEquals("My MMS", second.get("entity").get("name").asText());
+        JsonNode end = mapper.readTree(lines[2]);
+        assertEquals(EntityExportWriter.END_TYPE, end.get("type").asText());
+        assertEquals(2, end.get("count").asLong());
+    }
+
+    @Test
+    public void testAbortedExportHasNoEndLine() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        Vessel vessel = new Vessel();
+        vessel.setMrn("urn:mrn:mcp:vessel:idp1:dma:myboat");
+        vessel.setName("My Boat");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (EntityExportWriter writer = new EntityExportWriter(mapper.writer(), out)) {
+            writer.write(vessel);
+            writer.abort();
+            assertThrows(IOException.class, () -> writer.write(vessel));
+        }
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(1, lines.length);
+        assertEquals("vessel", mapper.readTree(lines[0]).get("type").asText());
+    }
+}
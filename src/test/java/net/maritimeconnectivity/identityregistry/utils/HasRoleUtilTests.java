@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import net.maritimeconnectivity.identityregistry.security.MultiSecurityConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HasRoleUtilTests {
+
+    private HasRoleUtil hasRoleUtil;
+
+    @BeforeEach
+    public void setUp() {
+        hasRoleUtil = new HasRoleUtil();
+        hasRoleUtil.setRoleHierarchy(MultiSecurityConfig.roleHierarchy());
+        hasRoleUtil.setup();
+    }
+
+    @Test
+    public void rolesAreReachedThroughTheHierarchy() {
+        List<GrantedAuthority> orgAdmin = AuthorityUtils.createAuthorityList("ROLE_ORG_ADMIN");
+        assertTrue(hasRoleUtil.hasRole(orgAdmin, "ROLE_ORG_ADMIN"));
+        assertTrue(hasRoleUtil.hasRole(orgAdmin, "ROLE_VESSEL_ADMIN"));
+        assertTrue(hasRoleUtil.hasRole(orgAdmin, "ROLE_USER"));
+        assertFalse(hasRoleUtil.hasRole(orgAdmin, "ROLE_SITE_ADMIN"));
+        assertFalse(hasRoleUtil.hasRole(orgAdmin, "ROLE_APPROVE_ORG"));
+
+        List<GrantedAuthority> siteAdmin = AuthorityUtils.createAuthorityList("ROLE_SITE_ADMIN");
+        for (String role : HasRoleUtil.ROLES) {
+            assertTrue(hasRoleUtil.hasRole(siteAdmin, role));
+        }
+    }
+
+    @Test
+    public void roleWithoutPrefixIsAccepted() {
+        assertTrue(hasRoleUtil.hasRole(AuthorityUtils.createAuthorityList("ROLE_SITE_ADMIN"), "SITE_ADMIN"));
+        assertFalse(hasRoleUtil.hasRole(AuthorityUtils.createAuthorityList("ROLE_USER"), "SITE_ADMIN"));
+    }
+
+    @Test
+    public void unknownRolesOnlyReachThemselves() {
+        List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS", "ROLE_MMS_ADMIN");
+        assertTrue(hasRoleUtil.hasRole(authorities, "ROLE_ANONYMOUS"));
+        assertTrue(hasRoleUtil.hasRole(authorities, "ROLE_MMS_ADMIN"));
+        assertFalse(hasRoleUtil.hasRole(authorities, "ROLE_USER"));
+        assertFalse(hasRoleUtil.hasRole(Collections.emptyList(), "ROLE_USER"));
+    }
+}
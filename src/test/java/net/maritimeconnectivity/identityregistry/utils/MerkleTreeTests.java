@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MerkleTreeTests {
+
+    private static final int MAX_SIZE = 40;
+
+    @Test
+    void testEmptyTreeRoot() throws NoSuchAlgorithmException {
+        MerkleTree tree = new MerkleTree();
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(new byte[0]), tree.rootHash(0));
+    }
+
+    @Test
+    void testRootHashMatchesRecursiveDefinition() throws NoSuchAlgorithmException {
+        List<byte[]> leaves = leaves(MAX_SIZE);
+        MerkleTree tree = treeOf(leaves);
+        for (int size = 1; size <= MAX_SIZE; size++) {
+            assertArrayEquals(referenceRoot(leaves.subList(0, size)), tree.rootHash(size), "Root of tree of size " + size);
+        }
+    }
+
+    @Test
+    void testInclusionProofs() {
+        List<byte[]> leaves = leaves(MAX_SIZE);
+        MerkleTree tree = treeOf(leaves);
+        for (int size = 1; size <= MAX_SIZE; size++) {
+            byte[] root = tree.rootHash(size);
+            for (int i = 0; i < size; i++) {
+                List<byte[]> proof = tree.inclusionProof(i, size);
+                assertTrue(MerkleTree.verifyInclusion(leaves.get(i), i, size, proof, root));
+                if (size > 1) {
+                    // the proof of a leaf must not hold for any other leaf
+                    int other = (i + 1) % size;
+                    assertFalse(MerkleTree.verifyInclusion(leaves.get(other), i, size, proof, root));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testConsistencyProofs() {
+        MerkleTree tree = treeOf(leaves(MAX_SIZE));
+        for (int second = 1; second <= MAX_SIZE; second++) {
+            byte[] secondRoot = tree.rootHash(second);
+            for (int first = 1; first <= second; first++) {
+                byte[] firstRoot = tree.rootHash(first);
+                List<byte[]> proof = tree.consistencyProof(first, second);
+                assertTrue(MerkleTree.verifyConsistency(first, second, firstRoot, secondRoot, proof), "Consistency " + first + " -> " + second);
+                if (first < second) {
+                    byte[] wrongRoot = Arrays.copyOf(firstRoot, firstRoot.length);
+                    wrongRoot[0] ^= 1;
+                    assertFalse(MerkleTree.verifyConsistency(first, second, wrongRoot, secondRoot, proof));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testInvalidSizes() {
+        MerkleTree tree = treeOf(leaves(5));
+        assertThrows(IllegalArgumentException.class, () -> tree.rootHash(6));
+        assertThrows(IllegalArgumentException.class, () -> tree.inclusionProof(5, 5));
+        assertThrows(IllegalArgumentException.class, () -> tree.consistencyProof(0, 5));
+        assertThrows(IllegalArgumentException.class, () -> tree.consistencyProof(4, 3));
+    }
+
+    private static MerkleTree treeOf(List<byte[]> leaves) {
+        MerkleTree tree = new MerkleTree();
+        for (byte[] leaf : leaves) {
+            tree.append(leaf);
+        }
+        return tree;
+    }
+
+    private static List<byte[]> leaves(int count) {
+        List<byte[]> leaves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            leaves.add(MerkleTree.leafHash(("certificate " + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        return leaves;
+    }
+
+    // MTH from RFC 6962 section 2.1, with the leaves already hashed
+    private static byte[] referenceRoot(List<byte[]> leaves) throws NoSuchAlgorithmException {
+        if (leaves.size() == 1) {
+            return leaves.get(0);
+        }
+        int k = Integer.highestOneBit(leaves.size() - 1);
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update((byte) 1);
+        digest.update(referenceRoot(leaves.subList(0, k)));
+        digest.update(referenceRoot(leaves.subList(k, leaves.size())));
+        return digest.digest();
+    }
+}
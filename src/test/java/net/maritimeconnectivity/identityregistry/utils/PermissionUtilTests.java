@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import net.maritimeconnectivity.identityregistry.model.data.PermissionSet;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PermissionUtilTests {
+
+    @BeforeAll
+    public static void registerRoles() {
+        PermissionUtil.register("admin");
+        PermissionUtil.register("routeplanner");
+        PermissionUtil.register("viewer");
+    }
+
+    @Test
+    public void permissionsAreInterned() {
+        int id = PermissionUtil.idOf("routeplanner");
+        assertTrue(id >= 0);
+        assertEquals(id, PermissionUtil.idOf(" RoutePlanner "));
+        assertEquals(id, PermissionUtil.register("ROUTEPLANNER"));
+        assertTrue(PermissionUtil.idOf("viewer") != id);
+        assertEquals(-1, PermissionUtil.idOf(" "));
+        assertEquals(-1, PermissionUtil.idOf(null));
+        assertEquals(-1, PermissionUtil.register(" "));
+    }
+
+    @Test
+    public void unknownPermissionsAreNotInterned() {
+        assertEquals(-1, PermissionUtil.idOf("not-a-role-permission"));
+        assertTrue(PermissionUtil.parse("not-a-role-permission").isEmpty());
+        assertEquals(-1, PermissionUtil.idOf("not-a-role-permission"));
+    }
+
+    @Test
+    public void registeringAPermissionUpdatesParsedPermissions() {
+        assertTrue(PermissionUtil.parse("admin,late-role-permission").contains(PermissionUtil.idOf("admin")));
+        assertEquals(1, PermissionUtil.parse("admin,late-role-permission").ids().count());
+        int id = PermissionUtil.register("late-role-permission");
+        assertTrue(PermissionUtil.parse("admin,late-role-permission").contains(id));
+        assertEquals(2, PermissionUtil.parse("admin,late-role-permission").ids().count());
+    }
+
+    @Test
+    public void commaSeparatedPermissionsAreParsed() {
+        PermissionSet permissions = PermissionUtil.parse("admin, routeplanner,,viewer,editor");
+        assertTrue(permissions.contains(PermissionUtil.idOf("admin")));
+        assertTrue(permissions.contains(PermissionUtil.idOf("ROUTEPLANNER")));
+        assertTrue(permissions.contains(PermissionUtil.idOf("viewer")));
+        assertFalse(permissions.contains(PermissionUtil.idOf("editor")));
+        assertFalse(permissions.contains(-1));
+        assertEquals(3, permissions.ids().count());
+        assertSame(permissions, PermissionUtil.parse("admin, routeplanner,,viewer,editor"));
+        assertTrue(PermissionUtil.parse((String) null).isEmpty());
+    }
+    @Test
+    public void listsOfPermissionsAreMerged() {
+        PermissionSet permissions = PermissionUtil.parse(Arrays.asList("admin,viewer", "routeplanner", null));
+        assertEquals(PermissionUtil.parse("viewer,routeplanner,admin"), permissions);
+        assertEquals(Arrays.asList("admin", "routeplanner", "viewer").stream().map(PermissionUtil::idOf).sorted().collect(Collectors.toList()),
+                permissions.ids().boxed().collect(Collectors.toList()));
+    }
+}
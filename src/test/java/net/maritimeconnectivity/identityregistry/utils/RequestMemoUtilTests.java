@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class RequestMemoUtilTests {
+
+    @AfterEach
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void lookupsAreMemoizedWithinARequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("dma", RequestMemoUtil.get("orgs", "urn:mrn:mcp:org:idp1:dma", () -> {
+                loads.incrementAndGet();
+                return "dma";
+            }));
+            assertNull(RequestMemoUtil.get("orgs", "urn:mrn:mcp:org:idp1:unknown", () -> {
+                loads.incrementAndGet();
+                return null;
+            }));
+        }
+        assertEquals(2, loads.get());
+
+        RequestMemoUtil.clear("orgs");
+        RequestMemoUtil.get("orgs", "urn:mrn:mcp:org:idp1:dma", loads::incrementAndGet);
+        assertEquals(3, loads.get());
+
+        // a new request starts without memoized results
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        RequestMemoUtil.get("orgs", "urn:mrn:mcp:org:idp1:dma", loads::incrementAndGet);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void lookupsAreNotMemoizedOutsideOfARequest() {
+        AtomicInteger loads = new AtomicInteger();
+        RequestMemoUtil.get("orgs", "urn:mrn:mcp:org:idp1:dma", loads::incrementAndGet);
+        RequestMemoUtil.get("orgs", "urn:mrn:mcp:org:idp1:dma", loads::incrementAndGet);
+        assertEquals(2, loads.get());
+    }
+}
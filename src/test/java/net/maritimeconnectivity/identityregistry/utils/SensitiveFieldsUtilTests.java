@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Danish Maritime Authority.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.maritimeconnectivity.identityregistry.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import net.maritimeconnectivity.identityregistry.config.SensitiveFieldSerializerModifier;
+import net.maritimeconnectivity.identityregistry.model.database.Organization;
+import net.maritimeconnectivity.identityregistry.model.database.entities.Service;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class SensitiveFieldsUtilTests {
+
+    private static final String ORG_MRN = "urn:mrn:mcp:org:idp1:dma";
+
+    private AccessControlUtil accessControlUtil;
+    private ObjectMapper mapper;
+
+    @BeforeEach
+    public void setUp() {
+        accessControlUtil = mock(AccessControlUtil.class);
+        SensitiveFieldsUtil sensitiveFieldsUtil = new SensitiveFieldsUtil();
+        sensitiveFieldsUtil.setAccessControlUtil(accessControlUtil);
+
+        SimpleModule module = new SimpleModule();
+        module.setSerializerModifier(new SensitiveFieldSerializerModifier(sensitiveFieldsUtil::canSeeSensitiveFields));
+        mapper = new ObjectMapper();
+        mapper.registerModule(module);
+    }
+
+    private static Service service() {
+        Service service = new Service();
+        service.setName("NW-NM Service");
+        service.setOidcClientId("0.3-urn:mrn:mcp:service:idp1:dma:instance:nw-nm");
+        service.setOidcClientSecret("secret");
+        return service;
+    }
+
+    private static Organization organization() {
+        Organization org = new Organization();
+        org.setMrn(ORG_MRN);
+        org.setFederationType("test-idp");
+        org.setIdentityProviderAttributes(new HashSet<>());
+        return org;
+    }
+
+    @Test
+    public void sensitiveFieldsAreLeftOutForUsers() {
+        given(accessControlUtil.hasAnyRoles(anyList())).willReturn(false);
+        Service service = service();
+
+        JsonNode json = mapper.valueToTree(service);
+        assertEquals("NW-NM Service", json.get("name").asText());
+        assertFalse(json.has("oidcClientId"));
+        assertFalse(json.has("oidcClientSecret"));
+        // the entity itself is not changed
+        assertEquals("secret", service.getOidcClientSecret());
+    }
+
+    @Test
+    public void sensitiveFieldsAreShownToAdmins() {
+        given(accessControlUtil.hasAnyRoles(anyList())).willReturn(true);
+
+        JsonNode json = mapper.valueToTree(service());
+        assertEquals("secret", json.get("oidcClientSecret").asText());
+    }
+
+    @Test
+    public void organizationFieldsRequireAccessToTheOrganization() {
+        given(accessControlUtil.hasAnyRoles(anyList())).willReturn(true);
+        given(accessControlUtil.hasAccessToOrg(ORG_MRN)).willReturn(false);
+
+        JsonNode json = mapper.valueToTree(organization());
+        assertEquals(ORG_MRN, json.get("mrn").asText());
+        assertFalse(json.has("federationType"));
+        assertFalse(json.has("identityProviderAttributes"));
+
+        given(accessControlUtil.hasAccessToOrg(ORG_MRN)).willReturn(true);
+        json = mapper.valueToTree(organization());
+        assertTrue(json.has("federationType"));
+        assertTrue(json.has("identityProviderAttributes"));
+    }
+}